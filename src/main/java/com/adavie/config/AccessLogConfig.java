@@ -0,0 +1,132 @@
+package com.adavie.config;
+
+import java.nio.file.Path;
+import java.nio.file.Paths;
+
+public final class AccessLogConfig {
+  public static final String DEFAULT_FILE_PATH = "logs/access.log";
+  public static final long DEFAULT_MAX_FILE_SIZE = 100L * 1024 * 1024;
+  public static final long DEFAULT_ROTATION_INTERVAL = 24L * 60 * 60 * 1000;
+  public static final int DEFAULT_MAX_FILES = 10;
+  public static final int DEFAULT_BUFFER_SIZE = 64 * 1024;
+  public static final long DEFAULT_FLUSH_INTERVAL = 200;
+
+  // a record never takes more than this, longer paths are truncated
+  public static final int MIN_BUFFER_SIZE = 4096;
+
+  private final Path filePath;
+  private final long maxFileSize;
+  private final long rotationInterval;
+  private final int maxFiles;
+  private final int bufferSize;
+  private final long flushInterval;
+
+  private AccessLogConfig(Builder builder) {
+    this.filePath = builder.filePath;
+    this.maxFileSize = builder.maxFileSize;
+    this.rotationInterval = builder.rotationInterval;
+    this.maxFiles = builder.maxFiles;
+    this.bufferSize = builder.bufferSize;
+    this.flushInterval = builder.flushInterval;
+  }
+
+  public Path getFilePath() {
+    return filePath;
+  }
+
+  public long getMaxFileSize() {
+    return maxFileSize;
+  }
+
+  public long getRotationInterval() {
+    return rotationInterval;
+  }
+
+  public int getMaxFiles() {
+    return maxFiles;
+  }
+
+  public int getBufferSize() {
+    return bufferSize;
+  }
+
+  public long getFlushInterval() {
+    return flushInterval;
+  }
+
+  public static class Builder {
+    private Path filePath = Paths.get(DEFAULT_FILE_PATH);
+    private long maxFileSize = DEFAULT_MAX_FILE_SIZE;
+    private long rotationInterval = DEFAULT_ROTATION_INTERVAL;
+    private int maxFiles = DEFAULT_MAX_FILES;
+    private int bufferSize = DEFAULT_BUFFER_SIZE;
+    private long flushInterval = DEFAULT_FLUSH_INTERVAL;
+
+    public Builder filePath(Path filePath) {
+      if (filePath == null || filePath.getFileName() == null) {
+        throw new IllegalArgumentException("Access log file path must name a file");
+      }
+      this.filePath = filePath;
+      return this;
+    }
+
+    /**
+     * The file is rotated before it would grow past this many bytes.
+     */
+    public Builder maxFileSize(long maxFileSize) {
+      if (maxFileSize < 1) {
+        throw new IllegalArgumentException("Max file size must be at least 1");
+      }
+      this.maxFileSize = maxFileSize;
+      return this;
+    }
+
+    /**
+     * The file is rotated once it has been open this many milliseconds, or never if 0.
+     */
+    public Builder rotationInterval(long rotationInterval) {
+      if (rotationInterval < 0) {
+        throw new IllegalArgumentException("Rotation interval cannot be negative");
+      }
+      this.rotationInterval = rotationInterval;
+      return this;
+    }
+
+    /**
+     * Rotated files kept next to the current one; older files are deleted.
+     */
+    public Builder maxFiles(int maxFiles) {
+      if (maxFiles < 0) {
+        throw new IllegalArgumentException("Max files cannot be negative");
+      }
+      this.maxFiles = maxFiles;
+      return this;
+    }
+
+    /**
+     * Size in bytes of each buffer records are encoded into before they are written.
+     */
+    public Builder bufferSize(int bufferSize) {
+      if (bufferSize < MIN_BUFFER_SIZE) {
+        throw new IllegalArgumentException("Buffer size must be at least " + MIN_BUFFER_SIZE);
+      }
+      this.bufferSize = bufferSize;
+      return this;
+    }
+
+    /**
+     * Longest time in milliseconds a record waits in a partly filled buffer before it is written.
+     */
+    public Builder flushInterval(long flushInterval) {
+      if (flushInterval < 1) {
+        throw new IllegalArgumentException("Flush interval must be at least 1");
+      }
+      this.flushInterval = flushInterval;
+      return this;
+    }
+
+    public AccessLogConfig build() {
+      return new AccessLogConfig(this);
+    }
+  }
+}
@@ -0,0 +1,120 @@
+package com.adavie.config;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+public final class BodyConfig {
+  public static final long DEFAULT_MEMORY_BUDGET = 64L * 1024 * 1024;
+  public static final long DEFAULT_SPOOL_THRESHOLD = 1024 * 1024;
+  public static final long DEFAULT_MAX_BODY_SIZE = 1024L * 1024 * 1024;
+  public static final long DEFAULT_BUDGET_WAIT_TIMEOUT = 1000;
+
+  // in-memory bodies are held in a single array
+  public static final long MAX_SPOOL_THRESHOLD = Integer.MAX_VALUE - 8;
+
+  private final long memoryBudget;
+  private final long spoolThreshold;
+  private final long maxBodySize;
+  private final long budgetWaitTimeout;
+  private final Path spoolDirectory;
+
+  private BodyConfig(Builder builder) {
+    this.memoryBudget = builder.memoryBudget;
+    this.spoolThreshold = builder.spoolThreshold;
+    this.maxBodySize = builder.maxBodySize;
+    this.budgetWaitTimeout = builder.budgetWaitTimeout;
+    this.spoolDirectory = builder.spoolDirectory;
+  }
+
+  public long getMemoryBudget() {
+    return memoryBudget;
+  }
+
+  public long getSpoolThreshold() {
+    return spoolThreshold;
+  }
+
+  public long getMaxBodySize() {
+    return maxBodySize;
+  }
+
+  public long getBudgetWaitTimeout() {
+    return budgetWaitTimeout;
+  }
+
+  /**
+   * Directory for spooled bodies, or {@code null} for the system temporary directory.
+   */
+  public Path getSpoolDirectory() {
+    return spoolDirectory;
+  }
+
+  public static class Builder {
+    private long memoryBudget = DEFAULT_MEMORY_BUDGET;
+    private long spoolThreshold = DEFAULT_SPOOL_THRESHOLD;
+    private long maxBodySize = DEFAULT_MAX_BODY_SIZE;
+    private long budgetWaitTimeout = DEFAULT_BUDGET_WAIT_TIMEOUT;
+    private Path spoolDirectory;
+
+    /**
+     * Bytes that request bodies held in memory may use across all connections together.
+     */
+    public Builder memoryBudget(long memoryBudget) {
+      if (memoryBudget < 1) {
+        throw new IllegalArgumentException("Memory budget must be at least 1");
+      }
+      this.memoryBudget = memoryBudget;
+      return this;
+    }
+
+    /**
+     * Bodies larger than this many bytes are written to a temporary file instead of memory.
+     * Routes may override it with {@link com.adavie.route.Route#spoolThreshold(long)}.
+     */
+    public Builder spoolThreshold(long spoolThreshold) {
+      if (spoolThreshold < 0 || spoolThreshold > MAX_SPOOL_THRESHOLD) {
+        throw new IllegalArgumentException("Spool threshold must be between 0 and " + MAX_SPOOL_THRESHOLD);
+      }
+      this.spoolThreshold = spoolThreshold;
+      return this;
+    }
+
+    /**
+     * Largest request body accepted, in bytes; larger bodies are rejected with {@code 413}.
+     */
+    public Builder maxBodySize(long maxBodySize) {
+      if (maxBodySize < 0) {
+        throw new IllegalArgumentException("Max body size cannot be negative");
+      }
+      this.maxBodySize = maxBodySize;
+      return this;
+    }
+
+    /**
+     * How long a request waits for memory budget before it is rejected with {@code 503}, in
+     * milliseconds.
+     */
+    public Builder budgetWaitTimeout(long budgetWaitTimeout) {
+      if (budgetWaitTimeout < 0) {
+        throw new IllegalArgumentException("Budget wait timeout cannot be negative");
+      }
+      this.budgetWaitTimeout = budgetWaitTimeout;
+      return this;
+    }
+
+    public Builder spoolDirectory(Path spoolDirectory) {
+      if (spoolDirectory != null && !Files.isDirectory(spoolDirectory)) {
+        throw new IllegalArgumentException("Spool directory does not exist: " + spoolDirectory);
+      }
+      this.spoolDirectory = spoolDirectory;
+      return this;
+    }
+
+    public BodyConfig build() {
+      if (spoolThreshold > memoryBudget) {
+        throw new IllegalArgumentException("Spool threshold cannot exceed the memory budget");
+      }
+      return new BodyConfig(this);
+    }
+  }
+}
@@ -0,0 +1,138 @@
+package com.adavie.config;
+
+public final class Http2Config {
+  public static final boolean DEFAULT_ENABLED = true;
+  public static final int DEFAULT_MAX_CONCURRENT_STREAMS = 100;
+  public static final int DEFAULT_INITIAL_WINDOW_SIZE = 65535;
+  public static final int DEFAULT_CONNECTION_WINDOW_SIZE = 1048576;
+  public static final int DEFAULT_MAX_FRAME_SIZE = 16384;
+  public static final int DEFAULT_HEADER_TABLE_SIZE = 4096;
+  public static final int DEFAULT_MAX_HEADER_LIST_SIZE = 16384;
+
+  private static final int MAX_WINDOW_SIZE = Integer.MAX_VALUE;
+  private static final int MIN_FRAME_SIZE = 16384;
+  private static final int MAX_FRAME_SIZE = 16777215;
+
+  private final boolean enabled;
+  private final int maxConcurrentStreams;
+  private final int initialWindowSize;
+  private final int connectionWindowSize;
+  private final int maxFrameSize;
+  private final int headerTableSize;
+  private final int maxHeaderListSize;
+
+  private Http2Config(Builder builder) {
+    this.enabled = builder.enabled;
+    this.maxConcurrentStreams = builder.maxConcurrentStreams;
+    this.initialWindowSize = builder.initialWindowSize;
+    this.connectionWindowSize = builder.connectionWindowSize;
+    this.maxFrameSize = builder.maxFrameSize;
+    this.headerTableSize = builder.headerTableSize;
+    this.maxHeaderListSize = builder.maxHeaderListSize;
+  }
+
+  public boolean isEnabled() {
+    return enabled;
+  }
+
+  public int getMaxConcurrentStreams() {
+    return maxConcurrentStreams;
+  }
+
+  public int getInitialWindowSize() {
+    return initialWindowSize;
+  }
+
+  public int getConnectionWindowSize() {
+    return connectionWindowSize;
+  }
+
+  public int getMaxFrameSize() {
+    return maxFrameSize;
+  }
+
+  public int getHeaderTableSize() {
+    return headerTableSize;
+  }
+
+  public int getMaxHeaderListSize() {
+    return maxHeaderListSize;
+  }
+
+  public static class Builder {
+    private boolean enabled = DEFAULT_ENABLED;
+    private int maxConcurrentStreams = DEFAULT_MAX_CONCURRENT_STREAMS;
+    private int initialWindowSize = DEFAULT_INITIAL_WINDOW_SIZE;
+    private int connectionWindowSize = DEFAULT_CONNECTION_WINDOW_SIZE;
+    private int maxFrameSize = DEFAULT_MAX_FRAME_SIZE;
+    private int headerTableSize = DEFAULT_HEADER_TABLE_SIZE;
+    private int maxHeaderListSize = DEFAULT_MAX_HEADER_LIST_SIZE;
+
+    public Builder enabled(boolean enabled) {
+      this.enabled = enabled;
+      return this;
+    }
+
+    public Builder maxConcurrentStreams(int maxConcurrentStreams) {
+      if (maxConcurrentStreams < 1) {
+        throw new IllegalArgumentException("Max concurrent streams must be at least 1");
+      }
+      this.maxConcurrentStreams = maxConcurrentStreams;
+      return this;
+    }
+
+    /**
+     * Flow-control window advertised for each stream, in bytes.
+     */
+    public Builder initialWindowSize(int initialWindowSize) {
+      if (initialWindowSize < 1 || initialWindowSize > MAX_WINDOW_SIZE) {
+        throw new IllegalArgumentException("Initial window size must be between 1 and " + MAX_WINDOW_SIZE);
+      }
+      this.initialWindowSize = initialWindowSize;
+      return this;
+    }
+
+    /**
+     * Flow-control window advertised for the whole connection, in bytes.
+     */
+    public Builder connectionWindowSize(int connectionWindowSize) {
+      if (connectionWindowSize < DEFAULT_INITIAL_WINDOW_SIZE || connectionWindowSize > MAX_WINDOW_SIZE) {
+        throw new IllegalArgumentException(
+            "Connection window size must be between " + DEFAULT_INITIAL_WINDOW_SIZE + " and " + MAX_WINDOW_SIZE);
+      }
+      this.connectionWindowSize = connectionWindowSize;
+      return this;
+    }
+
+    public Builder maxFrameSize(int maxFrameSize) {
+      if (maxFrameSize < MIN_FRAME_SIZE || maxFrameSize > MAX_FRAME_SIZE) {
+        throw new IllegalArgumentException("Max frame size must be between " + MIN_FRAME_SIZE + " and " + MAX_FRAME_SIZE);
+      }
+      this.maxFrameSize = maxFrameSize;
+      return this;
+    }
+
+    /**
+     * Size of the HPACK dynamic table used to decode request headers, in bytes.
+     */
+    public Builder headerTableSize(int headerTableSize) {
+      if (headerTableSize < 0) {
+        throw new IllegalArgumentException("Header table size cannot be negative");
+      }
+      this.headerTableSize = headerTableSize;
+      return this;
+    }
+
+    public Builder maxHeaderListSize(int maxHeaderListSize) {
+      if (maxHeaderListSize < 1) {
+        throw new IllegalArgumentException("Max header list size must be at least 1");
+      }
+      this.maxHeaderListSize = maxHeaderListSize;
+      return this;
+    }
+
+    public Http2Config build() {
+      return new Http2Config(this);
+    }
+  }
+}
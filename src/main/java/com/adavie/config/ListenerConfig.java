@@ -0,0 +1,159 @@
+package com.adavie.config;
+
+import java.nio.file.Path;
+
+/**
+ * An additional socket a server listens on, such as an admin port or a Unix domain socket. Every
+ * listener serves the server's routes, but accepts connections on its own thread with its own
+ * socket options and TLS settings, and can run its requests on an executor of its own so that a
+ * flood on one listener cannot starve the others.
+ */
+public final class ListenerConfig {
+  public static final String DEFAULT_HOSTNAME = "localhost";
+
+  private final String name;
+  private final String hostname;
+  private final int port;
+  private final Path unixSocketPath;
+  private final SocketConfig socketConfig;
+  private final TlsConfig tlsConfig;
+  private final ThreadPoolConfig threadPoolConfig;
+
+  private ListenerConfig(Builder builder) {
+    this.name = builder.name;
+    this.hostname = builder.hostname;
+    this.port = builder.port;
+    this.unixSocketPath = builder.unixSocketPath;
+    this.socketConfig = builder.socketConfig;
+    this.tlsConfig = builder.tlsConfig;
+    this.threadPoolConfig = builder.threadPoolConfig;
+  }
+
+  public String getName() {
+    return name;
+  }
+
+  public String getHostname() {
+    return hostname;
+  }
+
+  /**
+   * The TCP port, or {@code 0} for a Unix domain socket listener.
+   */
+  public int getPort() {
+    return port;
+  }
+
+  /**
+   * The socket path, or {@code null} for a TCP listener.
+   */
+  public Path getUnixSocketPath() {
+    return unixSocketPath;
+  }
+
+  public boolean isUnixSocket() {
+    return unixSocketPath != null;
+  }
+
+  public SocketConfig getSocketConfig() {
+    return socketConfig;
+  }
+
+  /**
+   * The TLS settings, or {@code null} for plaintext.
+   */
+  public TlsConfig getTlsConfig() {
+    return tlsConfig;
+  }
+
+  public boolean isTlsEnabled() {
+    return tlsConfig != null;
+  }
+
+  /**
+   * The listener's own executor settings, or {@code null} to share the server's executor.
+   */
+  public ThreadPoolConfig getThreadPoolConfig() {
+    return threadPoolConfig;
+  }
+
+  public static class Builder {
+    private final String name;
+    private String hostname = DEFAULT_HOSTNAME;
+    private int port;
+    private Path unixSocketPath;
+    private SocketConfig socketConfig;
+    private TlsConfig tlsConfig;
+    private ThreadPoolConfig threadPoolConfig;
+
+    /**
+     * @param name identifies the listener in thread names and logs
+     */
+    public Builder(String name) {
+      if (name == null || name.trim().isEmpty()) {
+        throw new IllegalArgumentException("Listener name cannot be null or empty");
+      }
+      this.name = name.trim();
+    }
+
+    public Builder hostname(String hostname) {
+      if (hostname == null || hostname.trim().isEmpty()) {
+        throw new IllegalArgumentException("Hostname cannot be null or empty");
+      }
+      this.hostname = hostname.trim();
+      return this;
+    }
+
+    public Builder port(int port) {
+      if (port < 1 || port > 65535) {
+        throw new IllegalArgumentException("Port must be between 1 and 65535");
+      }
+      this.port = port;
+      return this;
+    }
+
+    /**
+     * Listens on a Unix domain socket at this path instead of a TCP port. Connections on it are
+     * plaintext; a file left at the path by an earlier run is replaced.
+     */
+    public Builder unixSocketPath(Path unixSocketPath) {
+      if (unixSocketPath == null) {
+        throw new IllegalArgumentException("Unix socket path cannot be null");
+      }
+      this.unixSocketPath = unixSocketPath;
+      return this;
+    }
+
+    public Builder socketConfig(SocketConfig socketConfig) {
+      this.socketConfig = socketConfig;
+      return this;
+    }
+
+    public Builder tlsConfig(TlsConfig tlsConfig) {
+      this.tlsConfig = tlsConfig;
+      return this;
+    }
+
+    /**
+     * Gives the listener an executor of its own, a bulkhead between its connections and those of
+     * the other listeners.
+     */
+    public Builder threadPoolConfig(ThreadPoolConfig threadPoolConfig) {
+      this.threadPoolConfig = threadPoolConfig;
+      return this;
+    }
+
+    public ListenerConfig build() {
+      if ((port == 0) == (unixSocketPath == null)) {
+        throw new IllegalArgumentException("Listener needs either a port or a Unix socket path");
+      }
+      if (unixSocketPath != null && tlsConfig != null) {
+        throw new IllegalArgumentException("Unix socket listeners do not support TLS");
+      }
+      if (socketConfig == null) {
+        socketConfig = new SocketConfig.Builder().build();
+      }
+      return new ListenerConfig(this);
+    }
+  }
+}
@@ -1,19 +1,58 @@
 package com.adavie.config;
 
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
 public final class ServerConfig {
+  /** Name of the listener on the server's port. */
+  public static final String MAIN_LISTENER = "main";
+  /** Name of the listener on the server's Unix domain socket. */
+  public static final String UNIX_LISTENER = "unix";
 
   private final String hostname;
   private final int port;
   private final int clientConnectionTimeout;
+  private final int maxConnections;
+  private final int maxConnectionsPerIp;
   private final ThreadPoolConfig threadPoolConfig;
   private final LoggerConfig loggerConfig;
+  private final TlsConfig tlsConfig;
+  private final Http2Config http2Config;
+  private final SocketConfig socketConfig;
+  private final WebSocketConfig webSocketConfig;
+  private final BodyConfig bodyConfig;
+  private final AccessLogConfig accessLogConfig;
+  private final int metricsPort;
+  private final String metricsPath;
+  private final int ioThreads;
+  private final boolean requestLeakDetection;
+  private final Path unixSocketPath;
+  private final List<ListenerConfig> listeners;
 
   private ServerConfig(Builder builder) {
     this.hostname = builder.hostname;
     this.port = builder.port;
     this.clientConnectionTimeout = builder.clientConnectionTimeout;
+    this.maxConnections = builder.maxConnections;
+    this.maxConnectionsPerIp = builder.maxConnectionsPerIp;
     this.threadPoolConfig = builder.threadPoolConfig;
     this.loggerConfig = builder.loggerConfig;
+    this.tlsConfig = builder.tlsConfig;
+    this.http2Config = builder.http2Config;
+    this.socketConfig = builder.socketConfig;
+    this.webSocketConfig = builder.webSocketConfig;
+    this.bodyConfig = builder.bodyConfig;
+    this.accessLogConfig = builder.accessLogConfig;
+    this.metricsPort = builder.metricsPort;
+    this.metricsPath = builder.metricsPath;
+    this.ioThreads = builder.ioThreads;
+    this.requestLeakDetection = builder.requestLeakDetection;
+    this.unixSocketPath = builder.unixSocketPath;
+    this.listeners = Collections.unmodifiableList(new ArrayList<>(builder.listeners));
   }
 
   public static ServerConfig getDefaultServerConfig() {
@@ -32,18 +71,106 @@ public final class ServerConfig {
     return clientConnectionTimeout;
   }
 
+  public int getMaxConnections() {
+    return maxConnections;
+  }
+
+  public int getMaxConnectionsPerIp() {
+    return maxConnectionsPerIp;
+  }
+
   public ThreadPoolConfig getThreadPoolConfig() {
     return threadPoolConfig;
   }
 
   public LoggerConfig getLoggerConfig() {return loggerConfig;}
 
+  public TlsConfig getTlsConfig() {
+    return tlsConfig;
+  }
+
+  public boolean isTlsEnabled() {
+    return tlsConfig != null;
+  }
+
+  public Http2Config getHttp2Config() {
+    return http2Config;
+  }
+
+  public SocketConfig getSocketConfig() {
+    return socketConfig;
+  }
+
+  public WebSocketConfig getWebSocketConfig() {
+    return webSocketConfig;
+  }
+
+  public BodyConfig getBodyConfig() {
+    return bodyConfig;
+  }
+
+  public AccessLogConfig getAccessLogConfig() {
+    return accessLogConfig;
+  }
+
+  public boolean isAccessLogEnabled() {
+    return accessLogConfig != null;
+  }
+
+  public int getMetricsPort() {
+    return metricsPort;
+  }
+
+  public String getMetricsPath() {
+    return metricsPath;
+  }
+
+  public boolean isMetricsEnabled() {
+    return metricsPort > 0;
+  }
+
+  public int getIoThreads() {
+    return ioThreads;
+  }
+
+  public boolean isRequestLeakDetection() {
+    return requestLeakDetection;
+  }
+
+  /**
+   * The path of the additional Unix domain socket listener, or {@code null} if there is none.
+   */
+  public Path getUnixSocketPath() {
+    return unixSocketPath;
+  }
+
+  /**
+   * Listeners in addition to the server's port and Unix domain socket.
+   */
+  public List<ListenerConfig> getListeners() {
+    return listeners;
+  }
+
   public static class Builder {
     private String hostname = "localhost";
     private int port = 8081;
     private int clientConnectionTimeout = 30;
+    private int maxConnections;
+    private int maxConnectionsPerIp;
     private ThreadPoolConfig threadPoolConfig;
     private LoggerConfig loggerConfig;
+    private TlsConfig tlsConfig;
+    private Http2Config http2Config;
+    private SocketConfig socketConfig;
+    private WebSocketConfig webSocketConfig;
+    private BodyConfig bodyConfig;
+    private AccessLogConfig accessLogConfig;
+    private int metricsPort;
+    private String metricsPath = "/metrics";
+    private int ioThreads;
+    private boolean requestLeakDetection;
+    private Path unixSocketPath;
+    private final List<ListenerConfig> listeners = new ArrayList<>();
 
     public Builder() {}
 
@@ -91,6 +218,29 @@ public final class ServerConfig {
       return this;
     }
 
+    /**
+     * Most connections open at once, or 0 for no limit. Connections over the limit are closed as
+     * soon as they are accepted.
+     */
+    public Builder maxConnections(int maxConnections) {
+      if (maxConnections < 0) {
+        throw new IllegalArgumentException("Max connections cannot be negative");
+      }
+      this.maxConnections = maxConnections;
+      return this;
+    }
+
+    /**
+     * Most connections open at once from a single client IP address, or 0 for no limit.
+     */
+    public Builder maxConnectionsPerIp(int maxConnectionsPerIp) {
+      if (maxConnectionsPerIp < 0) {
+        throw new IllegalArgumentException("Max connections per IP cannot be negative");
+      }
+      this.maxConnectionsPerIp = maxConnectionsPerIp;
+      return this;
+    }
+
     public Builder threadPoolConfig(ThreadPoolConfig threadPoolConfig) {
       this.threadPoolConfig = threadPoolConfig;
       return this;
@@ -101,6 +251,112 @@ public final class ServerConfig {
       return this;
     }
 
+    public Builder tlsConfig(TlsConfig tlsConfig) {
+      this.tlsConfig = tlsConfig;
+      return this;
+    }
+
+    public Builder http2Config(Http2Config http2Config) {
+      this.http2Config = http2Config;
+      return this;
+    }
+
+    public Builder socketConfig(SocketConfig socketConfig) {
+      this.socketConfig = socketConfig;
+      return this;
+    }
+
+    public Builder webSocketConfig(WebSocketConfig webSocketConfig) {
+      this.webSocketConfig = webSocketConfig;
+      return this;
+    }
+
+    public Builder bodyConfig(BodyConfig bodyConfig) {
+      this.bodyConfig = bodyConfig;
+      return this;
+    }
+
+    /**
+     * Enables the access log, one line per request. It is disabled by default.
+     */
+    public Builder accessLogConfig(AccessLogConfig accessLogConfig) {
+      this.accessLogConfig = accessLogConfig;
+      return this;
+    }
+
+    /**
+     * Port serving metrics in the Prometheus text format, or 0 to disable them (the default). The
+     * port is served by a thread of its own, so scrapes are answered even when all workers are busy.
+     */
+    public Builder metricsPort(int metricsPort) {
+      if (metricsPort < 0 || metricsPort > 65535) {
+        throw new IllegalArgumentException("Metrics port must be between 0 and 65535");
+      }
+      this.metricsPort = metricsPort;
+      return this;
+    }
+
+    public Builder metricsPath(String metricsPath) {
+      if (metricsPath == null || !metricsPath.startsWith("/")) {
+        throw new IllegalArgumentException("Metrics path must start with '/'");
+      }
+      this.metricsPath = metricsPath;
+      return this;
+    }
+
+    /**
+     * Event loop threads that read requests from non-blocking sockets and run the handlers of
+     * {@link com.adavie.route.Route#nonBlocking() non-blocking} routes inline, or 0 to hand every
+     * connection to a worker (the default). One per core is the usual choice. Connections are
+     * handed to a worker as soon as they need a blocking handler.
+     */
+    public Builder ioThreads(int ioThreads) {
+      if (ioThreads < 0 || ioThreads > 1024) {
+        throw new IllegalArgumentException("IO threads must be between 0 and 1024");
+      }
+      this.ioThreads = ioThreads;
+      return this;
+    }
+
+    /**
+     * Connections reuse one {@link com.adavie.request.Request} for all their requests, so a handler
+     * must not keep the request once it has returned. With leak detection on, every request gets a
+     * new instance that fails with an {@code IllegalStateException} when used after its exchange
+     * completed. Meant for tests and debugging, off by default.
+     */
+    public Builder requestLeakDetection(boolean requestLeakDetection) {
+      this.requestLeakDetection = requestLeakDetection;
+      return this;
+    }
+
+    /**
+     * Also listens on a Unix domain socket at this path, for clients on the same host such as a
+     * service mesh sidecar, which then skip the TCP/IP stack. Its connections go through the same
+     * pipeline as TCP connections, without TLS. A socket file left at the path by an earlier run
+     * that no longer listens on it is replaced; anything else at the path, including a socket
+     * another process still accepts on, fails the start. The socket file is removed when the
+     * server stops.
+     */
+    public Builder unixSocketPath(Path unixSocketPath) {
+      if (unixSocketPath == null) {
+        throw new IllegalArgumentException("Unix socket path cannot be null");
+      }
+      this.unixSocketPath = unixSocketPath;
+      return this;
+    }
+
+    /**
+     * Adds a listener, for example an admin port or a Unix domain socket, that serves the same
+     * routes as the server's port.
+     */
+    public Builder listener(ListenerConfig listener) {
+      if (listener == null) {
+        throw new IllegalArgumentException("Listener cannot be null");
+      }
+      this.listeners.add(listener);
+      return this;
+    }
+
     public ServerConfig build() {
       if(this.threadPoolConfig == null) {
         this.threadPoolConfig = new ThreadPoolConfig.Builder().build();
@@ -109,6 +365,40 @@ public final class ServerConfig {
       if(this.loggerConfig == null) {
         this.loggerConfig = new LoggerConfig.Builder().build();
       }
+
+      if(this.http2Config == null) {
+        this.http2Config = new Http2Config.Builder().build();
+      }
+
+      if(this.socketConfig == null) {
+        this.socketConfig = new SocketConfig.Builder().build();
+      }
+
+      if(this.webSocketConfig == null) {
+        this.webSocketConfig = new WebSocketConfig.Builder().build();
+      }
+
+      if(this.bodyConfig == null) {
+        this.bodyConfig = new BodyConfig.Builder().build();
+      }
+
+      if (this.metricsPort != 0 && this.metricsPort == this.port) {
+        throw new IllegalArgumentException("Metrics port must differ from the server port");
+      }
+      // the server's own port and Unix domain socket are listeners named like this as well
+      Set<String> listenerNames = new HashSet<>();
+      listenerNames.add(MAIN_LISTENER);
+      if (unixSocketPath != null) {
+        listenerNames.add(UNIX_LISTENER);
+      }
+      for (ListenerConfig listener : listeners) {
+        if (!listenerNames.add(listener.getName())) {
+          throw new IllegalArgumentException("Duplicate listener name: " + listener.getName());
+        }
+        if (listener.getPort() != 0 && (listener.getPort() == port || listener.getPort() == metricsPort)) {
+          throw new IllegalArgumentException("Listener port must differ from the server and metrics ports");
+        }
+      }
       return new ServerConfig(this);
     }
   }
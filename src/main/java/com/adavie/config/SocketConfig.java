@@ -0,0 +1,173 @@
+package com.adavie.config;
+
+/**
+ * TCP options for the listening socket and the connections it accepts.
+ *
+ * <p>Buffer sizes and the keep-alive idle time of {@code 0} leave the operating system's defaults
+ * in place. Options the platform does not support, such as {@code TCP_QUICKACK} outside Linux,
+ * are skipped with a log message.
+ */
+public final class SocketConfig {
+  public static final int DEFAULT_BACKLOG = 1024;
+  public static final boolean DEFAULT_TCP_NO_DELAY = true;
+  public static final int DEFAULT_RECEIVE_BUFFER_SIZE = 0;
+  public static final int DEFAULT_SEND_BUFFER_SIZE = 0;
+  public static final boolean DEFAULT_KEEP_ALIVE = false;
+  public static final boolean DEFAULT_REUSE_ADDRESS = true;
+  public static final boolean DEFAULT_TCP_QUICK_ACK = false;
+  public static final int DEFAULT_TCP_KEEP_IDLE_SECONDS = 0;
+
+  private static final int MAX_BACKLOG = 65535;
+  private static final int MAX_BUFFER_SIZE = 64 * 1024 * 1024;
+  private static final int MAX_KEEP_IDLE_SECONDS = 32767;
+
+  private final int backlog;
+  private final boolean tcpNoDelay;
+  private final int receiveBufferSize;
+  private final int sendBufferSize;
+  private final boolean keepAlive;
+  private final boolean reuseAddress;
+  private final boolean tcpQuickAck;
+  private final int tcpKeepIdleSeconds;
+
+  private SocketConfig(Builder builder) {
+    this.backlog = builder.backlog;
+    this.tcpNoDelay = builder.tcpNoDelay;
+    this.receiveBufferSize = builder.receiveBufferSize;
+    this.sendBufferSize = builder.sendBufferSize;
+    this.keepAlive = builder.keepAlive;
+    this.reuseAddress = builder.reuseAddress;
+    this.tcpQuickAck = builder.tcpQuickAck;
+    this.tcpKeepIdleSeconds = builder.tcpKeepIdleSeconds;
+  }
+
+  public int getBacklog() {
+    return backlog;
+  }
+
+  public boolean isTcpNoDelay() {
+    return tcpNoDelay;
+  }
+
+  public int getReceiveBufferSize() {
+    return receiveBufferSize;
+  }
+
+  public int getSendBufferSize() {
+    return sendBufferSize;
+  }
+
+  public boolean isKeepAlive() {
+    return keepAlive;
+  }
+
+  public boolean isReuseAddress() {
+    return reuseAddress;
+  }
+
+  public boolean isTcpQuickAck() {
+    return tcpQuickAck;
+  }
+
+  public int getTcpKeepIdleSeconds() {
+    return tcpKeepIdleSeconds;
+  }
+
+  public static class Builder {
+    private int backlog = DEFAULT_BACKLOG;
+    private boolean tcpNoDelay = DEFAULT_TCP_NO_DELAY;
+    private int receiveBufferSize = DEFAULT_RECEIVE_BUFFER_SIZE;
+    private int sendBufferSize = DEFAULT_SEND_BUFFER_SIZE;
+    private boolean keepAlive = DEFAULT_KEEP_ALIVE;
+    private boolean reuseAddress = DEFAULT_REUSE_ADDRESS;
+    private boolean tcpQuickAck = DEFAULT_TCP_QUICK_ACK;
+    private int tcpKeepIdleSeconds = DEFAULT_TCP_KEEP_IDLE_SECONDS;
+
+    /**
+     * Connections the kernel queues before they are accepted. The kernel caps it at
+     * {@code net.core.somaxconn} on Linux; a short queue drops connection attempts during bursts.
+     */
+    public Builder backlog(int backlog) {
+      if (backlog < 1 || backlog > MAX_BACKLOG) {
+        throw new IllegalArgumentException("Backlog must be between 1 and " + MAX_BACKLOG);
+      }
+      this.backlog = backlog;
+      return this;
+    }
+
+    /**
+     * Disables Nagle's algorithm on accepted connections, so that small responses are not held
+     * back waiting for the client's delayed acknowledgement.
+     */
+    public Builder tcpNoDelay(boolean tcpNoDelay) {
+      this.tcpNoDelay = tcpNoDelay;
+      return this;
+    }
+
+    /**
+     * {@code SO_RCVBUF} in bytes, or 0 for the system default. Set on the listening socket so that
+     * accepted connections can negotiate a window scale large enough for it.
+     */
+    public Builder receiveBufferSize(int receiveBufferSize) {
+      if (receiveBufferSize < 0 || receiveBufferSize > MAX_BUFFER_SIZE) {
+        throw new IllegalArgumentException("Receive buffer size must be between 0 and " + MAX_BUFFER_SIZE);
+      }
+      this.receiveBufferSize = receiveBufferSize;
+      return this;
+    }
+
+    /**
+     * {@code SO_SNDBUF} of accepted connections in bytes, or 0 for the system default.
+     */
+    public Builder sendBufferSize(int sendBufferSize) {
+      if (sendBufferSize < 0 || sendBufferSize > MAX_BUFFER_SIZE) {
+        throw new IllegalArgumentException("Send buffer size must be between 0 and " + MAX_BUFFER_SIZE);
+      }
+      this.sendBufferSize = sendBufferSize;
+      return this;
+    }
+
+    /**
+     * Enables TCP keep-alive probes on accepted connections.
+     */
+    public Builder keepAlive(boolean keepAlive) {
+      this.keepAlive = keepAlive;
+      return this;
+    }
+
+    /**
+     * {@code SO_REUSEADDR} on the listening socket, so that a restarted server can bind its port
+     * while connections of the previous process are in {@code TIME_WAIT}.
+     */
+    public Builder reuseAddress(boolean reuseAddress) {
+      this.reuseAddress = reuseAddress;
+      return this;
+    }
+
+    /**
+     * Linux {@code TCP_QUICKACK} on accepted connections: acknowledge the request immediately
+     * instead of delaying the ACK. The kernel may fall back to delayed ACKs later in the
+     * connection, so this mostly helps the first exchanges.
+     */
+    public Builder tcpQuickAck(boolean tcpQuickAck) {
+      this.tcpQuickAck = tcpQuickAck;
+      return this;
+    }
+
+    /**
+     * Idle seconds before the first keep-alive probe ({@code TCP_KEEPIDLE}), or 0 for the system
+     * default of usually two hours. Only used with {@link #keepAlive(boolean) keepAlive}.
+     */
+    public Builder tcpKeepIdleSeconds(int tcpKeepIdleSeconds) {
+      if (tcpKeepIdleSeconds < 0 || tcpKeepIdleSeconds > MAX_KEEP_IDLE_SECONDS) {
+        throw new IllegalArgumentException("TCP keep idle must be between 0 and " + MAX_KEEP_IDLE_SECONDS + " seconds");
+      }
+      this.tcpKeepIdleSeconds = tcpKeepIdleSeconds;
+      return this;
+    }
+
+    public SocketConfig build() {
+      return new SocketConfig(this);
+    }
+  }
+}
@@ -6,12 +6,17 @@ public final class ThreadPoolConfig {
   public static final int DEFAULT_QUEUE_SIZE = 20;
   public static final long DEFAULT_KEEPALIVE_SECONDS = 60L;
   public static final boolean DEFAULT_VIRTUAL_THREADS = true;
+  public static final boolean DEFAULT_WORK_STEALING = false;
+  public static final int DEFAULT_PARALLELISM = Runtime.getRuntime().availableProcessors();
+  public static final int MAX_PARALLELISM = 32767;
 
   private final int minPoolSize;
   private final int maxPoolSize;
   private final long keepAliveSeconds;
   private final int queueSize;
   private final boolean virtualThreads;
+  private final boolean workStealing;
+  private final int parallelism;
 
   public int getMinPoolSize() {
     return minPoolSize;
@@ -33,6 +38,22 @@ public final class ThreadPoolConfig {
     return virtualThreads;
   }
 
+  /**
+   * Whether workers come from a work-stealing {@link java.util.concurrent.ForkJoinPool}. Takes
+   * precedence over {@link #isVirtualThreads()}.
+   */
+  public boolean isWorkStealing() {
+    return workStealing;
+  }
+
+  /**
+   * The number of workers a work-stealing pool keeps running. Workers blocked on socket I/O are
+   * replaced by spare threads, up to {@link #getMaxPoolSize()} threads in total.
+   */
+  public int getParallelism() {
+    return parallelism;
+  }
+
   public boolean isDefault() {
     return minPoolSize != ThreadPoolConfig.DEFAULT_MIN_POOL_SIZE
       || maxPoolSize != ThreadPoolConfig.DEFAULT_MAX_POOL_SIZE
@@ -46,6 +67,8 @@ public final class ThreadPoolConfig {
     this.keepAliveSeconds = builder.keepAliveSeconds;
     this.queueSize = builder.queueSize;
     this.virtualThreads = builder.virtualThreads;
+    this.workStealing = builder.workStealing;
+    this.parallelism = builder.parallelism;
   }
 
   public static class Builder {
@@ -54,6 +77,8 @@ public final class ThreadPoolConfig {
     private long keepAliveSeconds = DEFAULT_KEEPALIVE_SECONDS;
     private int queueSize = DEFAULT_QUEUE_SIZE;
     private boolean virtualThreads = DEFAULT_VIRTUAL_THREADS;
+    private boolean workStealing = DEFAULT_WORK_STEALING;
+    private int parallelism = DEFAULT_PARALLELISM;
 
     public Builder minPoolSize(int minPoolSize) {
       if (minPoolSize < 1) {
@@ -104,6 +129,22 @@ public final class ThreadPoolConfig {
       return this;
     }
 
+    public Builder workStealing(boolean workStealing) {
+      this.workStealing = workStealing;
+      return this;
+    }
+
+    public Builder parallelism(int parallelism) {
+      if (parallelism < 1) {
+        throw new IllegalArgumentException("Parallelism must be at least 1");
+      }
+      if (parallelism > MAX_PARALLELISM) {
+        throw new IllegalArgumentException("Parallelism cannot exceed " + MAX_PARALLELISM);
+      }
+      this.parallelism = parallelism;
+      return this;
+    }
+
     public ThreadPoolConfig build() {
       if (minPoolSize > maxPoolSize) {
         throw new IllegalArgumentException(
@@ -0,0 +1,173 @@
+package com.adavie.config;
+
+import javax.net.ssl.SSLContext;
+import java.util.Arrays;
+import java.util.List;
+
+public final class TlsConfig {
+  public static final String DEFAULT_KEY_STORE_TYPE = "PKCS12";
+  public static final List<String> DEFAULT_PROTOCOLS = Arrays.asList("TLSv1.3", "TLSv1.2");
+  public static final List<String> DEFAULT_APPLICATION_PROTOCOLS = Arrays.asList("http/1.1");
+  public static final int DEFAULT_SESSION_CACHE_SIZE = 20480;
+  public static final int DEFAULT_SESSION_TIMEOUT_SECONDS = 86400;
+  public static final boolean DEFAULT_SESSION_TICKETS = true;
+
+  private final SSLContext sslContext;
+  private final String keyStorePath;
+  private final char[] keyStorePassword;
+  private final String keyStoreType;
+  private final List<String> protocols;
+  private final List<String> applicationProtocols;
+  private final int sessionCacheSize;
+  private final int sessionTimeoutSeconds;
+  private final boolean sessionTickets;
+
+  private TlsConfig(Builder builder) {
+    this.sslContext = builder.sslContext;
+    this.keyStorePath = builder.keyStorePath;
+    this.keyStorePassword = builder.keyStorePassword;
+    this.keyStoreType = builder.keyStoreType;
+    this.protocols = builder.protocols;
+    this.applicationProtocols = builder.applicationProtocols;
+    this.sessionCacheSize = builder.sessionCacheSize;
+    this.sessionTimeoutSeconds = builder.sessionTimeoutSeconds;
+    this.sessionTickets = builder.sessionTickets;
+  }
+
+  public SSLContext getSslContext() {
+    return sslContext;
+  }
+
+  public String getKeyStorePath() {
+    return keyStorePath;
+  }
+
+  public char[] getKeyStorePassword() {
+    return keyStorePassword;
+  }
+
+  public String getKeyStoreType() {
+    return keyStoreType;
+  }
+
+  public List<String> getProtocols() {
+    return protocols;
+  }
+
+  public List<String> getApplicationProtocols() {
+    return applicationProtocols;
+  }
+
+  public int getSessionCacheSize() {
+    return sessionCacheSize;
+  }
+
+  public int getSessionTimeoutSeconds() {
+    return sessionTimeoutSeconds;
+  }
+
+  public boolean isSessionTickets() {
+    return sessionTickets;
+  }
+
+  public static class Builder {
+    private SSLContext sslContext;
+    private String keyStorePath;
+    private char[] keyStorePassword = new char[0];
+    private String keyStoreType = DEFAULT_KEY_STORE_TYPE;
+    private List<String> protocols = DEFAULT_PROTOCOLS;
+    private List<String> applicationProtocols = DEFAULT_APPLICATION_PROTOCOLS;
+    private int sessionCacheSize = DEFAULT_SESSION_CACHE_SIZE;
+    private int sessionTimeoutSeconds = DEFAULT_SESSION_TIMEOUT_SECONDS;
+    private boolean sessionTickets = DEFAULT_SESSION_TICKETS;
+
+    /**
+     * Uses an already initialised context instead of loading a key store.
+     */
+    public Builder sslContext(SSLContext sslContext) {
+      this.sslContext = sslContext;
+      return this;
+    }
+
+    public Builder keyStorePath(String keyStorePath) {
+      if (keyStorePath == null || keyStorePath.trim().isEmpty()) {
+        throw new IllegalArgumentException("Key store path cannot be null or empty");
+      }
+      this.keyStorePath = keyStorePath.trim();
+      return this;
+    }
+
+    public Builder keyStorePassword(char[] keyStorePassword) {
+      if (keyStorePassword == null) {
+        throw new IllegalArgumentException("Key store password cannot be null");
+      }
+      this.keyStorePassword = keyStorePassword.clone();
+      return this;
+    }
+
+    public Builder keyStoreType(String keyStoreType) {
+      if (keyStoreType == null || keyStoreType.trim().isEmpty()) {
+        throw new IllegalArgumentException("Key store type cannot be null or empty");
+      }
+      this.keyStoreType = keyStoreType.trim();
+      return this;
+    }
+
+    public Builder protocols(String... protocols) {
+      if (protocols == null || protocols.length == 0) {
+        throw new IllegalArgumentException("At least one TLS protocol must be specified");
+      }
+      this.protocols = Arrays.asList(protocols.clone());
+      return this;
+    }
+
+    /**
+     * Protocols offered through ALPN, in order of server preference.
+     */
+    public Builder applicationProtocols(String... applicationProtocols) {
+      if (applicationProtocols == null) {
+        throw new IllegalArgumentException("Application protocols cannot be null");
+      }
+      this.applicationProtocols = Arrays.asList(applicationProtocols.clone());
+      return this;
+    }
+
+    /**
+     * Maximum number of sessions kept for abbreviated handshakes, or 0 for no limit.
+     */
+    public Builder sessionCacheSize(int sessionCacheSize) {
+      if (sessionCacheSize < 0) {
+        throw new IllegalArgumentException("Session cache size cannot be negative");
+      }
+      this.sessionCacheSize = sessionCacheSize;
+      return this;
+    }
+
+    public Builder sessionTimeoutSeconds(int sessionTimeoutSeconds) {
+      if (sessionTimeoutSeconds < 1) {
+        throw new IllegalArgumentException("Session timeout must be at least 1 second");
+      }
+      if (sessionTimeoutSeconds > 604800) {
+        throw new IllegalArgumentException("Session timeout cannot exceed 604800 (7 days)");
+      }
+      this.sessionTimeoutSeconds = sessionTimeoutSeconds;
+      return this;
+    }
+
+    /**
+     * Enables stateless resumption through TLS session tickets. The JDK reads this setting once per
+     * JVM, so it only takes effect if applied before the first TLS handshake.
+     */
+    public Builder sessionTickets(boolean sessionTickets) {
+      this.sessionTickets = sessionTickets;
+      return this;
+    }
+
+    public TlsConfig build() {
+      if (sslContext == null && keyStorePath == null) {
+        throw new IllegalArgumentException("Either an SSLContext or a key store path must be specified");
+      }
+      return new TlsConfig(this);
+    }
+  }
+}
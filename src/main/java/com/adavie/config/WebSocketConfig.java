@@ -0,0 +1,147 @@
+package com.adavie.config;
+
+import java.util.zip.Deflater;
+
+public final class WebSocketConfig {
+  public static final int DEFAULT_MAX_FRAME_SIZE = 65536;
+  public static final int DEFAULT_MAX_MESSAGE_SIZE = 1048576;
+  public static final boolean DEFAULT_PER_MESSAGE_DEFLATE = true;
+  public static final int DEFAULT_COMPRESSION_THRESHOLD = 256;
+  public static final int DEFAULT_COMPRESSION_LEVEL = Deflater.DEFAULT_COMPRESSION;
+  public static final int DEFAULT_DEFLATE_POOL_SIZE = 32;
+  public static final int DEFAULT_EVENT_LOOP_THREADS = 2;
+
+  // control frames carry at most 125 bytes, so smaller limits could reject a valid close frame
+  private static final int MIN_FRAME_SIZE = 125;
+
+  private final int maxFrameSize;
+  private final int maxMessageSize;
+  private final boolean perMessageDeflate;
+  private final int compressionThreshold;
+  private final int compressionLevel;
+  private final int deflatePoolSize;
+  private final int eventLoopThreads;
+
+  private WebSocketConfig(Builder builder) {
+    this.maxFrameSize = builder.maxFrameSize;
+    this.maxMessageSize = builder.maxMessageSize;
+    this.perMessageDeflate = builder.perMessageDeflate;
+    this.compressionThreshold = builder.compressionThreshold;
+    this.compressionLevel = builder.compressionLevel;
+    this.deflatePoolSize = builder.deflatePoolSize;
+    this.eventLoopThreads = builder.eventLoopThreads;
+  }
+
+  public int getMaxFrameSize() {
+    return maxFrameSize;
+  }
+
+  public int getMaxMessageSize() {
+    return maxMessageSize;
+  }
+
+  public boolean isPerMessageDeflate() {
+    return perMessageDeflate;
+  }
+
+  public int getCompressionThreshold() {
+    return compressionThreshold;
+  }
+
+  public int getCompressionLevel() {
+    return compressionLevel;
+  }
+
+  public int getDeflatePoolSize() {
+    return deflatePoolSize;
+  }
+
+  public int getEventLoopThreads() {
+    return eventLoopThreads;
+  }
+
+  public static class Builder {
+    private int maxFrameSize = DEFAULT_MAX_FRAME_SIZE;
+    private int maxMessageSize = DEFAULT_MAX_MESSAGE_SIZE;
+    private boolean perMessageDeflate = DEFAULT_PER_MESSAGE_DEFLATE;
+    private int compressionThreshold = DEFAULT_COMPRESSION_THRESHOLD;
+    private int compressionLevel = DEFAULT_COMPRESSION_LEVEL;
+    private int deflatePoolSize = DEFAULT_DEFLATE_POOL_SIZE;
+    private int eventLoopThreads = DEFAULT_EVENT_LOOP_THREADS;
+
+    /**
+     * Largest single frame payload accepted from a client, in bytes.
+     */
+    public Builder maxFrameSize(int maxFrameSize) {
+      if (maxFrameSize < MIN_FRAME_SIZE) {
+        throw new IllegalArgumentException("Max frame size must be at least " + MIN_FRAME_SIZE);
+      }
+      this.maxFrameSize = maxFrameSize;
+      return this;
+    }
+
+    /**
+     * Largest message accepted from a client after reassembly and decompression, in bytes.
+     */
+    public Builder maxMessageSize(int maxMessageSize) {
+      if (maxMessageSize < MIN_FRAME_SIZE) {
+        throw new IllegalArgumentException("Max message size must be at least " + MIN_FRAME_SIZE);
+      }
+      this.maxMessageSize = maxMessageSize;
+      return this;
+    }
+
+    public Builder perMessageDeflate(boolean perMessageDeflate) {
+      this.perMessageDeflate = perMessageDeflate;
+      return this;
+    }
+
+    /**
+     * Outgoing messages smaller than this many bytes are sent uncompressed.
+     */
+    public Builder compressionThreshold(int compressionThreshold) {
+      if (compressionThreshold < 0) {
+        throw new IllegalArgumentException("Compression threshold cannot be negative");
+      }
+      this.compressionThreshold = compressionThreshold;
+      return this;
+    }
+
+    public Builder compressionLevel(int compressionLevel) {
+      if (compressionLevel < Deflater.DEFAULT_COMPRESSION || compressionLevel > Deflater.BEST_COMPRESSION) {
+        throw new IllegalArgumentException("Compression level must be between -1 and 9");
+      }
+      this.compressionLevel = compressionLevel;
+      return this;
+    }
+
+    /**
+     * Number of idle inflaters and deflaters kept for reuse across connections.
+     */
+    public Builder deflatePoolSize(int deflatePoolSize) {
+      if (deflatePoolSize < 0) {
+        throw new IllegalArgumentException("Deflate pool size cannot be negative");
+      }
+      this.deflatePoolSize = deflatePoolSize;
+      return this;
+    }
+
+    /**
+     * Number of selector threads serving upgraded connections.
+     */
+    public Builder eventLoopThreads(int eventLoopThreads) {
+      if (eventLoopThreads < 1 || eventLoopThreads > 256) {
+        throw new IllegalArgumentException("Event loop threads must be between 1 and 256");
+      }
+      this.eventLoopThreads = eventLoopThreads;
+      return this;
+    }
+
+    public WebSocketConfig build() {
+      if (maxMessageSize < maxFrameSize) {
+        throw new IllegalArgumentException("Max message size cannot be smaller than max frame size");
+      }
+      return new WebSocketConfig(this);
+    }
+  }
+}
@@ -0,0 +1,108 @@
+package com.adavie.http2;
+
+import com.adavie.response.HttpException;
+import com.adavie.response.HttpStatus;
+
+import java.nio.charset.StandardCharsets;
+import java.util.function.BiConsumer;
+
+/**
+ * Decodes HPACK header blocks. One decoder is shared by every stream of a connection, so blocks
+ * must be decoded in the order they arrive.
+ */
+final class HpackDecoder {
+  private final HpackTable table;
+  private final int maxTableSize;
+
+  private byte[] data;
+  private int position;
+  private int end;
+
+  HpackDecoder(int maxTableSize) {
+    this.table = new HpackTable(maxTableSize);
+    this.maxTableSize = maxTableSize;
+  }
+
+  void decode(byte[] block, int offset, int length, BiConsumer<String, String> listener) {
+    this.data = block;
+    this.position = offset;
+    this.end = offset + length;
+
+    boolean headerSeen = false;
+    while (position < end) {
+      int b = data[position] & 0xFF;
+      if ((b & 0x80) != 0) {
+        int index = readInteger(7);
+        listener.accept(table.getName(index), table.getValue(index));
+        headerSeen = true;
+      } else if ((b & 0x40) != 0) {
+        String name = readName(6);
+        String value = readString();
+        table.add(name, value);
+        listener.accept(name, value);
+        headerSeen = true;
+      } else if ((b & 0x20) != 0) {
+        if (headerSeen) {
+          throw new HttpException(HttpStatus.BAD_REQUEST, "HPACK table size update after header field");
+        }
+        int size = readInteger(5);
+        if (size > maxTableSize) {
+          throw new HttpException(HttpStatus.BAD_REQUEST, "HPACK table size update exceeds limit");
+        }
+        table.setMaxSize(size);
+      } else {
+        // literal without indexing (0000) or never indexed (0001)
+        String name = readName(4);
+        String value = readString();
+        listener.accept(name, value);
+        headerSeen = true;
+      }
+    }
+    this.data = null;
+  }
+
+  private String readName(int prefixBits) {
+    int index = readInteger(prefixBits);
+    return index == 0 ? readString() : table.getName(index);
+  }
+
+  private String readString() {
+    if (position >= end) {
+      throw new HttpException(HttpStatus.BAD_REQUEST, "Truncated HPACK string");
+    }
+    boolean huffman = (data[position] & 0x80) != 0;
+    int length = readInteger(7);
+    if (length > end - position) {
+      throw new HttpException(HttpStatus.BAD_REQUEST, "Truncated HPACK string");
+    }
+    String value = huffman
+        ? HpackHuffman.decode(data, position, length)
+        : new String(data, position, length, StandardCharsets.ISO_8859_1);
+    position += length;
+    return value;
+  }
+
+  private int readInteger(int prefixBits) {
+    int mask = (1 << prefixBits) - 1;
+    int value = data[position++] & mask;
+    if (value < mask) {
+      return value;
+    }
+
+    int shift = 0;
+    while (true) {
+      if (position >= end || shift > 28) {
+        throw new HttpException(HttpStatus.BAD_REQUEST, "Invalid HPACK integer");
+      }
+      int b = data[position++] & 0xFF;
+      value += (b & 0x7F) << shift;
+      if (value < 0) {
+        throw new HttpException(HttpStatus.BAD_REQUEST, "HPACK integer overflow");
+      }
+      if ((b & 0x80) == 0) {
+        return value;
+      }
+      shift += 7;
+    }
+  }
+}
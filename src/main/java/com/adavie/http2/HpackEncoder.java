@@ -0,0 +1,83 @@
+package com.adavie.http2;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Encodes HPACK header blocks for responses. Like the decoder it is shared by all streams of a
+ * connection, so callers must encode and write each block under the connection's write lock.
+ */
+final class HpackEncoder {
+  private final HpackTable table = new HpackTable(Http2Settings.DEFAULT_HEADER_TABLE_SIZE);
+  private int pendingTableSize = -1;
+
+  /**
+   * Applies the peer's {@code SETTINGS_HEADER_TABLE_SIZE}. The change is signalled at the start
+   * of the next header block.
+   */
+  void setMaxTableSize(int maxTableSize) {
+    int size = Math.min(maxTableSize, Http2Settings.DEFAULT_HEADER_TABLE_SIZE);
+    if (size != table.getMaxSize()) {
+      table.setMaxSize(size);
+      pendingTableSize = size;
+    }
+  }
+
+  void beginBlock(ByteArrayOutputStream out) {
+    if (pendingTableSize >= 0) {
+      writeInteger(out, 0x20, 5, pendingTableSize);
+      pendingTableSize = -1;
+    }
+  }
+
+  /**
+   * Encodes one field. Values that change on every response are written without indexing so
+   * they do not churn the dynamic table.
+   */
+  void encode(ByteArrayOutputStream out, String name, String value, boolean indexable) {
+    int index = table.indexOf(name, value);
+    if (index > 0) {
+      writeInteger(out, 0x80, 7, index);
+      return;
+    }
+
+    int nameIndex = table.indexOfName(name);
+    if (indexable) {
+      writeInteger(out, 0x40, 6, nameIndex);
+      table.add(name, value);
+    } else {
+      writeInteger(out, 0x00, 4, nameIndex);
+    }
+    if (nameIndex == 0) {
+      writeString(out, name);
+    }
+    writeString(out, value);
+  }
+
+  private static void writeString(ByteArrayOutputStream out, String value) {
+    int huffmanLength = HpackHuffman.encodedLength(value);
+    if (huffmanLength < value.length()) {
+      writeInteger(out, 0x80, 7, huffmanLength);
+      HpackHuffman.encode(value, out);
+    } else {
+      byte[] bytes = value.getBytes(StandardCharsets.ISO_8859_1);
+      writeInteger(out, 0x00, 7, bytes.length);
+      out.write(bytes, 0, bytes.length);
+    }
+  }
+
+  static void writeInteger(ByteArrayOutputStream out, int flags, int prefixBits, int value) {
+    int mask = (1 << prefixBits) - 1;
+    if (value < mask) {
+      out.write(flags | value);
+      return;
+    }
+    out.write(flags | mask);
+    value -= mask;
+    while (value >= 0x80) {
+      out.write((value & 0x7F) | 0x80);
+      value >>>= 7;
+    }
+    out.write(value);
+  }
+}
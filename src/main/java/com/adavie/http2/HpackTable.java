@@ -0,0 +1,208 @@
+package com.adavie.http2;
+
+import com.adavie.response.HttpException;
+import com.adavie.response.HttpStatus;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * The HPACK index address space: the static table (indices 1-61) followed by a connection's
+ * dynamic table, newest entry first.
+ */
+final class HpackTable {
+  static final int ENTRY_OVERHEAD = 32;
+
+  static final String[][] STATIC_TABLE = {
+      {":authority", ""},
+      {":method", "GET"},
+      {":method", "POST"},
+      {":path", "/"},
+      {":path", "/index.html"},
+      {":scheme", "http"},
+      {":scheme", "https"},
+      {":status", "200"},
+      {":status", "204"},
+      {":status", "206"},
+      {":status", "304"},
+      {":status", "400"},
+      {":status", "404"},
+      {":status", "500"},
+      {"accept-charset", ""},
+      {"accept-encoding", "gzip, deflate"},
+      {"accept-language", ""},
+      {"accept-ranges", ""},
+      {"accept", ""},
+      {"access-control-allow-origin", ""},
+      {"age", ""},
+      {"allow", ""},
+      {"authorization", ""},
+      {"cache-control", ""},
+      {"content-disposition", ""},
+      {"content-encoding", ""},
+      {"content-language", ""},
+      {"content-length", ""},
+      {"content-location", ""},
+      {"content-range", ""},
+      {"content-type", ""},
+      {"cookie", ""},
+      {"date", ""},
+      {"etag", ""},
+      {"expect", ""},
+      {"expires", ""},
+      {"from", ""},
+      {"host", ""},
+      {"if-match", ""},
+      {"if-modified-since", ""},
+      {"if-none-match", ""},
+      {"if-range", ""},
+      {"if-unmodified-since", ""},
+      {"last-modified", ""},
+      {"link", ""},
+      {"location", ""},
+      {"max-forwards", ""},
+      {"proxy-authenticate", ""},
+      {"proxy-authorization", ""},
+      {"range", ""},
+      {"referer", ""},
+      {"refresh", ""},
+      {"retry-after", ""},
+      {"server", ""},
+      {"set-cookie", ""},
+      {"strict-transport-security", ""},
+      {"transfer-encoding", ""},
+      {"user-agent", ""},
+      {"vary", ""},
+      {"via", ""},
+      {"www-authenticate", ""}
+  };
+
+  // first static index for each name, and for each exact name/value pair
+  private static final Map<String, Integer> STATIC_NAMES = new HashMap<>();
+  private static final Map<String, Integer> STATIC_FIELDS = new HashMap<>();
+
+  static {
+    for (int i = STATIC_TABLE.length - 1; i >= 0; i--) {
+      STATIC_NAMES.put(STATIC_TABLE[i][0], i + 1);
+      STATIC_FIELDS.put(STATIC_TABLE[i][0] + '\0' + STATIC_TABLE[i][1], i + 1);
+    }
+  }
+
+  // ring buffer of dynamic entries, head is the newest
+  private String[] names = new String[16];
+  private String[] values = new String[16];
+  private int head;
+  private int count;
+  private int size;
+  private int maxSize;
+
+  HpackTable(int maxSize) {
+    this.maxSize = maxSize;
+  }
+
+  int getMaxSize() {
+    return maxSize;
+  }
+
+  void setMaxSize(int maxSize) {
+    this.maxSize = maxSize;
+    evict(0);
+  }
+
+  String getName(int index) {
+    return entry(index)[0];
+  }
+
+  String getValue(int index) {
+    return entry(index)[1];
+  }
+
+  private String[] entry(int index) {
+    if (index >= 1 && index <= STATIC_TABLE.length) {
+      return STATIC_TABLE[index - 1];
+    }
+    int dynamicIndex = index - STATIC_TABLE.length - 1;
+    if (index < 1 || dynamicIndex >= count) {
+      throw new HttpException(HttpStatus.BAD_REQUEST, "Invalid HPACK index: " + index);
+    }
+    int slot = (head + dynamicIndex) % names.length;
+    return new String[]{names[slot], values[slot]};
+  }
+
+  void add(String name, String value) {
+    int entrySize = name.length() + value.length() + ENTRY_OVERHEAD;
+    if (entrySize > maxSize) {
+      // an oversized entry empties the table without being added (RFC 7541 section 4.4)
+      head = 0;
+      count = 0;
+      size = 0;
+      return;
+    }
+    evict(entrySize);
+
+    if (count == names.length) {
+      grow();
+    }
+    head = (head - 1 + names.length) % names.length;
+    names[head] = name;
+    values[head] = value;
+    count++;
+    size += entrySize;
+  }
+
+  /**
+   * Returns the index of an exact name/value match, or {@code 0} if there is none.
+   */
+  int indexOf(String name, String value) {
+    Integer staticIndex = STATIC_FIELDS.get(name + '\0' + value);
+    if (staticIndex != null) {
+      return staticIndex;
+    }
+    for (int i = 0; i < count; i++) {
+      int slot = (head + i) % names.length;
+      if (names[slot].equals(name) && values[slot].equals(value)) {
+        return STATIC_TABLE.length + 1 + i;
+      }
+    }
+    return 0;
+  }
+
+  /**
+   * Returns the index of an entry with a matching name, or {@code 0} if there is none.
+   */
+  int indexOfName(String name) {
+    Integer staticIndex = STATIC_NAMES.get(name);
+    if (staticIndex != null) {
+      return staticIndex;
+    }
+    for (int i = 0; i < count; i++) {
+      if (names[(head + i) % names.length].equals(name)) {
+        return STATIC_TABLE.length + 1 + i;
+      }
+    }
+    return 0;
+  }
+
+  private void evict(int required) {
+    while (count > 0 && size + required > maxSize) {
+      int slot = (head + count - 1) % names.length;
+      size -= names[slot].length() + values[slot].length() + ENTRY_OVERHEAD;
+      names[slot] = null;
+      values[slot] = null;
+      count--;
+    }
+  }
+
+  private void grow() {
+    String[] grownNames = new String[names.length * 2];
+    String[] grownValues = new String[values.length * 2];
+    for (int i = 0; i < count; i++) {
+      int slot = (head + i) % names.length;
+      grownNames[i] = names[slot];
+      grownValues[i] = values[slot];
+    }
+    names = grownNames;
+    values = grownValues;
+    head = 0;
+  }
+}
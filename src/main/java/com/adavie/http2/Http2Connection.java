@@ -0,0 +1,1012 @@
+package com.adavie.http2;
+
+import com.adavie.config.BodyConfig;
+import com.adavie.config.Http2Config;
+import com.adavie.request.BodyAccumulator;
+import com.adavie.request.HttpMethod;
+import com.adavie.request.KnownHeader;
+import com.adavie.request.Request;
+import com.adavie.request.RequestRecorder;
+import com.adavie.response.HttpDate;
+import com.adavie.response.HttpException;
+import com.adavie.response.HttpStatus;
+import com.adavie.response.Response;
+import com.adavie.route.Route;
+import com.adavie.route.Router;
+import com.adavie.transport.Transport;
+import com.adavie.util.MemoryBudget;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.net.SocketTimeoutException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.BiConsumer;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Serves an HTTP/2 connection (RFC 9113).
+ *
+ * <p>The thread calling {@link #serve()} reads and decodes frames. Each complete request is
+ * dispatched as its own task on the server executor, so streams are handled concurrently and a
+ * slow handler does not block other streams on the same connection. Responses are written by the
+ * worker threads, serialised by a connection-wide write lock that also guards the HPACK encoder
+ * and the send flow-control windows.
+ */
+public class Http2Connection {
+  private static final Logger LOGGER = Logger.getLogger(Http2Connection.class.getName());
+
+  public static final byte[] PREFACE = "PRI * HTTP/2.0\r\n\r\nSM\r\n\r\n".getBytes(StandardCharsets.US_ASCII);
+
+  private static final Set<String> CONNECTION_HEADERS = new HashSet<>(Arrays.asList(
+      "connection", "keep-alive", "proxy-connection", "transfer-encoding", "upgrade", "content-length"));
+  private static final long MAX_WINDOW = Integer.MAX_VALUE;
+  private static final long SHUTDOWN_TIMEOUT_SECONDS = 30L;
+  // how long the reader waits for a quiet peer while responses are still being produced or sent
+  private static final long MAX_QUIET_SECONDS = 30L;
+  private static final BodyConfig DEFAULT_BODY_CONFIG = new BodyConfig.Builder().build();
+  private static final Response TOO_MANY_REQUESTS = new Response.Builder()
+      .status(HttpStatus.TOO_MANY_REQUESTS)
+      .header("Retry-After", "1")
+      .build();
+  private static final Response HEADER_FIELDS_TOO_LARGE = Response.of(HttpStatus.REQUEST_HEADER_FIELDS_TOO_LARGE);
+
+  private final Transport transport;
+  private final Router router;
+  private final ExecutorService executorService;
+  private final Http2Config config;
+  private final BodyConfig bodyConfig;
+  private final MemoryBudget bodyBudget;
+  private final RequestRecorder recorder;
+  private final HpackDecoder decoder;
+  private final HpackEncoder encoder = new HpackEncoder();
+  private final Map<Integer, Http2Stream> streams = new ConcurrentHashMap<>();
+
+  private final ReentrantLock writeLock = new ReentrantLock();
+  private final Condition windowUpdated = writeLock.newCondition();
+  // guarded by writeLock
+  private long connectionSendWindow = Http2Settings.DEFAULT_WINDOW_SIZE;
+  private int peerInitialWindowSize = Http2Settings.DEFAULT_WINDOW_SIZE;
+  private int peerMaxFrameSize = Http2Settings.DEFAULT_MAX_FRAME_SIZE;
+  private volatile boolean closed;
+
+  private final Object activityLock = new Object();
+  private int activeStreams;
+
+  // state below is only touched by the reading thread
+  private ByteBuffer in;
+  private int connectionReceiveWindow;
+  private int lastStreamId;
+  private Http2Stream headersStream;
+  private ByteArrayOutputStream headerBlock;
+  private int headerBlockFlags;
+  private boolean goAwayReceived;
+
+  /**
+   * @param pending bytes already read from the transport, in read mode
+   */
+  public Http2Connection(Transport transport, ByteBuffer pending, Router router, ExecutorService executorService,
+                         Http2Config config) {
+    this(transport, pending, router, executorService, config, DEFAULT_BODY_CONFIG,
+        new MemoryBudget(DEFAULT_BODY_CONFIG.getMemoryBudget()), null);
+  }
+
+  /**
+   * @param pending bytes already read from the transport, in read mode
+   * @param bodyConfig the limits and spooling of request bodies
+   * @param bodyBudget memory that request bodies held in memory are reserved from
+   * @param recorder where completed streams are recorded, or {@code null}
+   */
+  public Http2Connection(Transport transport, ByteBuffer pending, Router router, ExecutorService executorService,
+                         Http2Config config, BodyConfig bodyConfig, MemoryBudget bodyBudget,
+                         RequestRecorder recorder) {
+    this.transport = transport;
+    this.recorder = recorder;
+    this.router = router;
+    this.executorService = executorService;
+    this.config = config;
+    this.bodyConfig = bodyConfig;
+    this.bodyBudget = bodyBudget;
+    this.decoder = new HpackDecoder(config.getHeaderTableSize());
+    this.connectionReceiveWindow = config.getConnectionWindowSize();
+
+    this.in = ByteBuffer.allocate(Math.max(pending.remaining(), config.getMaxFrameSize() + Http2Frame.HEADER_LENGTH));
+    this.in.put(pending);
+    this.in.flip();
+  }
+
+  /**
+   * Serves a connection that started with the HTTP/2 preface (prior knowledge or TLS ALPN).
+   */
+  public void serve() throws IOException {
+    run(null);
+  }
+
+  /**
+   * Serves a connection upgraded from HTTP/1.1 after the {@code 101} response has been written.
+   * The upgrade request becomes stream 1.
+   */
+  public void serveUpgrade(Request upgradeRequest) throws IOException {
+    run(upgradeRequest);
+  }
+
+  private void run(Request upgradeRequest) throws IOException {
+    boolean endOfStream = false;
+    try {
+      writeSettings();
+
+      if (upgradeRequest != null) {
+        applySettingsHeader(upgradeRequest.getHeader(KnownHeader.HTTP2_SETTINGS));
+        lastStreamId = 1;
+        Http2Stream stream = newStream(1);
+        stream.request = upgradeRequest;
+        stream.startNanos = System.nanoTime();
+        dispatch(stream);
+      }
+
+      if (!readPreface()) {
+        return;
+      }
+
+      while (!goAwayReceived) {
+        if (!readFrame()) {
+          endOfStream = true;
+          break;
+        }
+      }
+
+      awaitActiveStreams();
+      if (!endOfStream && !goAwayReceived) {
+        writeGoAway(Http2Frame.NO_ERROR);
+      }
+    } catch (Http2Exception e) {
+      LOGGER.fine("HTTP/2 connection error: " + e.getMessage());
+      writeGoAway(e.getErrorCode());
+    } catch (SocketTimeoutException e) {
+      // idle with no streams in flight, stalled part way through a frame, or quiet for too long
+      writeGoAway(Http2Frame.NO_ERROR);
+    } finally {
+      discardBodies();
+      close();
+    }
+  }
+
+  /**
+   * Returns what the bodies of streams still being received hold, reader thread only.
+   */
+  private void discardBodies() {
+    for (Http2Stream stream : streams.values()) {
+      if (stream.body != null) {
+        stream.body.discard();
+        stream.body = null;
+      }
+    }
+  }
+
+  private void close() {
+    writeLock.lock();
+    try {
+      closed = true;
+      windowUpdated.signalAll();
+    } finally {
+      writeLock.unlock();
+    }
+  }
+
+  private boolean readPreface() throws IOException {
+    if (!ensure(PREFACE.length)) {
+      return false;
+    }
+    for (byte b : PREFACE) {
+      if (in.get() != b) {
+        throw new Http2Exception(Http2Frame.PROTOCOL_ERROR, "Invalid connection preface");
+      }
+    }
+    return true;
+  }
+
+  private boolean readFrame() throws IOException {
+    if (!ensure(Http2Frame.HEADER_LENGTH)) {
+      return false;
+    }
+    int length = (in.get() & 0xFF) << 16 | (in.get() & 0xFF) << 8 | (in.get() & 0xFF);
+    int type = in.get() & 0xFF;
+    int flags = in.get() & 0xFF;
+    int streamId = in.getInt() & 0x7FFFFFFF;
+
+    if (length > config.getMaxFrameSize()) {
+      throw new Http2Exception(Http2Frame.FRAME_SIZE_ERROR, "Frame of " + length + " bytes exceeds maximum");
+    }
+    if (!ensure(length, true)) {
+      return false;
+    }
+    byte[] payload = new byte[length];
+    in.get(payload);
+
+    if (headersStream != null && type != Http2Frame.CONTINUATION) {
+      throw new Http2Exception(Http2Frame.PROTOCOL_ERROR, "Expected CONTINUATION frame");
+    }
+
+    switch (type) {
+      case Http2Frame.DATA:
+        onData(flags, streamId, payload);
+        break;
+      case Http2Frame.HEADERS:
+        onHeaders(flags, streamId, payload);
+        break;
+      case Http2Frame.CONTINUATION:
+        onContinuation(flags, streamId, payload);
+        break;
+      case Http2Frame.RST_STREAM:
+        onRstStream(streamId, payload);
+        break;
+      case Http2Frame.SETTINGS:
+        onSettings(flags, streamId, payload);
+        break;
+      case Http2Frame.PING:
+        onPing(flags, streamId, payload);
+        break;
+      case Http2Frame.GOAWAY:
+        goAwayReceived = true;
+        break;
+      case Http2Frame.WINDOW_UPDATE:
+        onWindowUpdate(streamId, payload);
+        break;
+      case Http2Frame.PUSH_PROMISE:
+        throw new Http2Exception(Http2Frame.PROTOCOL_ERROR, "Clients cannot push streams");
+      default:
+        // PRIORITY and unknown frame types are ignored
+        break;
+    }
+    return true;
+  }
+
+  private void onHeaders(int flags, int streamId, byte[] payload) throws IOException {
+    if (streamId == 0) {
+      throw new Http2Exception(Http2Frame.PROTOCOL_ERROR, "HEADERS frame on stream 0");
+    }
+
+    int offset = 0;
+    int end = payload.length;
+    if ((flags & Http2Frame.FLAG_PADDED) != 0) {
+      if (payload.length < 1) {
+        throw new Http2Exception(Http2Frame.FRAME_SIZE_ERROR, "Truncated HEADERS frame");
+      }
+      end -= payload[0] & 0xFF;
+      offset = 1;
+    }
+    if ((flags & Http2Frame.FLAG_PRIORITY) != 0) {
+      offset += 5;
+    }
+    if (end < offset) {
+      throw new Http2Exception(Http2Frame.PROTOCOL_ERROR, "Invalid HEADERS padding");
+    }
+
+    Http2Stream stream = streams.get(streamId);
+    if (stream == null) {
+      if ((streamId & 1) == 0 || streamId <= lastStreamId) {
+        throw new Http2Exception(Http2Frame.PROTOCOL_ERROR, "Invalid stream id " + streamId);
+      }
+      lastStreamId = streamId;
+      stream = newStream(streamId);
+    } else if (stream.body == null || (flags & Http2Frame.FLAG_END_STREAM) == 0) {
+      throw new Http2Exception(Http2Frame.PROTOCOL_ERROR, "Unexpected HEADERS on stream " + streamId);
+    }
+
+    headersStream = stream;
+    headerBlock = new ByteArrayOutputStream(end - offset);
+    headerBlockFlags = flags;
+    headerBlock.write(payload, offset, end - offset);
+    if ((flags & Http2Frame.FLAG_END_HEADERS) != 0) {
+      onHeaderBlock();
+    }
+  }
+
+  private void onContinuation(int flags, int streamId, byte[] payload) throws IOException {
+    if (headersStream == null || headersStream.id != streamId) {
+      throw new Http2Exception(Http2Frame.PROTOCOL_ERROR, "Unexpected CONTINUATION frame");
+    }
+    headerBlock.write(payload, 0, payload.length);
+    if (headerBlock.size() > config.getMaxHeaderListSize() * 2) {
+      throw new Http2Exception(Http2Frame.PROTOCOL_ERROR, "Header block too large");
+    }
+    if ((flags & Http2Frame.FLAG_END_HEADERS) != 0) {
+      onHeaderBlock();
+    }
+  }
+
+  private void onHeaderBlock() throws IOException {
+    Http2Stream stream = headersStream;
+    byte[] block = headerBlock.toByteArray();
+    boolean endStream = (headerBlockFlags & Http2Frame.FLAG_END_STREAM) != 0;
+    headersStream = null;
+    headerBlock = null;
+
+    // the block must be decoded even if the stream is refused, to keep the dynamic table in sync
+    HeaderFields fields = new HeaderFields(config.getMaxHeaderListSize());
+    try {
+      decoder.decode(block, 0, block.length, fields);
+    } catch (HttpException e) {
+      throw new Http2Exception(Http2Frame.COMPRESSION_ERROR, e.getMessage());
+    }
+
+    if (stream.request != null) {
+      // trailers after the request body, the body is complete
+      if (fields.isTooLarge()) {
+        rejectBody(stream, HttpStatus.REQUEST_HEADER_FIELDS_TOO_LARGE);
+      } else {
+        finishBody(stream);
+      }
+      return;
+    }
+    if (fields.isTooLarge()) {
+      rejectStream(stream, HEADER_FIELDS_TOO_LARGE, endStream);
+      return;
+    }
+
+    if (streams.size() > config.getMaxConcurrentStreams()) {
+      streams.remove(stream.id);
+      writeRstStream(stream.id, Http2Frame.REFUSED_STREAM);
+      return;
+    }
+
+    Request request = toRequest(fields.fields);
+    if (request == null) {
+      streams.remove(stream.id);
+      writeRstStream(stream.id, Http2Frame.PROTOCOL_ERROR);
+      return;
+    }
+    stream.request = request;
+    stream.startNanos = System.nanoTime();
+
+    if (!router.tryAcquire(request)) {
+      rejectStream(stream, TOO_MANY_REQUESTS, endStream);
+      return;
+    }
+    router.startDeadline(request);
+    if (endStream) {
+      dispatch(stream);
+    } else {
+      stream.body = new BodyAccumulator(bodyConfig, bodyBudget, spoolThreshold(request), 0);
+    }
+  }
+
+  /**
+   * The matched route's spool threshold, or the server default.
+   */
+  private long spoolThreshold(Request request) {
+    Route route = router.resolve(request);
+    if (route != null && route.getSpoolThreshold() >= 0) {
+      return route.getSpoolThreshold();
+    }
+    return bodyConfig.getSpoolThreshold();
+  }
+
+  private Request toRequest(List<String[]> fields) {
+    String method = null;
+    String path = null;
+    String authority = null;
+    for (String[] field : fields) {
+      switch (field[0]) {
+        case ":method":
+          method = field[1];
+          break;
+        case ":path":
+          path = field[1];
+          break;
+        case ":authority":
+          authority = field[1];
+          break;
+        default:
+          break;
+      }
+    }
+
+    HttpMethod httpMethod = HttpMethod.fromName(method);
+    if (httpMethod == null || path == null || path.isEmpty()) {
+      return null;
+    }
+
+    Request request = new Request(httpMethod, path, "HTTP/2.0");
+    request.setRemoteAddress(transport.getRemoteAddress());
+    if (authority != null) {
+      request.addHeader(KnownHeader.HOST, authority);
+    }
+    for (String[] field : fields) {
+      if (!field[0].startsWith(":")) {
+        request.addHeader(field[0], field[1]);
+      }
+    }
+    return request;
+  }
+
+  private void onData(int flags, int streamId, byte[] payload) throws IOException {
+    if (streamId == 0) {
+      throw new Http2Exception(Http2Frame.PROTOCOL_ERROR, "DATA frame on stream 0");
+    }
+
+    connectionReceiveWindow -= payload.length;
+    if (connectionReceiveWindow < 0) {
+      throw new Http2Exception(Http2Frame.FLOW_CONTROL_ERROR, "Connection flow-control window exceeded");
+    }
+
+    Http2Stream stream = streams.get(streamId);
+    if (stream == null || stream.body == null) {
+      if (streamId > lastStreamId) {
+        throw new Http2Exception(Http2Frame.PROTOCOL_ERROR, "DATA on idle stream " + streamId);
+      }
+      writeRstStream(streamId, Http2Frame.STREAM_CLOSED);
+    } else {
+      receiveData(stream, flags, payload);
+    }
+
+    // the frame is now held by a body's budget reservation or spool file, or dropped, so the
+    // peer may send more in its place
+    if (connectionReceiveWindow <= config.getConnectionWindowSize() / 2) {
+      writeWindowUpdate(0, config.getConnectionWindowSize() - connectionReceiveWindow);
+      connectionReceiveWindow = config.getConnectionWindowSize();
+    }
+  }
+
+  private void receiveData(Http2Stream stream, int flags, byte[] payload) throws IOException {
+    stream.receiveWindow -= payload.length;
+    if (stream.receiveWindow < 0) {
+      stream.body.discard();
+      stream.body = null;
+      streams.remove(stream.id);
+      writeRstStream(stream.id, Http2Frame.FLOW_CONTROL_ERROR);
+      return;
+    }
+
+    int offset = 0;
+    int end = payload.length;
+    if ((flags & Http2Frame.FLAG_PADDED) != 0) {
+      if (payload.length < 1 || (payload[0] & 0xFF) >= payload.length) {
+        throw new Http2Exception(Http2Frame.PROTOCOL_ERROR, "Invalid DATA padding");
+      }
+      end -= payload[0] & 0xFF;
+      offset = 1;
+    }
+    try {
+      stream.body.append(payload, offset, end - offset);
+    } catch (HttpException e) {
+      rejectBody(stream, e.getStatus());
+      return;
+    } catch (IOException e) {
+      LOGGER.log(Level.WARNING, "Failed to spool request body on stream " + stream.id, e);
+      rejectBody(stream, HttpStatus.INTERNAL_SERVER_ERROR);
+      return;
+    }
+
+    if ((flags & Http2Frame.FLAG_END_STREAM) != 0) {
+      finishBody(stream);
+    } else if (stream.receiveWindow <= config.getInitialWindowSize() / 2) {
+      writeWindowUpdate(stream.id, config.getInitialWindowSize() - stream.receiveWindow);
+      stream.receiveWindow = config.getInitialWindowSize();
+    }
+  }
+
+  private void finishBody(Http2Stream stream) throws IOException {
+    BodyAccumulator body = stream.body;
+    stream.body = null;
+    HttpStatus status = null;
+    try {
+      stream.request.setBody(body.finish());
+    } catch (HttpException e) {
+      status = e.getStatus();
+    } catch (IOException e) {
+      LOGGER.log(Level.WARNING, "Failed to spool request body on stream " + stream.id, e);
+      status = HttpStatus.INTERNAL_SERVER_ERROR;
+    }
+    if (status != null) {
+      body.discard();
+      streams.remove(stream.id);
+      writeResponse(stream, Response.of(status));
+      return;
+    }
+    dispatch(stream);
+  }
+
+  /**
+   * Answers a stream whose body is too large or does not fit in the memory budget on the reading
+   * thread, and tells the client to stop sending the rest. The response has no body, so writing
+   * it never waits for flow control.
+   */
+  private void rejectBody(Http2Stream stream, HttpStatus status) throws IOException {
+    stream.body.discard();
+    stream.body = null;
+    streams.remove(stream.id);
+    writeResponse(stream, Response.of(status));
+    writeRstStream(stream.id, Http2Frame.NO_ERROR);
+  }
+
+  private void onRstStream(int streamId, byte[] payload) throws IOException {
+    if (streamId == 0 || payload.length != 4) {
+      throw new Http2Exception(Http2Frame.PROTOCOL_ERROR, "Invalid RST_STREAM frame");
+    }
+    Http2Stream stream = streams.remove(streamId);
+    if (stream != null) {
+      abandon(stream);
+    }
+  }
+
+  /**
+   * Resets a stream from our side, for a stream error in a frame the peer sent on it.
+   */
+  private void resetStream(int streamId, int errorCode) throws IOException {
+    Http2Stream stream = streams.remove(streamId);
+    if (stream != null) {
+      abandon(stream);
+    }
+    writeRstStream(streamId, errorCode);
+  }
+
+  /**
+   * Stops a worker writing the response of a reset stream and returns what its body holds,
+   * reader thread only.
+   */
+  private void abandon(Http2Stream stream) {
+    stream.reset = true;
+    if (stream.body != null) {
+      stream.body.discard();
+      stream.body = null;
+    }
+    writeLock.lock();
+    try {
+      windowUpdated.signalAll();
+    } finally {
+      writeLock.unlock();
+    }
+  }
+
+  private void onSettings(int flags, int streamId, byte[] payload) throws IOException {
+    if (streamId != 0) {
+      throw new Http2Exception(Http2Frame.PROTOCOL_ERROR, "SETTINGS frame on stream " + streamId);
+    }
+    if ((flags & Http2Frame.FLAG_ACK) != 0) {
+      return;
+    }
+    if (payload.length % 6 != 0) {
+      throw new Http2Exception(Http2Frame.FRAME_SIZE_ERROR, "Invalid SETTINGS frame length");
+    }
+    applySettings(payload);
+    writeFrame(Http2Frame.SETTINGS, Http2Frame.FLAG_ACK, 0, new byte[0]);
+  }
+
+  private void applySettingsHeader(String header) throws IOException {
+    if (header == null) {
+      return;
+    }
+    byte[] payload;
+    try {
+      payload = Base64.getUrlDecoder().decode(header.trim());
+    } catch (IllegalArgumentException e) {
+      throw new Http2Exception(Http2Frame.PROTOCOL_ERROR, "Invalid HTTP2-Settings header");
+    }
+    if (payload.length % 6 != 0) {
+      throw new Http2Exception(Http2Frame.PROTOCOL_ERROR, "Invalid HTTP2-Settings header");
+    }
+    applySettings(payload);
+  }
+
+  private void applySettings(byte[] payload) throws IOException {
+    ByteBuffer settings = ByteBuffer.wrap(payload);
+    writeLock.lock();
+    try {
+      while (settings.hasRemaining()) {
+        int id = settings.getShort() & 0xFFFF;
+        long value = settings.getInt() & 0xFFFFFFFFL;
+        switch (id) {
+          case Http2Settings.HEADER_TABLE_SIZE:
+            encoder.setMaxTableSize((int) Math.min(value, Integer.MAX_VALUE));
+            break;
+          case Http2Settings.INITIAL_WINDOW_SIZE:
+            if (value > MAX_WINDOW) {
+              throw new Http2Exception(Http2Frame.FLOW_CONTROL_ERROR, "Initial window size too large");
+            }
+            long delta = value - peerInitialWindowSize;
+            for (Http2Stream stream : streams.values()) {
+              // RFC 9113 section 6.9.2: a window pushed past the maximum is a connection error
+              if (stream.sendWindow + delta > MAX_WINDOW) {
+                throw new Http2Exception(Http2Frame.FLOW_CONTROL_ERROR, "Stream window overflow on stream " + stream.id);
+              }
+              stream.sendWindow += delta;
+            }
+            peerInitialWindowSize = (int) value;
+            break;
+          case Http2Settings.MAX_FRAME_SIZE:
+            if (value < Http2Settings.DEFAULT_MAX_FRAME_SIZE || value > 16777215) {
+              throw new Http2Exception(Http2Frame.PROTOCOL_ERROR, "Invalid max frame size");
+            }
+            peerMaxFrameSize = (int) value;
+            break;
+          default:
+            break;
+        }
+      }
+      windowUpdated.signalAll();
+    } finally {
+      writeLock.unlock();
+    }
+  }
+
+  private void onPing(int flags, int streamId, byte[] payload) throws IOException {
+    if (streamId != 0) {
+      throw new Http2Exception(Http2Frame.PROTOCOL_ERROR, "PING frame on stream " + streamId);
+    }
+    if (payload.length != 8) {
+      throw new Http2Exception(Http2Frame.FRAME_SIZE_ERROR, "Invalid PING frame length");
+    }
+    if ((flags & Http2Frame.FLAG_ACK) == 0) {
+      writeFrame(Http2Frame.PING, Http2Frame.FLAG_ACK, 0, payload);
+    }
+  }
+
+  private void onWindowUpdate(int streamId, byte[] payload) throws IOException {
+    if (payload.length != 4) {
+      throw new Http2Exception(Http2Frame.FRAME_SIZE_ERROR, "Invalid WINDOW_UPDATE frame length");
+    }
+    int increment = ByteBuffer.wrap(payload).getInt() & 0x7FFFFFFF;
+    if (increment == 0) {
+      if (streamId == 0) {
+        throw new Http2Exception(Http2Frame.PROTOCOL_ERROR, "Zero window increment");
+      }
+      resetStream(streamId, Http2Frame.PROTOCOL_ERROR);
+      return;
+    }
+
+    boolean overflow = false;
+    writeLock.lock();
+    try {
+      if (streamId == 0) {
+        connectionSendWindow += increment;
+        if (connectionSendWindow > MAX_WINDOW) {
+          throw new Http2Exception(Http2Frame.FLOW_CONTROL_ERROR, "Connection window overflow");
+        }
+      } else {
+        Http2Stream stream = streams.get(streamId);
+        if (stream != null) {
+          overflow = stream.sendWindow + increment > MAX_WINDOW;
+          if (!overflow) {
+            stream.sendWindow += increment;
+          }
+        }
+      }
+      windowUpdated.signalAll();
+    } finally {
+      writeLock.unlock();
+    }
+    if (overflow) {
+      resetStream(streamId, Http2Frame.FLOW_CONTROL_ERROR);
+    }
+  }
+
+  private Http2Stream newStream(int streamId) {
+    Http2Stream stream;
+    writeLock.lock();
+    try {
+      stream = new Http2Stream(streamId, config.getInitialWindowSize(), peerInitialWindowSize);
+    } finally {
+      writeLock.unlock();
+    }
+    streams.put(streamId, stream);
+    return stream;
+  }
+
+  /**
+   * Answers a stream on the reading thread, before any worker is involved, for example one over
+   * its route's rate limit. The response has no body, so writing it never waits for flow control.
+   */
+  private void rejectStream(Http2Stream stream, Response response, boolean endStream) throws IOException {
+    streams.remove(stream.id);
+    writeResponse(stream, response);
+    if (!endStream) {
+      // the response is complete, the client can stop sending the body
+      writeRstStream(stream.id, Http2Frame.NO_ERROR);
+    }
+  }
+
+  private void dispatch(Http2Stream stream) throws IOException {
+    synchronized (activityLock) {
+      activeStreams++;
+    }
+    try {
+      long bodyNanos = System.nanoTime() - stream.startNanos;
+      executorService.execute(() -> {
+        try {
+          long handleStart = System.nanoTime();
+          Response response = handle(stream);
+          long writeStart = System.nanoTime();
+          writeResponse(stream, response);
+          if (recorder != null) {
+            long bytes = response.getStatus().isBodyless() || stream.request.getMethod() == HttpMethod.HEAD
+                ? 0 : response.getBody().length;
+            recorder.record(stream.request, response.getStatus().getCode(), bytes, bodyNanos,
+                writeStart - handleStart, System.nanoTime() - writeStart);
+          }
+        } catch (IOException e) {
+          LOGGER.log(Level.FINE, "Failed to write response on stream " + stream.id, e);
+        } finally {
+          closeBody(stream.request);
+          streams.remove(stream.id);
+          streamFinished();
+        }
+      });
+    } catch (RejectedExecutionException e) {
+      closeBody(stream.request);
+      streams.remove(stream.id);
+      streamFinished();
+      writeRstStream(stream.id, Http2Frame.REFUSED_STREAM);
+    }
+  }
+
+  /**
+   * Returns the body's memory to the budget and deletes its spool file once the stream is done.
+   */
+  private static void closeBody(Request request) {
+    try {
+      request.getRequestBody().close();
+    } catch (IOException e) {
+      LOGGER.log(Level.WARNING, "Failed to delete spooled request body", e);
+    }
+  }
+
+  private Response handle(Http2Stream stream) {
+    return router.dispatch(stream.request);
+  }
+
+  private void streamFinished() {
+    synchronized (activityLock) {
+      activeStreams--;
+      activityLock.notifyAll();
+    }
+  }
+
+  private boolean hasActiveStreams() {
+    synchronized (activityLock) {
+      return activeStreams > 0;
+    }
+  }
+
+  private void awaitActiveStreams() {
+    long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(SHUTDOWN_TIMEOUT_SECONDS);
+    synchronized (activityLock) {
+      try {
+        long remaining;
+        while (activeStreams > 0 && (remaining = deadline - System.nanoTime()) > 0) {
+          TimeUnit.NANOSECONDS.timedWait(activityLock, remaining);
+        }
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+      }
+    }
+  }
+
+  private void writeResponse(Http2Stream stream, Response response) throws IOException {
+    HttpStatus status = response.getStatus();
+    // a stream refused before its request was built has none
+    boolean headRequest = stream.request != null && stream.request.getMethod() == HttpMethod.HEAD;
+    byte[] body = status.isBodyless() || headRequest ? new byte[0] : response.getBody();
+
+    ByteArrayOutputStream block = new ByteArrayOutputStream(128);
+    writeLock.lock();
+    try {
+      if (stream.reset || closed) {
+        return;
+      }
+      encoder.beginBlock(block);
+      encoder.encode(block, ":status", String.valueOf(status.getCode()), true);
+      boolean hasDate = false;
+      for (Map.Entry<String, List<String>> header : response.getHeaders().entrySet()) {
+        String name = header.getKey().toLowerCase(Locale.ROOT);
+        if (CONNECTION_HEADERS.contains(name)) {
+          continue;
+        }
+        hasDate |= name.equals("date");
+        for (String value : header.getValue()) {
+          encoder.encode(block, name, value, true);
+        }
+      }
+      if (!hasDate) {
+        encoder.encode(block, "date", HttpDate.now(), false);
+      }
+      if (!status.isBodyless()) {
+        encoder.encode(block, "content-length", String.valueOf(response.getBody().length), false);
+      }
+      writeHeaderBlock(stream.id, block.toByteArray(), body.length == 0);
+    } finally {
+      writeLock.unlock();
+    }
+
+    writeData(stream, body);
+  }
+
+  private void writeHeaderBlock(int streamId, byte[] block, boolean endStream) throws IOException {
+    int offset = 0;
+    int type = Http2Frame.HEADERS;
+    do {
+      int length = Math.min(block.length - offset, peerMaxFrameSize);
+      boolean last = offset + length == block.length;
+      int flags = (last ? Http2Frame.FLAG_END_HEADERS : 0)
+          | (type == Http2Frame.HEADERS && endStream ? Http2Frame.FLAG_END_STREAM : 0);
+      writeFrame(type, flags, streamId, block, offset, length);
+      offset += length;
+      type = Http2Frame.CONTINUATION;
+    } while (offset < block.length);
+  }
+
+  private void writeData(Http2Stream stream, byte[] body) throws IOException {
+    int offset = 0;
+    while (offset < body.length) {
+      writeLock.lock();
+      try {
+        long available;
+        while ((available = Math.min(connectionSendWindow, stream.sendWindow)) <= 0) {
+          if (stream.reset || closed) {
+            return;
+          }
+          windowUpdated.await(1, TimeUnit.SECONDS);
+        }
+        if (stream.reset || closed) {
+          return;
+        }
+
+        int length = (int) Math.min(Math.min(available, peerMaxFrameSize), body.length - offset);
+        connectionSendWindow -= length;
+        stream.sendWindow -= length;
+        boolean last = offset + length == body.length;
+        writeFrame(Http2Frame.DATA, last ? Http2Frame.FLAG_END_STREAM : 0, stream.id, body, offset, length);
+        offset += length;
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+        return;
+      } finally {
+        writeLock.unlock();
+      }
+    }
+  }
+
+  private void writeSettings() throws IOException {
+    ByteBuffer settings = ByteBuffer.allocate(6 * 5);
+    settings.putShort((short) Http2Settings.MAX_CONCURRENT_STREAMS).putInt(config.getMaxConcurrentStreams());
+    settings.putShort((short) Http2Settings.INITIAL_WINDOW_SIZE).putInt(config.getInitialWindowSize());
+    settings.putShort((short) Http2Settings.MAX_FRAME_SIZE).putInt(config.getMaxFrameSize());
+    settings.putShort((short) Http2Settings.HEADER_TABLE_SIZE).putInt(config.getHeaderTableSize());
+    settings.putShort((short) Http2Settings.MAX_HEADER_LIST_SIZE).putInt(config.getMaxHeaderListSize());
+    writeFrame(Http2Frame.SETTINGS, 0, 0, settings.array());
+
+    int connectionWindowIncrease = config.getConnectionWindowSize() - Http2Settings.DEFAULT_WINDOW_SIZE;
+    if (connectionWindowIncrease > 0) {
+      writeWindowUpdate(0, connectionWindowIncrease);
+    }
+  }
+
+  private void writeWindowUpdate(int streamId, int increment) throws IOException {
+    writeFrame(Http2Frame.WINDOW_UPDATE, 0, streamId, ByteBuffer.allocate(4).putInt(increment).array());
+  }
+
+  private void writeRstStream(int streamId, int errorCode) throws IOException {
+    writeFrame(Http2Frame.RST_STREAM, 0, streamId, ByteBuffer.allocate(4).putInt(errorCode).array());
+  }
+
+  private void writeGoAway(int errorCode) {
+    try {
+      writeFrame(Http2Frame.GOAWAY, 0, 0, ByteBuffer.allocate(8).putInt(lastStreamId).putInt(errorCode).array());
+    } catch (IOException e) {
+      // the peer may already have closed the connection
+    }
+  }
+
+  private void writeFrame(int type, int flags, int streamId, byte[] payload) throws IOException {
+    writeFrame(type, flags, streamId, payload, 0, payload.length);
+  }
+
+  private void writeFrame(int type, int flags, int streamId, byte[] payload, int offset, int length)
+      throws IOException {
+    ByteBuffer header = ByteBuffer.allocate(Http2Frame.HEADER_LENGTH);
+    header.put((byte) (length >>> 16)).put((byte) (length >>> 8)).put((byte) length);
+    header.put((byte) type).put((byte) flags).putInt(streamId);
+    header.flip();
+
+    writeLock.lock();
+    try {
+      if (length == 0) {
+        transport.write(header);
+      } else {
+        transport.write(new ByteBuffer[]{header, ByteBuffer.wrap(payload, offset, length)});
+      }
+    } finally {
+      writeLock.unlock();
+    }
+  }
+
+  private boolean ensure(int count) throws IOException {
+    return ensure(count, false);
+  }
+
+  /**
+   * Reads until at least {@code count} bytes are buffered. A read timeout ends the connection if
+   * no stream is in flight, if part of a frame has arrived, or once the peer has been quiet for
+   * {@value #MAX_QUIET_SECONDS} seconds; otherwise the reader keeps waiting while workers answer
+   * the streams in flight.
+   *
+   * @param midFrame whether the bytes are the rest of a frame whose header has been read
+   * @return {@code false} if the peer closed the connection first
+   */
+  private boolean ensure(int count, boolean midFrame) throws IOException {
+    if (in.remaining() >= count) {
+      return true;
+    }
+    if (in.capacity() < count) {
+      ByteBuffer grown = ByteBuffer.allocate(count);
+      grown.put(in);
+      grown.flip();
+      in = grown;
+    }
+
+    in.compact();
+    long quietSince = System.nanoTime();
+    try {
+      while (in.position() < count) {
+        try {
+          if (transport.read(in) < 0) {
+            return false;
+          }
+        } catch (SocketTimeoutException e) {
+          if (midFrame || in.position() > 0 || !hasActiveStreams()
+              || System.nanoTime() - quietSince >= TimeUnit.SECONDS.toNanos(MAX_QUIET_SECONDS)) {
+            throw e;
+          }
+        }
+      }
+    } finally {
+      in.flip();
+    }
+    return true;
+  }
+
+  /**
+   * Collects decoded header fields until their size, counted as for SETTINGS_MAX_HEADER_LIST_SIZE,
+   * passes the limit. Past it the rest of the block is still decoded, keeping the dynamic table in
+   * sync, but nothing more is kept: a few bytes of indexed references can expand to megabytes.
+   */
+  private static final class HeaderFields implements BiConsumer<String, String> {
+    final List<String[]> fields = new ArrayList<>();
+    private final int limit;
+    private long size;
+
+    HeaderFields(int limit) {
+      this.limit = limit;
+    }
+
+    boolean isTooLarge() {
+      return size > limit;
+    }
+
+    @Override
+    public void accept(String name, String value) {
+      if (size > limit) {
+        return;
+      }
+      size += name.length() + value.length() + HpackTable.ENTRY_OVERHEAD;
+      if (size <= limit) {
+        fields.add(new String[]{name, value});
+      }
+    }
+  }
+}
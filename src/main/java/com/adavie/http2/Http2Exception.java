@@ -0,0 +1,19 @@
+package com.adavie.http2;
+
+import java.io.IOException;
+
+/**
+ * A connection error that ends the HTTP/2 connection with a {@code GOAWAY}.
+ */
+class Http2Exception extends IOException {
+  private final int errorCode;
+
+  Http2Exception(int errorCode, String message) {
+    super(message);
+    this.errorCode = errorCode;
+  }
+
+  int getErrorCode() {
+    return errorCode;
+  }
+}
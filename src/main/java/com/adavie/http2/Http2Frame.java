@@ -0,0 +1,38 @@
+package com.adavie.http2;
+
+/**
+ * Frame types, flags and error codes from RFC 9113.
+ */
+final class Http2Frame {
+  static final int HEADER_LENGTH = 9;
+
+  static final int DATA = 0x0;
+  static final int HEADERS = 0x1;
+  static final int PRIORITY = 0x2;
+  static final int RST_STREAM = 0x3;
+  static final int SETTINGS = 0x4;
+  static final int PUSH_PROMISE = 0x5;
+  static final int PING = 0x6;
+  static final int GOAWAY = 0x7;
+  static final int WINDOW_UPDATE = 0x8;
+  static final int CONTINUATION = 0x9;
+
+  static final int FLAG_END_STREAM = 0x1;
+  static final int FLAG_ACK = 0x1;
+  static final int FLAG_END_HEADERS = 0x4;
+  static final int FLAG_PADDED = 0x8;
+  static final int FLAG_PRIORITY = 0x20;
+
+  static final int NO_ERROR = 0x0;
+  static final int PROTOCOL_ERROR = 0x1;
+  static final int INTERNAL_ERROR = 0x2;
+  static final int FLOW_CONTROL_ERROR = 0x3;
+  static final int STREAM_CLOSED = 0x5;
+  static final int FRAME_SIZE_ERROR = 0x6;
+  static final int REFUSED_STREAM = 0x7;
+  static final int CANCEL = 0x8;
+  static final int COMPRESSION_ERROR = 0x9;
+
+  private Http2Frame() {
+  }
+}
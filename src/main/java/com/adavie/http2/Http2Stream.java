@@ -0,0 +1,29 @@
+package com.adavie.http2;
+
+import com.adavie.request.BodyAccumulator;
+import com.adavie.request.Request;
+
+/**
+ * State of one request/response exchange on an HTTP/2 connection.
+ */
+final class Http2Stream {
+  final int id;
+  Request request;
+  // the request body while it is being received, reader thread only
+  BodyAccumulator body;
+  // when the request headers were decoded, for the access log
+  long startNanos;
+
+  // bytes the peer may still send on this stream, reader thread only
+  int receiveWindow;
+  // bytes we may still send on this stream, guarded by the connection write lock
+  long sendWindow;
+
+  volatile boolean reset;
+
+  Http2Stream(int id, int receiveWindow, long sendWindow) {
+    this.id = id;
+    this.receiveWindow = receiveWindow;
+    this.sendWindow = sendWindow;
+  }
+}
@@ -0,0 +1,34 @@
+package com.adavie.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+import java.net.InetAddress;
+
+@Name("com.adavie.ConnectionAccepted")
+@Label("Connection Accepted")
+@Category({"Rest Lite", "Connections"})
+@Description("A client connection accepted by the listener")
+@StackTrace(false)
+public final class ConnectionAcceptedEvent extends Event {
+  @Label("Remote Address")
+  private String remoteAddress;
+
+  @Label("Open Connections")
+  @Description("Connections open after this one was admitted")
+  private int openConnections;
+
+  public static void record(InetAddress address, int openConnections) {
+    ConnectionAcceptedEvent event = new ConnectionAcceptedEvent();
+    if (!event.isEnabled()) {
+      return;
+    }
+    event.remoteAddress = address == null ? null : address.getHostAddress();
+    event.openConnections = openConnections;
+    event.commit();
+  }
+}
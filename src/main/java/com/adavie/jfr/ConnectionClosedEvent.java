@@ -0,0 +1,42 @@
+package com.adavie.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+import java.net.InetAddress;
+
+/**
+ * A client connection, spanning from when it was accepted to when it was closed.
+ */
+@Name("com.adavie.ConnectionClosed")
+@Label("Connection Closed")
+@Category({"Rest Lite", "Connections"})
+@Description("A client connection from accept to close")
+@StackTrace(false)
+public final class ConnectionClosedEvent extends Event {
+  @Label("Remote Address")
+  private String remoteAddress;
+
+  /**
+   * Starts timing a connection that has just been accepted.
+   */
+  public static ConnectionClosedEvent start(InetAddress address) {
+    ConnectionClosedEvent event = new ConnectionClosedEvent();
+    if (event.isEnabled()) {
+      event.remoteAddress = address == null ? null : address.getHostAddress();
+      event.begin();
+    }
+    return event;
+  }
+
+  public void closed() {
+    end();
+    if (shouldCommit()) {
+      commit();
+    }
+  }
+}
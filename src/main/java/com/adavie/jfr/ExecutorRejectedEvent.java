@@ -0,0 +1,37 @@
+package com.adavie.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+import java.util.concurrent.ThreadPoolExecutor;
+
+@Name("com.adavie.ExecutorRejected")
+@Label("Executor Rejected Task")
+@Category({"Rest Lite", "Executor"})
+@Description("A task turned away because every worker was busy and the queue was full")
+@StackTrace(false)
+public final class ExecutorRejectedEvent extends Event {
+  @Label("Pool Size")
+  private int poolSize;
+
+  @Label("Active Threads")
+  private int activeThreads;
+
+  @Label("Queued Tasks")
+  private int queuedTasks;
+
+  public static void record(ThreadPoolExecutor executor) {
+    ExecutorRejectedEvent event = new ExecutorRejectedEvent();
+    if (!event.isEnabled()) {
+      return;
+    }
+    event.poolSize = executor.getPoolSize();
+    event.activeThreads = executor.getActiveCount();
+    event.queuedTasks = executor.getQueue().size();
+    event.commit();
+  }
+}
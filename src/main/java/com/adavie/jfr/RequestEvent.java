@@ -0,0 +1,82 @@
+package com.adavie.jfr;
+
+import com.adavie.request.Request;
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+import jdk.jfr.Threshold;
+import jdk.jfr.Timespan;
+
+/**
+ * One HTTP/1.1 request, from its first byte to its response being written, with the time spent in
+ * each phase.
+ *
+ * <p>Only requests slower than the threshold are recorded unless the recording settings lower it,
+ * for example with {@code jfr configure com.adavie.Request#threshold=0ms}.
+ */
+@Name("com.adavie.Request")
+@Label("HTTP Request")
+@Category({"Rest Lite", "HTTP"})
+@Description("An HTTP request served by a connection handler")
+@StackTrace(false)
+@Threshold("20 ms")
+public final class RequestEvent extends Event {
+  @Label("Method")
+  private String method;
+
+  @Label("Path")
+  private String path;
+
+  @Label("Status")
+  private int status;
+
+  @Label("Response Size")
+  @DataAmount(DataAmount.BYTES)
+  private long responseBytes;
+
+  @Label("Queue Time")
+  @Description("Time the connection waited for a worker, first request of a connection only")
+  @Timespan(Timespan.NANOSECONDS)
+  private long queueTime;
+
+  @Label("Parse Time")
+  @Timespan(Timespan.NANOSECONDS)
+  private long parseTime;
+
+  @Label("Body Time")
+  @Timespan(Timespan.NANOSECONDS)
+  private long bodyTime;
+
+  @Label("Handle Time")
+  @Timespan(Timespan.NANOSECONDS)
+  private long handleTime;
+
+  @Label("Write Time")
+  @Timespan(Timespan.NANOSECONDS)
+  private long writeTime;
+
+  /**
+   * Ends the event and commits it if it passes the recording's threshold.
+   */
+  public void complete(Request request, int status, long responseBytes, long queueTime, long parseTime,
+                       long bodyTime, long handleTime, long writeTime) {
+    end();
+    if (!shouldCommit()) {
+      return;
+    }
+    this.method = request.getMethod().name();
+    this.path = request.getPath();
+    this.status = status;
+    this.responseBytes = responseBytes;
+    this.queueTime = queueTime;
+    this.parseTime = parseTime;
+    this.bodyTime = bodyTime;
+    this.handleTime = handleTime;
+    this.writeTime = writeTime;
+    commit();
+  }
+}
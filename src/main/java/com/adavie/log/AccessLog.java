@@ -0,0 +1,386 @@
+package com.adavie.log;
+
+import com.adavie.config.AccessLogConfig;
+import com.adavie.request.Request;
+import com.adavie.request.RequestRecorder;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.net.Inet4Address;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.SocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Access log with one line per request, written without going through {@code java.util.logging}.
+ *
+ * <p>Request threads encode records straight into bytes in one of a few striped buffers, picked
+ * by thread id so that concurrent threads rarely share one. A background thread collects full
+ * buffers as soon as they are handed off, and partly filled ones every flush interval, and writes
+ * each batch to the file with a single gathering {@link FileChannel} write. Rotation happens on
+ * that thread too, so request threads never wait on the file system. When every buffer is waiting
+ * to be written, records are dropped and counted rather than blocking.
+ *
+ * <p>Each line holds the UTC time, client address, method, request target, protocol, status,
+ * response bytes and the time spent reading the body, in the handler and writing the response, in
+ * microseconds:
+ *
+ * <pre>2026-01-31T12:00:00.123Z 10.0.0.7 GET /users?page=2 HTTP/1.1 200 5120 0 412 35</pre>
+ */
+public final class AccessLog implements RequestRecorder, Closeable {
+  private static final Logger LOGGER = Logger.getLogger(AccessLog.class.getName());
+
+  private static final int MAX_PATH_LENGTH = 2048;
+  private static final int MAX_TOKEN_LENGTH = 64;
+  // upper bound of an encoded record given the truncation above
+  private static final int MAX_RECORD_LENGTH = AccessLogConfig.MIN_BUFFER_SIZE;
+
+  private static final DateTimeFormatter SECOND =
+      DateTimeFormatter.ofPattern("yyyy-MM-dd'T'HH:mm:ss").withZone(ZoneOffset.UTC);
+  private static final DateTimeFormatter ROTATED_SUFFIX =
+      DateTimeFormatter.ofPattern("yyyyMMdd-HHmmss").withZone(ZoneOffset.UTC);
+
+  private final AccessLogConfig config;
+  private final Stripe[] stripes;
+  private final int mask;
+  private final ArrayBlockingQueue<ByteBuffer> free;
+  private final ArrayBlockingQueue<ByteBuffer> full;
+  private final Thread flusher;
+  private final LongAdder records = new LongAdder();
+  private final LongAdder dropped = new LongAdder();
+  private volatile boolean closed;
+
+  // only touched by the flusher thread
+  private FileChannel channel;
+  private long fileSize;
+  private long openedAt;
+
+  private AccessLog(AccessLogConfig config) {
+    this.config = config;
+
+    int count = Integer.highestOneBit(Math.max(1, Runtime.getRuntime().availableProcessors() * 2) * 2 - 1);
+    this.stripes = new Stripe[count];
+    for (int i = 0; i < count; i++) {
+      stripes[i] = new Stripe();
+    }
+    this.mask = count - 1;
+
+    // twice as many buffers as stripes, so every stripe can fill one while another is written
+    this.free = new ArrayBlockingQueue<>(count * 2);
+    this.full = new ArrayBlockingQueue<>(count * 2);
+    for (int i = 0; i < count * 2; i++) {
+      free.add(ByteBuffer.allocate(config.getBufferSize()));
+    }
+
+    this.flusher = new Thread(this::flushLoop, "access-log-flusher");
+    this.flusher.setDaemon(true);
+  }
+
+  /**
+   * Opens the log file, creating its directory if needed, and starts the flusher thread.
+   */
+  public static AccessLog open(AccessLogConfig config) throws IOException {
+    AccessLog log = new AccessLog(config);
+    log.openFile();
+    log.flusher.start();
+    return log;
+  }
+
+  @Override
+  public void record(Request request, int status, long bytes, long bodyNanos, long handleNanos, long writeNanos) {
+    if (closed) {
+      return;
+    }
+    long now = System.currentTimeMillis();
+    Stripe stripe = stripes[stripeIndex()];
+    ByteBuffer handOff = null;
+    boolean written = false;
+    synchronized (stripe) {
+      ByteBuffer buffer = stripe.buffer;
+      if (buffer == null || buffer.remaining() < MAX_RECORD_LENGTH) {
+        handOff = buffer;
+        buffer = stripe.buffer = free.poll();
+      }
+      if (buffer != null) {
+        encode(stripe, buffer, now, request, status, bytes, bodyNanos, handleNanos, writeNanos);
+        written = true;
+      }
+    }
+
+    if (written) {
+      records.increment();
+    } else {
+      dropped.increment();
+    }
+    if (handOff != null) {
+      // there are never more buffers than the queue holds, so this cannot fail
+      full.offer(handOff);
+      LockSupport.unpark(flusher);
+    }
+  }
+
+  /**
+   * Records encoded since the log was opened.
+   */
+  public long getRecords() {
+    return records.sum();
+  }
+
+  /**
+   * Records dropped because every buffer was waiting to be written.
+   */
+  public long getDropped() {
+    return dropped.sum();
+  }
+
+  /**
+   * Writes what has been recorded so far and closes the file.
+   */
+  @Override
+  public void close() {
+    if (closed) {
+      return;
+    }
+    closed = true;
+    LockSupport.unpark(flusher);
+    try {
+      flusher.join(TimeUnit.SECONDS.toMillis(5));
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
+  }
+
+  private int stripeIndex() {
+    long id = Thread.currentThread().getId();
+    return (int) ((id * 0x9E3779B97F4A7C15L) >>> 32) & mask;
+  }
+
+  private static void encode(Stripe stripe, ByteBuffer buffer, long now, Request request, int status, long bytes,
+                             long bodyNanos, long handleNanos, long writeNanos) {
+    long second = now / 1000;
+    if (second != stripe.second) {
+      stripe.second = second;
+      stripe.secondText = SECOND.format(Instant.ofEpochSecond(second)).getBytes(StandardCharsets.US_ASCII);
+    }
+    buffer.put(stripe.secondText);
+    buffer.put((byte) '.');
+    int millis = (int) (now % 1000);
+    buffer.put((byte) ('0' + millis / 100));
+    buffer.put((byte) ('0' + millis / 10 % 10));
+    buffer.put((byte) ('0' + millis % 10));
+    buffer.put((byte) 'Z');
+    buffer.put((byte) ' ');
+    putAddress(buffer, request.getRemoteAddress());
+    buffer.put((byte) ' ');
+    putToken(buffer, request.getMethod().name(), MAX_TOKEN_LENGTH);
+    buffer.put((byte) ' ');
+    putToken(buffer, request.getTarget(), MAX_PATH_LENGTH);
+    buffer.put((byte) ' ');
+    putToken(buffer, request.getVersion(), MAX_TOKEN_LENGTH);
+    buffer.put((byte) ' ');
+    putDigits(buffer, status);
+    buffer.put((byte) ' ');
+    putDigits(buffer, bytes);
+    buffer.put((byte) ' ');
+    putDigits(buffer, TimeUnit.NANOSECONDS.toMicros(bodyNanos));
+    buffer.put((byte) ' ');
+    putDigits(buffer, TimeUnit.NANOSECONDS.toMicros(handleNanos));
+    buffer.put((byte) ' ');
+    putDigits(buffer, TimeUnit.NANOSECONDS.toMicros(writeNanos));
+    buffer.put((byte) '\n');
+  }
+
+  private static void putAddress(ByteBuffer buffer, SocketAddress address) {
+    InetAddress inet = address instanceof InetSocketAddress ? ((InetSocketAddress) address).getAddress() : null;
+    if (inet instanceof Inet4Address) {
+      // the common case, encoded from the raw octets without building a string
+      byte[] octets = inet.getAddress();
+      for (int i = 0; i < octets.length; i++) {
+        if (i > 0) {
+          buffer.put((byte) '.');
+        }
+        putDigits(buffer, octets[i] & 0xFF);
+      }
+    } else if (inet != null) {
+      putToken(buffer, inet.getHostAddress(), MAX_TOKEN_LENGTH);
+    } else {
+      buffer.put((byte) '-');
+    }
+  }
+
+  /**
+   * Writes at most {@code maxLength} characters, replacing anything that is not printable ASCII
+   * so that a record always stays on one line.
+   */
+  private static void putToken(ByteBuffer buffer, String value, int maxLength) {
+    if (value == null || value.isEmpty()) {
+      buffer.put((byte) '-');
+      return;
+    }
+    int length = Math.min(value.length(), maxLength);
+    for (int i = 0; i < length; i++) {
+      char c = value.charAt(i);
+      buffer.put(c > ' ' && c < 0x7F ? (byte) c : (byte) '?');
+    }
+  }
+
+  private static void putDigits(ByteBuffer buffer, long value) {
+    if (value < 0) {
+      buffer.put((byte) '-');
+      return;
+    }
+    int start = buffer.position();
+    do {
+      buffer.put((byte) ('0' + value % 10));
+      value /= 10;
+    } while (value > 0);
+    // digits were written least significant first
+    for (int i = start, j = buffer.position() - 1; i < j; i++, j--) {
+      byte swap = buffer.get(i);
+      buffer.put(i, buffer.get(j));
+      buffer.put(j, swap);
+    }
+  }
+
+  private void flushLoop() {
+    long intervalNanos = TimeUnit.MILLISECONDS.toNanos(config.getFlushInterval());
+    List<ByteBuffer> batch = new ArrayList<>();
+    while (true) {
+      boolean stopping = closed;
+      if (!stopping && full.isEmpty()) {
+        LockSupport.parkNanos(this, intervalNanos);
+      }
+
+      full.drainTo(batch);
+      for (Stripe stripe : stripes) {
+        synchronized (stripe) {
+          if (stripe.buffer != null && stripe.buffer.position() > 0) {
+            batch.add(stripe.buffer);
+            stripe.buffer = null;
+          }
+        }
+      }
+      if (!batch.isEmpty()) {
+        write(batch);
+        for (ByteBuffer buffer : batch) {
+          buffer.clear();
+          free.offer(buffer);
+        }
+        batch.clear();
+      }
+
+      if (stopping) {
+        closeFile();
+        return;
+      }
+    }
+  }
+
+  private void write(List<ByteBuffer> batch) {
+    long total = 0;
+    ByteBuffer[] buffers = new ByteBuffer[batch.size()];
+    for (int i = 0; i < buffers.length; i++) {
+      buffers[i] = batch.get(i);
+      buffers[i].flip();
+      total += buffers[i].remaining();
+    }
+
+    try {
+      rotateIfNeeded(total);
+      long remaining = total;
+      while (remaining > 0) {
+        remaining -= channel.write(buffers);
+      }
+      fileSize += total;
+    } catch (IOException e) {
+      LOGGER.log(Level.WARNING, "Failed to write access log " + config.getFilePath(), e);
+      closeFile();
+    }
+  }
+
+  private void rotateIfNeeded(long incoming) throws IOException {
+    if (channel == null) {
+      openFile();
+    }
+    long interval = config.getRotationInterval();
+    boolean tooLarge = fileSize + incoming > config.getMaxFileSize();
+    boolean tooOld = interval > 0 && System.currentTimeMillis() - openedAt >= interval;
+    if (fileSize == 0 || !(tooLarge || tooOld)) {
+      return;
+    }
+
+    closeFile();
+    Path path = config.getFilePath();
+    String prefix = path.getFileName() + ".";
+    String suffix = ROTATED_SUFFIX.format(Instant.now());
+    Path rotated = path.resolveSibling(prefix + suffix);
+    for (int i = 1; Files.exists(rotated); i++) {
+      rotated = path.resolveSibling(prefix + suffix + "-" + i);
+    }
+    Files.move(path, rotated);
+    deleteOldFiles(path, prefix);
+    openFile();
+  }
+
+  private void deleteOldFiles(Path path, String prefix) throws IOException {
+    List<Path> rotated = new ArrayList<>();
+    try (DirectoryStream<Path> files = Files.newDirectoryStream(path.toAbsolutePath().getParent(), prefix + "*")) {
+      for (Path file : files) {
+        rotated.add(file);
+      }
+    }
+    // suffixes are timestamps, so name order is age order
+    Collections.sort(rotated);
+    for (int i = 0; i < rotated.size() - config.getMaxFiles(); i++) {
+      Files.deleteIfExists(rotated.get(i));
+    }
+  }
+
+  private void openFile() throws IOException {
+    Path path = config.getFilePath();
+    Path parent = path.toAbsolutePath().getParent();
+    if (parent != null) {
+      Files.createDirectories(parent);
+    }
+    channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+    fileSize = channel.size();
+    openedAt = System.currentTimeMillis();
+  }
+
+  private void closeFile() {
+    if (channel == null) {
+      return;
+    }
+    try {
+      channel.close();
+    } catch (IOException e) {
+      LOGGER.log(Level.FINE, "Failed to close access log", e);
+    }
+    channel = null;
+  }
+
+  private static final class Stripe {
+    ByteBuffer buffer;
+    long second = -1;
+    byte[] secondText;
+  }
+}
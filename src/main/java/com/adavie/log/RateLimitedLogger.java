@@ -0,0 +1,159 @@
+package com.adavie.log;
+
+import java.lang.ref.WeakReference;
+import java.util.Iterator;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Logs messages from one call site on a hot path, dropping repeats past a token-bucket rate.
+ *
+ * <p>Keep one instance per call site in a {@code static final} field. Up to {@code burst}
+ * messages pass at once, then one more per {@code period}; anything beyond that is counted and
+ * reported later as a single "N similar messages suppressed" record, so a failure that repeats in
+ * a tight loop costs one log record per period instead of one per iteration. Messages are built by
+ * a {@link Supplier} that is only called for records that are actually logged.
+ */
+public final class RateLimitedLogger {
+  public static final int DEFAULT_BURST = 5;
+  public static final long DEFAULT_PERIOD_SECONDS = 10;
+
+  private static final long SUMMARY_TICK_MILLIS = 1000;
+  private static final ConcurrentLinkedQueue<WeakReference<RateLimitedLogger>> INSTANCES =
+      new ConcurrentLinkedQueue<>();
+  private static volatile ScheduledThreadPoolExecutor summaries;
+
+  private final Logger logger;
+  private final String callSite;
+  private final long intervalNanos;
+  private final long toleranceNanos;
+
+  // theoretical arrival time of the next message (GCRA), a message passes if it is not earlier
+  // than this minus the burst tolerance
+  private final AtomicLong nextAllowed;
+  private final AtomicLong suppressed = new AtomicLong();
+  private volatile Level suppressedLevel;
+  private volatile long lastSummary;
+
+  /**
+   * @param callSite short description of the call site, used to label suppression summaries
+   */
+  public RateLimitedLogger(Logger logger, String callSite, int burst, long period, TimeUnit unit) {
+    if (logger == null) {
+      throw new IllegalArgumentException("Logger cannot be null");
+    }
+    if (callSite == null || callSite.trim().isEmpty()) {
+      throw new IllegalArgumentException("Call site cannot be null or empty");
+    }
+    if (burst < 1) {
+      throw new IllegalArgumentException("Burst must be at least 1");
+    }
+    if (period < 1) {
+      throw new IllegalArgumentException("Period must be at least 1");
+    }
+    this.logger = logger;
+    this.callSite = callSite;
+    this.intervalNanos = unit.toNanos(period);
+    this.toleranceNanos = intervalNanos * (burst - 1);
+    long now = System.nanoTime();
+    this.nextAllowed = new AtomicLong(now);
+    this.lastSummary = now;
+    register(this);
+  }
+
+  /**
+   * A logger allowing {@value #DEFAULT_BURST} messages at once and one per
+   * {@value #DEFAULT_PERIOD_SECONDS} seconds after that.
+   */
+  public RateLimitedLogger(Logger logger, String callSite) {
+    this(logger, callSite, DEFAULT_BURST, DEFAULT_PERIOD_SECONDS, TimeUnit.SECONDS);
+  }
+
+  public void log(Level level, Supplier<String> message) {
+    log(level, null, message);
+  }
+
+  public void log(Level level, Throwable thrown, Supplier<String> message) {
+    if (!logger.isLoggable(level)) {
+      return;
+    }
+    if (!tryAcquire()) {
+      suppressedLevel = level;
+      suppressed.incrementAndGet();
+      return;
+    }
+    logger.log(level, message.get(), thrown);
+  }
+
+  /**
+   * Messages suppressed since the last summary was logged.
+   */
+  public long getSuppressed() {
+    return suppressed.get();
+  }
+
+  /**
+   * Logs a summary of the messages suppressed so far, if there are any.
+   */
+  public void logSummary() {
+    long count = suppressed.getAndSet(0);
+    if (count > 0) {
+      Level level = suppressedLevel;
+      logger.log(level == null ? Level.WARNING : level, callSite + ": " + count + " similar messages suppressed");
+    }
+    lastSummary = System.nanoTime();
+  }
+
+  private boolean tryAcquire() {
+    long now = System.nanoTime();
+    while (true) {
+      long next = nextAllowed.get();
+      if (now - (next - toleranceNanos) < 0) {
+        return false;
+      }
+      long updated = Math.max(next - now, 0) + now + intervalNanos;
+      if (nextAllowed.compareAndSet(next, updated)) {
+        return true;
+      }
+    }
+  }
+
+  private static void register(RateLimitedLogger logger) {
+    INSTANCES.add(new WeakReference<>(logger));
+    if (summaries == null) {
+      synchronized (RateLimitedLogger.class) {
+        if (summaries == null) {
+          ScheduledThreadPoolExecutor executor = new ScheduledThreadPoolExecutor(1, runnable -> {
+            Thread thread = new Thread(runnable, "log-suppression-summary");
+            thread.setDaemon(true);
+            return thread;
+          });
+          executor.scheduleAtFixedRate(RateLimitedLogger::summarize, SUMMARY_TICK_MILLIS, SUMMARY_TICK_MILLIS,
+              TimeUnit.MILLISECONDS);
+          summaries = executor;
+        }
+      }
+    }
+  }
+
+  /**
+   * Reports suppressed messages once per period of each logger, so they show up even if the
+   * storm stops and nothing else is logged from the call site.
+   */
+  private static void summarize() {
+    long now = System.nanoTime();
+    for (Iterator<WeakReference<RateLimitedLogger>> it = INSTANCES.iterator(); it.hasNext(); ) {
+      RateLimitedLogger logger = it.next().get();
+      if (logger == null) {
+        it.remove();
+      } else if (logger.suppressed.get() > 0 && now - logger.lastSummary >= logger.intervalNanos) {
+        logger.logSummary();
+      }
+    }
+  }
+}
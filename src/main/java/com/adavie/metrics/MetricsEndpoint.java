@@ -0,0 +1,295 @@
+package com.adavie.metrics;
+
+import com.adavie.config.ServerConfig;
+import com.adavie.request.HttpMethod;
+import com.adavie.request.HttpRequestParser;
+import com.adavie.request.Request;
+import com.adavie.response.HttpException;
+import com.adavie.server.ConnectionLimiter;
+import com.adavie.server.ServerContext;
+import com.adavie.util.ExecutorStats;
+import com.adavie.util.InstrumentedExecutor;
+import com.adavie.util.MemoryBudget;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.lang.management.BufferPoolMXBean;
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryUsage;
+import java.net.InetSocketAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Serves server metrics in the Prometheus text exposition format on a port of its own.
+ *
+ * <p>Scrapes are answered one at a time by a single dedicated thread that never touches the server
+ * executor, so metrics stay available when every worker is busy or the queue is full, which is
+ * when they are most needed. The response is rendered into a buffer that is reused between
+ * scrapes.
+ */
+public final class MetricsEndpoint implements Closeable {
+  private static final Logger LOGGER = Logger.getLogger(MetricsEndpoint.class.getName());
+
+  private static final int SCRAPE_TIMEOUT_MILLIS = 5000;
+  private static final byte[] NOT_FOUND = ascii(
+      "HTTP/1.1 404 Not Found\r\nContent-Length: 0\r\nConnection: close\r\n\r\n");
+  private static final byte[] OK_HEAD = ascii(
+      "HTTP/1.1 200 OK\r\nContent-Type: text/plain; version=0.0.4; charset=utf-8\r\nConnection: close\r\n"
+          + "Content-Length: ");
+  private static final double[] QUANTILES = {0.5, 0.9, 0.99, 0.999};
+
+  private final ServerContext context;
+  private final ConnectionLimiter connectionLimiter;
+  private final String path;
+  private final ServerSocket serverSocket;
+  private final Thread thread;
+
+  // reused between scrapes, only touched while holding the monitor
+  private final StringBuilder text = new StringBuilder(8192);
+  private byte[] body = new byte[8192];
+  private final ByteBuffer requestBuffer = ByteBuffer.allocate(HttpRequestParser.DEFAULT_MAX_HEAD_SIZE);
+  private final HttpRequestParser parser = new HttpRequestParser();
+
+  private MetricsEndpoint(ServerContext context, ConnectionLimiter connectionLimiter) throws IOException {
+    ServerConfig config = context.getServerConfig();
+    this.context = context;
+    this.connectionLimiter = connectionLimiter;
+    this.path = config.getMetricsPath();
+    this.serverSocket = new ServerSocket();
+    this.serverSocket.bind(new InetSocketAddress(config.getHostname(), config.getMetricsPort()));
+    this.thread = new Thread(this::acceptLoop, "metrics-endpoint");
+    this.thread.setDaemon(true);
+  }
+
+  /**
+   * Binds the metrics port and starts answering scrapes.
+   */
+  public static MetricsEndpoint start(ServerContext context, ConnectionLimiter connectionLimiter)
+      throws IOException {
+    MetricsEndpoint endpoint = new MetricsEndpoint(context, connectionLimiter);
+    endpoint.thread.start();
+    return endpoint;
+  }
+
+  @Override
+  public void close() {
+    try {
+      serverSocket.close();
+    } catch (IOException e) {
+      LOGGER.log(Level.FINE, "Failed to close metrics endpoint", e);
+    }
+  }
+
+  private void acceptLoop() {
+    while (!serverSocket.isClosed()) {
+      try (Socket socket = serverSocket.accept()) {
+        socket.setSoTimeout(SCRAPE_TIMEOUT_MILLIS);
+        serve(socket);
+      } catch (IOException | HttpException e) {
+        if (!serverSocket.isClosed()) {
+          LOGGER.log(Level.FINE, "Metrics scrape failed", e);
+        }
+      }
+    }
+  }
+
+  private synchronized void serve(Socket socket) throws IOException {
+    InputStream in = socket.getInputStream();
+    requestBuffer.clear();
+    Request request = null;
+    while (request == null && requestBuffer.hasRemaining()) {
+      int n = in.read(requestBuffer.array(), requestBuffer.position(), requestBuffer.remaining());
+      if (n < 0) {
+        return;
+      }
+      requestBuffer.position(requestBuffer.position() + n);
+      ByteBuffer head = requestBuffer.duplicate();
+      head.flip();
+      request = parser.parse(head);
+    }
+
+    OutputStream out = socket.getOutputStream();
+    boolean get = request != null
+        && (request.getMethod() == HttpMethod.GET || request.getMethod() == HttpMethod.HEAD);
+    if (!get || !path.equals(request.getPath())) {
+      out.write(NOT_FOUND);
+      out.flush();
+      return;
+    }
+
+    int length = render();
+    out.write(OK_HEAD);
+    out.write(ascii(Integer.toString(length) + "\r\n\r\n"));
+    if (request.getMethod() == HttpMethod.GET) {
+      out.write(body, 0, length);
+    }
+    out.flush();
+  }
+
+  /**
+   * Renders the current metrics into the reused body buffer.
+   *
+   * @return the number of bytes rendered
+   */
+  synchronized int render() {
+    text.setLength(0);
+    ServerMetrics metrics = context.getMetrics();
+
+    gauge("restlite_connections_open", "Connections currently open.", connectionLimiter.getOpenConnections());
+    counter("restlite_connections_accepted_total", "Connections accepted.", metrics.getConnectionsAccepted());
+    counter("restlite_connections_rejected_total", "Connections closed by the connection limits.",
+        connectionLimiter.getRejectedConnections());
+    counter("restlite_executor_rejected_total", "Connections and streams the executor had no capacity for.",
+        metrics.getExecutorRejections());
+
+    ExecutorService executor = context.getExecutorService();
+    if (executor instanceof ThreadPoolExecutor) {
+      ThreadPoolExecutor pool = (ThreadPoolExecutor) executor;
+      gauge("restlite_executor_threads", "Threads in the worker pool.", pool.getPoolSize());
+      gauge("restlite_executor_active_threads", "Workers running a task.", pool.getActiveCount());
+      gauge("restlite_executor_queued_tasks", "Tasks waiting for a worker.", pool.getQueue().size());
+      counter("restlite_executor_completed_tasks_total", "Tasks completed by the worker pool.",
+          pool.getCompletedTaskCount());
+    }
+    if (executor instanceof InstrumentedExecutor) {
+      renderExecutorStats(((InstrumentedExecutor) executor).getStats());
+    }
+
+    header("restlite_requests_total", "Requests answered, by status class.", "counter");
+    for (int statusClass = 1; statusClass <= 5; statusClass++) {
+      text.append("restlite_requests_total{code=\"").append(statusClass).append("xx\"} ")
+          .append(metrics.getRequests(statusClass)).append('\n');
+    }
+    counter("restlite_response_bytes_total", "Response bytes written.", metrics.getResponseBytes());
+
+    header("restlite_request_duration_seconds", "Time from request head to response written.", "summary");
+    for (double quantile : QUANTILES) {
+      text.append("restlite_request_duration_seconds{quantile=\"").append(quantile).append("\"} ")
+          .append(metrics.getDurationQuantile(quantile)).append('\n');
+    }
+    text.append("restlite_request_duration_seconds_sum ").append(metrics.getDurationNanos() / 1e9).append('\n');
+    text.append("restlite_request_duration_seconds_count ").append(metrics.getRequests()).append('\n');
+
+    MemoryBudget budget = context.getBodyBudget();
+    gauge("restlite_body_memory_used_bytes", "Memory held by buffered request bodies.", budget.getUsed());
+    gauge("restlite_body_memory_capacity_bytes", "Memory budget for buffered request bodies.", budget.getCapacity());
+
+    renderJvm();
+    return encode();
+  }
+
+  private void renderExecutorStats(ExecutorStats stats) {
+    gauge("restlite_executor_peak_active_tasks", "Most tasks running at once.", stats.getPeakActive());
+    gauge("restlite_executor_peak_queued_tasks", "Most tasks waiting for a worker at once.", stats.getPeakQueued());
+    seconds("restlite_executor_queue_wait_seconds_total", "Time tasks spent between submit and start.", "counter",
+        stats.getTotalQueueWaitNanos());
+    seconds("restlite_executor_queue_wait_seconds_max", "Longest time a task waited for a worker.", "gauge",
+        stats.getMaxQueueWaitNanos());
+    seconds("restlite_executor_run_seconds_total", "Time tasks spent running.", "counter", stats.getTotalRunNanos());
+    seconds("restlite_executor_run_seconds_max", "Longest time a task ran.", "gauge", stats.getMaxRunNanos());
+    counter("restlite_executor_pinned_total", "Times a virtual thread blocked while pinned to its carrier.",
+        stats.getPinnedEvents());
+  }
+
+  private void renderJvm() {
+    MemoryUsage heap = ManagementFactory.getMemoryMXBean().getHeapMemoryUsage();
+    gauge("jvm_memory_heap_used_bytes", "Heap memory in use.", heap.getUsed());
+    gauge("jvm_memory_heap_committed_bytes", "Heap memory committed.", heap.getCommitted());
+
+    header("jvm_gc_collection_seconds", "Time spent in garbage collection, by collector.", "summary");
+    for (GarbageCollectorMXBean gc : ManagementFactory.getGarbageCollectorMXBeans()) {
+      text.append("jvm_gc_collection_seconds_count{gc=\"");
+      label(gc.getName());
+      text.append("\"} ").append(Math.max(0, gc.getCollectionCount())).append('\n');
+      text.append("jvm_gc_collection_seconds_sum{gc=\"");
+      label(gc.getName());
+      text.append("\"} ").append(Math.max(0, gc.getCollectionTime()) / 1000.0).append('\n');
+    }
+
+    header("jvm_buffer_pool_used_bytes", "Memory used by NIO buffer pools.", "gauge");
+    for (BufferPoolMXBean pool : ManagementFactory.getPlatformMXBeans(BufferPoolMXBean.class)) {
+      text.append("jvm_buffer_pool_used_bytes{pool=\"");
+      label(pool.getName());
+      text.append("\"} ").append(pool.getMemoryUsed()).append('\n');
+    }
+    header("jvm_buffer_pool_capacity_bytes", "Capacity of NIO buffer pools.", "gauge");
+    for (BufferPoolMXBean pool : ManagementFactory.getPlatformMXBeans(BufferPoolMXBean.class)) {
+      text.append("jvm_buffer_pool_capacity_bytes{pool=\"");
+      label(pool.getName());
+      text.append("\"} ").append(pool.getTotalCapacity()).append('\n');
+    }
+    header("jvm_buffer_pool_used_buffers", "Buffers in NIO buffer pools.", "gauge");
+    for (BufferPoolMXBean pool : ManagementFactory.getPlatformMXBeans(BufferPoolMXBean.class)) {
+      text.append("jvm_buffer_pool_used_buffers{pool=\"");
+      label(pool.getName());
+      text.append("\"} ").append(pool.getCount()).append('\n');
+    }
+  }
+
+  private void counter(String name, String help, long value) {
+    header(name, help, "counter");
+    text.append(name).append(' ').append(value).append('\n');
+  }
+
+  private void gauge(String name, String help, long value) {
+    header(name, help, "gauge");
+    text.append(name).append(' ').append(value).append('\n');
+  }
+
+  private void seconds(String name, String help, String type, long nanos) {
+    header(name, help, type);
+    text.append(name).append(' ').append(nanos / 1e9).append('\n');
+  }
+
+  private void header(String name, String help, String type) {
+    text.append("# HELP ").append(name).append(' ').append(help).append('\n');
+    text.append("# TYPE ").append(name).append(' ').append(type).append('\n');
+  }
+
+  private void label(String value) {
+    for (int i = 0; i < value.length(); i++) {
+      char c = value.charAt(i);
+      if (c == '\\' || c == '"') {
+        text.append('\\').append(c);
+      } else if (c == '\n') {
+        text.append("\\n");
+      } else {
+        text.append(c);
+      }
+    }
+  }
+
+  /**
+   * Copies the rendered text into the body buffer, growing it if needed. Everything rendered is
+   * ASCII apart from perhaps collector and pool names, whose other characters become {@code ?}.
+   */
+  private int encode() {
+    int length = text.length();
+    if (body.length < length) {
+      body = new byte[Math.max(length, body.length * 2)];
+    }
+    for (int i = 0; i < length; i++) {
+      char c = text.charAt(i);
+      body[i] = c < 0x80 ? (byte) c : (byte) '?';
+    }
+    return length;
+  }
+
+  byte[] getBody() {
+    return body;
+  }
+
+  private static byte[] ascii(String value) {
+    return value.getBytes(StandardCharsets.US_ASCII);
+  }
+}
@@ -0,0 +1,122 @@
+package com.adavie.metrics;
+
+import com.adavie.request.Request;
+import com.adavie.request.RequestRecorder;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Request and connection counters of one server, updated with {@link LongAdder}s so that
+ * recording never contends between request threads.
+ *
+ * <p>Request durations go into a histogram of power-of-two microsecond buckets, from which
+ * {@link #getDurationQuantile} estimates percentiles to within a factor of two.
+ */
+public final class ServerMetrics implements RequestRecorder {
+  // bucket i holds durations below 2^i microseconds, the last one everything longer
+  static final int DURATION_BUCKETS = 40;
+
+  private final LongAdder connectionsAccepted = new LongAdder();
+  private final LongAdder executorRejections = new LongAdder();
+  private final LongAdder[] requestsByClass = newAdders(6);
+  private final LongAdder responseBytes = new LongAdder();
+  private final LongAdder durationNanos = new LongAdder();
+  private final LongAdder[] durationBuckets = newAdders(DURATION_BUCKETS);
+
+  @Override
+  public void record(Request request, int status, long bytes, long bodyNanos, long handleNanos, long writeNanos) {
+    int statusClass = status / 100;
+    requestsByClass[statusClass >= 1 && statusClass <= 5 ? statusClass : 0].increment();
+    responseBytes.add(bytes);
+
+    long nanos = bodyNanos + handleNanos + writeNanos;
+    durationNanos.add(nanos);
+    long micros = TimeUnit.NANOSECONDS.toMicros(nanos);
+    int bucket = 64 - Long.numberOfLeadingZeros(micros);
+    durationBuckets[Math.min(bucket, DURATION_BUCKETS - 1)].increment();
+  }
+
+  public void recordConnectionAccepted() {
+    connectionsAccepted.increment();
+  }
+
+  /**
+   * Counts a connection or stream turned away because the executor had no capacity left.
+   */
+  public void recordExecutorRejection() {
+    executorRejections.increment();
+  }
+
+  public long getConnectionsAccepted() {
+    return connectionsAccepted.sum();
+  }
+
+  public long getExecutorRejections() {
+    return executorRejections.sum();
+  }
+
+  /**
+   * Requests answered with a status of the given class, {@code 1} to {@code 5}.
+   */
+  public long getRequests(int statusClass) {
+    if (statusClass < 1 || statusClass > 5) {
+      throw new IllegalArgumentException("Status class must be between 1 and 5");
+    }
+    return requestsByClass[statusClass].sum();
+  }
+
+  public long getRequests() {
+    long total = 0;
+    for (LongAdder adder : requestsByClass) {
+      total += adder.sum();
+    }
+    return total;
+  }
+
+  public long getResponseBytes() {
+    return responseBytes.sum();
+  }
+
+  public long getDurationNanos() {
+    return durationNanos.sum();
+  }
+
+  /**
+   * Estimates the request duration below which {@code quantile} of all requests fell, as the
+   * upper bound of the histogram bucket it lies in.
+   *
+   * @return the estimate in seconds, or {@code 0} if no request has been recorded
+   */
+  public double getDurationQuantile(double quantile) {
+    if (quantile < 0 || quantile > 1) {
+      throw new IllegalArgumentException("Quantile must be between 0 and 1");
+    }
+    long[] counts = new long[DURATION_BUCKETS];
+    long total = 0;
+    for (int i = 0; i < DURATION_BUCKETS; i++) {
+      counts[i] = durationBuckets[i].sum();
+      total += counts[i];
+    }
+    if (total == 0) {
+      return 0;
+    }
+    long rank = (long) Math.ceil(quantile * total);
+    long seen = 0;
+    for (int i = 0; i < DURATION_BUCKETS; i++) {
+      seen += counts[i];
+      if (seen >= rank && counts[i] > 0) {
+        return (1L << i) / 1_000_000.0;
+      }
+    }
+    return (1L << (DURATION_BUCKETS - 1)) / 1_000_000.0;
+  }
+
+  private static LongAdder[] newAdders(int count) {
+    LongAdder[] adders = new LongAdder[count];
+    for (int i = 0; i < count; i++) {
+      adders[i] = new LongAdder();
+    }
+    return adders;
+  }
+}
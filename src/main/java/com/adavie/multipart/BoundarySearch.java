@@ -0,0 +1,51 @@
+package com.adavie.multipart;
+
+import java.util.Arrays;
+
+/**
+ * Boyer-Moore-Horspool search for a multipart delimiter.
+ *
+ * <p>Each mismatch skips ahead by the distance of the window's last byte from the end of the
+ * pattern, so on typical part content the scan inspects about one byte in every
+ * {@code pattern.length} instead of every byte.
+ */
+final class BoundarySearch {
+  private final byte[] pattern;
+  private final int[] shift = new int[256];
+
+  BoundarySearch(byte[] pattern) {
+    this.pattern = pattern.clone();
+    Arrays.fill(shift, pattern.length);
+    for (int i = 0; i < pattern.length - 1; i++) {
+      shift[pattern[i] & 0xFF] = pattern.length - 1 - i;
+    }
+  }
+
+  int length() {
+    return pattern.length;
+  }
+
+  /**
+   * Returns the index of the first occurrence of the pattern within {@code array[from, to)}, or
+   * {@code -1}.
+   */
+  int indexOf(byte[] array, int from, int to) {
+    int last = pattern.length - 1;
+    byte lastByte = pattern[last];
+    int i = from;
+    while (i + last < to) {
+      byte b = array[i + last];
+      if (b == lastByte) {
+        int j = last - 1;
+        while (j >= 0 && array[i + j] == pattern[j]) {
+          j--;
+        }
+        if (j < 0) {
+          return i;
+        }
+      }
+      i += shift[b & 0xFF];
+    }
+    return -1;
+  }
+}
@@ -0,0 +1,367 @@
+package com.adavie.multipart;
+
+import com.adavie.request.KnownHeader;
+import com.adavie.request.Request;
+import com.adavie.response.HttpException;
+import com.adavie.response.HttpStatus;
+import com.adavie.util.BufferPool;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Streaming reader for {@code multipart/form-data} bodies (RFC 7578).
+ *
+ * <p>Parts are returned one at a time by {@link #next()} and their content is read straight from
+ * the request body through a pooled buffer, so heap use stays constant however large the upload
+ * is. Delimiters are located with a Boyer-Moore-Horspool scan; bytes that cannot be the start of
+ * a delimiter are handed to the caller as soon as they are buffered.
+ *
+ * <pre>{@code
+ * try (MultipartReader reader = MultipartReader.open(request)) {
+ *   Part part;
+ *   while ((part = reader.next()) != null) {
+ *     if (part.isFile()) {
+ *       fileChannel.transferFrom(part.getChannel(), 0, Long.MAX_VALUE);
+ *     } else {
+ *       fields.put(part.getName(), part.getValue());
+ *     }
+ *   }
+ * }
+ * }</pre>
+ *
+ * <p>Malformed bodies fail with an {@link HttpException} carrying {@code 400}. A reader is used by
+ * one thread at a time.
+ */
+public final class MultipartReader implements Closeable {
+  public static final int DEFAULT_MAX_FIELD_SIZE = 65536;
+
+  private static final int BUFFER_SIZE = 65536;
+  private static final int MAX_HEADER_SIZE = 16384;
+  // RFC 2046 section 5.1.1
+  private static final int MAX_BOUNDARY_LENGTH = 70;
+  private static final BufferPool BUFFERS = new BufferPool(BUFFER_SIZE, 64);
+
+  private final ReadableByteChannel source;
+  private final BoundarySearch delimiter;
+  private final int maxFieldSize;
+  private Request request;
+  // kept in read mode
+  private ByteBuffer buffer;
+  private Part current;
+  private boolean started;
+  private boolean finished;
+  private boolean sourceDone;
+  // index of the next delimiter in the buffer once found, else the first index it could start at
+  private int delimiterIndex = -1;
+  private int scanFrom;
+
+  public MultipartReader(ReadableByteChannel source, String boundary, int maxFieldSize) {
+    if (boundary == null || boundary.isEmpty() || boundary.length() > MAX_BOUNDARY_LENGTH) {
+      throw new IllegalArgumentException("Boundary must be between 1 and " + MAX_BOUNDARY_LENGTH + " characters");
+    }
+    if (maxFieldSize < 0) {
+      throw new IllegalArgumentException("Max field size cannot be negative");
+    }
+    this.source = source;
+    this.delimiter = new BoundarySearch(("\r\n--" + boundary).getBytes(StandardCharsets.ISO_8859_1));
+    this.maxFieldSize = maxFieldSize;
+
+    this.buffer = BUFFERS.acquire();
+    // the first delimiter may open the body, so pretend it was preceded by a line break
+    buffer.put((byte) '\r').put((byte) '\n').flip();
+  }
+
+  /**
+   * Opens a reader over the body of a {@code multipart/*} request.
+   *
+   * @throws HttpException with {@code 415} if the request is not multipart, or {@code 400} if it
+   *                       has no usable boundary
+   */
+  public static MultipartReader open(Request request) throws IOException {
+    return open(request, DEFAULT_MAX_FIELD_SIZE);
+  }
+
+  public static MultipartReader open(Request request, int maxFieldSize) throws IOException {
+    String contentType = request.getHeader(KnownHeader.CONTENT_TYPE);
+    if (contentType == null || !contentType.toLowerCase(Locale.ROOT).startsWith("multipart/")) {
+      throw new HttpException(HttpStatus.UNSUPPORTED_MEDIA_TYPE, "Expected a multipart body");
+    }
+    String boundary = parseParameters(contentType).get("boundary");
+    if (boundary == null || boundary.isEmpty() || boundary.length() > MAX_BOUNDARY_LENGTH) {
+      throw new HttpException(HttpStatus.BAD_REQUEST, "Invalid multipart boundary");
+    }
+    MultipartReader reader = new MultipartReader(request.getRequestBody().getChannel(), boundary, maxFieldSize);
+    reader.request = request;
+    return reader;
+  }
+
+  /**
+   * Skips whatever is left of the current part and returns the next one, or {@code null} after
+   * the last part.
+   */
+  public Part next() throws IOException {
+    ensureOpen();
+    if (finished) {
+      return null;
+    }
+    if (current != null) {
+      current.detach();
+      current = null;
+    }
+    skipToDelimiter();
+    buffer.position(buffer.position() + delimiter.length());
+    delimiterIndex = -1;
+    scanFrom = 0;
+
+    require(2);
+    if (buffer.get(buffer.position()) == '-' && buffer.get(buffer.position() + 1) == '-') {
+      finished = true;
+      return null;
+    }
+    // transport padding may follow the delimiter before its line break
+    while (true) {
+      require(1);
+      byte b = buffer.get(buffer.position());
+      if (b != ' ' && b != '\t') {
+        break;
+      }
+      buffer.get();
+    }
+    require(2);
+    if (buffer.get() != '\r' || buffer.get() != '\n') {
+      throw malformed("Invalid multipart delimiter");
+    }
+
+    started = true;
+    current = new Part(this, readHeaders());
+    return current;
+  }
+
+  int getMaxFieldSize() {
+    return maxFieldSize;
+  }
+
+  /**
+   * Reads content of {@code part} into {@code dst}.
+   *
+   * @return the number of bytes read, or {@code -1} at the end of the part
+   */
+  int read(Part part, ByteBuffer dst) throws IOException {
+    ensureOpen();
+    if (part != current) {
+      return -1;
+    }
+    if (!dst.hasRemaining()) {
+      return 0;
+    }
+    while (true) {
+      int available = available();
+      if (available > 0) {
+        int n = Math.min(available, dst.remaining());
+        ByteBuffer slice = buffer.duplicate();
+        slice.limit(slice.position() + n);
+        dst.put(slice);
+        buffer.position(buffer.position() + n);
+        return n;
+      }
+      if (delimiterIndex == buffer.position()) {
+        return -1;
+      }
+      if (!fill()) {
+        throw malformed("Unexpected end of multipart body");
+      }
+    }
+  }
+
+  private void skipToDelimiter() throws IOException {
+    while (true) {
+      int available = available();
+      if (available > 0) {
+        buffer.position(buffer.position() + available);
+      } else if (delimiterIndex == buffer.position()) {
+        return;
+      } else if (!fill()) {
+        throw malformed(started ? "Unexpected end of multipart body" : "Multipart body has no parts");
+      }
+    }
+  }
+
+  /**
+   * Returns how many bytes from the buffer position are certainly content of the current part.
+   */
+  private int available() {
+    int position = buffer.position();
+    if (delimiterIndex < 0) {
+      int offset = buffer.arrayOffset();
+      int from = Math.max(position, scanFrom);
+      int found = delimiter.indexOf(buffer.array(), offset + from, offset + buffer.limit());
+      if (found >= 0) {
+        delimiterIndex = found - offset;
+      } else {
+        // a delimiter may still start in the last length - 1 bytes once more data arrives
+        scanFrom = Math.max(from, buffer.limit() - delimiter.length() + 1);
+      }
+    }
+    return (delimiterIndex >= 0 ? delimiterIndex : scanFrom) - position;
+  }
+
+  private Map<String, String> readHeaders() throws IOException {
+    Map<String, String> headers = new LinkedHashMap<>();
+    int size = 0;
+    while (true) {
+      int lineEnd = -1;
+      while (true) {
+        for (int i = buffer.position(); i + 1 < buffer.limit(); i++) {
+          if (buffer.get(i) == '\r' && buffer.get(i + 1) == '\n') {
+            lineEnd = i;
+            break;
+          }
+        }
+        if (lineEnd >= 0) {
+          break;
+        }
+        if (size + buffer.remaining() > MAX_HEADER_SIZE) {
+          throw malformed("Multipart headers too large");
+        }
+        if (!fill()) {
+          throw malformed("Unexpected end of multipart headers");
+        }
+      }
+
+      int length = lineEnd - buffer.position();
+      size += length + 2;
+      if (size > MAX_HEADER_SIZE) {
+        throw malformed("Multipart headers too large");
+      }
+      byte[] line = new byte[length];
+      buffer.get(line);
+      buffer.position(buffer.position() + 2);
+      if (length == 0) {
+        return headers;
+      }
+
+      String header = new String(line, StandardCharsets.UTF_8);
+      int colon = header.indexOf(':');
+      if (colon <= 0) {
+        throw malformed("Invalid multipart header");
+      }
+      String name = header.substring(0, colon).trim().toLowerCase(Locale.ROOT);
+      String value = header.substring(colon + 1).trim();
+      headers.merge(name, value, (existing, added) -> existing + ", " + added);
+    }
+  }
+
+  private void require(int bytes) throws IOException {
+    while (buffer.remaining() < bytes) {
+      if (!fill()) {
+        throw malformed("Unexpected end of multipart body");
+      }
+    }
+  }
+
+  /**
+   * Compacts the buffer and reads more of the body into it.
+   *
+   * @return {@code false} if the body has ended
+   */
+  private boolean fill() throws IOException {
+    if (sourceDone) {
+      return false;
+    }
+    if (request != null) {
+      request.checkDeadline();
+    }
+    int shift = buffer.position();
+    buffer.compact();
+    try {
+      if (delimiterIndex >= 0) {
+        delimiterIndex -= shift;
+      }
+      scanFrom = Math.max(0, scanFrom - shift);
+      int n;
+      do {
+        n = source.read(buffer);
+      } while (n == 0 && buffer.hasRemaining());
+      if (n < 0) {
+        sourceDone = true;
+        return false;
+      }
+      return true;
+    } finally {
+      buffer.flip();
+    }
+  }
+
+  private void ensureOpen() throws IOException {
+    if (buffer == null) {
+      throw new IOException("Multipart reader is closed");
+    }
+  }
+
+  private static HttpException malformed(String message) {
+    return new HttpException(HttpStatus.BAD_REQUEST, message);
+  }
+
+  @Override
+  public void close() throws IOException {
+    if (buffer == null) {
+      return;
+    }
+    if (current != null) {
+      current.detach();
+      current = null;
+    }
+    BUFFERS.release(buffer);
+    buffer = null;
+    source.close();
+  }
+
+  /**
+   * Parses the {@code ; name=value} parameters of a header value, unquoting quoted strings.
+   * Parameter names are lower-cased.
+   */
+  static Map<String, String> parseParameters(String headerValue) {
+    Map<String, String> parameters = new LinkedHashMap<>();
+    int i = headerValue.indexOf(';');
+    while (i >= 0 && i < headerValue.length()) {
+      i++;
+      int equals = headerValue.indexOf('=', i);
+      int semicolon = headerValue.indexOf(';', i);
+      if (equals < 0 || (semicolon >= 0 && semicolon < equals)) {
+        i = semicolon;
+        continue;
+      }
+      String name = headerValue.substring(i, equals).trim().toLowerCase(Locale.ROOT);
+      i = equals + 1;
+      while (i < headerValue.length() && headerValue.charAt(i) == ' ') {
+        i++;
+      }
+
+      StringBuilder value = new StringBuilder();
+      if (i < headerValue.length() && headerValue.charAt(i) == '"') {
+        i++;
+        while (i < headerValue.length() && headerValue.charAt(i) != '"') {
+          char c = headerValue.charAt(i++);
+          if (c == '\\' && i < headerValue.length()) {
+            c = headerValue.charAt(i++);
+          }
+          value.append(c);
+        }
+        i = headerValue.indexOf(';', i);
+      } else {
+        int end = headerValue.indexOf(';', i);
+        value.append(headerValue, i, end < 0 ? headerValue.length() : end);
+        i = end;
+      }
+      parameters.putIfAbsent(name, value.toString().trim());
+    }
+    return parameters;
+  }
+}
@@ -0,0 +1,142 @@
+package com.adavie.multipart;
+
+import com.adavie.response.HttpException;
+import com.adavie.response.HttpStatus;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.Collections;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * One part of a multipart body.
+ *
+ * <p>The content is streamed from the request and can only be read until
+ * {@link MultipartReader#next()} is called again; after that the streams report end of input.
+ */
+public final class Part {
+  private final MultipartReader reader;
+  private final Map<String, String> headers;
+  private final String name;
+  private final String filename;
+  private boolean detached;
+
+  Part(MultipartReader reader, Map<String, String> headers) {
+    this.reader = reader;
+    this.headers = Collections.unmodifiableMap(headers);
+
+    String disposition = headers.get("content-disposition");
+    Map<String, String> parameters = disposition == null
+        ? Collections.<String, String>emptyMap()
+        : MultipartReader.parseParameters(disposition);
+    this.name = parameters.get("name");
+    this.filename = parameters.get("filename");
+  }
+
+  /**
+   * The form field name from {@code Content-Disposition}, or {@code null}.
+   */
+  public String getName() {
+    return name;
+  }
+
+  /**
+   * The client's file name from {@code Content-Disposition}, or {@code null} for plain fields.
+   */
+  public String getFilename() {
+    return filename;
+  }
+
+  public boolean isFile() {
+    return filename != null;
+  }
+
+  /**
+   * The part's {@code Content-Type}, defaulting to {@code text/plain} as RFC 7578 specifies.
+   */
+  public String getContentType() {
+    String contentType = headers.get("content-type");
+    return contentType == null ? "text/plain" : contentType;
+  }
+
+  /**
+   * Returns a part header by case-insensitive name.
+   */
+  public String getHeader(String name) {
+    return headers.get(name.toLowerCase(Locale.ROOT));
+  }
+
+  /**
+   * All part headers keyed by lower-case name.
+   */
+  public Map<String, String> getHeaders() {
+    return headers;
+  }
+
+  /**
+   * Reads the rest of the content as a UTF-8 string.
+   *
+   * @throws HttpException with {@code 413} if the content exceeds the reader's max field size
+   */
+  public String getValue() throws IOException {
+    ByteArrayOutputStream value = new ByteArrayOutputStream();
+    ByteBuffer chunk = ByteBuffer.allocate(1024);
+    while (true) {
+      chunk.clear();
+      int n = reader.read(this, chunk);
+      if (n < 0) {
+        return new String(value.toByteArray(), StandardCharsets.UTF_8);
+      }
+      if (value.size() + n > reader.getMaxFieldSize()) {
+        throw new HttpException(HttpStatus.PAYLOAD_TOO_LARGE, "Form field too large: " + name);
+      }
+      value.write(chunk.array(), 0, n);
+    }
+  }
+
+  public InputStream getInputStream() {
+    return new InputStream() {
+      @Override
+      public int read() throws IOException {
+        byte[] single = new byte[1];
+        int n = read(single, 0, 1);
+        return n < 0 ? -1 : single[0] & 0xFF;
+      }
+
+      @Override
+      public int read(byte[] b, int off, int len) throws IOException {
+        if (len == 0) {
+          return 0;
+        }
+        return reader.read(Part.this, ByteBuffer.wrap(b, off, len));
+      }
+    };
+  }
+
+  public ReadableByteChannel getChannel() {
+    return new ReadableByteChannel() {
+      @Override
+      public int read(ByteBuffer dst) throws IOException {
+        return reader.read(Part.this, dst);
+      }
+
+      @Override
+      public boolean isOpen() {
+        return !detached;
+      }
+
+      @Override
+      public void close() {
+      }
+    };
+  }
+
+  void detach() {
+    detached = true;
+  }
+}
@@ -0,0 +1,47 @@
+package com.adavie.ratelimit;
+
+import com.adavie.request.Request;
+
+import java.net.InetSocketAddress;
+import java.net.SocketAddress;
+
+/**
+ * Chooses the bucket a request is counted against.
+ */
+@FunctionalInterface
+public interface KeyExtractor {
+
+  /**
+   * Returns the rate-limit key for a request, or {@code null} to let it through unlimited.
+   */
+  String extract(Request request);
+
+  /**
+   * Keys requests by the IP address of the connected client.
+   */
+  static KeyExtractor clientIp() {
+    return request -> clientIp(request.getRemoteAddress());
+  }
+
+  /**
+   * Keys requests by the value of a header such as an API key, falling back to the client IP
+   * for requests without it.
+   */
+  static KeyExtractor header(String name) {
+    if (name == null || name.trim().isEmpty()) {
+      throw new IllegalArgumentException("Header name cannot be null or empty");
+    }
+    return request -> {
+      String value = request.getHeader(name);
+      return value != null ? name + ":" + value : clientIp(request.getRemoteAddress());
+    };
+  }
+
+  static String clientIp(SocketAddress address) {
+    if (address instanceof InetSocketAddress) {
+      InetSocketAddress inet = (InetSocketAddress) address;
+      return inet.getAddress() != null ? inet.getAddress().getHostAddress() : inet.getHostString();
+    }
+    return address == null ? "unknown" : address.toString();
+  }
+}
@@ -0,0 +1,297 @@
+package com.adavie.ratelimit;
+
+import com.adavie.log.RateLimitedLogger;
+import com.adavie.request.Request;
+
+import java.lang.ref.WeakReference;
+import java.util.Iterator;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Token-bucket rate limiter with one bucket per key, attached to routes with
+ * {@link com.adavie.route.Route#rateLimit(RateLimiter)}.
+ *
+ * <p>Each bucket is a single {@code long} packing the token count (high 24 bits) with the time of
+ * the last refill in microseconds (low 40 bits), so taking a token is one read and one
+ * compare-and-set with no lock and no allocation. Refills are computed from the elapsed time when
+ * a token is taken; partially earned tokens carry over because the refill time only advances by
+ * the time the granted tokens took to earn.
+ *
+ * <p>Buckets live in a concurrent map bounded by {@code maxKeys}. A bucket that has been idle long
+ * enough to refill completely is indistinguishable from a new one, so a background sweep drops
+ * those, at least once a minute. The same sweep folds the tokens earned by buckets idle for over a
+ * day into their state, which keeps every refill time well within the range of the 40-bit clock.
+ * While the map is full, requests for keys it does not track yet are rejected rather than
+ * evicting the live bucket of another key.
+ */
+public final class RateLimiter {
+  public static final int MAX_BURST = (1 << 24) - 1;
+
+  private static final Logger LOGGER = Logger.getLogger(RateLimiter.class.getName());
+  private static final RateLimitedLogger KEYS_EXHAUSTED = new RateLimitedLogger(LOGGER, "Rate limiter keys exhausted");
+
+  private static final int TIME_BITS = 40;
+  private static final long TIME_MASK = (1L << TIME_BITS) - 1;
+  // buckets idle longer than this have their earned tokens folded in by the sweep, far less than
+  // the 12.7 days after which the clock wraps
+  private static final long MAX_IDLE_MICROS = TimeUnit.DAYS.toMicros(1);
+  private static final long MIN_SWEEP_MICROS = TimeUnit.SECONDS.toMicros(1);
+  private static final long MAX_SWEEP_MICROS = TimeUnit.MINUTES.toMicros(1);
+  private static final ConcurrentLinkedQueue<WeakReference<RateLimiter>> INSTANCES = new ConcurrentLinkedQueue<>();
+  private static volatile ScheduledThreadPoolExecutor sweeper;
+
+  private final int permits;
+  private final long periodMicros;
+  private final int burst;
+  private final int maxKeys;
+  private final KeyExtractor keyExtractor;
+  private final long microsPerToken;
+  private final long fullRefillMicros;
+  private final long sweepIntervalMicros;
+  private final long epochNanos = System.nanoTime();
+
+  private final ConcurrentHashMap<String, AtomicLong> buckets = new ConcurrentHashMap<>();
+  // sweeper thread only
+  private long lastSweep;
+  private final LongAdder allowed = new LongAdder();
+  private final LongAdder rejected = new LongAdder();
+
+  private RateLimiter(Builder builder) {
+    this.permits = builder.permits;
+    this.periodMicros = builder.periodMicros;
+    this.burst = builder.burst == 0 ? builder.permits : builder.burst;
+    this.maxKeys = builder.maxKeys;
+    this.keyExtractor = builder.keyExtractor;
+    this.microsPerToken = Math.max(1, periodMicros / permits);
+    this.fullRefillMicros = microsPerToken * burst;
+    this.sweepIntervalMicros = Math.max(MIN_SWEEP_MICROS, Math.min(fullRefillMicros, MAX_SWEEP_MICROS));
+    register(this);
+  }
+
+  public int getPermits() {
+    return permits;
+  }
+
+  public long getPeriodMicros() {
+    return periodMicros;
+  }
+
+  public int getBurst() {
+    return burst;
+  }
+
+  public int getMaxKeys() {
+    return maxKeys;
+  }
+
+  /**
+   * Takes a token for the request's key.
+   *
+   * @return {@code false} if the key is over its limit
+   */
+  public boolean tryAcquire(Request request) {
+    String key = keyExtractor.extract(request);
+    return key == null || tryAcquire(key);
+  }
+
+  public boolean tryAcquire(String key) {
+    long now = nowMicros();
+    AtomicLong bucket = buckets.get(key);
+    if (bucket == null) {
+      if (buckets.size() >= maxKeys) {
+        rejected.increment();
+        KEYS_EXHAUSTED.log(Level.WARNING,
+            () -> "Rate limiter is tracking its maximum of " + maxKeys + " keys, rejecting requests for new keys");
+        return false;
+      }
+      AtomicLong created = new AtomicLong(pack(burst - 1, now));
+      bucket = buckets.putIfAbsent(key, created);
+      if (bucket == null) {
+        allowed.increment();
+        return true;
+      }
+    }
+
+    while (true) {
+      long state = bucket.get();
+      long tokens = state >>> TIME_BITS;
+      long last = state & TIME_MASK;
+      long refill = elapsed(last, now) / microsPerToken;
+      if (refill > 0) {
+        if (tokens + refill >= burst) {
+          tokens = burst;
+          last = now;
+        } else {
+          tokens += refill;
+          last = (last + refill * microsPerToken) & TIME_MASK;
+        }
+      }
+      if (tokens == 0) {
+        rejected.increment();
+        return false;
+      }
+      if (bucket.compareAndSet(state, pack(tokens - 1, last))) {
+        allowed.increment();
+        return true;
+      }
+    }
+  }
+
+  /**
+   * Number of keys currently tracked.
+   */
+  public int getTrackedKeys() {
+    return buckets.size();
+  }
+
+  public long getAllowed() {
+    return allowed.sum();
+  }
+
+  public long getRejected() {
+    return rejected.sum();
+  }
+
+  /**
+   * Drops buckets that have refilled completely, and folds the tokens earned by long idle ones
+   * into their state so that their refill time never falls a clock wrap behind.
+   */
+  void sweep(long now) {
+    for (Iterator<AtomicLong> it = buckets.values().iterator(); it.hasNext(); ) {
+      AtomicLong bucket = it.next();
+      long state = bucket.get();
+      long tokens = state >>> TIME_BITS;
+      long last = state & TIME_MASK;
+      long idle = elapsed(last, now);
+      long refill = idle / microsPerToken;
+      if (tokens + refill >= burst) {
+        // an acquire racing with the removal takes its token from the dropped bucket, so the key
+        // may get one request more than its burst
+        it.remove();
+      } else if (idle > MAX_IDLE_MICROS) {
+        bucket.compareAndSet(state, pack(tokens + refill, (last + refill * microsPerToken) & TIME_MASK));
+      }
+    }
+  }
+
+  long nowMicros() {
+    return ((System.nanoTime() - epochNanos) / 1000) & TIME_MASK;
+  }
+
+  private static long elapsed(long last, long now) {
+    return (now - last) & TIME_MASK;
+  }
+
+  private static long pack(long tokens, long time) {
+    return tokens << TIME_BITS | time;
+  }
+
+  private static void register(RateLimiter limiter) {
+    INSTANCES.add(new WeakReference<>(limiter));
+    if (sweeper == null) {
+      synchronized (RateLimiter.class) {
+        if (sweeper == null) {
+          ScheduledThreadPoolExecutor executor = new ScheduledThreadPoolExecutor(1, runnable -> {
+            Thread thread = new Thread(runnable, "rate-limiter-sweeper");
+            thread.setDaemon(true);
+            return thread;
+          });
+          executor.scheduleWithFixedDelay(RateLimiter::sweepAll, MIN_SWEEP_MICROS, MIN_SWEEP_MICROS,
+              TimeUnit.MICROSECONDS);
+          sweeper = executor;
+        }
+      }
+    }
+  }
+
+  /**
+   * Sweeps each limiter once per its sweep interval, which follows how long its buckets take to
+   * refill.
+   */
+  private static void sweepAll() {
+    for (Iterator<WeakReference<RateLimiter>> it = INSTANCES.iterator(); it.hasNext(); ) {
+      RateLimiter limiter = it.next().get();
+      if (limiter == null) {
+        it.remove();
+        continue;
+      }
+      long now = limiter.nowMicros();
+      if (elapsed(limiter.lastSweep, now) >= limiter.sweepIntervalMicros) {
+        limiter.lastSweep = now;
+        try {
+          limiter.sweep(now);
+        } catch (RuntimeException e) {
+          LOGGER.log(Level.WARNING, "Failed to sweep rate limiter buckets", e);
+        }
+      }
+    }
+  }
+
+  public static class Builder {
+    private int permits = 100;
+    private long periodMicros = TimeUnit.SECONDS.toMicros(1);
+    private int burst;
+    private int maxKeys = 100000;
+    private KeyExtractor keyExtractor = KeyExtractor.clientIp();
+
+    /**
+     * Sustained rate: {@code permits} requests per {@code period}.
+     */
+    public Builder rate(int permits, long period, TimeUnit unit) {
+      if (permits < 1) {
+        throw new IllegalArgumentException("Permits must be at least 1");
+      }
+      long micros = unit.toMicros(period);
+      if (micros < 1 || micros > TimeUnit.DAYS.toMicros(1)) {
+        throw new IllegalArgumentException("Period must be between 1 microsecond and 1 day");
+      }
+      this.permits = permits;
+      this.periodMicros = micros;
+      return this;
+    }
+
+    /**
+     * Requests a key may make at once after being idle; defaults to the permits per period.
+     */
+    public Builder burst(int burst) {
+      if (burst < 1 || burst > MAX_BURST) {
+        throw new IllegalArgumentException("Burst must be between 1 and " + MAX_BURST);
+      }
+      this.burst = burst;
+      return this;
+    }
+
+    /**
+     * Most keys tracked at once; requests for further keys are rejected until idle buckets expire.
+     */
+    public Builder maxKeys(int maxKeys) {
+      if (maxKeys < 1) {
+        throw new IllegalArgumentException("Max keys must be at least 1");
+      }
+      this.maxKeys = maxKeys;
+      return this;
+    }
+
+    public Builder keyExtractor(KeyExtractor keyExtractor) {
+      if (keyExtractor == null) {
+        throw new IllegalArgumentException("Key extractor cannot be null");
+      }
+      this.keyExtractor = keyExtractor;
+      return this;
+    }
+
+    public RateLimiter build() {
+      if (burst == 0 && permits > MAX_BURST) {
+        throw new IllegalArgumentException("Permits above " + MAX_BURST + " need an explicit burst");
+      }
+      return new RateLimiter(this);
+    }
+  }
+}
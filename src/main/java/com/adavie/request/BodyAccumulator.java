@@ -0,0 +1,161 @@
+package com.adavie.request;
+
+import com.adavie.config.BodyConfig;
+import com.adavie.response.HttpException;
+import com.adavie.response.HttpStatus;
+import com.adavie.util.MemoryBudget;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Collects a request body that arrives in pieces, such as chunks or HTTP/2 DATA frames, in memory
+ * reserved from the server's body budget, and moves it to a spool file once it passes the route's
+ * spool threshold.
+ *
+ * <p>The reservation covers every byte of heap the body holds: the buffer's whole capacity, and
+ * while the buffer grows, the old and the new array together. The buffer starts at the size of
+ * the first piece, which is often the whole body, and is handed to the {@link RequestBody} without
+ * a copy when it ends up full.
+ *
+ * <p>A piece that does not fit in the budget within the wait fails with a {@code 503}; a body that
+ * grows past the maximum body size fails with a {@code 413}. A body that is not
+ * {@link #finish finished} must be {@link #discard discarded} to return what it holds.
+ */
+public final class BodyAccumulator {
+  private final BodyConfig bodyConfig;
+  private final MemoryBudget budget;
+  private final long spoolThreshold;
+  private final long budgetWaitMillis;
+  private byte[] buffer;
+  private int size;
+  // bytes reserved from the budget, the capacity of the buffer
+  private long reserved;
+  private BodySpool spool;
+  private long length;
+
+  /**
+   * @param budgetWaitMillis how long a piece may wait for budget; {@code 0} for callers that must
+   *                         not block, such as a thread reading for several streams
+   */
+  public BodyAccumulator(BodyConfig bodyConfig, MemoryBudget budget, long spoolThreshold, long budgetWaitMillis) {
+    this.bodyConfig = bodyConfig;
+    this.budget = budget;
+    this.spoolThreshold = spoolThreshold;
+    this.budgetWaitMillis = budgetWaitMillis;
+  }
+
+  public long getLength() {
+    return length;
+  }
+
+  public void append(byte[] bytes, int offset, int count) throws IOException {
+    append(ByteBuffer.wrap(bytes, offset, count));
+  }
+
+  /**
+   * Appends the remaining bytes of {@code src}.
+   */
+  public void append(ByteBuffer src) throws IOException {
+    int count = src.remaining();
+    long total = length + count;
+    if (total > bodyConfig.getMaxBodySize()) {
+      throw new HttpException(HttpStatus.PAYLOAD_TOO_LARGE);
+    }
+
+    if (spool == null && total > spoolThreshold) {
+      spool = BodySpool.create(bodyConfig.getSpoolDirectory());
+      if (size > 0) {
+        spool.write(ByteBuffer.wrap(buffer, 0, size));
+      }
+      buffer = null;
+      size = 0;
+      budget.release(reserved);
+      reserved = 0;
+    }
+
+    if (spool != null) {
+      spool.write(src);
+    } else {
+      ensureCapacity((int) total);
+      src.get(buffer, size, count);
+      size += count;
+    }
+    length = total;
+  }
+
+  /**
+   * Returns the complete body, which takes over the memory reservation or the spool file.
+   */
+  public RequestBody finish() throws IOException {
+    if (spool != null) {
+      BodySpool finished = spool;
+      spool = null;
+      return finished.finish();
+    }
+    if (size == 0) {
+      discard();
+      return RequestBody.EMPTY;
+    }
+    if (size < buffer.length) {
+      // trim the spare capacity, reserving the copy while both arrays are held
+      reserve(size);
+      byte[] trimmed = Arrays.copyOf(buffer, size);
+      budget.release(reserved);
+      reserved = size;
+      buffer = trimmed;
+    }
+    RequestBody body = RequestBody.inMemory(buffer, budget);
+    buffer = null;
+    reserved = 0;
+    return body;
+  }
+
+  /**
+   * Releases the memory reservation and deletes the spool file of an abandoned body.
+   */
+  public void discard() {
+    budget.release(reserved);
+    reserved = 0;
+    buffer = null;
+    if (spool != null) {
+      spool.discard();
+      spool = null;
+    }
+  }
+
+  /**
+   * Grows the buffer to hold {@code required} bytes, doubling up to the spool threshold. The new
+   * array is reserved before it is allocated and the old one released once it has been copied.
+   */
+  private void ensureCapacity(int required) {
+    int capacity = buffer == null ? 0 : buffer.length;
+    if (required <= capacity) {
+      return;
+    }
+    int grown = capacity == 0 ? required : (int) Math.max(required, Math.min(capacity * 2L, spoolThreshold));
+    reserve(grown);
+    byte[] replacement = new byte[grown];
+    if (size > 0) {
+      System.arraycopy(buffer, 0, replacement, 0, size);
+    }
+    budget.release(capacity);
+    reserved = grown;
+    buffer = replacement;
+  }
+
+  private void reserve(long bytes) {
+    boolean granted;
+    try {
+      granted = budget.reserve(bytes, budgetWaitMillis, TimeUnit.MILLISECONDS);
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      granted = false;
+    }
+    if (!granted) {
+      throw new HttpException(HttpStatus.SERVICE_UNAVAILABLE, "Request body memory budget exhausted");
+    }
+  }
+}
@@ -0,0 +1,65 @@
+package com.adavie.request;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Temporary file a request body is written to while it is being read.
+ */
+final class BodySpool {
+  private static final String PREFIX = "rest-lite-body-";
+
+  private final Path file;
+  private final FileChannel channel;
+  private long length;
+
+  private BodySpool(Path file, FileChannel channel) {
+    this.file = file;
+    this.channel = channel;
+  }
+
+  /**
+   * Creates a spool file in {@code directory}, or the system temporary directory if it is
+   * {@code null}.
+   */
+  static BodySpool create(Path directory) throws IOException {
+    Path file = directory == null ? Files.createTempFile(PREFIX, null) : Files.createTempFile(directory, PREFIX, null);
+    try {
+      return new BodySpool(file, FileChannel.open(file, StandardOpenOption.WRITE));
+    } catch (IOException e) {
+      Files.deleteIfExists(file);
+      throw e;
+    }
+  }
+
+  long getLength() {
+    return length;
+  }
+
+  void write(ByteBuffer src) throws IOException {
+    while (src.hasRemaining()) {
+      length += channel.write(src);
+    }
+  }
+
+  RequestBody finish() throws IOException {
+    channel.close();
+    return RequestBody.spooled(file, length);
+  }
+
+  /**
+   * Closes and deletes the file after a failed read.
+   */
+  void discard() {
+    try {
+      channel.close();
+      Files.deleteIfExists(file);
+    } catch (IOException e) {
+      file.toFile().deleteOnExit();
+    }
+  }
+}
@@ -1,49 +1,601 @@
 package com.adavie.request;
 
+import com.adavie.config.BodyConfig;
+import com.adavie.config.Http2Config;
+import com.adavie.http2.Http2Connection;
+import com.adavie.jfr.RequestEvent;
+import com.adavie.log.RateLimitedLogger;
+import com.adavie.response.HttpException;
+import com.adavie.response.HttpStatus;
+import com.adavie.response.PreEncodedResponse;
+import com.adavie.response.Response;
+import com.adavie.response.ResponseWriter;
+import com.adavie.route.Route;
+import com.adavie.route.Router;
+import com.adavie.server.ServerContext;
+import com.adavie.transport.TlsTransport;
+import com.adavie.transport.Transport;
+
 import java.io.IOException;
-import java.io.InputStream;
-import java.net.Socket;
+import java.net.SocketTimeoutException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Level;
 import java.util.logging.Logger;
 
 public class ClientHandler implements Runnable {
 
-  private final Socket clientSocket;
+  private static final int BUFFER_SIZE = 16384;
+  private static final int MAX_CHUNK_LINE_LENGTH = 1024;
+  static final PreEncodedResponse TOO_MANY_REQUESTS = new PreEncodedResponse(
+      new Response.Builder()
+          .status(HttpStatus.TOO_MANY_REQUESTS)
+          .header("Retry-After", "1")
+          .header("Content-Type", "text/plain; charset=utf-8")
+          .body(HttpStatus.TOO_MANY_REQUESTS.getReasonPhrase())
+          .build(),
+      true);
+
+  private final Transport transport;
+  private final ServerContext context;
+  private final HttpRequestParser parser = new HttpRequestParser();
+  private final RequestArena arena;
+  private ByteBuffer buffer = ByteBuffer.allocate(BUFFER_SIZE).flip();
+  // set once the connection has been handed to another protocol that now owns the transport
+  private boolean upgraded;
+  private boolean firstRequest = true;
+  // set while an async handler's future is pending, the worker is then released without closing
+  private CompletableFuture<Response> pending;
+  private Request pendingRequest;
+  private long pendingHandleStart;
+  // an async handler's completed response, written first when the connection resumes
+  private Response resumedResponse;
+  // request whose body is being read, so that reads can enforce its deadline
+  private Request reading;
+  // timings of the current request, for the access log, metrics and JFR
+  private final long createdNanos = System.nanoTime();
+  private long queueNanos;
+  private long parseNanos;
+  private long bodyNanos;
+  private RequestEvent requestEvent;
   private static final Logger LOGGER = Logger.getLogger(ClientHandler.class.getName());
+  private static final RateLimitedLogger CLOSE_FAILURES = new RateLimitedLogger(LOGGER, "Connection close failures");
 
 
-  private ClientHandler(Socket clientSocket) {
-    this.clientSocket = clientSocket;
+  private ClientHandler(Transport transport, ServerContext context) {
+    this.transport = transport;
+    this.context = context;
+    this.arena = new RequestArena(context.getServerConfig().isRequestLeakDetection());
   }
 
-  public static ClientHandler createRequestHandler(Socket clientSocket) {
-    return new ClientHandler(clientSocket);
+  public static ClientHandler createRequestHandler(Transport transport, ServerContext context) {
+    return new ClientHandler(transport, context);
+  }
+
+  /**
+   * Creates a handler for a connection whose first bytes have already been read, for example by
+   * an I/O thread handing the connection over to a worker.
+   *
+   * @param buffered bytes read but not consumed yet, in read mode
+   */
+  public static ClientHandler createRequestHandler(Transport transport, ServerContext context, ByteBuffer buffered) {
+    ClientHandler handler = new ClientHandler(transport, context);
+    handler.buffer = buffered;
+    return handler;
   }
 
   @Override
   public void run() {
+    if (resumedResponse == null) {
+      queueNanos = System.nanoTime() - createdNanos;
+    }
+    try {
+      if (resumedResponse == null || finishPending()) {
+        serve();
+      }
+    } catch (SocketTimeoutException e) {
+      LOGGER.fine("Client connection timed out: " + transport.getRemoteAddress());
+    } catch (IOException e) {
+      LOGGER.log(Level.FINE, "Client connection failed: " + transport.getRemoteAddress(), e);
+    } finally {
+      if (pending != null) {
+        // only now that this thread is done with the connection may it resume elsewhere
+        pending.thenAccept(this::resume);
+      } else if (!upgraded) {
+        closeClientConnection();
+      }
+    }
+  }
+
+  /**
+   * Hands the connection back to a worker once an async handler's future has completed.
+   */
+  private void resume(Response response) {
+    resumedResponse = response;
+    try {
+      context.getExecutorService().execute(this);
+    } catch (RejectedExecutionException e) {
+      context.getMetrics().recordExecutorRejection();
+      LOGGER.fine("Executor rejected resumed connection from " + transport.getRemoteAddress());
+      closeBody(pendingRequest);
+      closeClientConnection();
+    }
+  }
+
+  /**
+   * Writes the response of the request that was waiting for its async handler.
+   *
+   * @return {@code true} if the connection stays open for another request
+   */
+  private boolean finishPending() throws IOException {
+    Request request = pendingRequest;
+    Response response = resumedResponse;
+    pending = null;
+    pendingRequest = null;
+    resumedResponse = null;
     try {
-      //parse the incoming http request via the InputStream
-      InputStream is = clientSocket.getInputStream();
+      return writeResponse(request, response, pendingHandleStart);
+    } finally {
+      closeBody(request);
+    }
+  }
+
+  private void serve() throws IOException {
+    Http2Config http2Config = context.getServerConfig().getHttp2Config();
+
+    while (true) {
+      //parse the incoming http request via the transport
+      Request request;
+      try {
+        if (firstRequest && http2Config.isEnabled() && readHttp2Preface()) {
+          new Http2Connection(transport, buffer, context.getRouter(), context.getExecutorService(), http2Config,
+              context.getServerConfig().getBodyConfig(), context.getBodyBudget(), context.getRequestRecorder()).serve();
+          return;
+        }
+
+        request = readRequest();
+        if (request == null) {
+          return;
+        }
+        request.setRemoteAddress(transport.getRemoteAddress());
+        if (!context.getRouter().tryAcquire(request)) {
+          TOO_MANY_REQUESTS.write(transport);
+          return;
+        }
+        context.getRouter().startDeadline(request);
+        long bodyStart = System.nanoTime();
+        reading = request;
+        try {
+          readBody(request);
+        } finally {
+          reading = null;
+        }
+        bodyNanos = System.nanoTime() - bodyStart;
+      } catch (HttpException e) {
+        ResponseWriter.write(transport, Router.errorResponse(e), false, false);
+        return;
+      }
+      firstRequest = false;
 
-      //identify the target route
+      try {
+        if (!respond(request)) {
+          return;
+        }
+      } finally {
+        if (pending == null) {
+          closeBody(request);
+        }
+      }
+    }
+  }
+
+  /**
+   * Serves one request.
+   *
+   * @return {@code true} if the connection stays open for another request
+   */
+  private boolean respond(Request request) throws IOException {
+    Http2Config http2Config = context.getServerConfig().getHttp2Config();
+    if (http2Config.isEnabled() && isHttp2Upgrade(request)) {
+      Response switching = new Response.Builder()
+          .status(HttpStatus.SWITCHING_PROTOCOLS)
+          .header("Upgrade", "h2c")
+          .build();
+      ResponseWriter.write(transport, switching, true, false);
+      new Http2Connection(transport, buffer, context.getRouter(), context.getExecutorService(), http2Config,
+          context.getServerConfig().getBodyConfig(), context.getBodyBudget(), context.getRequestRecorder())
+          .serveUpgrade(request);
+      return false;
+    }
+
+    //identify the target route and write its response
+    long handleStart = System.nanoTime();
+    Router router = context.getRouter();
+    Response response;
+    if (router.isAsync(request)) {
+      CompletableFuture<Response> future = router.dispatchAsync(request);
+      if (!future.isDone()) {
+        // release the worker, the request stays live in the arena until the future completes
+        pending = future;
+        pendingRequest = request;
+        pendingHandleStart = handleStart;
+        return false;
+      }
+      response = future.join();
+    } else {
+      response = router.dispatch(request);
+    }
+    return writeResponse(request, response, handleStart);
+  }
 
-      //map the JSON to the body of the route (for post requests)
+  /**
+   * Writes a handler's response and records the request.
+   *
+   * @return {@code true} if the connection stays open for another request
+   */
+  private boolean writeResponse(Request request, Response response, long handleStart) throws IOException {
+    long writeStart = System.nanoTime();
+    if (response.getUpgrade() != null) {
+      response.getUpgrade().upgrade(transport, buffer, context);
+      upgraded = true;
+      return false;
+    }
+    boolean keepAlive = request.isKeepAlive();
+    long bytes = ResponseWriter.write(transport, response, keepAlive, request.getMethod() == HttpMethod.HEAD,
+        arena.getResponseBuffers());
 
-      //parse the response from the route to JSON via the OutputStream
+    long end = System.nanoTime();
+    int status = response.getStatus().getCode();
+    RequestRecorder recorder = context.getRequestRecorder();
+    if (recorder != null) {
+      recorder.record(request, status, bytes, bodyNanos, writeStart - handleStart, end - writeStart);
+    }
+    requestEvent.complete(request, status, bytes, queueNanos, parseNanos, bodyNanos, writeStart - handleStart,
+        end - writeStart);
+    // only the first request of a connection waited for a worker
+    queueNanos = 0;
+    return keepAlive;
+  }
 
+  private void closeBody(Request request) {
+    try {
+      request.getRequestBody().close();
     } catch (IOException e) {
-      throw new RuntimeException(e);
+      LOGGER.log(Level.WARNING, "Failed to delete spooled request body", e);
+    }
+  }
+
+  /**
+   * Reads until the buffered bytes either match or diverge from the HTTP/2 connection preface.
+   */
+  private boolean readHttp2Preface() throws IOException {
+    byte[] preface = Http2Connection.PREFACE;
+    while (true) {
+      int available = Math.min(buffer.remaining(), preface.length);
+      for (int i = 0; i < available; i++) {
+        if (buffer.get(buffer.position() + i) != preface[i]) {
+          return false;
+        }
+      }
+      if (available == preface.length) {
+        return true;
+      }
+      if (fill() < 0) {
+        return false;
+      }
+    }
+  }
+
+  private Request readRequest() throws IOException {
+    // wait for the next request outside of its timings, a keep-alive connection may idle here
+    while (!buffer.hasRemaining()) {
+      if (fill() < 0) {
+        return null;
+      }
+    }
+    long start = System.nanoTime();
+    requestEvent = new RequestEvent();
+    requestEvent.begin();
+
+    while (true) {
+      Request request = parser.parse(buffer, arena);
+      if (request != null) {
+        parseNanos = System.nanoTime() - start;
+        return request;
+      }
+      if (fill() < 0) {
+        return null;
+      }
+    }
+  }
+
+  private void readBody(Request request) throws IOException {
+    String transferEncoding = request.getHeader(KnownHeader.TRANSFER_ENCODING);
+    String contentLength = request.getHeader(KnownHeader.CONTENT_LENGTH);
+    BodyConfig bodyConfig = context.getServerConfig().getBodyConfig();
+
+    if (transferEncoding != null) {
+      // no other coding is implemented, so chunked must be the only one (RFC 9112 section 6.1)
+      if (!transferEncoding.trim().equalsIgnoreCase("chunked")) {
+        throw new HttpException(HttpStatus.NOT_IMPLEMENTED, "Unsupported transfer coding");
+      }
+      sendContinueIfExpected(request);
+      request.setBody(readChunkedBody(bodyConfig, spoolThreshold(request)));
+      return;
+    }
+
+    if (contentLength == null) {
+      return;
+    }
+
+    long length;
+    try {
+      length = Long.parseLong(contentLength.trim());
+    } catch (NumberFormatException e) {
+      throw new HttpException(HttpStatus.BAD_REQUEST, "Invalid Content-Length");
+    }
+    if (length < 0) {
+      throw new HttpException(HttpStatus.BAD_REQUEST, "Invalid Content-Length");
+    }
+    if (length > bodyConfig.getMaxBodySize()) {
+      throw new HttpException(HttpStatus.PAYLOAD_TOO_LARGE);
+    }
+    if (length == 0) {
+      return;
+    }
+
+    if (length > spoolThreshold(request)) {
+      sendContinueIfExpected(request);
+      BodySpool spool = BodySpool.create(bodyConfig.getSpoolDirectory());
+      try {
+        copyToSpool(spool, length);
+      } catch (IOException | RuntimeException e) {
+        spool.discard();
+        throw e;
+      }
+      request.setBody(spool.finish());
+      return;
+    }
+
+    // reserve before 100-continue so that a client can be turned away before it sends the body
+    reserveBodyMemory(bodyConfig, length);
+    try {
+      sendContinueIfExpected(request);
+      byte[] body = new byte[(int) length];
+      readFully(body, 0, body.length);
+      request.setBody(RequestBody.inMemory(body, context.getBodyBudget()));
+    } catch (IOException | RuntimeException e) {
+      context.getBodyBudget().release(length);
+      throw e;
+    }
+  }
+
+  /**
+   * The matched route's spool threshold, or the server default.
+   */
+  private long spoolThreshold(Request request) {
+    Route route = context.getRouter().resolve(request);
+    if (route != null && route.getSpoolThreshold() >= 0) {
+      return route.getSpoolThreshold();
+    }
+    return context.getServerConfig().getBodyConfig().getSpoolThreshold();
+  }
+
+  private void reserveBodyMemory(BodyConfig bodyConfig, long bytes) throws HttpException {
+    boolean reserved;
+    try {
+      reserved = context.getBodyBudget().reserve(bytes, bodyConfig.getBudgetWaitTimeout(), TimeUnit.MILLISECONDS);
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      reserved = false;
+    }
+    if (!reserved) {
+      throw new HttpException(HttpStatus.SERVICE_UNAVAILABLE, "Request body memory budget exhausted");
+    }
+  }
+
+  private void sendContinueIfExpected(Request request) throws IOException {
+    String expect = request.getHeader(KnownHeader.EXPECT);
+    if (expect != null && expect.equalsIgnoreCase("100-continue") && !buffer.hasRemaining()) {
+      ResponseWriter.writeContinue(transport);
+    }
+  }
+
+  /**
+   * Reads a chunked body into memory reserved from the body budget, and moves it to a spool file
+   * once it grows past {@code threshold}.
+   */
+  private RequestBody readChunkedBody(BodyConfig bodyConfig, long threshold) throws IOException {
+    BodyAccumulator body = new BodyAccumulator(bodyConfig, context.getBodyBudget(), threshold,
+        bodyConfig.getBudgetWaitTimeout());
+    boolean complete = false;
+    try {
+      while (true) {
+        String sizeLine = readLine();
+        int extension = sizeLine.indexOf(';');
+        String size = (extension < 0 ? sizeLine : sizeLine.substring(0, extension)).trim();
+
+        int chunkSize = parseChunkSize(size);
+        // refuse an oversized chunk before reading any of it
+        if (body.getLength() + chunkSize > bodyConfig.getMaxBodySize()) {
+          throw new HttpException(HttpStatus.PAYLOAD_TOO_LARGE);
+        }
+
+        if (chunkSize == 0) {
+          // skip trailer fields
+          while (!readLine().isEmpty()) {
+            continue;
+          }
+          RequestBody finished = body.finish();
+          complete = true;
+          return finished;
+        }
+
+        copyToBody(body, chunkSize);
+        if (!readLine().isEmpty()) {
+          throw new HttpException(HttpStatus.BAD_REQUEST, "Missing chunk terminator");
+        }
+      }
     } finally {
-      closeClientConnection();
+      if (!complete) {
+        body.discard();
+      }
+    }
+  }
+
+  /**
+   * Parses a chunk size, which is hex digits only; {@link Integer#parseInt} would also take a
+   * sign. A chunk too large to read into an array is a 413 whatever the body limit.
+   */
+  private static int parseChunkSize(String size) {
+    if (size.isEmpty()) {
+      throw new HttpException(HttpStatus.BAD_REQUEST, "Invalid chunk size");
+    }
+    long value = 0;
+    for (int i = 0; i < size.length(); i++) {
+      char c = size.charAt(i);
+      int digit;
+      if (c >= '0' && c <= '9') {
+        digit = c - '0';
+      } else if (c >= 'a' && c <= 'f') {
+        digit = c - 'a' + 10;
+      } else if (c >= 'A' && c <= 'F') {
+        digit = c - 'A' + 10;
+      } else {
+        throw new HttpException(HttpStatus.BAD_REQUEST, "Invalid chunk size");
+      }
+      // saturate rather than overflow, but keep validating the remaining digits
+      value = Math.min(value * 16 + digit, Integer.MAX_VALUE + 1L);
+    }
+    if (value > Integer.MAX_VALUE) {
+      throw new HttpException(HttpStatus.PAYLOAD_TOO_LARGE);
+    }
+    return (int) value;
+  }
+
+  private String readLine() throws IOException {
+    while (true) {
+      for (int i = buffer.position(); i + 1 < buffer.limit(); i++) {
+        if (buffer.get(i) == '\r' && buffer.get(i + 1) == '\n') {
+          byte[] line = new byte[i - buffer.position()];
+          buffer.get(line);
+          buffer.position(buffer.position() + 2);
+          return new String(line, StandardCharsets.ISO_8859_1);
+        }
+      }
+      if (buffer.remaining() > MAX_CHUNK_LINE_LENGTH) {
+        throw new HttpException(HttpStatus.BAD_REQUEST, "Chunk line too long");
+      }
+      if (fill() < 0) {
+        throw new HttpException(HttpStatus.BAD_REQUEST, "Unexpected end of chunked body");
+      }
+    }
+  }
+
+  private void readFully(byte[] destination, int offset, int length) throws IOException {
+    int buffered = Math.min(buffer.remaining(), length);
+    buffer.get(destination, offset, buffered);
+
+    ByteBuffer target = ByteBuffer.wrap(destination, offset + buffered, length - buffered);
+    while (target.hasRemaining()) {
+      if (reading != null) {
+        reading.checkDeadline();
+      }
+      if (transport.read(target) < 0) {
+        throw new HttpException(HttpStatus.BAD_REQUEST, "Unexpected end of request body");
+      }
+    }
+  }
+
+  /**
+   * Moves {@code length} body bytes from the buffer and the transport to {@code body}.
+   */
+  private void copyToBody(BodyAccumulator body, int length) throws IOException {
+    int remaining = length;
+    while (remaining > 0) {
+      if (!buffer.hasRemaining() && fill() < 0) {
+        throw new HttpException(HttpStatus.BAD_REQUEST, "Unexpected end of request body");
+      }
+      int n = Math.min(remaining, buffer.remaining());
+      ByteBuffer slice = buffer.duplicate();
+      slice.limit(slice.position() + n);
+      body.append(slice);
+      buffer.position(buffer.position() + n);
+      remaining -= n;
+    }
+  }
+
+  /**
+   * Moves {@code length} body bytes from the buffer and the transport to the spool file.
+   */
+  private void copyToSpool(BodySpool spool, long length) throws IOException {
+    long remaining = length;
+    while (remaining > 0) {
+      if (!buffer.hasRemaining() && fill() < 0) {
+        throw new HttpException(HttpStatus.BAD_REQUEST, "Unexpected end of request body");
+      }
+      int n = (int) Math.min(remaining, buffer.remaining());
+      ByteBuffer slice = buffer.duplicate();
+      slice.limit(slice.position() + n);
+      spool.write(slice);
+      buffer.position(buffer.position() + n);
+      remaining -= n;
+    }
+  }
+
+  /**
+   * Reads more bytes from the transport into the buffer, which is kept in read mode.
+   */
+  private int fill() throws IOException {
+    if (reading != null) {
+      reading.checkDeadline();
+    }
+    buffer.compact();
+    try {
+      if (!buffer.hasRemaining()) {
+        ByteBuffer grown = ByteBuffer.allocate(buffer.capacity() * 2);
+        buffer.flip();
+        grown.put(buffer);
+        buffer = grown;
+      }
+      int n;
+      do {
+        n = transport.read(buffer);
+      } while (n == 0);
+      return n;
+    } finally {
+      buffer.flip();
+    }
+  }
+
+  private boolean isHttp2Upgrade(Request request) {
+    if (transport instanceof TlsTransport || request.getHeader(KnownHeader.HTTP2_SETTINGS) == null) {
+      return false;
+    }
+    String upgrade = request.getHeader(KnownHeader.UPGRADE);
+    String connection = request.getHeader(KnownHeader.CONNECTION);
+    return upgrade != null && containsToken(upgrade, "h2c")
+        && connection != null && containsToken(connection, "upgrade");
+  }
+
+  private static boolean containsToken(String header, String token) {
+    for (String part : header.split(",")) {
+      if (part.trim().equalsIgnoreCase(token)) {
+        return true;
+      }
     }
+    return false;
   }
 
   private void closeClientConnection() {
-    if (!clientSocket.isClosed()) {
+    if (transport.isOpen()) {
       try {
-        clientSocket.close();
+        transport.close();
       } catch (IOException e) {
-        LOGGER.warning("Failed to close client connection on port:" + clientSocket.getPort());
+        CLOSE_FAILURES.log(Level.WARNING, () -> "Failed to close client connection:" + transport.getRemoteAddress());
       }
     }
   }
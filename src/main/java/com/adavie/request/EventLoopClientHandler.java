@@ -0,0 +1,348 @@
+package com.adavie.request;
+
+import com.adavie.http2.Http2Connection;
+import com.adavie.jfr.RequestEvent;
+import com.adavie.log.RateLimitedLogger;
+import com.adavie.response.HttpException;
+import com.adavie.response.HttpStatus;
+import com.adavie.response.Response;
+import com.adavie.response.ResponseWriter;
+import com.adavie.route.Route;
+import com.adavie.route.Router;
+import com.adavie.server.EventLoop;
+import com.adavie.server.ServerContext;
+import com.adavie.transport.Transport;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.SelectionKey;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Serves an HTTP/1.1 connection on an I/O thread for as long as its requests go to
+ * {@link Route#nonBlocking() non-blocking} routes, running their handlers on the thread that read
+ * them instead of handing them to a worker.
+ *
+ * <p>The first request that needs a worker, because its route may block, its body is chunked or
+ * does not fit the read buffer, or it asks for a protocol upgrade, ends inline serving: the
+ * connection is taken off the event loop, switched back to blocking mode and handed to a
+ * {@link ClientHandler} together with the bytes read so far, which then serves it to the end.
+ */
+public final class EventLoopClientHandler implements EventLoop.ChannelHandler {
+  private static final Logger LOGGER = Logger.getLogger(EventLoopClientHandler.class.getName());
+  private static final RateLimitedLogger INLINE_UPGRADES = new RateLimitedLogger(LOGGER, "Inline upgrade responses");
+  private static final RateLimitedLogger CLOSE_FAILURES = new RateLimitedLogger(LOGGER, "Connection close failures");
+  private static final int BUFFER_SIZE = 16384;
+
+  private final Transport transport;
+  private final ServerContext context;
+  private final EventLoop loop;
+  private final HttpRequestParser parser = new HttpRequestParser();
+  private final RequestArena arena;
+  private final long idleTimeoutNanos;
+  private ByteBuffer buffer = ByteBuffer.allocate(BUFFER_SIZE).flip();
+  private SelectionKey key;
+  // response bytes the socket has not accepted yet
+  private ByteBuffer[] pending;
+  private boolean closeAfterWrite;
+  // whether a request has been answered, after which the connection cannot turn into HTTP/2
+  private boolean served;
+  private boolean done;
+  private long lastActiveNanos = System.nanoTime();
+
+  /**
+   * @param transport a transport already in non-blocking mode
+   */
+  public EventLoopClientHandler(Transport transport, ServerContext context, EventLoop loop) {
+    this.transport = transport;
+    this.context = context;
+    this.loop = loop;
+    this.arena = new RequestArena(context.getServerConfig().isRequestLeakDetection());
+    this.idleTimeoutNanos = TimeUnit.MILLISECONDS.toNanos(context.getServerConfig().getClientConnectionTimeout());
+  }
+
+  @Override
+  public void onRegistered(SelectionKey key) {
+    this.key = key;
+  }
+
+  @Override
+  public void onReadable() throws IOException {
+    lastActiveNanos = System.nanoTime();
+    while (true) {
+      int n = fill();
+      if (n < 0) {
+        close();
+        return;
+      }
+      if (!transport.flush()) {
+        // a TLS handshake message is waiting for room in the socket
+        key.interestOps(SelectionKey.OP_WRITE);
+        return;
+      }
+      if (!process() || n == 0) {
+        return;
+      }
+    }
+  }
+
+  @Override
+  public void onWritable() throws IOException {
+    lastActiveNanos = System.nanoTime();
+    if (pending != null) {
+      transport.write(pending);
+      if (hasRemaining(pending)) {
+        return;
+      }
+    }
+    if (!transport.flush()) {
+      return;
+    }
+    pending = null;
+    if (closeAfterWrite) {
+      close();
+      return;
+    }
+    key.interestOps(SelectionKey.OP_READ);
+    // pipelined requests may already be buffered, or held back by TLS
+    onReadable();
+  }
+
+  @Override
+  public void abort(Throwable cause) {
+    if (cause != null) {
+      LOGGER.log(Level.FINE, "Client connection failed: " + transport.getRemoteAddress(), cause);
+    }
+    close();
+  }
+
+  @Override
+  public boolean isExpired(long nowNanos) {
+    return nowNanos - lastActiveNanos > idleTimeoutNanos;
+  }
+
+  /**
+   * Answers the complete requests in the buffer.
+   *
+   * @return {@code false} once the connection is no longer read here: it was closed, handed to a
+   *     worker, or is waiting for the socket to accept a response
+   */
+  private boolean process() throws IOException {
+    while (pending == null && !done) {
+      if (!served && context.getServerConfig().getHttp2Config().isEnabled()) {
+        int preface = matchHttp2Preface();
+        if (preface > 0) {
+          handOff();
+          return false;
+        }
+        if (preface == 0) {
+          return true;
+        }
+      }
+
+      int start = buffer.position();
+      long parseStart = System.nanoTime();
+      Request request;
+      try {
+        request = parser.parse(buffer, arena);
+      } catch (HttpException e) {
+        respond(Router.errorResponse(e), false, false);
+        return false;
+      }
+      if (request == null) {
+        return true;
+      }
+      long parseNanos = System.nanoTime() - parseStart;
+
+      Router router = context.getRouter();
+      Route route = router.resolve(request);
+      int bodyLength = inlineBodyLength(request, route, buffer.position() - start);
+      if (bodyLength < 0) {
+        buffer.position(start);
+        handOff();
+        return false;
+      }
+      if (buffer.remaining() < bodyLength) {
+        // parse the head again once the whole body has arrived
+        buffer.position(start);
+        return true;
+      }
+      if (bodyLength > 0) {
+        byte[] body = new byte[bodyLength];
+        buffer.get(body);
+        request.setBody(body);
+      }
+      request.setRemoteAddress(transport.getRemoteAddress());
+      serve(request, parseNanos);
+    }
+    return pending == null && !done;
+  }
+
+  private void serve(Request request, long parseNanos) throws IOException {
+    RequestEvent event = new RequestEvent();
+    event.begin();
+    long handleStart = System.nanoTime();
+
+    Router router = context.getRouter();
+    Response response;
+    long writeStart;
+    long bytes;
+    if (router.tryAcquire(request)) {
+      response = router.dispatch(request);
+      boolean keepAlive = request.isKeepAlive();
+      if (response.getUpgrade() != null) {
+        INLINE_UPGRADES.log(Level.WARNING, () -> "Non-blocking route " + request.getMethod() + " "
+            + request.getPath() + " returned an upgrade, which needs a worker");
+        response = Response.of(HttpStatus.INTERNAL_SERVER_ERROR);
+        keepAlive = false;
+      }
+      writeStart = System.nanoTime();
+      bytes = respond(response, keepAlive, request.getMethod() == HttpMethod.HEAD);
+    } else {
+      response = ClientHandler.TOO_MANY_REQUESTS.getResponse();
+      writeStart = System.nanoTime();
+      bytes = send(ClientHandler.TOO_MANY_REQUESTS.encode(), false);
+    }
+    long end = System.nanoTime();
+
+    int status = response.getStatus().getCode();
+    RequestRecorder recorder = context.getRequestRecorder();
+    if (recorder != null) {
+      recorder.record(request, status, bytes, 0, writeStart - handleStart, end - writeStart);
+    }
+    event.complete(request, status, bytes, 0, parseNanos, 0, writeStart - handleStart, end - writeStart);
+  }
+
+  /**
+   * Encodes the response into the connection's buffers and sends it.
+   *
+   * @return the size of the response
+   */
+  private long respond(Response response, boolean keepAlive, boolean headRequest) throws IOException {
+    return send(ResponseWriter.encode(response, keepAlive, headRequest, arena.getResponseBuffers()), keepAlive);
+  }
+
+  /**
+   * Writes as much of the encoded response as the socket takes and waits for it to drain the rest.
+   *
+   * @return the size of the response
+   */
+  private long send(ByteBuffer[] out, boolean keepAlive) throws IOException {
+    served = true;
+    long size = 0;
+    for (ByteBuffer b : out) {
+      size += b.remaining();
+    }
+    transport.write(out);
+    if (hasRemaining(out) || !transport.flush()) {
+      pending = out;
+      closeAfterWrite = !keepAlive;
+      key.interestOps(SelectionKey.OP_WRITE);
+    } else if (!keepAlive) {
+      close();
+    }
+    return size;
+  }
+
+  /**
+   * Returns how many body bytes must be buffered to serve the request here, or {@code -1} if it
+   * has to go to a worker. Requests without a route are answered here too.
+   */
+  private int inlineBodyLength(Request request, Route route, int headLength) {
+    if (route != null && (!route.isNonBlocking() || route.getTimeoutNanos() > 0)) {
+      return -1;
+    }
+    if (request.getHeader(KnownHeader.TRANSFER_ENCODING) != null || request.getHeader(KnownHeader.EXPECT) != null
+        || request.getHeader(KnownHeader.UPGRADE) != null) {
+      return -1;
+    }
+    String contentLength = request.getHeader(KnownHeader.CONTENT_LENGTH);
+    if (contentLength == null) {
+      return 0;
+    }
+    long length;
+    try {
+      length = Long.parseLong(contentLength.trim());
+    } catch (NumberFormatException e) {
+      // the worker answers malformed lengths with the usual error
+      return -1;
+    }
+    return length < 0 || length > buffer.capacity() - headLength ? -1 : (int) length;
+  }
+
+  /**
+   * Compares the buffered bytes with the HTTP/2 connection preface.
+   *
+   * @return {@code 1} on a full match, {@code 0} if the bytes so far match, {@code -1} otherwise
+   */
+  private int matchHttp2Preface() {
+    byte[] preface = Http2Connection.PREFACE;
+    int available = Math.min(buffer.remaining(), preface.length);
+    for (int i = 0; i < available; i++) {
+      if (buffer.get(buffer.position() + i) != preface[i]) {
+        return -1;
+      }
+    }
+    return available == preface.length ? 1 : 0;
+  }
+
+  /**
+   * Takes the connection off the event loop and hands it, with the unread bytes, to a worker.
+   */
+  private void handOff() {
+    done = true;
+    loop.deregister(key, () -> {
+      try {
+        transport.configureBlocking(true);
+        context.getExecutorService().execute(ClientHandler.createRequestHandler(transport, context, buffer));
+      } catch (RejectedExecutionException e) {
+        context.getMetrics().recordExecutorRejection();
+        LOGGER.fine("Executor rejected connection from " + transport.getRemoteAddress());
+        closeTransport();
+      } catch (IOException | RuntimeException e) {
+        LOGGER.log(Level.FINE, "Failed to hand connection over to a worker: " + transport.getRemoteAddress(), e);
+        closeTransport();
+      }
+    });
+  }
+
+  /**
+   * Reads more bytes into the buffer, which is kept in read mode.
+   */
+  private int fill() throws IOException {
+    buffer.compact();
+    try {
+      return buffer.hasRemaining() ? transport.read(buffer) : 0;
+    } finally {
+      buffer.flip();
+    }
+  }
+
+  private void close() {
+    done = true;
+    if (key != null) {
+      key.cancel();
+    }
+    closeTransport();
+  }
+
+  private void closeTransport() {
+    try {
+      transport.close();
+    } catch (IOException e) {
+      CLOSE_FAILURES.log(Level.WARNING, e, () -> "Failed to close client connection");
+    }
+  }
+
+  private static boolean hasRemaining(ByteBuffer[] buffers) {
+    for (ByteBuffer b : buffers) {
+      if (b.hasRemaining()) {
+        return true;
+      }
+    }
+    return false;
+  }
+}
@@ -0,0 +1,111 @@
+package com.adavie.request;
+
+import java.util.Arrays;
+
+/**
+ * A small insertion-ordered map from case-insensitive header names to values, used for headers
+ * that are not a {@link KnownHeader}.
+ *
+ * <p>Entries are kept in parallel arrays in arrival order and found through an open-addressing
+ * index of entry positions with linear probing, so a lookup neither allocates nor folds case.
+ */
+final class HeaderTable {
+  private static final int INITIAL_CAPACITY = 4;
+
+  private String[] names = new String[INITIAL_CAPACITY];
+  private String[] values = new String[INITIAL_CAPACITY];
+  private int[] hashes = new int[INITIAL_CAPACITY];
+  // entry index + 1 per slot, 0 marks an empty slot; kept at most half full
+  private int[] slots = new int[INITIAL_CAPACITY * 2];
+  private int size;
+
+  String get(String name) {
+    int index = find(name, hash(name));
+    return index < 0 ? null : values[index];
+  }
+
+  /**
+   * Adds a value, joining it to any existing value for the same name with a comma.
+   */
+  void add(String name, String value) {
+    int hash = hash(name);
+    int index = find(name, hash);
+    if (index >= 0) {
+      values[index] = values[index] + ", " + value;
+      return;
+    }
+
+    if (size == names.length) {
+      grow();
+    }
+    names[size] = name;
+    values[size] = value;
+    hashes[size] = hash;
+    insertSlot(hash, size);
+    size++;
+  }
+
+  /**
+   * Removes all entries, keeping the arrays for the next request on the connection.
+   */
+  void clear() {
+    Arrays.fill(names, 0, size, null);
+    Arrays.fill(values, 0, size, null);
+    Arrays.fill(slots, 0);
+    size = 0;
+  }
+
+  int size() {
+    return size;
+  }
+
+  String getName(int index) {
+    return names[index];
+  }
+
+  String getValue(int index) {
+    return values[index];
+  }
+
+  private int find(String name, int hash) {
+    int mask = slots.length - 1;
+    for (int slot = hash & mask; ; slot = (slot + 1) & mask) {
+      int entry = slots[slot] - 1;
+      if (entry < 0) {
+        return -1;
+      }
+      if (hashes[entry] == hash && names[entry].equalsIgnoreCase(name)) {
+        return entry;
+      }
+    }
+  }
+
+  private void insertSlot(int hash, int entry) {
+    int mask = slots.length - 1;
+    int slot = hash & mask;
+    while (slots[slot] != 0) {
+      slot = (slot + 1) & mask;
+    }
+    slots[slot] = entry + 1;
+  }
+
+  private void grow() {
+    int capacity = names.length * 2;
+    names = Arrays.copyOf(names, capacity);
+    values = Arrays.copyOf(values, capacity);
+    hashes = Arrays.copyOf(hashes, capacity);
+    slots = new int[capacity * 2];
+    for (int i = 0; i < size; i++) {
+      insertSlot(hashes[i], i);
+    }
+  }
+
+  private static int hash(String name) {
+    int hash = 0;
+    for (int i = 0; i < name.length(); i++) {
+      char c = name.charAt(i);
+      hash = 31 * hash + (c >= 'A' && c <= 'Z' ? c + ('a' - 'A') : c);
+    }
+    return hash ^ (hash >>> 16);
+  }
+}
@@ -0,0 +1,50 @@
+package com.adavie.request;
+
+import java.nio.ByteBuffer;
+
+public enum HttpMethod {
+  GET,
+  HEAD,
+  POST,
+  PUT,
+  DELETE,
+  PATCH,
+  OPTIONS,
+  TRACE,
+  CONNECT;
+
+  private static final HttpMethod[] VALUES = values();
+
+  /**
+   * Returns the method with the given case-sensitive name, or {@code null} if it is not supported.
+   */
+  public static HttpMethod fromName(String name) {
+    for (HttpMethod method : VALUES) {
+      if (method.name().equals(name)) {
+        return method;
+      }
+    }
+    return null;
+  }
+
+  /**
+   * Returns the method whose case-sensitive name is stored in {@code buffer} between
+   * {@code start} and {@code end}, or {@code null} if it is not supported.
+   */
+  static HttpMethod fromName(ByteBuffer buffer, int start, int end) {
+    for (HttpMethod method : VALUES) {
+      String name = method.name();
+      if (name.length() != end - start) {
+        continue;
+      }
+      int i = 0;
+      while (i < name.length() && buffer.get(start + i) == name.charAt(i)) {
+        i++;
+      }
+      if (i == name.length()) {
+        return method;
+      }
+    }
+    return null;
+  }
+}
@@ -0,0 +1,296 @@
+package com.adavie.request;
+
+import com.adavie.response.HttpException;
+import com.adavie.response.HttpStatus;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Parses the head of an HTTP/1.x request (request line and headers) from a buffer.
+ *
+ * <p>Parsing is incremental: {@link #parse} returns {@code null} until the whole head has been
+ * received, so it can be fed from blocking and non-blocking reads alike.
+ */
+public class HttpRequestParser {
+  public static final int DEFAULT_MAX_HEAD_SIZE = 8192;
+
+  private final int maxHeadSize;
+
+  public HttpRequestParser() {
+    this(DEFAULT_MAX_HEAD_SIZE);
+  }
+
+  public HttpRequestParser(int maxHeadSize) {
+    this.maxHeadSize = maxHeadSize;
+  }
+
+  /**
+   * Parses a request head from the readable bytes of {@code buffer}. On success the buffer is
+   * positioned at the first byte of the body.
+   *
+   * @return the parsed request, or {@code null} if more bytes are needed
+   * @throws HttpException if the head is malformed or too large
+   */
+  public Request parse(ByteBuffer buffer) {
+    int start = skipEmptyLines(buffer);
+    int end = indexOfHeadEnd(buffer, start);
+    if (end < 0) {
+      return null;
+    }
+
+    int lineEnd = indexOfLineEnd(buffer, start, end);
+    Request request = parseRequestLine(ascii(buffer, start, lineEnd));
+
+    int lineStart = lineEnd + 2;
+    while (lineStart < end) {
+      lineEnd = indexOfLineEnd(buffer, lineStart, end);
+      parseHeader(request, buffer, lineStart, lineEnd, false);
+      lineStart = lineEnd + 2;
+    }
+
+    buffer.position(end + 4);
+    return request;
+  }
+
+  /**
+   * Parses a request head into the connection's reusable request. The head is copied into the
+   * arena and the values of known headers are only decoded when they are read.
+   *
+   * @return the arena's request, or {@code null} if more bytes are needed
+   * @throws HttpException if the head is malformed or too large
+   */
+  Request parse(ByteBuffer buffer, RequestArena arena) {
+    int start = skipEmptyLines(buffer);
+    int end = indexOfHeadEnd(buffer, start);
+    if (end < 0) {
+      return null;
+    }
+
+    // keep the CRLF ending the last line, line scanning looks one byte ahead
+    ByteBuffer head = arena.copyHead(buffer, start, end + 2);
+    int length = end - start;
+    Request request = arena.acquire();
+    int lineEnd = indexOfLineEnd(head, 0, length);
+    parseRequestLine(request, arena, head, lineEnd);
+
+    int lineStart = lineEnd + 2;
+    while (lineStart < length) {
+      lineEnd = indexOfLineEnd(head, lineStart, length);
+      parseHeader(request, head, lineStart, lineEnd, true);
+      lineStart = lineEnd + 2;
+    }
+
+    buffer.position(end + 4);
+    return request;
+  }
+
+  /**
+   * Skips empty lines left over from a previous request.
+   *
+   * @return the index where the request starts
+   */
+  private static int skipEmptyLines(ByteBuffer buffer) {
+    int start = buffer.position();
+    int limit = buffer.limit();
+    while (start + 1 < limit && buffer.get(start) == '\r' && buffer.get(start + 1) == '\n') {
+      start += 2;
+    }
+    return start;
+  }
+
+  /**
+   * Returns the index of the blank line ending the head, or {@code -1} if it has not arrived yet.
+   */
+  private int indexOfHeadEnd(ByteBuffer buffer, int start) {
+    int limit = buffer.limit();
+    int end = indexOfHeadEnd(buffer, start, limit);
+    if (end < 0) {
+      if (limit - start >= maxHeadSize) {
+        throw new HttpException(HttpStatus.REQUEST_HEADER_FIELDS_TOO_LARGE);
+      }
+      return -1;
+    }
+    if (end - start > maxHeadSize) {
+      throw new HttpException(HttpStatus.REQUEST_HEADER_FIELDS_TOO_LARGE);
+    }
+    return end;
+  }
+
+  private static Request parseRequestLine(String line) {
+    int firstSpace = line.indexOf(' ');
+    int lastSpace = line.lastIndexOf(' ');
+    if (firstSpace <= 0 || lastSpace == firstSpace) {
+      throw new HttpException(HttpStatus.BAD_REQUEST, "Malformed request line");
+    }
+
+    String version = line.substring(lastSpace + 1);
+    if (!version.equals("HTTP/1.1") && !version.equals("HTTP/1.0")) {
+      throw new HttpException(HttpStatus.HTTP_VERSION_NOT_SUPPORTED);
+    }
+
+    HttpMethod method = HttpMethod.fromName(line.substring(0, firstSpace));
+    if (method == null) {
+      throw new HttpException(HttpStatus.NOT_IMPLEMENTED);
+    }
+
+    String target = line.substring(firstSpace + 1, lastSpace);
+    if (target.startsWith("http://") || target.startsWith("https://")) {
+      int pathStart = target.indexOf('/', target.indexOf("//") + 2);
+      target = pathStart < 0 ? "/" : target.substring(pathStart);
+    }
+    if (target.isEmpty() || (target.charAt(0) != '/' && !target.equals("*")) || target.indexOf(' ') >= 0) {
+      throw new HttpException(HttpStatus.BAD_REQUEST, "Malformed request target");
+    }
+
+    return new Request(method, target, version);
+  }
+
+  /**
+   * Parses the request line at the start of {@code head}, the arena's copy of the request head,
+   * with the same checks as {@link #parseRequestLine(String)} but without decoding it first.
+   */
+  private static void parseRequestLine(Request request, RequestArena arena, ByteBuffer head, int lineEnd) {
+    int firstSpace = -1;
+    int lastSpace = -1;
+    for (int i = 0; i < lineEnd; i++) {
+      if (head.get(i) == ' ') {
+        if (firstSpace < 0) {
+          firstSpace = i;
+        }
+        lastSpace = i;
+      }
+    }
+    if (firstSpace <= 0 || lastSpace == firstSpace) {
+      throw new HttpException(HttpStatus.BAD_REQUEST, "Malformed request line");
+    }
+
+    String version = version(head, lastSpace + 1, lineEnd);
+    if (version == null) {
+      throw new HttpException(HttpStatus.HTTP_VERSION_NOT_SUPPORTED);
+    }
+
+    HttpMethod method = HttpMethod.fromName(head, 0, firstSpace);
+    if (method == null) {
+      throw new HttpException(HttpStatus.NOT_IMPLEMENTED);
+    }
+
+    int targetStart = firstSpace + 1;
+    if (startsWith(head, targetStart, lastSpace, "http://") || startsWith(head, targetStart, lastSpace, "https://")) {
+      // absolute-form targets are rare, decode them and take the same path as the public parser
+      Request parsed = parseRequestLine(ascii(head, 0, lineEnd));
+      request.init(method, parsed.getTarget(), parsed.getPath(), parsed.getQueryString(), version, arena.getHead());
+      return;
+    }
+    boolean valid = lastSpace > targetStart
+        && (head.get(targetStart) == '/' || (lastSpace - targetStart == 1 && head.get(targetStart) == '*'));
+    for (int i = targetStart; valid && i < lastSpace; i++) {
+      valid = head.get(i) != ' ';
+    }
+    if (!valid) {
+      throw new HttpException(HttpStatus.BAD_REQUEST, "Malformed request target");
+    }
+
+    arena.initRequest(request, method, targetStart, lastSpace, version);
+  }
+
+  /**
+   * Returns the supported protocol version stored between {@code start} and {@code end}, or
+   * {@code null}.
+   */
+  private static String version(ByteBuffer buffer, int start, int end) {
+    if (end - start != 8 || !startsWith(buffer, start, end, "HTTP/1.")) {
+      return null;
+    }
+    byte minor = buffer.get(start + 7);
+    return minor == '1' ? "HTTP/1.1" : minor == '0' ? "HTTP/1.0" : null;
+  }
+
+  private static boolean startsWith(ByteBuffer buffer, int start, int end, String prefix) {
+    if (end - start < prefix.length()) {
+      return false;
+    }
+    for (int i = 0; i < prefix.length(); i++) {
+      if (buffer.get(start + i) != prefix.charAt(i)) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  /**
+   * @param deferKnown whether known header values are left in the arena's head, which
+   *     {@code buffer} then is, for the request to decode on demand
+   */
+  private static void parseHeader(Request request, ByteBuffer buffer, int start, int end, boolean deferKnown) {
+    int colon = -1;
+    for (int i = start; i < end; i++) {
+      byte b = buffer.get(i);
+      if (b == ':') {
+        colon = i;
+        break;
+      }
+      if (b == ' ' || b == '\t') {
+        // covers obsolete line folding and whitespace before the colon, both rejected by RFC 9112
+        throw new HttpException(HttpStatus.BAD_REQUEST, "Malformed header");
+      }
+    }
+    if (colon <= start) {
+      throw new HttpException(HttpStatus.BAD_REQUEST, "Malformed header");
+    }
+
+    int valueStart = colon + 1;
+    int valueEnd = end;
+    while (valueStart < valueEnd && isWhitespace(buffer.get(valueStart))) {
+      valueStart++;
+    }
+    while (valueEnd > valueStart && isWhitespace(buffer.get(valueEnd - 1))) {
+      valueEnd--;
+    }
+
+    KnownHeader known = KnownHeader.lookup(buffer, start, colon);
+    if (known != null && deferKnown) {
+      request.addHeader(known, valueStart, valueEnd);
+    } else if (known != null) {
+      request.addHeader(known, ascii(buffer, valueStart, valueEnd));
+    } else {
+      request.addHeader(ascii(buffer, start, colon), ascii(buffer, valueStart, valueEnd));
+    }
+  }
+
+  private static int indexOfHeadEnd(ByteBuffer buffer, int start, int limit) {
+    for (int i = start; i + 3 < limit; i++) {
+      if (buffer.get(i) == '\r' && buffer.get(i + 1) == '\n' && buffer.get(i + 2) == '\r' && buffer.get(i + 3) == '\n') {
+        return i;
+      }
+    }
+    return -1;
+  }
+
+  private static int indexOfLineEnd(ByteBuffer buffer, int start, int end) {
+    for (int i = start; i < end; i++) {
+      if (buffer.get(i) == '\r' && buffer.get(i + 1) == '\n') {
+        return i;
+      }
+      if (buffer.get(i) == '\n') {
+        throw new HttpException(HttpStatus.BAD_REQUEST, "Bare line feed in request head");
+      }
+    }
+    return end;
+  }
+
+  private static boolean isWhitespace(byte b) {
+    return b == ' ' || b == '\t';
+  }
+
+  private static String ascii(ByteBuffer buffer, int start, int end) {
+    if (buffer.hasArray()) {
+      return new String(buffer.array(), buffer.arrayOffset() + start, end - start, StandardCharsets.ISO_8859_1);
+    }
+    byte[] bytes = new byte[end - start];
+    for (int i = 0; i < bytes.length; i++) {
+      bytes[i] = buffer.get(start + i);
+    }
+    return new String(bytes, StandardCharsets.ISO_8859_1);
+  }
+}
@@ -0,0 +1,223 @@
+package com.adavie.request;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Locale;
+
+/**
+ * Well-known HTTP header names.
+ *
+ * <p>Names are resolved through a perfect-hash table, so matching a header name read off the wire
+ * costs one hash pass over its bytes, one array load and one comparison, without allocating a
+ * {@code String} or case-folding a copy. {@link Request} stores the values of known headers in an
+ * array indexed by {@link #ordinal()}.
+ */
+public enum KnownHeader {
+  ACCEPT("Accept"),
+  ACCEPT_CHARSET("Accept-Charset"),
+  ACCEPT_ENCODING("Accept-Encoding"),
+  ACCEPT_LANGUAGE("Accept-Language"),
+  ACCEPT_RANGES("Accept-Ranges"),
+  ACCESS_CONTROL_ALLOW_CREDENTIALS("Access-Control-Allow-Credentials"),
+  ACCESS_CONTROL_ALLOW_HEADERS("Access-Control-Allow-Headers"),
+  ACCESS_CONTROL_ALLOW_METHODS("Access-Control-Allow-Methods"),
+  ACCESS_CONTROL_ALLOW_ORIGIN("Access-Control-Allow-Origin"),
+  ACCESS_CONTROL_EXPOSE_HEADERS("Access-Control-Expose-Headers"),
+  ACCESS_CONTROL_MAX_AGE("Access-Control-Max-Age"),
+  ACCESS_CONTROL_REQUEST_HEADERS("Access-Control-Request-Headers"),
+  ACCESS_CONTROL_REQUEST_METHOD("Access-Control-Request-Method"),
+  AGE("Age"),
+  ALLOW("Allow"),
+  AUTHORIZATION("Authorization"),
+  CACHE_CONTROL("Cache-Control"),
+  CONNECTION("Connection"),
+  CONTENT_DISPOSITION("Content-Disposition"),
+  CONTENT_ENCODING("Content-Encoding"),
+  CONTENT_LANGUAGE("Content-Language"),
+  CONTENT_LENGTH("Content-Length"),
+  CONTENT_LOCATION("Content-Location"),
+  CONTENT_RANGE("Content-Range"),
+  CONTENT_SECURITY_POLICY("Content-Security-Policy"),
+  CONTENT_TYPE("Content-Type"),
+  COOKIE("Cookie"),
+  DATE("Date"),
+  ETAG("ETag"),
+  EXPECT("Expect"),
+  EXPIRES("Expires"),
+  FORWARDED("Forwarded"),
+  FROM("From"),
+  HOST("Host"),
+  HTTP2_SETTINGS("HTTP2-Settings"),
+  IF_MATCH("If-Match"),
+  IF_MODIFIED_SINCE("If-Modified-Since"),
+  IF_NONE_MATCH("If-None-Match"),
+  IF_RANGE("If-Range"),
+  IF_UNMODIFIED_SINCE("If-Unmodified-Since"),
+  KEEP_ALIVE("Keep-Alive"),
+  LAST_MODIFIED("Last-Modified"),
+  LINK("Link"),
+  LOCATION("Location"),
+  MAX_FORWARDS("Max-Forwards"),
+  ORIGIN("Origin"),
+  PRAGMA("Pragma"),
+  PROXY_AUTHENTICATE("Proxy-Authenticate"),
+  PROXY_AUTHORIZATION("Proxy-Authorization"),
+  RANGE("Range"),
+  REFERER("Referer"),
+  RETRY_AFTER("Retry-After"),
+  SEC_FETCH_DEST("Sec-Fetch-Dest"),
+  SEC_FETCH_MODE("Sec-Fetch-Mode"),
+  SEC_FETCH_SITE("Sec-Fetch-Site"),
+  SEC_WEBSOCKET_ACCEPT("Sec-WebSocket-Accept"),
+  SEC_WEBSOCKET_EXTENSIONS("Sec-WebSocket-Extensions"),
+  SEC_WEBSOCKET_KEY("Sec-WebSocket-Key"),
+  SEC_WEBSOCKET_PROTOCOL("Sec-WebSocket-Protocol"),
+  SEC_WEBSOCKET_VERSION("Sec-WebSocket-Version"),
+  SERVER("Server"),
+  SET_COOKIE("Set-Cookie"),
+  STRICT_TRANSPORT_SECURITY("Strict-Transport-Security"),
+  TE("TE"),
+  TRAILER("Trailer"),
+  TRANSFER_ENCODING("Transfer-Encoding"),
+  UPGRADE("Upgrade"),
+  UPGRADE_INSECURE_REQUESTS("Upgrade-Insecure-Requests"),
+  USER_AGENT("User-Agent"),
+  VARY("Vary"),
+  VIA("Via"),
+  WWW_AUTHENTICATE("WWW-Authenticate"),
+  X_FORWARDED_FOR("X-Forwarded-For"),
+  X_FORWARDED_HOST("X-Forwarded-Host"),
+  X_FORWARDED_PROTO("X-Forwarded-Proto"),
+  X_REQUEST_ID("X-Request-Id"),
+  X_REQUESTED_WITH("X-Requested-With");
+
+  private static final KnownHeader[] VALUES = values();
+  private static final int TABLE_SIZE = 1024;
+  private static final int MASK = TABLE_SIZE - 1;
+  private static final int MAX_NAME_LENGTH;
+  private static final int SEED;
+  private static final KnownHeader[] TABLE = new KnownHeader[TABLE_SIZE];
+
+  static {
+    int maxLength = 0;
+    for (KnownHeader header : VALUES) {
+      maxLength = Math.max(maxLength, header.lowerCaseName.length);
+    }
+    MAX_NAME_LENGTH = maxLength;
+
+    // search for a seed that maps every name to its own slot; with ~80 names in 1024 slots a few
+    // dozen attempts are enough, and doing it here keeps the table valid when names are added
+    int seed = 0x811C9DC5;
+    while (!fill(seed)) {
+      seed += 0x9E3779B9;
+    }
+    SEED = seed;
+  }
+
+  private final String name;
+  private final String lowerCaseNameString;
+  private final byte[] lowerCaseName;
+
+  KnownHeader(String name) {
+    this.name = name;
+    this.lowerCaseNameString = name.toLowerCase(Locale.ROOT);
+    this.lowerCaseName = lowerCaseNameString.getBytes(StandardCharsets.US_ASCII);
+  }
+
+  /**
+   * The canonical spelling of the header name.
+   */
+  public String getName() {
+    return name;
+  }
+
+  String getLowerCaseName() {
+    return lowerCaseNameString;
+  }
+
+  static int count() {
+    return VALUES.length;
+  }
+
+  /**
+   * Returns the known header with the given case-insensitive name, or {@code null}.
+   */
+  public static KnownHeader lookup(CharSequence name) {
+    int length = name.length();
+    if (length == 0 || length > MAX_NAME_LENGTH) {
+      return null;
+    }
+    int hash = SEED;
+    for (int i = 0; i < length; i++) {
+      hash = step(hash, name.charAt(i));
+    }
+    KnownHeader candidate = TABLE[index(hash)];
+    if (candidate == null || candidate.lowerCaseName.length != length) {
+      return null;
+    }
+    for (int i = 0; i < length; i++) {
+      if (toLowerCase(name.charAt(i)) != candidate.lowerCaseName[i]) {
+        return null;
+      }
+    }
+    return candidate;
+  }
+
+  /**
+   * Returns the known header whose case-insensitive name is stored in {@code buffer} between
+   * {@code start} and {@code end}, or {@code null}. The buffer's position is not changed.
+   */
+  public static KnownHeader lookup(ByteBuffer buffer, int start, int end) {
+    int length = end - start;
+    if (length == 0 || length > MAX_NAME_LENGTH) {
+      return null;
+    }
+    int hash = SEED;
+    for (int i = start; i < end; i++) {
+      hash = step(hash, buffer.get(i) & 0xFF);
+    }
+    KnownHeader candidate = TABLE[index(hash)];
+    if (candidate == null || candidate.lowerCaseName.length != length) {
+      return null;
+    }
+    for (int i = 0; i < length; i++) {
+      if (toLowerCase(buffer.get(start + i) & 0xFF) != candidate.lowerCaseName[i]) {
+        return null;
+      }
+    }
+    return candidate;
+  }
+
+  private static boolean fill(int seed) {
+    Arrays.fill(TABLE, null);
+    for (KnownHeader header : VALUES) {
+      int hash = seed;
+      for (byte b : header.lowerCaseName) {
+        hash = step(hash, b);
+      }
+      int index = index(hash);
+      if (TABLE[index] != null) {
+        return false;
+      }
+      TABLE[index] = header;
+    }
+    return true;
+  }
+
+  /**
+   * One FNV-1a round. Setting bit 5 folds ASCII upper case onto lower case; other characters
+   * may collide with it, which the final comparison rules out.
+   */
+  private static int step(int hash, int c) {
+    return (hash ^ (c | 0x20)) * 0x01000193;
+  }
+
+  private static int index(int hash) {
+    return (hash ^ (hash >>> 16)) & MASK;
+  }
+
+  private static int toLowerCase(int c) {
+    return c >= 'A' && c <= 'Z' ? c + ('a' - 'A') : c;
+  }
+}
@@ -0,0 +1,170 @@
+package com.adavie.request;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Name/value pairs read lazily from a query string, form body or {@code Cookie} header.
+ *
+ * <p>Nothing is parsed until the first lookup, which records the offsets of each pair in the
+ * source text. Names are decoded on that first lookup and values only when they are asked for.
+ */
+final class ParameterList {
+  static final ParameterList EMPTY = new ParameterList("", '&', false);
+
+  private final String source;
+  private final char separator;
+  private final boolean urlEncoded;
+  // nameStart, nameEnd, valueStart, valueEnd for each pair
+  private int[] bounds;
+  private int size = -1;
+  private String[] names;
+  private String[] values;
+
+  private ParameterList(String source, char separator, boolean urlEncoded) {
+    this.source = source;
+    this.separator = separator;
+    this.urlEncoded = urlEncoded;
+  }
+
+  /**
+   * Pairs of a query string or {@code application/x-www-form-urlencoded} body.
+   */
+  static ParameterList urlEncoded(String source) {
+    return source == null || source.isEmpty() ? EMPTY : new ParameterList(source, '&', true);
+  }
+
+  /**
+   * Pairs of a {@code Cookie} header (RFC 6265 section 5.4); values are not decoded.
+   */
+  static ParameterList cookies(String header) {
+    return header == null || header.isEmpty() ? EMPTY : new ParameterList(header, ';', false);
+  }
+
+  int size() {
+    parse();
+    return size;
+  }
+
+  /**
+   * Returns the first value for {@code name}, or {@code null}.
+   */
+  String get(String name) {
+    parse();
+    for (int i = 0; i < size; i++) {
+      if (name(i).equals(name)) {
+        return value(i);
+      }
+    }
+    return null;
+  }
+
+  List<String> getAll(String name) {
+    parse();
+    List<String> all = new ArrayList<>(1);
+    for (int i = 0; i < size; i++) {
+      if (name(i).equals(name)) {
+        all.add(value(i));
+      }
+    }
+    return all;
+  }
+
+  Map<String, List<String>> toMap() {
+    parse();
+    Map<String, List<String>> map = new LinkedHashMap<>();
+    for (int i = 0; i < size; i++) {
+      map.computeIfAbsent(name(i), k -> new ArrayList<>(1)).add(value(i));
+    }
+    for (Map.Entry<String, List<String>> entry : map.entrySet()) {
+      entry.setValue(Collections.unmodifiableList(entry.getValue()));
+    }
+    return Collections.unmodifiableMap(map);
+  }
+
+  private String name(int i) {
+    if (names[i] == null) {
+      names[i] = decode(bounds[4 * i], bounds[4 * i + 1]);
+    }
+    return names[i];
+  }
+
+  private String value(int i) {
+    if (values[i] == null) {
+      int start = bounds[4 * i + 2];
+      int end = bounds[4 * i + 3];
+      if (!urlEncoded && end - start >= 2 && source.charAt(start) == '"' && source.charAt(end - 1) == '"') {
+        start++;
+        end--;
+      }
+      values[i] = decode(start, end);
+    }
+    return values[i];
+  }
+
+  private String decode(int start, int end) {
+    return urlEncoded ? PercentDecoder.decode(source, start, end, true) : source.substring(start, end);
+  }
+
+  private void parse() {
+    if (size >= 0) {
+      return;
+    }
+    int[] found = new int[16];
+    int count = 0;
+    int length = source.length();
+    int start = 0;
+    while (start <= length) {
+      int end = source.indexOf(separator, start);
+      if (end < 0) {
+        end = length;
+      }
+      int nameStart = skipSpaces(start, end);
+      int nameEnd = end;
+      int valueStart = end;
+      for (int i = nameStart; i < end; i++) {
+        if (source.charAt(i) == '=') {
+          nameEnd = i;
+          valueStart = i + 1;
+          break;
+        }
+      }
+      nameEnd = trimSpaces(nameStart, nameEnd);
+      if (nameEnd > nameStart) {
+        if (4 * count + 4 > found.length) {
+          int[] grown = new int[found.length * 2];
+          System.arraycopy(found, 0, grown, 0, found.length);
+          found = grown;
+        }
+        found[4 * count] = nameStart;
+        found[4 * count + 1] = nameEnd;
+        found[4 * count + 2] = urlEncoded ? valueStart : skipSpaces(valueStart, end);
+        found[4 * count + 3] = urlEncoded ? end : trimSpaces(found[4 * count + 2], end);
+        count++;
+      }
+      start = end + 1;
+    }
+    bounds = found;
+    names = new String[count];
+    values = new String[count];
+    size = count;
+  }
+
+  // whitespace only separates cookie pairs; in URL-encoded text spaces are data
+  private int skipSpaces(int start, int end) {
+    while (!urlEncoded && start < end && source.charAt(start) == ' ') {
+      start++;
+    }
+    return start;
+  }
+
+  private int trimSpaces(int start, int end) {
+    while (!urlEncoded && end > start && source.charAt(end - 1) == ' ') {
+      end--;
+    }
+    return end;
+  }
+}
@@ -0,0 +1,95 @@
+package com.adavie.request;
+
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Decodes percent-encoded text from URLs and {@code application/x-www-form-urlencoded} bodies.
+ *
+ * <p>Input characters are treated as octets, the way the request parser reads them off the wire.
+ * Text that needs no decoding is returned as a substring; text whose escapes are all ASCII is
+ * decoded straight into a {@code char[]} for the result. Only input carrying non-ASCII octets
+ * takes the slower route through a {@code byte[]} and the UTF-8 decoder. Malformed escapes are
+ * kept literally.
+ */
+public final class PercentDecoder {
+
+  private PercentDecoder() {
+  }
+
+  public static String decode(String text, boolean plusAsSpace) {
+    return decode(text, 0, text.length(), plusAsSpace);
+  }
+
+  /**
+   * Decodes {@code text[start, end)}, turning {@code +} into a space if {@code plusAsSpace}.
+   */
+  public static String decode(String text, int start, int end, boolean plusAsSpace) {
+    int i = start;
+    while (i < end) {
+      char c = text.charAt(i);
+      if (c == '%' || c >= 0x80 || (c == '+' && plusAsSpace)) {
+        break;
+      }
+      i++;
+    }
+    if (i == end) {
+      return text.substring(start, end);
+    }
+
+    char[] chars = new char[end - start];
+    text.getChars(start, i, chars, 0);
+    int n = i - start;
+    while (i < end) {
+      char c = text.charAt(i);
+      if (c == '%') {
+        int b = escapedOctet(text, i, end);
+        if (b < 0) {
+          chars[n++] = c;
+          i++;
+          continue;
+        }
+        if (b >= 0x80) {
+          return decodeUtf8(text, start, end, plusAsSpace);
+        }
+        chars[n++] = (char) b;
+        i += 3;
+      } else if (c >= 0x80) {
+        return decodeUtf8(text, start, end, plusAsSpace);
+      } else {
+        chars[n++] = c == '+' && plusAsSpace ? ' ' : c;
+        i++;
+      }
+    }
+    return new String(chars, 0, n);
+  }
+
+  private static String decodeUtf8(String text, int start, int end, boolean plusAsSpace) {
+    byte[] bytes = new byte[end - start];
+    int n = 0;
+    int i = start;
+    while (i < end) {
+      char c = text.charAt(i);
+      int b = c == '%' ? escapedOctet(text, i, end) : -1;
+      if (b >= 0) {
+        bytes[n++] = (byte) b;
+        i += 3;
+      } else {
+        bytes[n++] = c == '+' && plusAsSpace ? (byte) ' ' : (byte) c;
+        i++;
+      }
+    }
+    return new String(bytes, 0, n, StandardCharsets.UTF_8);
+  }
+
+  /**
+   * Returns the octet encoded by the escape at {@code index}, or {@code -1} if it is malformed.
+   */
+  private static int escapedOctet(String text, int index, int end) {
+    if (index + 2 >= end) {
+      return -1;
+    }
+    int high = Character.digit(text.charAt(index + 1), 16);
+    int low = Character.digit(text.charAt(index + 2), 16);
+    return high < 0 || low < 0 ? -1 : high << 4 | low;
+  }
+}
@@ -1,4 +1,402 @@
 package com.adavie.request;
 
+import com.adavie.response.HttpException;
+import com.adavie.response.HttpStatus;
+import com.adavie.route.Route;
+
+import java.net.SocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
 public class Request {
+  private HttpMethod method;
+  private String target;
+  private String path;
+  private String queryString;
+  private String version;
+  private SocketAddress remoteAddress;
+  private boolean hasDeadline;
+  private long deadlineNanos;
+  // looked up once by the router, null with routeResolved set if no route matches
+  private Route route;
+  private boolean routeResolved;
+  private final String[] knownHeaders = new String[KnownHeader.count()];
+  // for requests owned by a RequestArena: the raw head and, per known header, the value's
+  // start + 1 and end in it, so values are only decoded when asked for
+  private byte[] head;
+  private final int[] headerBounds;
+  private boolean released;
+  private HeaderTable otherHeaders;
+  private RequestBody body = RequestBody.EMPTY;
+  // decoded on first access, most handlers never look at them
+  private ParameterList queryParameters;
+  private ParameterList cookies;
+  private ParameterList formParameters;
+
+  public Request(HttpMethod method, String target, String version) {
+    this.method = method;
+    this.target = target;
+    this.version = version;
+    this.headerBounds = null;
+
+    int queryStart = target.indexOf('?');
+    this.path = queryStart < 0 ? target : target.substring(0, queryStart);
+    this.queryString = queryStart < 0 ? null : target.substring(queryStart + 1);
+  }
+
+  /**
+   * An empty request to be filled by {@link #init} and reused through {@link #recycle()}.
+   */
+  Request() {
+    this.headerBounds = new int[KnownHeader.count() * 2];
+  }
+
+  void init(HttpMethod method, String target, String path, String queryString, String version, byte[] head) {
+    this.method = method;
+    this.target = target;
+    this.path = path;
+    this.queryString = queryString;
+    this.version = version;
+    this.head = head;
+  }
+
+  /**
+   * Records where the value of a known header lies in the head passed to {@link #init}.
+   */
+  void addHeader(KnownHeader header, int start, int end) {
+    int index = header.ordinal() * 2;
+    if (headerBounds[index] == 0 && knownHeaders[header.ordinal()] == null) {
+      headerBounds[index] = start + 1;
+      headerBounds[index + 1] = end;
+    } else {
+      addHeader(header, new String(head, start, end - start, StandardCharsets.ISO_8859_1));
+    }
+  }
+
+  /**
+   * Clears the request for the next exchange on its connection.
+   */
+  void recycle() {
+    method = null;
+    target = null;
+    path = null;
+    queryString = null;
+    version = null;
+    head = null;
+    remoteAddress = null;
+    hasDeadline = false;
+    deadlineNanos = 0;
+    route = null;
+    routeResolved = false;
+    Arrays.fill(knownHeaders, null);
+    Arrays.fill(headerBounds, 0);
+    if (otherHeaders != null) {
+      otherHeaders.clear();
+    }
+    body = RequestBody.EMPTY;
+    queryParameters = null;
+    cookies = null;
+    formParameters = null;
+  }
+
+  /**
+   * Marks the request as finished, after which reading it fails. Used to find handlers that
+   * keep a request beyond its exchange.
+   */
+  void release() {
+    released = true;
+  }
+
+  private void checkLive() {
+    if (released) {
+      throw new IllegalStateException(
+          "Request used after its exchange completed; handlers must not keep references to it");
+    }
+  }
+
+  public HttpMethod getMethod() {
+    checkLive();
+    return method;
+  }
+
+  /**
+   * The request target exactly as sent, including any query string.
+   */
+  public String getTarget() {
+    checkLive();
+    return target;
+  }
+
+  public String getPath() {
+    checkLive();
+    return path;
+  }
+
+  public String getQueryString() {
+    checkLive();
+    return queryString;
+  }
+
+  /**
+   * Returns the first decoded value of a query parameter, or {@code null}.
+   */
+  public String getQueryParameter(String name) {
+    return queryParameters().get(name);
+  }
+
+  public List<String> getQueryParameterValues(String name) {
+    return queryParameters().getAll(name);
+  }
+
+  /**
+   * Returns all query parameters in the order they were sent.
+   */
+  public Map<String, List<String>> getQueryParameters() {
+    return queryParameters().toMap();
+  }
+
+  /**
+   * Returns the value of a cookie, or {@code null}.
+   */
+  public String getCookie(String name) {
+    return cookies().get(name);
+  }
+
+  /**
+   * Returns all cookies by name; when a name repeats, the first value wins.
+   */
+  public Map<String, String> getCookies() {
+    Map<String, String> all = new LinkedHashMap<>();
+    for (Map.Entry<String, List<String>> cookie : cookies().toMap().entrySet()) {
+      all.put(cookie.getKey(), cookie.getValue().get(0));
+    }
+    return Collections.unmodifiableMap(all);
+  }
+
+  /**
+   * Returns the first decoded value of a field of an {@code application/x-www-form-urlencoded}
+   * body, or {@code null}.
+   */
+  public String getFormParameter(String name) {
+    return formParameters().get(name);
+  }
+
+  public List<String> getFormParameterValues(String name) {
+    return formParameters().getAll(name);
+  }
+
+  public Map<String, List<String>> getFormParameters() {
+    return formParameters().toMap();
+  }
+
+  private ParameterList queryParameters() {
+    checkLive();
+    if (queryParameters == null) {
+      queryParameters = ParameterList.urlEncoded(queryString);
+    }
+    return queryParameters;
+  }
+
+  private ParameterList cookies() {
+    checkLive();
+    if (cookies == null) {
+      cookies = ParameterList.cookies(getHeader(KnownHeader.COOKIE));
+    }
+    return cookies;
+  }
+
+  private ParameterList formParameters() {
+    checkLive();
+    if (formParameters == null) {
+      String contentType = getHeader(KnownHeader.CONTENT_TYPE);
+      boolean form = contentType != null
+          && contentType.toLowerCase(Locale.ROOT).startsWith("application/x-www-form-urlencoded");
+      // octets map one to one onto ISO-8859-1 chars, which is what the decoder expects
+      formParameters = form
+          ? ParameterList.urlEncoded(new String(body.getBytes(), StandardCharsets.ISO_8859_1))
+          : ParameterList.EMPTY;
+    }
+    return formParameters;
+  }
+
+  public String getVersion() {
+    checkLive();
+    return version;
+  }
+
+  /**
+   * The address of the client that sent the request, or {@code null} if unknown.
+   */
+  public SocketAddress getRemoteAddress() {
+    checkLive();
+    return remoteAddress;
+  }
+
+  public void setRemoteAddress(SocketAddress remoteAddress) {
+    this.remoteAddress = remoteAddress;
+  }
+
+  /**
+   * The route matching the request, or {@code null} if none does or it has not been looked up
+   * yet, see {@link com.adavie.route.Router#resolve}.
+   */
+  public Route getRoute() {
+    return route;
+  }
+
+  public boolean isRouteResolved() {
+    return routeResolved;
+  }
+
+  public void setRoute(Route route) {
+    this.route = route;
+    this.routeResolved = true;
+  }
+
+  /**
+   * Sets the time by which the request must have been handled, {@code timeout} from now.
+   */
+  public void setDeadline(long timeout, TimeUnit unit) {
+    this.deadlineNanos = System.nanoTime() + unit.toNanos(timeout);
+    this.hasDeadline = true;
+  }
+
+  public boolean hasDeadline() {
+    return hasDeadline;
+  }
+
+  /**
+   * Nanoseconds left until the deadline, negative once it has passed, or {@link Long#MAX_VALUE}
+   * if the request has none. Handlers can use it to bound calls they make downstream.
+   */
+  public long getRemainingNanos() {
+    return hasDeadline ? deadlineNanos - System.nanoTime() : Long.MAX_VALUE;
+  }
+
+  /**
+   * Throws a {@code 504} {@link HttpException} if the deadline has passed.
+   */
+  public void checkDeadline() {
+    if (hasDeadline && deadlineNanos - System.nanoTime() <= 0) {
+      throw new HttpException(HttpStatus.GATEWAY_TIMEOUT, "Request deadline exceeded");
+    }
+  }
+
+  /**
+   * Returns the value of a well-known header, with repeated headers joined by commas.
+   */
+  public String getHeader(KnownHeader header) {
+    checkLive();
+    int ordinal = header.ordinal();
+    String value = knownHeaders[ordinal];
+    if (value == null && headerBounds != null && headerBounds[ordinal * 2] != 0) {
+      int start = headerBounds[ordinal * 2] - 1;
+      value = new String(head, start, headerBounds[ordinal * 2 + 1] - start, StandardCharsets.ISO_8859_1);
+      knownHeaders[ordinal] = value;
+      headerBounds[ordinal * 2] = 0;
+    }
+    return value;
+  }
+
+  /**
+   * Returns the header value for a case-insensitive name, with repeated headers joined by commas.
+   */
+  public String getHeader(String name) {
+    KnownHeader known = KnownHeader.lookup(name);
+    if (known != null) {
+      return getHeader(known);
+    }
+    checkLive();
+    return otherHeaders == null ? null : otherHeaders.get(name);
+  }
+
+  /**
+   * Returns a snapshot of all headers keyed by lower-case name, well-known headers first.
+   */
+  public Map<String, String> getHeaders() {
+    Map<String, String> headers = new LinkedHashMap<>();
+    for (KnownHeader header : KnownHeader.values()) {
+      String value = getHeader(header);
+      if (value != null) {
+        headers.put(header.getLowerCaseName(), value);
+      }
+    }
+    if (otherHeaders != null) {
+      for (int i = 0; i < otherHeaders.size(); i++) {
+        headers.put(otherHeaders.getName(i).toLowerCase(Locale.ROOT), otherHeaders.getValue(i));
+      }
+    }
+    return Collections.unmodifiableMap(headers);
+  }
+
+  public void addHeader(KnownHeader header, String value) {
+    String existing = getHeader(header);
+    if (existing == null) {
+      knownHeaders[header.ordinal()] = value;
+    } else {
+      // cookie pairs may arrive split across fields (RFC 9113 section 8.2.3)
+      knownHeaders[header.ordinal()] = existing + (header == KnownHeader.COOKIE ? "; " : ", ") + value;
+    }
+    if (header == KnownHeader.COOKIE) {
+      cookies = null;
+    } else if (header == KnownHeader.CONTENT_TYPE) {
+      formParameters = null;
+    }
+  }
+
+  public void addHeader(String name, String value) {
+    KnownHeader known = KnownHeader.lookup(name);
+    if (known != null) {
+      addHeader(known, value);
+      return;
+    }
+    if (otherHeaders == null) {
+      otherHeaders = new HeaderTable();
+    }
+    otherHeaders.add(name, value);
+  }
+
+  /**
+   * Returns the body as an array; see {@link RequestBody#getBytes()} for spooled bodies.
+   */
+  public byte[] getBody() {
+    checkLive();
+    return body.getBytes();
+  }
+
+  public String getBodyAsString() {
+    checkLive();
+    return new String(body.getBytes(), StandardCharsets.UTF_8);
+  }
+
+  /**
+   * Returns the body with its length, whether it was spooled to disk, and streaming access.
+   */
+  public RequestBody getRequestBody() {
+    checkLive();
+    return body;
+  }
+
+  public void setBody(byte[] body) {
+    setBody(RequestBody.of(body));
+  }
+
+  public void setBody(RequestBody body) {
+    this.body = body == null ? RequestBody.EMPTY : body;
+    this.formParameters = null;
+  }
+
+  public boolean isKeepAlive() {
+    String connection = getHeader(KnownHeader.CONNECTION);
+    if ("HTTP/1.0".equals(version)) {
+      return connection != null && connection.equalsIgnoreCase("keep-alive");
+    }
+    return connection == null || !connection.toLowerCase(Locale.ROOT).contains("close");
+  }
 }
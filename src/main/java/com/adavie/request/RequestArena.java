@@ -0,0 +1,110 @@
+package com.adavie.request;
+
+import com.adavie.response.ResponseBuffers;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Per-connection storage reused from one request to the next, so that serving a keep-alive
+ * connection does not allocate a new {@link Request}, header arrays or response head for every
+ * exchange.
+ *
+ * <p>The arena owns one {@code Request}, the copy of the request head its header values are
+ * decoded from, the last request target with its path and query strings (clients tend to repeat
+ * them), and the buffers responses are encoded into. Acquiring the request clears it, so a handler
+ * that keeps a reference past its exchange would see the next request's data. With leak detection
+ * on, every exchange gets a fresh request instead and the previous one fails on any further use.
+ */
+final class RequestArena {
+  private static final int INITIAL_HEAD_SIZE = 1024;
+
+  private final boolean leakDetection;
+  private final ResponseBuffers responseBuffers = new ResponseBuffers();
+  private Request request;
+  private byte[] head = new byte[INITIAL_HEAD_SIZE];
+  private ByteBuffer headBuffer = ByteBuffer.wrap(head);
+  private byte[] lastTarget = new byte[0];
+  private int lastTargetLength = -1;
+  private String target;
+  private String path;
+  private String queryString;
+
+  RequestArena(boolean leakDetection) {
+    this.leakDetection = leakDetection;
+  }
+
+  /**
+   * Returns the connection's request, cleared, ending the previous exchange.
+   */
+  Request acquire() {
+    if (request != null) {
+      if (leakDetection) {
+        request.release();
+        request = null;
+      } else {
+        request.recycle();
+      }
+    }
+    if (request == null) {
+      request = new Request();
+    }
+    return request;
+  }
+
+  /**
+   * Copies a request head into the arena.
+   *
+   * @return a buffer holding the head from index {@code 0}
+   */
+  ByteBuffer copyHead(ByteBuffer source, int start, int end) {
+    int length = end - start;
+    if (head.length < length || leakDetection) {
+      // with leak detection a released request still points at its head, so keep it intact
+      head = new byte[head.length < length ? Math.max(length, head.length * 2) : head.length];
+      headBuffer = ByteBuffer.wrap(head);
+    }
+    ByteBuffer slice = source.duplicate();
+    slice.limit(end).position(start);
+    slice.get(head, 0, length);
+    headBuffer.clear();
+    return headBuffer;
+  }
+
+  byte[] getHead() {
+    return head;
+  }
+
+  /**
+   * Fills the request with its request line, reusing the strings of the previous target when the
+   * target is the same.
+   */
+  void initRequest(Request request, HttpMethod method, int targetStart, int targetEnd, String version) {
+    int length = targetEnd - targetStart;
+    if (length != lastTargetLength || !sameTarget(targetStart, length)) {
+      if (lastTarget.length < length) {
+        lastTarget = new byte[Math.max(length, lastTarget.length * 2)];
+      }
+      System.arraycopy(head, targetStart, lastTarget, 0, length);
+      lastTargetLength = length;
+      target = new String(head, targetStart, length, StandardCharsets.ISO_8859_1);
+      int queryStart = target.indexOf('?');
+      path = queryStart < 0 ? target : target.substring(0, queryStart);
+      queryString = queryStart < 0 ? null : target.substring(queryStart + 1);
+    }
+    request.init(method, target, path, queryString, version, head);
+  }
+
+  ResponseBuffers getResponseBuffers() {
+    return responseBuffers;
+  }
+
+  private boolean sameTarget(int start, int length) {
+    for (int i = 0; i < length; i++) {
+      if (head[start + i] != lastTarget[i]) {
+        return false;
+      }
+    }
+    return true;
+  }
+}
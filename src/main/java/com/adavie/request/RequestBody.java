@@ -0,0 +1,110 @@
+package com.adavie.request;
+
+import com.adavie.util.MemoryBudget;
+
+import java.io.ByteArrayInputStream;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * The body of a request, held either in memory or, above the route's spool threshold, in a
+ * temporary file.
+ *
+ * <p>Closing the body returns its memory to the server's budget and deletes its file. The server
+ * closes every body once the response has been written; a handler that wants to keep a spooled
+ * file must move it first.
+ */
+public final class RequestBody implements Closeable {
+  static final RequestBody EMPTY = new RequestBody(new byte[0], null, null, 0);
+
+  private final byte[] bytes;
+  private final Path file;
+  private final MemoryBudget budget;
+  private final long length;
+  private boolean closed;
+
+  private RequestBody(byte[] bytes, Path file, MemoryBudget budget, long length) {
+    this.bytes = bytes;
+    this.file = file;
+    this.budget = budget;
+    this.length = length;
+  }
+
+  public static RequestBody of(byte[] bytes) {
+    return bytes == null || bytes.length == 0 ? EMPTY : new RequestBody(bytes, null, null, bytes.length);
+  }
+
+  /**
+   * A body whose length has been reserved from {@code budget} and is released on close.
+   */
+  static RequestBody inMemory(byte[] bytes, MemoryBudget budget) {
+    return new RequestBody(bytes, null, budget, bytes.length);
+  }
+
+  static RequestBody spooled(Path file, long length) {
+    return new RequestBody(null, file, null, length);
+  }
+
+  public long getLength() {
+    return length;
+  }
+
+  public boolean isSpooled() {
+    return file != null;
+  }
+
+  /**
+   * The temporary file holding a spooled body, or {@code null} if the body is in memory.
+   */
+  public Path getFile() {
+    return file;
+  }
+
+  /**
+   * Returns the whole body as an array, reading a spooled body into memory outside the server's
+   * budget. Prefer {@link #getInputStream()} or {@link #getChannel()} for large bodies.
+   */
+  public byte[] getBytes() {
+    if (file == null) {
+      return bytes;
+    }
+    if (length > Integer.MAX_VALUE - 8) {
+      throw new IllegalStateException("Body of " + length + " bytes does not fit in an array");
+    }
+    try {
+      return Files.readAllBytes(file);
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
+    }
+  }
+
+  public InputStream getInputStream() throws IOException {
+    return file == null ? new ByteArrayInputStream(bytes) : Files.newInputStream(file);
+  }
+
+  public ReadableByteChannel getChannel() throws IOException {
+    return file == null ? Channels.newChannel(getInputStream()) : FileChannel.open(file, StandardOpenOption.READ);
+  }
+
+  @Override
+  public synchronized void close() throws IOException {
+    if (closed) {
+      return;
+    }
+    closed = true;
+    if (budget != null) {
+      budget.release(length);
+    }
+    if (file != null) {
+      Files.deleteIfExists(file);
+    }
+  }
+}
@@ -0,0 +1,37 @@
+package com.adavie.request;
+
+/**
+ * Receives every completed request, for logging and metrics.
+ *
+ * <p>Called on the thread that wrote the response, after it has been written, so implementations
+ * must be thread-safe and cheap.
+ */
+@FunctionalInterface
+public interface RequestRecorder {
+
+  /**
+   * @param bytes       bytes of the response written to the client
+   * @param bodyNanos   time spent reading the request body
+   * @param handleNanos time spent in the route handler
+   * @param writeNanos  time spent writing the response
+   */
+  void record(Request request, int status, long bytes, long bodyNanos, long handleNanos, long writeNanos);
+
+  /**
+   * Combines two recorders, either of which may be {@code null}.
+   *
+   * @return a recorder calling both, or {@code null} if both are {@code null}
+   */
+  static RequestRecorder both(RequestRecorder first, RequestRecorder second) {
+    if (first == null) {
+      return second;
+    }
+    if (second == null) {
+      return first;
+    }
+    return (request, status, bytes, bodyNanos, handleNanos, writeNanos) -> {
+      first.record(request, status, bytes, bodyNanos, handleNanos, writeNanos);
+      second.record(request, status, bytes, bodyNanos, handleNanos, writeNanos);
+    };
+  }
+}
@@ -0,0 +1,25 @@
+package com.adavie.response;
+
+import com.adavie.server.ServerContext;
+import com.adavie.transport.Transport;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+
+/**
+ * Takes over an HTTP/1.1 connection after a route accepted a protocol upgrade.
+ *
+ * @see Response.Builder#upgrade(ConnectionUpgrade)
+ */
+@FunctionalInterface
+public interface ConnectionUpgrade {
+
+  /**
+   * Writes the {@code 101 Switching Protocols} response and continues serving the connection with
+   * the new protocol. Once this method returns the HTTP/1.1 handler releases its thread and no
+   * longer reads from or closes the transport.
+   *
+   * @param buffered bytes already read past the upgrade request, in read mode
+   */
+  void upgrade(Transport transport, ByteBuffer buffered, ServerContext context) throws IOException;
+}
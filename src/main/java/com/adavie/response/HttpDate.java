@@ -0,0 +1,75 @@
+package com.adavie.response;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
+import java.util.Locale;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Values for the {@code Date} response header.
+ *
+ * <p>The header only has one-second resolution, so instead of formatting a date for every
+ * response a background ticker re-renders the current value, and the encoded header line, once
+ * per second. Responses read the latest rendering with a single volatile load.
+ */
+public final class HttpDate {
+  // IMF-fixdate (RFC 9110 section 5.6.7), unlike RFC_1123_DATE_TIME it always pads the day
+  private static final DateTimeFormatter IMF_FIXDATE =
+      DateTimeFormatter.ofPattern("EEE, dd MMM yyyy HH:mm:ss 'GMT'", Locale.US).withZone(ZoneOffset.UTC);
+
+  private static volatile Rendering current = render(System.currentTimeMillis());
+
+  static {
+    ScheduledExecutorService ticker = Executors.newSingleThreadScheduledExecutor(runnable -> {
+      Thread thread = new Thread(runnable, "http-date-ticker");
+      thread.setDaemon(true);
+      return thread;
+    });
+    long untilNextSecond = 1000 - System.currentTimeMillis() % 1000;
+    ticker.scheduleAtFixedRate(HttpDate::tick, untilNextSecond, 1000, TimeUnit.MILLISECONDS);
+  }
+
+  private HttpDate() {
+  }
+
+  /**
+   * Returns the current date as last rendered by the ticker, at most about a second old.
+   */
+  public static String now() {
+    return current.value;
+  }
+
+  /**
+   * Returns the encoded {@code Date: ...\r\n} header line for the current second. Shared, must not
+   * be modified.
+   */
+  static byte[] headerLine() {
+    return current.headerLine;
+  }
+
+  public static String format(long epochMillis) {
+    return IMF_FIXDATE.format(Instant.ofEpochMilli(epochMillis));
+  }
+
+  private static void tick() {
+    current = render(System.currentTimeMillis());
+  }
+
+  private static Rendering render(long epochMillis) {
+    return new Rendering(format(epochMillis));
+  }
+
+  private static final class Rendering {
+    private final String value;
+    private final byte[] headerLine;
+
+    private Rendering(String value) {
+      this.value = value;
+      this.headerLine = ("Date: " + value + "\r\n").getBytes(StandardCharsets.ISO_8859_1);
+    }
+  }
+}
@@ -0,0 +1,21 @@
+package com.adavie.response;
+
+/**
+ * Thrown while handling a request to end it with a specific status code.
+ */
+public class HttpException extends RuntimeException {
+  private final HttpStatus status;
+
+  public HttpException(HttpStatus status) {
+    this(status, status.getReasonPhrase());
+  }
+
+  public HttpException(HttpStatus status, String message) {
+    super(message);
+    this.status = status;
+  }
+
+  public HttpStatus getStatus() {
+    return status;
+  }
+}
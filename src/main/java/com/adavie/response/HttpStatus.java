@@ -0,0 +1,66 @@
+package com.adavie.response;
+
+import java.nio.charset.StandardCharsets;
+
+public enum HttpStatus {
+  CONTINUE(100, "Continue"),
+  SWITCHING_PROTOCOLS(101, "Switching Protocols"),
+  OK(200, "OK"),
+  CREATED(201, "Created"),
+  ACCEPTED(202, "Accepted"),
+  NO_CONTENT(204, "No Content"),
+  MOVED_PERMANENTLY(301, "Moved Permanently"),
+  FOUND(302, "Found"),
+  NOT_MODIFIED(304, "Not Modified"),
+  BAD_REQUEST(400, "Bad Request"),
+  UNAUTHORIZED(401, "Unauthorized"),
+  FORBIDDEN(403, "Forbidden"),
+  NOT_FOUND(404, "Not Found"),
+  METHOD_NOT_ALLOWED(405, "Method Not Allowed"),
+  REQUEST_TIMEOUT(408, "Request Timeout"),
+  CONFLICT(409, "Conflict"),
+  LENGTH_REQUIRED(411, "Length Required"),
+  PAYLOAD_TOO_LARGE(413, "Payload Too Large"),
+  URI_TOO_LONG(414, "URI Too Long"),
+  UNSUPPORTED_MEDIA_TYPE(415, "Unsupported Media Type"),
+  UPGRADE_REQUIRED(426, "Upgrade Required"),
+  TOO_MANY_REQUESTS(429, "Too Many Requests"),
+  REQUEST_HEADER_FIELDS_TOO_LARGE(431, "Request Header Fields Too Large"),
+  INTERNAL_SERVER_ERROR(500, "Internal Server Error"),
+  NOT_IMPLEMENTED(501, "Not Implemented"),
+  SERVICE_UNAVAILABLE(503, "Service Unavailable"),
+  GATEWAY_TIMEOUT(504, "Gateway Timeout"),
+  HTTP_VERSION_NOT_SUPPORTED(505, "HTTP Version Not Supported");
+
+  private final int code;
+  private final String reasonPhrase;
+  private final byte[] statusLine;
+
+  HttpStatus(int code, String reasonPhrase) {
+    this.code = code;
+    this.reasonPhrase = reasonPhrase;
+    this.statusLine = ("HTTP/1.1 " + code + " " + reasonPhrase + "\r\n").getBytes(StandardCharsets.ISO_8859_1);
+  }
+
+  public int getCode() {
+    return code;
+  }
+
+  public String getReasonPhrase() {
+    return reasonPhrase;
+  }
+
+  /**
+   * The pre-encoded HTTP/1.1 status line including its CRLF. Shared, must not be modified.
+   */
+  byte[] getStatusLine() {
+    return statusLine;
+  }
+
+  /**
+   * Whether a response with this status never carries a body.
+   */
+  public boolean isBodyless() {
+    return code < 200 || code == 204 || code == 304;
+  }
+}
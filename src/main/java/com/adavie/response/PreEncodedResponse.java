@@ -0,0 +1,85 @@
+package com.adavie.response;
+
+import com.adavie.transport.Transport;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * A fixed HTTP/1.1 response encoded once and written many times, for responses sent on hot
+ * rejection paths where even assembling a head is too much work.
+ *
+ * <p>Only the {@code Date} line changes between writes; it is taken from {@link HttpDate}'s
+ * cached rendering and sent with the encoded parts and the body, which is not copied, in one
+ * gathering write.
+ */
+public final class PreEncodedResponse {
+  private final Response response;
+  private final byte[] head;
+  private final byte[] framing;
+  private final byte[] body;
+
+  /**
+   * @param close whether the response tells the client that the connection will be closed
+   */
+  public PreEncodedResponse(Response response, boolean close) {
+    if (response.getUpgrade() != null) {
+      throw new IllegalArgumentException("Upgrade responses cannot be pre-encoded");
+    }
+    this.response = response;
+
+    HttpStatus status = response.getStatus();
+    StringBuilder head = new StringBuilder()
+        .append("HTTP/1.1 ").append(status.getCode()).append(' ').append(status.getReasonPhrase()).append("\r\n");
+    for (Map.Entry<String, List<String>> header : response.getHeaders().entrySet()) {
+      String name = header.getKey();
+      if (name.equalsIgnoreCase("Content-Length") || name.equalsIgnoreCase("Connection")
+          || name.equalsIgnoreCase("Date")) {
+        continue;
+      }
+      for (String value : header.getValue()) {
+        head.append(name).append(": ").append(value).append("\r\n");
+      }
+    }
+    this.head = head.toString().getBytes(StandardCharsets.ISO_8859_1);
+
+    StringBuilder tail = new StringBuilder();
+    if (!status.isBodyless()) {
+      tail.append("Content-Length: ").append(response.getBody().length).append("\r\n");
+    }
+    if (close) {
+      tail.append("Connection: close\r\n");
+    }
+    tail.append("\r\n");
+    this.framing = tail.toString().getBytes(StandardCharsets.ISO_8859_1);
+    this.body = status.isBodyless() ? new byte[0] : response.getBody();
+  }
+
+  /**
+   * The response this was encoded from, for protocols that frame responses differently.
+   */
+  public Response getResponse() {
+    return response;
+  }
+
+  public void write(Transport transport) throws IOException {
+    ResponseWriter.writeFully(transport, encode());
+  }
+
+  /**
+   * Returns the response as buffers for one gathering write, for callers that write to a
+   * non-blocking transport and must resume partial writes.
+   */
+  public ByteBuffer[] encode() {
+    ByteBuffer head = ByteBuffer.wrap(this.head).asReadOnlyBuffer();
+    ByteBuffer date = ByteBuffer.wrap(HttpDate.headerLine()).asReadOnlyBuffer();
+    ByteBuffer framing = ByteBuffer.wrap(this.framing).asReadOnlyBuffer();
+    if (body.length == 0) {
+      return new ByteBuffer[]{head, date, framing};
+    }
+    return new ByteBuffer[]{head, date, framing, ByteBuffer.wrap(body).asReadOnlyBuffer()};
+  }
+}
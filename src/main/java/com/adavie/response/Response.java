@@ -0,0 +1,111 @@
+package com.adavie.response;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+public final class Response {
+  private static final byte[] EMPTY_BODY = new byte[0];
+
+  private final HttpStatus status;
+  private final Map<String, List<String>> headers;
+  private final byte[] body;
+  private final ConnectionUpgrade upgrade;
+
+  private Response(Builder builder) {
+    this.status = builder.status;
+    this.headers = Collections.unmodifiableMap(builder.headers);
+    this.body = builder.body;
+    this.upgrade = builder.upgrade;
+  }
+
+  public static Response ok(String body) {
+    return new Builder().body(body).build();
+  }
+
+  public static Response of(HttpStatus status) {
+    return new Builder().status(status).build();
+  }
+
+  public HttpStatus getStatus() {
+    return status;
+  }
+
+  /**
+   * Response headers keyed case-insensitively by name.
+   */
+  public Map<String, List<String>> getHeaders() {
+    return headers;
+  }
+
+  public String getHeader(String name) {
+    List<String> values = headers.get(name);
+    return values == null ? null : values.get(0);
+  }
+
+  public byte[] getBody() {
+    return body;
+  }
+
+  public ConnectionUpgrade getUpgrade() {
+    return upgrade;
+  }
+
+  public static class Builder {
+    private HttpStatus status = HttpStatus.OK;
+    private final Map<String, List<String>> headers = new TreeMap<>(String.CASE_INSENSITIVE_ORDER);
+    private byte[] body = EMPTY_BODY;
+    private ConnectionUpgrade upgrade;
+
+    public Builder status(HttpStatus status) {
+      if (status == null) {
+        throw new IllegalArgumentException("Status cannot be null");
+      }
+      this.status = status;
+      return this;
+    }
+
+    /**
+     * Adds a header value, keeping any values already set for the same name.
+     */
+    public Builder header(String name, String value) {
+      if (name == null || name.trim().isEmpty()) {
+        throw new IllegalArgumentException("Header name cannot be null or empty");
+      }
+      if (value == null) {
+        throw new IllegalArgumentException("Header value cannot be null");
+      }
+      if (name.indexOf('\r') >= 0 || name.indexOf('\n') >= 0
+          || value.indexOf('\r') >= 0 || value.indexOf('\n') >= 0) {
+        throw new IllegalArgumentException("Header cannot contain line breaks");
+      }
+      headers.computeIfAbsent(name.trim(), k -> new ArrayList<>(1)).add(value);
+      return this;
+    }
+
+    public Builder body(byte[] body) {
+      this.body = body == null ? EMPTY_BODY : body;
+      return this;
+    }
+
+    public Builder body(String body) {
+      return body(body == null ? null : body.getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Hands the connection to {@code upgrade} instead of writing this response, which is only
+     * honoured for HTTP/1.1 requests.
+     */
+    public Builder upgrade(ConnectionUpgrade upgrade) {
+      this.upgrade = upgrade;
+      return this;
+    }
+
+    public Response build() {
+      return new Response(this);
+    }
+  }
+}
@@ -0,0 +1,44 @@
+package com.adavie.response;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Scratch space a connection reuses to encode its responses: the head array and the buffers
+ * handed to the transport. Buffers returned by one {@link ResponseWriter#encode} call are only
+ * valid until the next call.
+ */
+public final class ResponseBuffers {
+  private static final int INITIAL_HEAD_SIZE = 256;
+
+  private byte[] head = new byte[INITIAL_HEAD_SIZE];
+  private ByteBuffer headBuffer = ByteBuffer.wrap(head);
+  private byte[] body;
+  private ByteBuffer bodyBuffer;
+  private final ByteBuffer[] headOnly = new ByteBuffer[1];
+  private final ByteBuffer[] headAndBody = new ByteBuffer[2];
+
+  byte[] head(int size) {
+    if (head.length < size) {
+      head = new byte[Math.max(size, head.length * 2)];
+      headBuffer = ByteBuffer.wrap(head);
+    }
+    return head;
+  }
+
+  ByteBuffer[] buffers(int headSize, byte[] body) {
+    headBuffer.clear().limit(headSize);
+    if (body.length == 0) {
+      headOnly[0] = headBuffer;
+      return headOnly;
+    }
+    // handlers often return the same pre-built response, whose body can keep its buffer
+    if (body != this.body) {
+      this.body = body;
+      this.bodyBuffer = ByteBuffer.wrap(body);
+    }
+    bodyBuffer.clear();
+    headAndBody[0] = headBuffer;
+    headAndBody[1] = bodyBuffer;
+    return headAndBody;
+  }
+}
@@ -0,0 +1,202 @@
+package com.adavie.response;
+
+import com.adavie.transport.Transport;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Serialises a {@link Response} as an HTTP/1.1 message.
+ *
+ * <p>The head is assembled from pre-encoded pieces (the status line, the cached {@code Date}
+ * line and the fixed framing headers) into a byte array sized up front, so writing a response
+ * formats nothing but the user's headers and the content length. The body is never copied into
+ * the head: both are handed to the transport as separate buffers of one gathering write.
+ */
+public class ResponseWriter {
+  private static final byte[] EMPTY = new byte[0];
+  private static final byte[] CRLF = ascii("\r\n");
+  private static final byte[] HEADER_SEPARATOR = ascii(": ");
+  private static final byte[] CONTENT_LENGTH = ascii("Content-Length: ");
+  private static final byte[] CONNECTION_CLOSE = ascii("Connection: close\r\n");
+  private static final byte[] CONNECTION_UPGRADE = ascii("Connection: Upgrade\r\n");
+  private static final byte[] CONTINUE = ascii("HTTP/1.1 100 Continue\r\n\r\n");
+
+  /**
+   * Writes the response head and body.
+   *
+   * @return the number of bytes written
+   */
+  public static long write(Transport transport, Response response, boolean keepAlive, boolean headRequest)
+      throws IOException {
+    return write(transport, response, keepAlive, headRequest, null);
+  }
+
+  /**
+   * Writes the response head and body, encoding them into a connection's reusable buffers.
+   *
+   * @param scratch the connection's buffers, or {@code null} to allocate new ones
+   * @return the number of bytes written
+   */
+  public static long write(Transport transport, Response response, boolean keepAlive, boolean headRequest,
+                           ResponseBuffers scratch) throws IOException {
+    return writeFully(transport, encode(response, keepAlive, headRequest, scratch));
+  }
+
+  /**
+   * Writes the buffers to a blocking transport with gathering writes, so a head and body go out
+   * in one system call without being copied together. Writes that take only part of the bytes
+   * are resumed from the first buffer with bytes left.
+   *
+   * @return the number of bytes written
+   */
+  public static long writeFully(Transport transport, ByteBuffer[] buffers) throws IOException {
+    long size = 0;
+    for (ByteBuffer buffer : buffers) {
+      size += buffer.remaining();
+    }
+    int offset = 0;
+    while (offset < buffers.length) {
+      if (!buffers[offset].hasRemaining()) {
+        offset++;
+        continue;
+      }
+      transport.write(buffers, offset, buffers.length - offset);
+    }
+    return size;
+  }
+
+  /**
+   * Encodes the response head and body without writing them, for callers that write to a
+   * non-blocking transport and must resume partial writes.
+   *
+   * @return the head, followed by the body if there is one
+   */
+  public static ByteBuffer[] encode(Response response, boolean keepAlive, boolean headRequest) {
+    return encode(response, keepAlive, headRequest, null);
+  }
+
+  /**
+   * Encodes the response head and body into a connection's reusable buffers.
+   *
+   * @param scratch the connection's buffers, or {@code null} to allocate new ones
+   */
+  public static ByteBuffer[] encode(Response response, boolean keepAlive, boolean headRequest,
+                                    ResponseBuffers scratch) {
+    HttpStatus status = response.getStatus();
+    byte[] body = status.isBodyless() || headRequest ? EMPTY : response.getBody();
+
+    byte[] statusLine = status.getStatusLine();
+    byte[] dateLine = response.getHeader("Date") == null ? HttpDate.headerLine() : null;
+    int contentLength = status.isBodyless() ? -1 : response.getBody().length;
+    byte[] connection = status == HttpStatus.SWITCHING_PROTOCOLS ? CONNECTION_UPGRADE
+        : keepAlive ? null : CONNECTION_CLOSE;
+
+    int size = statusLine.length + CRLF.length;
+    for (Map.Entry<String, List<String>> header : response.getHeaders().entrySet()) {
+      if (isFramingHeader(header.getKey())) {
+        continue;
+      }
+      for (String value : header.getValue()) {
+        size += header.getKey().length() + HEADER_SEPARATOR.length + value.length() + CRLF.length;
+      }
+    }
+    if (dateLine != null) {
+      size += dateLine.length;
+    }
+    if (contentLength >= 0) {
+      size += CONTENT_LENGTH.length + digits(contentLength) + CRLF.length;
+    }
+    if (connection != null) {
+      size += connection.length;
+    }
+
+    byte[] head = scratch == null ? new byte[size] : scratch.head(size);
+    int position = put(head, 0, statusLine);
+    for (Map.Entry<String, List<String>> header : response.getHeaders().entrySet()) {
+      if (isFramingHeader(header.getKey())) {
+        continue;
+      }
+      for (String value : header.getValue()) {
+        position = put(head, position, header.getKey());
+        position = put(head, position, HEADER_SEPARATOR);
+        position = put(head, position, value);
+        position = put(head, position, CRLF);
+      }
+    }
+    if (dateLine != null) {
+      position = put(head, position, dateLine);
+    }
+    if (contentLength >= 0) {
+      position = put(head, position, CONTENT_LENGTH);
+      position = putDigits(head, position, contentLength);
+      position = put(head, position, CRLF);
+    }
+    if (connection != null) {
+      position = put(head, position, connection);
+    }
+    put(head, position, CRLF);
+
+    if (scratch != null) {
+      return scratch.buffers(size, body);
+    }
+    ByteBuffer headBuffer = ByteBuffer.wrap(head);
+    if (body.length == 0) {
+      return new ByteBuffer[]{headBuffer};
+    }
+    return new ByteBuffer[]{headBuffer, ByteBuffer.wrap(body)};
+  }
+
+  /**
+   * Writes the interim response telling a client waiting on {@code Expect: 100-continue} to send
+   * its body.
+   */
+  public static void writeContinue(Transport transport) throws IOException {
+    transport.write(ByteBuffer.wrap(CONTINUE).asReadOnlyBuffer());
+  }
+
+  /**
+   * Headers the writer sets itself from the status and connection state.
+   */
+  private static boolean isFramingHeader(String name) {
+    return name.equalsIgnoreCase("Content-Length") || name.equalsIgnoreCase("Connection");
+  }
+
+  private static int put(byte[] target, int position, byte[] bytes) {
+    System.arraycopy(bytes, 0, target, position, bytes.length);
+    return position + bytes.length;
+  }
+
+  private static int put(byte[] target, int position, String text) {
+    for (int i = 0; i < text.length(); i++) {
+      char c = text.charAt(i);
+      target[position++] = c <= 0xFF ? (byte) c : (byte) '?';
+    }
+    return position;
+  }
+
+  private static int digits(int value) {
+    int digits = 1;
+    while (value >= 10) {
+      value /= 10;
+      digits++;
+    }
+    return digits;
+  }
+
+  private static int putDigits(byte[] target, int position, int value) {
+    int end = position + digits(value);
+    for (int i = end - 1; i >= position; i--) {
+      target[i] = (byte) ('0' + value % 10);
+      value /= 10;
+    }
+    return end;
+  }
+
+  private static byte[] ascii(String text) {
+    return text.getBytes(StandardCharsets.US_ASCII);
+  }
+}
@@ -0,0 +1,29 @@
+package com.adavie.route;
+
+import com.adavie.request.Request;
+import com.adavie.response.Response;
+
+import java.util.concurrent.CompletionStage;
+
+/**
+ * Application code invoked for requests matching a registered route, which answers with a
+ * future rather than blocking until the response is ready.
+ *
+ * <p>The worker thread is released as soon as the handler returns, and the response is written
+ * once the future completes. This suits handlers that wait on other services: the wait no longer
+ * holds a worker. The handler should return its future promptly; work done before returning still
+ * runs on the worker.
+ */
+@FunctionalInterface
+public interface AsyncRouteHandler {
+
+  /**
+   * Starts handling a request. Complete the future exceptionally with a
+   * {@link com.adavie.response.HttpException} to end the request with a specific status; any
+   * other failure results in a {@code 500}. Returning {@code null} or completing with
+   * {@code null} sends a {@code 204 No Content}.
+   *
+   * <p>The request and its body remain valid until the future completes.
+   */
+  CompletionStage<Response> handle(Request request) throws Exception;
+}
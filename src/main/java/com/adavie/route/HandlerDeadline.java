@@ -0,0 +1,83 @@
+package com.adavie.route;
+
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Interrupts the thread running a handler if it is still running when its request's deadline
+ * passes.
+ *
+ * <p>The timer and the handler thread race through a small state machine so that an interrupt is
+ * never delivered after the handler has finished: either the handler disarms the deadline first,
+ * or it waits for the interrupt to land and then clears it, leaving the worker thread clean for
+ * its next task.
+ */
+final class HandlerDeadline implements Runnable {
+  private static final int RUNNING = 0;
+  private static final int INTERRUPTING = 1;
+  private static final int INTERRUPTED = 2;
+  private static final int DONE = 3;
+
+  private static final ScheduledThreadPoolExecutor TIMER = new ScheduledThreadPoolExecutor(1, runnable -> {
+    Thread thread = new Thread(runnable, "route-deadline-timer");
+    thread.setDaemon(true);
+    return thread;
+  });
+
+  static {
+    // most deadlines are disarmed long before they fire, keep the queue from filling with them
+    TIMER.setRemoveOnCancelPolicy(true);
+  }
+
+  private final Thread thread;
+  private final AtomicInteger state = new AtomicInteger(RUNNING);
+  private ScheduledFuture<?> timeout;
+
+  private HandlerDeadline(Thread thread) {
+    this.thread = thread;
+  }
+
+  /**
+   * Arms a deadline for the calling thread that fires after {@code nanos}.
+   */
+  static HandlerDeadline arm(long nanos) {
+    HandlerDeadline deadline = new HandlerDeadline(Thread.currentThread());
+    deadline.timeout = TIMER.schedule(deadline, nanos, TimeUnit.NANOSECONDS);
+    return deadline;
+  }
+
+  /**
+   * Runs {@code task} on the deadline timer after {@code nanos}, for deadlines of handlers that do
+   * not hold a thread while they wait.
+   */
+  static ScheduledFuture<?> schedule(Runnable task, long nanos) {
+    return TIMER.schedule(task, nanos, TimeUnit.NANOSECONDS);
+  }
+
+  @Override
+  public void run() {
+    if (state.compareAndSet(RUNNING, INTERRUPTING)) {
+      thread.interrupt();
+      state.set(INTERRUPTED);
+    }
+  }
+
+  /**
+   * Disarms the deadline from the handler thread.
+   *
+   * @return {@code true} if the deadline fired; the thread's interrupt status is cleared
+   */
+  boolean disarm() {
+    if (state.compareAndSet(RUNNING, DONE)) {
+      timeout.cancel(false);
+      return false;
+    }
+    while (state.get() != INTERRUPTED) {
+      Thread.yield();
+    }
+    Thread.interrupted();
+    return true;
+  }
+}
@@ -0,0 +1,132 @@
+package com.adavie.route;
+
+import com.adavie.config.BodyConfig;
+import com.adavie.ratelimit.RateLimiter;
+import com.adavie.request.HttpMethod;
+
+import java.util.concurrent.TimeUnit;
+
+public final class Route {
+  /** Timeout of routes with an {@link AsyncRouteHandler} unless they set their own. */
+  public static final long DEFAULT_ASYNC_TIMEOUT_SECONDS = 30;
+
+  private final HttpMethod method;
+  private final String path;
+  private final RouteHandler handler;
+  private final AsyncRouteHandler asyncHandler;
+  private volatile long spoolThreshold = -1;
+  private volatile RateLimiter rateLimiter;
+  private volatile long timeoutNanos;
+  private volatile boolean nonBlocking;
+
+  Route(HttpMethod method, String path, RouteHandler handler) {
+    this.method = method;
+    this.path = path;
+    this.handler = handler;
+    this.asyncHandler = null;
+  }
+
+  Route(HttpMethod method, String path, AsyncRouteHandler asyncHandler) {
+    this.method = method;
+    this.path = path;
+    this.asyncHandler = asyncHandler;
+    // for protocols that serve each request on a thread of its own, such as HTTP/2 streams
+    this.handler = request -> Router.await(asyncHandler.handle(request));
+    // a future that never completes would otherwise hold its connection open forever
+    this.timeoutNanos = TimeUnit.SECONDS.toNanos(DEFAULT_ASYNC_TIMEOUT_SECONDS);
+  }
+
+  public HttpMethod getMethod() {
+    return method;
+  }
+
+  public String getPath() {
+    return path;
+  }
+
+  /**
+   * The route's handler. For an async route this is a handler that waits for the future.
+   */
+  public RouteHandler getHandler() {
+    return handler;
+  }
+
+  /**
+   * The route's async handler, or {@code null} if its handler is synchronous.
+   */
+  public AsyncRouteHandler getAsyncHandler() {
+    return asyncHandler;
+  }
+
+  public boolean isAsync() {
+    return asyncHandler != null;
+  }
+
+  /**
+   * Request bodies larger than this many bytes are written to a temporary file, overriding
+   * {@link com.adavie.config.BodyConfig#getSpoolThreshold()} for this route.
+   */
+  public Route spoolThreshold(long spoolThreshold) {
+    if (spoolThreshold < 0 || spoolThreshold > BodyConfig.MAX_SPOOL_THRESHOLD) {
+      throw new IllegalArgumentException("Spool threshold must be between 0 and " + BodyConfig.MAX_SPOOL_THRESHOLD);
+    }
+    this.spoolThreshold = spoolThreshold;
+    return this;
+  }
+
+  /**
+   * The route's spool threshold, or {@code -1} if it uses the server default.
+   */
+  public long getSpoolThreshold() {
+    return spoolThreshold;
+  }
+
+  /**
+   * Limits the rate of requests to this route. Over-limit requests are answered with {@code 429}
+   * before their body is read or a handler runs. A limiter may be shared by several routes.
+   */
+  public Route rateLimit(RateLimiter rateLimiter) {
+    this.rateLimiter = rateLimiter;
+    return this;
+  }
+
+  public RateLimiter getRateLimiter() {
+    return rateLimiter;
+  }
+
+  /**
+   * Gives requests to this route a deadline, counted from when their head has been read. A
+   * handler still running at the deadline is interrupted and the client receives {@code 504}.
+   * For an async route the future is cancelled instead; such routes default to
+   * {@link #DEFAULT_ASYNC_TIMEOUT_SECONDS}.
+   */
+  public Route timeout(long timeout, TimeUnit unit) {
+    if (timeout < 1) {
+      throw new IllegalArgumentException("Timeout must be at least 1");
+    }
+    this.timeoutNanos = unit.toNanos(timeout);
+    return this;
+  }
+
+  /**
+   * The route's timeout in nanoseconds, or {@code 0} if it has none.
+   */
+  public long getTimeoutNanos() {
+    return timeoutNanos;
+  }
+
+  /**
+   * Declares that the handler never blocks, for example because it only computes or reads a
+   * cache. When the server has I/O threads (see {@link com.adavie.config.ServerConfig#getIoThreads()})
+   * such requests are handled on the thread that read them, without a handoff to a worker.
+   * Requests with a chunked or large body, and routes with a {@link #timeout}, still go to a worker.
+   */
+  public Route nonBlocking() {
+    this.nonBlocking = true;
+    return this;
+  }
+
+  public boolean isNonBlocking() {
+    return nonBlocking;
+  }
+}
@@ -0,0 +1,18 @@
+package com.adavie.route;
+
+import com.adavie.request.Request;
+import com.adavie.response.Response;
+
+/**
+ * Application code invoked for requests matching a registered route.
+ */
+@FunctionalInterface
+public interface RouteHandler {
+
+  /**
+   * Handles a request. Throw {@link com.adavie.response.HttpException} to end the request with a
+   * specific status; any other exception results in a {@code 500}. Returning {@code null} sends a
+   * {@code 204 No Content}.
+   */
+  Response handle(Request request) throws Exception;
+}
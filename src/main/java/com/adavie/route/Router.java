@@ -0,0 +1,280 @@
+package com.adavie.route;
+
+import com.adavie.log.RateLimitedLogger;
+import com.adavie.ratelimit.RateLimiter;
+import com.adavie.request.HttpMethod;
+import com.adavie.request.Request;
+import com.adavie.response.HttpException;
+import com.adavie.response.HttpStatus;
+import com.adavie.response.Response;
+
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import java.util.stream.Collectors;
+
+/**
+ * Route table shared by every connection of a server. Paths are matched exactly.
+ */
+public class Router {
+  private static final Logger LOGGER = Logger.getLogger(Router.class.getName());
+  private static final RateLimitedLogger HANDLER_FAILURES = new RateLimitedLogger(LOGGER, "Route handler failures");
+  private static final RateLimitedLogger DEADLINE_MISSES = new RateLimitedLogger(LOGGER, "Route deadline misses");
+
+  private final Map<String, Map<HttpMethod, Route>> routes = new ConcurrentHashMap<>();
+
+  public Route addRoute(HttpMethod method, String path, RouteHandler handler) {
+    validate(method, path, handler);
+    return register(new Route(method, path, handler));
+  }
+
+  /**
+   * Registers a route whose handler answers with a future, see {@link AsyncRouteHandler}.
+   */
+  public Route addAsyncRoute(HttpMethod method, String path, AsyncRouteHandler handler) {
+    validate(method, path, handler);
+    return register(new Route(method, path, handler));
+  }
+
+  private static void validate(HttpMethod method, String path, Object handler) {
+    if (method == null) {
+      throw new IllegalArgumentException("Method cannot be null");
+    }
+    if (path == null || !path.startsWith("/")) {
+      throw new IllegalArgumentException("Path must start with '/'");
+    }
+    if (handler == null) {
+      throw new IllegalArgumentException("Handler cannot be null");
+    }
+  }
+
+  private Route register(Route route) {
+    String path = route.getPath();
+    HttpMethod method = route.getMethod();
+    Route existing = routes.computeIfAbsent(path, k -> new ConcurrentHashMap<>()).putIfAbsent(method, route);
+    if (existing != null) {
+      throw new IllegalArgumentException("Route already registered: " + method + " " + path);
+    }
+    return route;
+  }
+
+  /**
+   * Returns the route for a method and path, falling back to the {@code GET} route for
+   * {@code HEAD} requests, or {@code null} if none matches.
+   */
+  public Route findRoute(HttpMethod method, String path) {
+    Map<HttpMethod, Route> byMethod = routes.get(path);
+    if (byMethod == null) {
+      return null;
+    }
+    Route route = byMethod.get(method);
+    if (route == null && method == HttpMethod.HEAD) {
+      route = byMethod.get(HttpMethod.GET);
+    }
+    return route;
+  }
+
+  /**
+   * Returns the route matching a request like {@link #findRoute}, looking it up on the first call
+   * only and keeping it on the request for the rest of its exchange.
+   */
+  public Route resolve(Request request) {
+    if (!request.isRouteResolved()) {
+      request.setRoute(findRoute(request.getMethod(), request.getPath()));
+    }
+    return request.getRoute();
+  }
+
+  /**
+   * Takes a token from the rate limiter of the route matching the request, if it has one.
+   *
+   * @return {@code false} if the request is over its limit
+   */
+  public boolean tryAcquire(Request request) {
+    Route route = resolve(request);
+    RateLimiter rateLimiter = route == null ? null : route.getRateLimiter();
+    return rateLimiter == null || rateLimiter.tryAcquire(request);
+  }
+
+  /**
+   * Routes a request to its handler and returns the handler's response, or an error response if
+   * no route matches or the handler fails.
+   */
+  public Response dispatch(Request request) {
+    Route route = resolve(request);
+    if (route == null) {
+      return noRouteResponse(request);
+    }
+    return invoke(route, request);
+  }
+
+  Response invoke(Route route, Request request) {
+    HandlerDeadline deadline = null;
+    if (request.hasDeadline()) {
+      long remaining = request.getRemainingNanos();
+      if (remaining <= 0) {
+        return timedOut(route);
+      }
+      deadline = HandlerDeadline.arm(remaining);
+    }
+
+    Response response = null;
+    Exception failure = null;
+    boolean timedOut;
+    try {
+      response = route.getHandler().handle(request);
+    } catch (Exception e) {
+      failure = e;
+    } finally {
+      timedOut = deadline != null && deadline.disarm();
+    }
+
+    if (timedOut) {
+      return timedOut(route);
+    }
+    return toResponse(route, response, failure);
+  }
+
+  /**
+   * Routes a request like {@link #dispatch}, but without waiting for an async route's future.
+   * The returned future completes with the response, or with an error response if the handler
+   * fails or the route's deadline passes first; it never completes exceptionally.
+   */
+  public CompletableFuture<Response> dispatchAsync(Request request) {
+    Route route = resolve(request);
+    if (route == null) {
+      return CompletableFuture.completedFuture(noRouteResponse(request));
+    }
+    if (!route.isAsync()) {
+      return CompletableFuture.completedFuture(invoke(route, request));
+    }
+    return invokeAsync(route, request);
+  }
+
+  /**
+   * Whether the route matching a request has an async handler.
+   */
+  public boolean isAsync(Request request) {
+    Route route = resolve(request);
+    return route != null && route.isAsync();
+  }
+
+  private CompletableFuture<Response> invokeAsync(Route route, Request request) {
+    long remaining = 0;
+    if (request.hasDeadline()) {
+      remaining = request.getRemainingNanos();
+      if (remaining <= 0) {
+        return CompletableFuture.completedFuture(timedOut(route));
+      }
+    }
+
+    CompletionStage<Response> stage;
+    try {
+      stage = route.getAsyncHandler().handle(request);
+    } catch (Exception e) {
+      return CompletableFuture.completedFuture(toResponse(route, null, e));
+    }
+    if (stage == null) {
+      return CompletableFuture.completedFuture(Response.of(HttpStatus.NO_CONTENT));
+    }
+
+    CompletableFuture<Response> result = new CompletableFuture<>();
+    ScheduledFuture<?> timeout = remaining > 0 ? HandlerDeadline.schedule(() -> {
+      if (result.complete(timedOut(route)) && stage instanceof Future) {
+        ((Future<?>) stage).cancel(true);
+      }
+    }, remaining) : null;
+    stage.whenComplete((response, failure) -> {
+      if (timeout != null) {
+        timeout.cancel(false);
+      }
+      if (!result.isDone()) {
+        result.complete(toResponse(route, response, unwrap(failure)));
+      }
+    });
+    return result;
+  }
+
+  /**
+   * Waits for an async handler's future, for callers that serve each request on a thread of its
+   * own. An interrupt, such as the route's deadline passing, cancels the future.
+   */
+  static Response await(CompletionStage<Response> stage) throws Exception {
+    if (stage == null) {
+      return null;
+    }
+    CompletableFuture<Response> future = stage instanceof CompletableFuture
+        ? (CompletableFuture<Response>) stage
+        : stage.toCompletableFuture();
+    try {
+      return future.get();
+    } catch (InterruptedException e) {
+      future.cancel(true);
+      throw e;
+    } catch (ExecutionException e) {
+      Throwable cause = unwrap(e);
+      throw cause instanceof Exception ? (Exception) cause : e;
+    }
+  }
+
+  private static Throwable unwrap(Throwable failure) {
+    while ((failure instanceof CompletionException || failure instanceof ExecutionException)
+        && failure.getCause() != null) {
+      failure = failure.getCause();
+    }
+    return failure;
+  }
+
+  private static Response toResponse(Route route, Response response, Throwable failure) {
+    if (failure instanceof HttpException) {
+      return errorResponse((HttpException) failure);
+    }
+    if (failure != null) {
+      HANDLER_FAILURES.log(Level.SEVERE, failure,
+          () -> "Unhandled exception in route " + route.getMethod() + " " + route.getPath());
+      return Response.of(HttpStatus.INTERNAL_SERVER_ERROR);
+    }
+    return response == null ? Response.of(HttpStatus.NO_CONTENT) : response;
+  }
+
+  /**
+   * Starts the request's deadline if the route it matches has a timeout.
+   */
+  public void startDeadline(Request request) {
+    Route route = resolve(request);
+    if (route != null && route.getTimeoutNanos() > 0) {
+      request.setDeadline(route.getTimeoutNanos(), TimeUnit.NANOSECONDS);
+    }
+  }
+
+  private static Response timedOut(Route route) {
+    DEADLINE_MISSES.log(Level.WARNING,
+        () -> "Route " + route.getMethod() + " " + route.getPath() + " exceeded its deadline");
+    return Response.of(HttpStatus.GATEWAY_TIMEOUT);
+  }
+
+  private Response noRouteResponse(Request request) {
+    Map<HttpMethod, Route> byMethod = routes.get(request.getPath());
+    if (byMethod == null || byMethod.isEmpty()) {
+      return Response.of(HttpStatus.NOT_FOUND);
+    }
+    String allow = byMethod.keySet().stream().map(Enum::name).sorted().collect(Collectors.joining(", "));
+    return new Response.Builder().status(HttpStatus.METHOD_NOT_ALLOWED).header("Allow", allow).build();
+  }
+
+  public static Response errorResponse(HttpException e) {
+    return new Response.Builder()
+        .status(e.getStatus())
+        .header("Content-Type", "text/plain; charset=utf-8")
+        .body(e.getMessage())
+        .build();
+  }
+}
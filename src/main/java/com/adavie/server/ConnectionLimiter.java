@@ -0,0 +1,81 @@
+package com.adavie.server;
+
+import java.net.InetAddress;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Caps concurrent connections in total and per client address, checked by the accept loop
+ * before any work is scheduled for a new socket.
+ *
+ * <p>Per-address counts live in a fixed array of atomic counters indexed by the address hash, so
+ * admission is two atomic increments and needs no map or allocation. Addresses that share a
+ * stripe share its count, which can only make the limit stricter, never looser.
+ */
+public final class ConnectionLimiter {
+  private static final int STRIPES = 8192;
+
+  private final int maxConnections;
+  private final int maxConnectionsPerAddress;
+  private final AtomicInteger open = new AtomicInteger();
+  private final AtomicIntegerArray perAddress;
+  private final LongAdder rejected = new LongAdder();
+
+  /**
+   * @param maxConnections           total limit, or {@code 0} for none
+   * @param maxConnectionsPerAddress limit per client address, or {@code 0} for none
+   */
+  public ConnectionLimiter(int maxConnections, int maxConnectionsPerAddress) {
+    if (maxConnections < 0 || maxConnectionsPerAddress < 0) {
+      throw new IllegalArgumentException("Connection limits cannot be negative");
+    }
+    this.maxConnections = maxConnections;
+    this.maxConnectionsPerAddress = maxConnectionsPerAddress;
+    this.perAddress = maxConnectionsPerAddress > 0 ? new AtomicIntegerArray(STRIPES) : null;
+  }
+
+  /**
+   * Admits a connection from {@code address}; every successful call must be paired with a
+   * {@link #release} once the connection closes.
+   *
+   * @return {@code false} if a limit has been reached
+   */
+  public boolean tryAcquire(InetAddress address) {
+    if (open.incrementAndGet() > maxConnections && maxConnections > 0) {
+      open.decrementAndGet();
+      rejected.increment();
+      return false;
+    }
+    if (perAddress != null && address != null) {
+      int stripe = stripe(address);
+      if (perAddress.incrementAndGet(stripe) > maxConnectionsPerAddress) {
+        perAddress.decrementAndGet(stripe);
+        open.decrementAndGet();
+        rejected.increment();
+        return false;
+      }
+    }
+    return true;
+  }
+
+  public void release(InetAddress address) {
+    if (perAddress != null && address != null) {
+      perAddress.decrementAndGet(stripe(address));
+    }
+    open.decrementAndGet();
+  }
+
+  public int getOpenConnections() {
+    return open.get();
+  }
+
+  public long getRejectedConnections() {
+    return rejected.sum();
+  }
+
+  private static int stripe(InetAddress address) {
+    int hash = address.hashCode() * 0x9E3779B9;
+    return (hash ^ (hash >>> 16)) & (STRIPES - 1);
+  }
+}
@@ -0,0 +1,195 @@
+package com.adavie.server;
+
+import java.io.IOException;
+import java.nio.channels.ClosedSelectorException;
+import java.nio.channels.SelectableChannel;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.util.Iterator;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * A single thread multiplexing many non-blocking channels with a {@link Selector}.
+ *
+ * <p>All {@link ChannelHandler} callbacks run on the loop thread and must not block. Other threads
+ * interact with registered channels by submitting tasks through {@link #execute(Runnable)}.
+ */
+public final class EventLoop implements Runnable {
+  private static final Logger LOGGER = Logger.getLogger(EventLoop.class.getName());
+  private static final long EXPIRY_CHECK_INTERVAL_MILLIS = 1000;
+
+  private final String name;
+  private final Selector selector;
+  private final Queue<Runnable> tasks = new ConcurrentLinkedQueue<>();
+  private volatile Thread thread;
+  private volatile boolean running = true;
+  private long nextExpiryCheck;
+
+  /**
+   * Callbacks for a channel registered with an {@link EventLoop}.
+   */
+  public interface ChannelHandler {
+
+    void onRegistered(SelectionKey key) throws IOException;
+
+    void onReadable() throws IOException;
+
+    void onWritable() throws IOException;
+
+    /**
+     * Releases the channel after a callback failed, or with a {@code null} cause when the loop is
+     * shutting down or the channel has expired.
+     */
+    void abort(Throwable cause);
+
+    /**
+     * Whether the channel has been idle too long and should be released. Checked about once a
+     * second.
+     */
+    default boolean isExpired(long nowNanos) {
+      return false;
+    }
+  }
+
+  public EventLoop(String name) throws IOException {
+    this.name = name;
+    this.selector = Selector.open();
+  }
+
+  public synchronized void start() {
+    if (thread == null) {
+      thread = new Thread(this, name);
+      thread.start();
+    }
+  }
+
+  public boolean inEventLoop() {
+    return Thread.currentThread() == thread;
+  }
+
+  /**
+   * Runs a task on the loop thread, waking the selector if called from another thread.
+   */
+  public void execute(Runnable task) {
+    tasks.add(task);
+    if (!inEventLoop()) {
+      selector.wakeup();
+    }
+  }
+
+  /**
+   * Registers a channel, which must already be in non-blocking mode, for the given interest set.
+   */
+  public void register(SelectableChannel channel, int interestOps, ChannelHandler handler) {
+    execute(() -> {
+      try {
+        handler.onRegistered(channel.register(selector, interestOps, handler));
+      } catch (IOException | RuntimeException e) {
+        handler.abort(e);
+      }
+    });
+  }
+
+  /**
+   * Cancels a key and runs {@code then} on the loop once the selector has let go of the channel,
+   * after which the channel can be switched back to blocking mode. Must be called on the loop.
+   */
+  public void deregister(SelectionKey key, Runnable then) {
+    key.cancel();
+    tasks.add(then);
+    // the next select returns at once and flushes the cancelled key before the task runs
+    selector.wakeup();
+  }
+
+  public int getChannelCount() {
+    try {
+      return selector.keys().size();
+    } catch (ClosedSelectorException e) {
+      return 0;
+    }
+  }
+
+  public void shutdown() {
+    running = false;
+    selector.wakeup();
+  }
+
+  @Override
+  public void run() {
+    try {
+      while (running) {
+        selector.select(EXPIRY_CHECK_INTERVAL_MILLIS);
+        runTasks();
+        processSelectedKeys();
+        expireChannels();
+      }
+    } catch (IOException | ClosedSelectorException e) {
+      LOGGER.log(Level.SEVERE, "Event loop " + name + " failed", e);
+    } finally {
+      runTasks();
+      closeChannels();
+    }
+  }
+
+  private void runTasks() {
+    Runnable task;
+    while ((task = tasks.poll()) != null) {
+      try {
+        task.run();
+      } catch (RuntimeException e) {
+        LOGGER.log(Level.WARNING, "Event loop task failed", e);
+      }
+    }
+  }
+
+  private void processSelectedKeys() {
+    Iterator<SelectionKey> keys = selector.selectedKeys().iterator();
+    while (keys.hasNext()) {
+      SelectionKey key = keys.next();
+      keys.remove();
+
+      ChannelHandler handler = (ChannelHandler) key.attachment();
+      try {
+        if (key.isValid() && key.isReadable()) {
+          handler.onReadable();
+        }
+        if (key.isValid() && key.isWritable()) {
+          handler.onWritable();
+        }
+      } catch (IOException | RuntimeException e) {
+        key.cancel();
+        handler.abort(e);
+      }
+    }
+  }
+
+  private void expireChannels() {
+    long now = System.nanoTime();
+    if (now - nextExpiryCheck < 0) {
+      return;
+    }
+    nextExpiryCheck = now + TimeUnit.MILLISECONDS.toNanos(EXPIRY_CHECK_INTERVAL_MILLIS);
+    for (SelectionKey key : selector.keys()) {
+      ChannelHandler handler = (ChannelHandler) key.attachment();
+      if (key.isValid() && handler.isExpired(now)) {
+        key.cancel();
+        handler.abort(null);
+      }
+    }
+  }
+
+  private void closeChannels() {
+    try {
+      for (SelectionKey key : selector.keys()) {
+        ((ChannelHandler) key.attachment()).abort(null);
+      }
+      selector.close();
+    } catch (IOException | ClosedSelectorException e) {
+      LOGGER.log(Level.FINE, "Failed to close event loop " + name, e);
+    }
+  }
+}
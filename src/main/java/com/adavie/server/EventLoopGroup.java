@@ -0,0 +1,53 @@
+package com.adavie.server;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * A fixed set of {@link EventLoop}s that channels are spread across round-robin.
+ *
+ * <p>Loops are opened and started on first use so a server that never hands a connection over to
+ * an event loop does not pay for the selector threads.
+ */
+public final class EventLoopGroup {
+  private final String name;
+  private final EventLoop[] loops;
+  private final AtomicInteger next = new AtomicInteger();
+  private boolean shutdown;
+
+  public EventLoopGroup(String name, int size) {
+    if (size < 1) {
+      throw new IllegalArgumentException("Event loop group size must be at least 1");
+    }
+    this.name = name;
+    this.loops = new EventLoop[size];
+  }
+
+  public EventLoop next() {
+    int index = Math.floorMod(next.getAndIncrement(), loops.length);
+    synchronized (this) {
+      if (shutdown) {
+        throw new IllegalStateException("Event loop group is shut down");
+      }
+      if (loops[index] == null) {
+        try {
+          loops[index] = new EventLoop(name + "-" + index);
+        } catch (IOException e) {
+          throw new UncheckedIOException("Failed to open event loop selector", e);
+        }
+        loops[index].start();
+      }
+      return loops[index];
+    }
+  }
+
+  public synchronized void shutdown() {
+    shutdown = true;
+    for (EventLoop loop : loops) {
+      if (loop != null) {
+        loop.shutdown();
+      }
+    }
+  }
+}
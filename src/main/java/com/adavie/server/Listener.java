@@ -0,0 +1,361 @@
+package com.adavie.server;
+
+import com.adavie.config.ListenerConfig;
+import com.adavie.jfr.ConnectionAcceptedEvent;
+import com.adavie.jfr.ConnectionClosedEvent;
+import com.adavie.log.RateLimitedLogger;
+import com.adavie.request.ClientHandler;
+import com.adavie.request.EventLoopClientHandler;
+import com.adavie.transport.ChannelTransport;
+import com.adavie.transport.SocketTransport;
+import com.adavie.transport.TlsMetrics;
+import com.adavie.transport.TlsTransport;
+import com.adavie.transport.Transport;
+import com.adavie.util.ExecutorStats;
+import com.adavie.util.InstrumentedExecutor;
+import com.adavie.util.SslContextFactory;
+import com.adavie.util.ThreadPoolFactory;
+
+import javax.net.ssl.SSLContext;
+import java.io.Closeable;
+import java.io.IOException;
+import java.net.ConnectException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.net.StandardProtocolFamily;
+import java.net.UnixDomainSocketAddress;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.nio.file.Files;
+import java.nio.file.LinkOption;
+import java.nio.file.Path;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * One socket a server listens on, a TCP port or a Unix domain socket, with its own socket
+ * options, TLS settings and accept loop.
+ *
+ * <p>Routes, I/O threads, metrics and connection limits are shared by all listeners through the
+ * {@link ServerContext}. A listener with a thread pool of its own runs its connections on that
+ * executor instead of the server's, so that a flood of requests on one listener cannot take the
+ * workers another one needs.
+ */
+final class Listener implements Runnable {
+  private static final Logger LOGGER = Logger.getLogger(Listener.class.getName());
+  private static final RateLimitedLogger ACCEPT_FAILURES = new RateLimitedLogger(LOGGER, "Accept failures");
+  private static final RateLimitedLogger SETUP_FAILURES = new RateLimitedLogger(LOGGER, "Connection setup failures");
+  // pause after a failed accept, so that running out of file descriptors does not spin the loop
+  private static final long ACCEPT_BACKOFF_MILLIS = 50;
+  private static final int S_IFMT = 0170000;
+  private static final int S_IFSOCK = 0140000;
+
+  private final ListenerConfig config;
+  private final ConnectionLimiter connectionLimiter;
+  private final TlsMetrics tlsMetrics;
+  private final SSLContext sslContext;
+  private volatile ServerSocket serverSocket;
+  private volatile ServerSocketChannel unixChannel;
+  private ServerContext context;
+  private EventLoopGroup ioLoops;
+  private volatile ExecutorService ownExecutor;
+  private volatile Thread acceptor;
+  private final CountDownLatch stopped = new CountDownLatch(1);
+
+  /**
+   * @param serverSocket an unbound socket to listen with, or {@code null} to open one
+   */
+  Listener(ListenerConfig config, ServerSocket serverSocket, ConnectionLimiter connectionLimiter,
+           TlsMetrics tlsMetrics) {
+    this.config = config;
+    this.serverSocket = serverSocket;
+    this.connectionLimiter = connectionLimiter;
+    this.tlsMetrics = tlsMetrics;
+    this.sslContext = config.isTlsEnabled() ? SslContextFactory.newSslContext(config.getTlsConfig()) : null;
+  }
+
+  String getName() {
+    return config.getName();
+  }
+
+  void bind() throws IOException {
+    int backlog = config.getSocketConfig().getBacklog();
+    if (config.isUnixSocket()) {
+      removeStaleSocket(config.getUnixSocketPath());
+      ServerSocketChannel channel = ServerSocketChannel.open(StandardProtocolFamily.UNIX);
+      try {
+        channel.bind(UnixDomainSocketAddress.of(config.getUnixSocketPath()), backlog);
+      } catch (IOException e) {
+        channel.close();
+        throw e;
+      }
+      unixChannel = channel;
+      return;
+    }
+
+    if (serverSocket == null) {
+      // channel backed so accepted sockets expose a SocketChannel for buffer based I/O
+      serverSocket = ServerSocketChannel.open().socket();
+    }
+    SocketOptions.configureListener(serverSocket, config.getSocketConfig());
+    serverSocket.bind(new InetSocketAddress(config.getHostname(), config.getPort()), backlog);
+  }
+
+  /**
+   * Deletes a socket file left behind by a process that no longer listens on it, which would make
+   * the bind fail. Anything else at the path, such as a regular file or a socket another process
+   * still accepts on, is left alone and fails the bind.
+   */
+  private static void removeStaleSocket(Path path) throws IOException {
+    if (!Files.exists(path, LinkOption.NOFOLLOW_LINKS)) {
+      return;
+    }
+    if (!isSocket(path)) {
+      throw new IOException("Unix socket path " + path + " exists and is not a socket");
+    }
+    try {
+      SocketChannel.open(UnixDomainSocketAddress.of(path)).close();
+    } catch (ConnectException e) {
+      // nothing is listening, the file is stale
+      Files.deleteIfExists(path);
+      return;
+    }
+    throw new IOException("Unix socket path " + path + " is in use by another process");
+  }
+
+  private static boolean isSocket(Path path) throws IOException {
+    try {
+      int mode = (Integer) Files.getAttribute(path, "unix:mode", LinkOption.NOFOLLOW_LINKS);
+      return (mode & S_IFMT) == S_IFSOCK;
+    } catch (UnsupportedOperationException e) {
+      // no unix attribute view, as on Windows, where a socket is neither a file nor a directory
+      return Files.readAttributes(path, BasicFileAttributes.class, LinkOption.NOFOLLOW_LINKS).isOther();
+    }
+  }
+
+  /**
+   * Sets what accepted connections are served with, starting the listener's own executor if it
+   * has one.
+   */
+  void serveWith(ServerContext shared, EventLoopGroup ioLoops) {
+    if (config.getThreadPoolConfig() != null) {
+      ownExecutor = ThreadPoolFactory.newExecutorService(config.getThreadPoolConfig());
+      this.context = shared.withExecutorService(ownExecutor);
+    } else {
+      this.context = shared;
+    }
+    this.ioLoops = ioLoops;
+  }
+
+  /**
+   * The listener's own executor, or {@code null} if it shares the server's.
+   */
+  ExecutorService getOwnExecutor() {
+    return ownExecutor;
+  }
+
+  /**
+   * Queue wait, run time and rejection figures of the listener's own executor, or {@code null}
+   * if it shares the server's.
+   */
+  ExecutorStats getExecutorStats() {
+    ExecutorService executor = ownExecutor;
+    return executor instanceof InstrumentedExecutor ? ((InstrumentedExecutor) executor).getStats() : null;
+  }
+
+  boolean isOpen() {
+    return config.isUnixSocket() ? unixChannel != null && unixChannel.isOpen()
+        : serverSocket != null && !serverSocket.isClosed();
+  }
+
+  /**
+   * Stops accepting connections, removing the socket file of a Unix domain socket.
+   */
+  void close() {
+    try {
+      if (config.isUnixSocket()) {
+        ServerSocketChannel channel = unixChannel;
+        if (channel != null && channel.isOpen()) {
+          channel.close();
+          Files.deleteIfExists(config.getUnixSocketPath());
+        }
+      } else if (serverSocket != null) {
+        serverSocket.close();
+      }
+    } catch (IOException e) {
+      LOGGER.log(Level.WARNING, "Failed to close listener " + config.getName(), e);
+    }
+  }
+
+  /**
+   * Waits for the accept loop to exit after {@link #close}. A socket stays open until the thread
+   * blocked accepting on it has woken up, so a port is only free again once this returns.
+   */
+  void awaitStopped(long timeoutMillis) throws InterruptedException {
+    Thread thread = acceptor;
+    if (thread != null && thread != Thread.currentThread()) {
+      stopped.await(timeoutMillis, TimeUnit.MILLISECONDS);
+    }
+  }
+
+  @Override
+  public void run() {
+    acceptor = Thread.currentThread();
+    try {
+      accept();
+    } finally {
+      stopped.countDown();
+    }
+  }
+
+  private void accept() {
+    while (isOpen()) {
+      try {
+        Transport transport = config.isUnixSocket() ? acceptUnix() : acceptTcp();
+        if (transport != null) {
+          dispatch(transport);
+        }
+      } catch (IOException e) {
+        if (!isOpen()) {
+          break;
+        }
+        ACCEPT_FAILURES.log(Level.WARNING, e, () -> "Exception accepting client connection on " + config.getName());
+        backOff();
+      }
+    }
+  }
+
+  /**
+   * Accepts a TCP connection.
+   *
+   * @return its transport, or {@code null} if the connection was turned away
+   */
+  private Transport acceptTcp() throws IOException {
+    Socket clientSocket = serverSocket.accept();
+
+    InetAddress clientAddress = clientSocket.getInetAddress();
+    if (!connectionLimiter.tryAcquire(clientAddress)) {
+      LOGGER.fine("Connection limit reached, closing connection from " + clientAddress);
+      closeQuietly(clientSocket);
+      return null;
+    }
+    context.getMetrics().recordConnectionAccepted();
+    ConnectionAcceptedEvent.record(clientAddress, connectionLimiter.getOpenConnections());
+    ConnectionClosedEvent connectionEvent = ConnectionClosedEvent.start(clientAddress);
+
+    try {
+      clientSocket.setSoTimeout(context.getServerConfig().getClientConnectionTimeout());
+      SocketOptions.configureConnection(clientSocket, config.getSocketConfig());
+      return createTransport(clientSocket, () -> {
+        connectionLimiter.release(clientAddress);
+        connectionEvent.closed();
+      });
+    } catch (IOException | RuntimeException e) {
+      SETUP_FAILURES.log(Level.WARNING, e, () -> "Failed to set up connection from " + clientAddress);
+      connectionLimiter.release(clientAddress);
+      closeQuietly(clientSocket);
+      return null;
+    }
+  }
+
+  /**
+   * Accepts a Unix domain socket connection. Its peer has no address, so only the total
+   * connection limit applies.
+   *
+   * @return its transport, or {@code null} if the connection was turned away
+   */
+  private Transport acceptUnix() throws IOException {
+    SocketChannel client = unixChannel.accept();
+    if (!connectionLimiter.tryAcquire(null)) {
+      LOGGER.fine("Connection limit reached, closing Unix socket connection");
+      closeQuietly(client);
+      return null;
+    }
+    context.getMetrics().recordConnectionAccepted();
+    ConnectionAcceptedEvent.record(null, connectionLimiter.getOpenConnections());
+    ConnectionClosedEvent connectionEvent = ConnectionClosedEvent.start(null);
+
+    try {
+      return new ChannelTransport(client, context.getServerConfig().getClientConnectionTimeout(), () -> {
+        connectionLimiter.release(null);
+        connectionEvent.closed();
+      });
+    } catch (IOException | RuntimeException e) {
+      SETUP_FAILURES.log(Level.WARNING, e, () -> "Failed to set up Unix socket connection");
+      connectionLimiter.release(null);
+      closeQuietly(client);
+      return null;
+    }
+  }
+
+  /**
+   * Hands an accepted connection to an I/O thread if there are any, and to a worker otherwise.
+   */
+  private void dispatch(Transport transport) throws IOException {
+    if (ioLoops != null) {
+      serveOnEventLoop(transport, ioLoops.next());
+      return;
+    }
+
+    ClientHandler requestHandler = ClientHandler.createRequestHandler(transport, context);
+    try {
+      context.getExecutorService().execute(requestHandler);
+    } catch (RejectedExecutionException e) {
+      context.getMetrics().recordExecutorRejection();
+      LOGGER.fine("Executor rejected connection from " + transport.getRemoteAddress());
+      transport.close();
+    }
+  }
+
+  /**
+   * Registers a connection with an I/O thread, which answers requests to non-blocking routes
+   * itself and hands the connection to a worker once one needs to block.
+   */
+  private void serveOnEventLoop(Transport transport, EventLoop loop) {
+    try {
+      transport.configureBlocking(false);
+    } catch (IOException e) {
+      LOGGER.log(Level.FINE, "Failed to make connection non-blocking: " + transport.getRemoteAddress(), e);
+      closeQuietly(transport);
+      return;
+    }
+    loop.register(transport.getSelectableChannel(), SelectionKey.OP_READ,
+        new EventLoopClientHandler(transport, context, loop));
+  }
+
+  private Transport createTransport(Socket clientSocket, Runnable closeListener) {
+    Transport transport = new SocketTransport(clientSocket, closeListener);
+    if (sslContext == null) {
+      return transport;
+    }
+    return new TlsTransport(
+        transport,
+        SslContextFactory.newServerEngine(sslContext, config.getTlsConfig(), clientSocket.getRemoteSocketAddress()),
+        tlsMetrics
+    );
+  }
+
+  private static void backOff() {
+    try {
+      Thread.sleep(ACCEPT_BACKOFF_MILLIS);
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
+  }
+
+  private static void closeQuietly(Closeable closeable) {
+    try {
+      closeable.close();
+    } catch (IOException e) {
+      // nothing useful to do for a connection we are turning away
+    }
+  }
+}
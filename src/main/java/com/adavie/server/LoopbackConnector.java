@@ -0,0 +1,70 @@
+package com.adavie.server;
+
+import com.adavie.config.ServerConfig;
+import com.adavie.metrics.ServerMetrics;
+import com.adavie.request.ClientHandler;
+import com.adavie.route.Router;
+import com.adavie.transport.LoopbackTransport;
+import com.adavie.util.ThreadPoolFactory;
+
+import java.io.Closeable;
+import java.util.concurrent.ExecutorService;
+
+/**
+ * Serves in-memory connections with a server's routes and configuration, without sockets.
+ *
+ * <p>Each connection runs the same pipeline as one accepted on a port, parsing, routing, running
+ * the handler and writing the response, but on the calling thread and over a
+ * {@link LoopbackTransport}. Tests and benchmarks can therefore measure the server itself without
+ * kernel networking in the way. The server does not need to be started.
+ *
+ * <p>WebSocket upgrades need a selectable channel and fail over a loopback connection.
+ */
+public final class LoopbackConnector implements Closeable {
+  private final ExecutorService executorService;
+  private final ServerMetrics metrics = new ServerMetrics();
+  private final ServerContext context;
+
+  LoopbackConnector(ServerConfig serverConfig, Router router) {
+    // runs HTTP/2 streams and connections resumed after an async handler
+    this.executorService = ThreadPoolFactory.newExecutorService(serverConfig.getThreadPoolConfig());
+    this.context = new ServerContext(serverConfig, router, executorService, null, null, metrics);
+  }
+
+  /**
+   * Serves {@code request}, which may hold several pipelined requests, as one connection.
+   *
+   * @return every byte the server wrote before the connection closed
+   */
+  public byte[] exchange(byte[] request) {
+    LoopbackTransport transport = new LoopbackTransport(request);
+    serve(transport);
+    return transport.getOutput();
+  }
+
+  /**
+   * Serves a connection over {@code transport} until its requests run out or the server closes
+   * it. While an async handler's future is pending the connection continues on a worker, and the
+   * calling thread waits for it.
+   */
+  public void serve(LoopbackTransport transport) {
+    ClientHandler.createRequestHandler(transport, context).run();
+    try {
+      transport.awaitClosed();
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
+  }
+
+  /**
+   * Returns request counters for the connections served by this connector.
+   */
+  public ServerMetrics getMetrics() {
+    return metrics;
+  }
+
+  @Override
+  public void close() {
+    executorService.shutdownNow();
+  }
+}
@@ -1,17 +1,30 @@
 package com.adavie.server;
 
 import com.adavie.config.ServerConfig;
+import com.adavie.metrics.ServerMetrics;
+import com.adavie.request.HttpMethod;
+import com.adavie.route.AsyncRouteHandler;
+import com.adavie.route.Route;
+import com.adavie.route.RouteHandler;
+import com.adavie.route.Router;
+import com.adavie.transport.TlsMetrics;
+import com.adavie.util.ExecutorStats;
 import com.adavie.util.LoggerInitializer;
+import com.adavie.websocket.WebSocketHandler;
+import com.adavie.websocket.WebSocketUpgrade;
 
 import java.io.IOException;
 import java.net.ServerSocket;
+import java.nio.channels.ServerSocketChannel;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
 public class Server {
 
   private ServerSocket serverSocket;
+  private ServerHandler serverHandler;
   private final ServerConfig serverConfig;
+  private final Router router = new Router();
   private static final Logger LOGGER = Logger.getLogger(Server.class.getName());
 
   public Server() {
@@ -30,12 +43,13 @@ public class Server {
     try {
       this.serverSocket = createServerSocket();
 
-      ServerHandler socketHandler = new ServerHandler(serverSocket, serverConfig);
+      ServerHandler socketHandler = new ServerHandler(serverSocket, serverConfig, router);
+      this.serverHandler = socketHandler;
 
       Thread thread = new Thread(socketHandler);
       thread.start();
 
-      while (!serverSocket.isBound() && socketHandler.getBindException() == null) {
+      while (!socketHandler.isStarted() && socketHandler.getBindException() == null) {
         Thread.sleep(10L);
       }
 
@@ -50,8 +64,115 @@ public class Server {
 
   }
 
+  public Route route(HttpMethod method, String path, RouteHandler handler) {
+    return router.addRoute(method, path, handler);
+  }
+
+  public Route get(String path, RouteHandler handler) {
+    return route(HttpMethod.GET, path, handler);
+  }
+
+  public Route post(String path, RouteHandler handler) {
+    return route(HttpMethod.POST, path, handler);
+  }
+
+  public Route put(String path, RouteHandler handler) {
+    return route(HttpMethod.PUT, path, handler);
+  }
+
+  public Route delete(String path, RouteHandler handler) {
+    return route(HttpMethod.DELETE, path, handler);
+  }
+
+  /**
+   * Registers a route whose handler answers with a future. The worker serving the connection is
+   * released while the future is pending and the response is written once it completes, or a
+   * {@code 504} once the route's timeout passes.
+   */
+  public Route routeAsync(HttpMethod method, String path, AsyncRouteHandler handler) {
+    return router.addAsyncRoute(method, path, handler);
+  }
+
+  public Route getAsync(String path, AsyncRouteHandler handler) {
+    return routeAsync(HttpMethod.GET, path, handler);
+  }
+
+  public Route postAsync(String path, AsyncRouteHandler handler) {
+    return routeAsync(HttpMethod.POST, path, handler);
+  }
+
+  public Route putAsync(String path, AsyncRouteHandler handler) {
+    return routeAsync(HttpMethod.PUT, path, handler);
+  }
+
+  public Route deleteAsync(String path, AsyncRouteHandler handler) {
+    return routeAsync(HttpMethod.DELETE, path, handler);
+  }
+
+  /**
+   * Registers a GET route that upgrades every valid handshake to a WebSocket served by
+   * {@code handler}. Routes that need to inspect the request first can return
+   * {@link WebSocketUpgrade#accept} themselves.
+   */
+  public Route websocket(String path, WebSocketHandler handler) {
+    if (handler == null) {
+      throw new IllegalArgumentException("WebSocket handler cannot be null");
+    }
+    return get(path, request -> WebSocketUpgrade.accept(request, handler));
+  }
+
+  /**
+   * Returns a connector that serves in-memory connections with this server's routes, for tests
+   * and benchmarks that should not depend on the network. Close it when done.
+   */
+  public LoopbackConnector loopback() {
+    return new LoopbackConnector(serverConfig, router);
+  }
+
   private ServerSocket createServerSocket() throws IOException {
-    return new ServerSocket();
+    // channel backed so accepted sockets expose a SocketChannel for buffer based I/O
+    return ServerSocketChannel.open().socket();
+  }
+
+  /**
+   * Returns TLS handshake metrics, or {@code null} if the server has not been started.
+   */
+  public TlsMetrics getTlsMetrics() {
+    return serverHandler == null ? null : serverHandler.getTlsMetrics();
+  }
+
+  /**
+   * Returns open and rejected connection counts, or {@code null} if the server has not been
+   * started.
+   */
+  public ConnectionLimiter getConnectionLimiter() {
+    return serverHandler == null ? null : serverHandler.getConnectionLimiter();
+  }
+
+  /**
+   * Returns request and connection counters, or {@code null} if the server has not been started.
+   */
+  public ServerMetrics getMetrics() {
+    return serverHandler == null ? null : serverHandler.getMetrics();
+  }
+
+  /**
+   * Returns queue wait, run time and rejection figures for the worker executor, or {@code null} if
+   * the server has not been started.
+   */
+  public ExecutorStats getExecutorStats() {
+    return serverHandler == null ? null : serverHandler.getExecutorStats();
+  }
+
+  /**
+   * Returns the figures for the executor the named listener runs its requests on, or
+   * {@code null} if the server has not been started. Listeners without an executor of their own
+   * report the server's.
+   *
+   * @throws IllegalArgumentException if there is no listener of that name
+   */
+  public ExecutorStats getExecutorStats(String listenerName) {
+    return serverHandler == null ? null : serverHandler.getExecutorStats(listenerName);
   }
 
   private void initializeLogger() {
@@ -66,6 +187,8 @@ public class Server {
         LOGGER.log(Level.SEVERE,"Failed to stop server", e);
         throw new RuntimeException(e);
       }
+      serverHandler.closeListeners();
+      serverHandler.closeMetricsEndpoint();
     }
   }
 }
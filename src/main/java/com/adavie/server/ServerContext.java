@@ -0,0 +1,113 @@
+package com.adavie.server;
+
+import com.adavie.config.ServerConfig;
+import com.adavie.config.WebSocketConfig;
+import com.adavie.log.AccessLog;
+import com.adavie.metrics.ServerMetrics;
+import com.adavie.request.RequestRecorder;
+import com.adavie.route.Router;
+import com.adavie.util.DeflatePool;
+import com.adavie.util.MemoryBudget;
+
+import java.util.concurrent.ExecutorService;
+
+/**
+ * Server-wide collaborators shared by every connection.
+ */
+public final class ServerContext {
+  private final ServerConfig serverConfig;
+  private final Router router;
+  private final ExecutorService executorService;
+  private final EventLoopGroup eventLoopGroup;
+  private final DeflatePool deflatePool;
+  private final MemoryBudget bodyBudget;
+  private final AccessLog accessLog;
+  private final ServerMetrics metrics;
+  private final RequestRecorder requestRecorder;
+
+  /**
+   * @param accessLog the access log, or {@code null} if it is disabled
+   */
+  public ServerContext(ServerConfig serverConfig, Router router, ExecutorService executorService,
+                       EventLoopGroup eventLoopGroup, AccessLog accessLog, ServerMetrics metrics) {
+    this.serverConfig = serverConfig;
+    this.accessLog = accessLog;
+    this.metrics = metrics;
+    this.requestRecorder = RequestRecorder.both(metrics, accessLog);
+    this.router = router;
+    this.executorService = executorService;
+    this.eventLoopGroup = eventLoopGroup;
+
+    WebSocketConfig webSocketConfig = serverConfig.getWebSocketConfig();
+    this.deflatePool = new DeflatePool(webSocketConfig.getDeflatePoolSize(), webSocketConfig.getCompressionLevel());
+    this.bodyBudget = new MemoryBudget(serverConfig.getBodyConfig().getMemoryBudget());
+  }
+
+  private ServerContext(ServerContext shared, ExecutorService executorService) {
+    this.serverConfig = shared.serverConfig;
+    this.router = shared.router;
+    this.executorService = executorService;
+    this.eventLoopGroup = shared.eventLoopGroup;
+    this.deflatePool = shared.deflatePool;
+    this.bodyBudget = shared.bodyBudget;
+    this.accessLog = shared.accessLog;
+    this.metrics = shared.metrics;
+    this.requestRecorder = shared.requestRecorder;
+  }
+
+  /**
+   * Returns a context sharing everything with this one but running requests on
+   * {@code executorService}, for listeners with an executor of their own.
+   */
+  public ServerContext withExecutorService(ExecutorService executorService) {
+    return new ServerContext(this, executorService);
+  }
+
+  public ServerConfig getServerConfig() {
+    return serverConfig;
+  }
+
+  public Router getRouter() {
+    return router;
+  }
+
+  public ExecutorService getExecutorService() {
+    return executorService;
+  }
+
+  /**
+   * Selector threads that serve connections handed off from the blocking HTTP/1.1 handler.
+   */
+  public EventLoopGroup getEventLoopGroup() {
+    return eventLoopGroup;
+  }
+
+  public DeflatePool getDeflatePool() {
+    return deflatePool;
+  }
+
+  /**
+   * Memory that request bodies buffered in memory may use across all connections.
+   */
+  public MemoryBudget getBodyBudget() {
+    return bodyBudget;
+  }
+
+  /**
+   * The access log, or {@code null} if it is disabled.
+   */
+  public AccessLog getAccessLog() {
+    return accessLog;
+  }
+
+  public ServerMetrics getMetrics() {
+    return metrics;
+  }
+
+  /**
+   * Where completed requests are reported: the metrics and, if enabled, the access log.
+   */
+  public RequestRecorder getRequestRecorder() {
+    return requestRecorder;
+  }
+}
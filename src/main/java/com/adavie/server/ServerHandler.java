@@ -1,62 +1,213 @@
 package com.adavie.server;
 
-import com.adavie.request.ClientHandler;
+import com.adavie.config.ListenerConfig;
 import com.adavie.config.ServerConfig;
+import com.adavie.log.AccessLog;
+import com.adavie.metrics.MetricsEndpoint;
+import com.adavie.metrics.ServerMetrics;
+import com.adavie.route.Router;
+import com.adavie.transport.TlsMetrics;
+import com.adavie.util.ExecutorStats;
+import com.adavie.util.InstrumentedExecutor;
 import com.adavie.util.ThreadPoolFactory;
 
 import java.io.IOException;
-import java.net.InetSocketAddress;
 import java.net.ServerSocket;
-import java.net.Socket;
-import java.net.SocketAddress;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.TimeUnit;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
 class ServerHandler implements Runnable {
-  private final ServerSocket serverSocket;
   private final ServerConfig serverConfig;
-  private IOException bindException;
+  private final Router router;
+  private final TlsMetrics tlsMetrics = new TlsMetrics();
+  private final ConnectionLimiter connectionLimiter;
+  // the server's port first, served on the handler's thread, then every other listener
+  private final List<Listener> listeners = new ArrayList<>();
+  private final ServerMetrics metrics = new ServerMetrics();
+  private volatile IOException bindException;
+  // set once the listener is bound and everything it serves with is running
+  private volatile boolean started;
+  private volatile MetricsEndpoint metricsEndpoint;
+  private volatile ExecutorService executorService;
   private static final Logger LOGGER = Logger.getLogger(ServerHandler.class.getName());
+  private static final long ACCEPTOR_STOP_MILLIS = 1000;
 
   public ServerHandler(ServerSocket serverSocket, ServerConfig serverConfig) {
-    this.serverSocket = serverSocket;
+    this(serverSocket, serverConfig, new Router());
+  }
+
+  public ServerHandler(ServerSocket serverSocket, ServerConfig serverConfig, Router router) {
     this.serverConfig = serverConfig;
+    this.router = router;
+    this.connectionLimiter = new ConnectionLimiter(
+        serverConfig.getMaxConnections(), serverConfig.getMaxConnectionsPerIp());
+
+    ListenerConfig.Builder main = new ListenerConfig.Builder(ServerConfig.MAIN_LISTENER)
+        .hostname(serverConfig.getHostname())
+        .port(serverConfig.getPort())
+        .socketConfig(serverConfig.getSocketConfig())
+        .tlsConfig(serverConfig.getTlsConfig());
+    listeners.add(new Listener(main.build(), serverSocket, connectionLimiter, tlsMetrics));
+    if (serverConfig.getUnixSocketPath() != null) {
+      ListenerConfig unix = new ListenerConfig.Builder(ServerConfig.UNIX_LISTENER)
+          .unixSocketPath(serverConfig.getUnixSocketPath())
+          .socketConfig(serverConfig.getSocketConfig())
+          .build();
+      listeners.add(new Listener(unix, null, connectionLimiter, tlsMetrics));
+    }
+    for (ListenerConfig listener : serverConfig.getListeners()) {
+      listeners.add(new Listener(listener, null, connectionLimiter, tlsMetrics));
+    }
   }
 
   public IOException getBindException() {
     return bindException;
   }
 
+  public boolean isStarted() {
+    return started;
+  }
+
+  public TlsMetrics getTlsMetrics() {
+    return tlsMetrics;
+  }
+
+  public ServerMetrics getMetrics() {
+    return metrics;
+  }
+
+  public ConnectionLimiter getConnectionLimiter() {
+    return connectionLimiter;
+  }
+
+  public ExecutorStats getExecutorStats() {
+    ExecutorService executor = executorService;
+    return executor instanceof InstrumentedExecutor ? ((InstrumentedExecutor) executor).getStats() : null;
+  }
+
+  /**
+   * Returns the figures of the executor the named listener runs its requests on, which are the
+   * server's unless the listener has an executor of its own.
+   */
+  public ExecutorStats getExecutorStats(String listenerName) {
+    for (Listener listener : listeners) {
+      if (listener.getName().equals(listenerName)) {
+        ExecutorStats stats = listener.getExecutorStats();
+        return stats != null ? stats : getExecutorStats();
+      }
+    }
+    throw new IllegalArgumentException("Unknown listener: " + listenerName);
+  }
+
   @Override
   public void run() {
-    SocketAddress socketAddress = new InetSocketAddress(serverConfig.getHostname(), serverConfig.getPort());
-    try {
-      serverSocket.bind(socketAddress);
-    } catch (IOException e) {
-      this.bindException = e;
+    for (Listener listener : listeners) {
+      try {
+        listener.bind();
+      } catch (IOException e) {
+        this.bindException = e;
+        closeListeners();
+        return;
+      }
     }
 
     ExecutorService executorService = ThreadPoolFactory.newExecutorService(serverConfig.getThreadPoolConfig());
+    this.executorService = executorService;
+    EventLoopGroup eventLoopGroup = new EventLoopGroup(
+        "event-loop", serverConfig.getWebSocketConfig().getEventLoopThreads());
+    EventLoopGroup ioLoops = serverConfig.getIoThreads() > 0
+        ? new EventLoopGroup("io-loop", serverConfig.getIoThreads())
+        : null;
+    AccessLog accessLog = openAccessLog();
+    ServerContext context = new ServerContext(
+        serverConfig, router, executorService, eventLoopGroup, accessLog, metrics);
+    metricsEndpoint = startMetricsEndpoint(context);
+    for (Listener listener : listeners) {
+      listener.serveWith(context, ioLoops);
+    }
+    for (Listener listener : listeners.subList(1, listeners.size())) {
+      Thread acceptor = new Thread(listener, "acceptor-" + listener.getName());
+      acceptor.setDaemon(true);
+      acceptor.start();
+    }
+    started = true;
 
     try {
-      while (!serverSocket.isClosed()) {
-        try {
-          Socket clientSocket = serverSocket.accept();
+      listeners.get(0).run();
+    } finally {
+      closeListeners();
+      closeMetricsEndpoint();
+      if (ioLoops != null) {
+        ioLoops.shutdown();
+      }
+      eventLoopGroup.shutdown();
+      shutdownExecutorService(executorService);
+      for (Listener listener : listeners) {
+        if (listener.getOwnExecutor() != null) {
+          shutdownExecutorService(listener.getOwnExecutor());
+        }
+      }
+      if (accessLog != null) {
+        accessLog.close();
+      }
+    }
+  }
 
-          clientSocket.setSoTimeout(serverConfig.getClientConnectionTimeout());
+  /**
+   * Stops accepting connections on every listener, removing the files of Unix domain sockets.
+   * A socket stays open until the thread blocked accepting on it has woken up, so this waits for
+   * the accept loops to exit as well.
+   */
+  void closeListeners() {
+    for (Listener listener : listeners) {
+      listener.close();
+    }
+    for (Listener listener : listeners) {
+      try {
+        listener.awaitStopped(ACCEPTOR_STOP_MILLIS);
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+        return;
+      }
+    }
+  }
 
-          ClientHandler requestHandler = ClientHandler.createRequestHandler(clientSocket);
+  /**
+   * Stops serving metrics, releasing the metrics port right away rather than once the workers
+   * have finished.
+   */
+  void closeMetricsEndpoint() {
+    MetricsEndpoint endpoint = metricsEndpoint;
+    if (endpoint != null) {
+      endpoint.close();
+    }
+  }
 
-          executorService.execute(requestHandler);
+  private MetricsEndpoint startMetricsEndpoint(ServerContext context) {
+    if (!serverConfig.isMetricsEnabled()) {
+      return null;
+    }
+    try {
+      return MetricsEndpoint.start(context, connectionLimiter);
+    } catch (IOException e) {
+      LOGGER.log(Level.WARNING, "Failed to start metrics endpoint on port " + serverConfig.getMetricsPort(), e);
+      return null;
+    }
+  }
 
-        } catch (IOException e) {
-          LOGGER.warning("Exception accepting client connection.");
-        }
-      }
-    } finally {
-      shutdownExecutorService(executorService);
+  private AccessLog openAccessLog() {
+    if (!serverConfig.isAccessLogEnabled()) {
+      return null;
+    }
+    try {
+      return AccessLog.open(serverConfig.getAccessLogConfig());
+    } catch (IOException e) {
+      LOGGER.log(Level.WARNING, "Failed to open access log, requests will not be logged", e);
+      return null;
     }
   }
 
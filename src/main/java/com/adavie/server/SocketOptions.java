@@ -0,0 +1,58 @@
+package com.adavie.server;
+
+import com.adavie.config.SocketConfig;
+import com.adavie.log.RateLimitedLogger;
+import jdk.net.ExtendedSocketOptions;
+
+import java.io.IOException;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.net.SocketOption;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Applies a {@link SocketConfig} to the listening socket and to each accepted connection.
+ */
+final class SocketOptions {
+  private static final Logger LOGGER = Logger.getLogger(SocketOptions.class.getName());
+  private static final RateLimitedLogger UNSUPPORTED = new RateLimitedLogger(LOGGER, "Unsupported socket options");
+
+  private SocketOptions() {
+  }
+
+  /**
+   * Sets the options that must be in place before the listening socket is bound.
+   */
+  static void configureListener(ServerSocket serverSocket, SocketConfig config) throws IOException {
+    serverSocket.setReuseAddress(config.isReuseAddress());
+    if (config.getReceiveBufferSize() > 0) {
+      // inherited by accepted sockets, and only effective for windows above 64 KB if set before bind
+      serverSocket.setReceiveBufferSize(config.getReceiveBufferSize());
+    }
+  }
+
+  static void configureConnection(Socket socket, SocketConfig config) throws IOException {
+    socket.setTcpNoDelay(config.isTcpNoDelay());
+    if (config.getSendBufferSize() > 0) {
+      socket.setSendBufferSize(config.getSendBufferSize());
+    }
+    if (config.isKeepAlive()) {
+      socket.setKeepAlive(true);
+      if (config.getTcpKeepIdleSeconds() > 0) {
+        setIfSupported(socket, ExtendedSocketOptions.TCP_KEEPIDLE, config.getTcpKeepIdleSeconds());
+      }
+    }
+    if (config.isTcpQuickAck()) {
+      setIfSupported(socket, ExtendedSocketOptions.TCP_QUICKACK, true);
+    }
+  }
+
+  private static <T> void setIfSupported(Socket socket, SocketOption<T> option, T value) throws IOException {
+    if (socket.supportedOptions().contains(option)) {
+      socket.setOption(option, value);
+    } else {
+      UNSUPPORTED.log(Level.WARNING, () -> option.name() + " is not supported on this platform and is ignored");
+    }
+  }
+}
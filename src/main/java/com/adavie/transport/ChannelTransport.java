@@ -0,0 +1,199 @@
+package com.adavie.transport;
+
+import java.io.IOException;
+import java.net.SocketAddress;
+import java.net.SocketTimeoutException;
+import java.nio.ByteBuffer;
+import java.nio.channels.SelectableChannel;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.SocketChannel;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * {@link Transport} directly over a {@link SocketChannel}, in either blocking or non-blocking mode.
+ *
+ * <p>Channels have no {@code SO_TIMEOUT}, and channels without a socket adapter, such as Unix
+ * domain sockets, cannot use one. With a read timeout the channel is therefore kept in
+ * non-blocking mode and blocking reads and writes wait on a selector of their own, so an idle
+ * connection fails with a {@link SocketTimeoutException} just like a {@link SocketTransport}.
+ * Blocking operations made from a {@link ForkJoinPool} worker let the pool start a spare thread
+ * while they wait.
+ */
+public class ChannelTransport implements Transport {
+
+  private final SocketChannel channel;
+  private final int readTimeoutMillis;
+  private final Runnable closeListener;
+  private final AtomicBoolean closed = new AtomicBoolean();
+  // for channels emulating blocking mode with a read timeout, one per direction so that a reader
+  // and a writer can wait at the same time, as on an HTTP/2 connection
+  private final Selector readSelector;
+  private final Selector writeSelector;
+  private boolean nonBlocking;
+
+  public ChannelTransport(SocketChannel channel) {
+    this.channel = channel;
+    this.readTimeoutMillis = 0;
+    this.closeListener = null;
+    this.readSelector = null;
+    this.writeSelector = null;
+  }
+
+  /**
+   * Creates a blocking transport whose reads fail after waiting {@code readTimeoutMillis}.
+   *
+   * @param closeListener run once when the transport is closed, or {@code null}
+   */
+  public ChannelTransport(SocketChannel channel, int readTimeoutMillis, Runnable closeListener) throws IOException {
+    if (readTimeoutMillis < 1) {
+      throw new IllegalArgumentException("Read timeout must be at least 1 millisecond");
+    }
+    this.channel = channel;
+    this.readTimeoutMillis = readTimeoutMillis;
+    this.closeListener = closeListener;
+    channel.configureBlocking(false);
+    this.readSelector = Selector.open();
+    try {
+      this.writeSelector = Selector.open();
+      channel.register(readSelector, SelectionKey.OP_READ);
+      channel.register(writeSelector, SelectionKey.OP_WRITE);
+    } catch (IOException | RuntimeException e) {
+      closeSelectors();
+      throw e;
+    }
+  }
+
+  public SocketChannel getChannel() {
+    return channel;
+  }
+
+  @Override
+  public SelectableChannel getSelectableChannel() {
+    return channel;
+  }
+
+  @Override
+  public void configureBlocking(boolean blocking) throws IOException {
+    if (readTimeoutMillis == 0) {
+      channel.configureBlocking(blocking);
+    }
+    nonBlocking = !blocking;
+  }
+
+  @Override
+  public SocketAddress getRemoteAddress() {
+    try {
+      return channel.getRemoteAddress();
+    } catch (IOException e) {
+      return null;
+    }
+  }
+
+  @Override
+  public int read(ByteBuffer dst) throws IOException {
+    if (readTimeoutMillis == 0 || nonBlocking) {
+      return channel.read(dst);
+    }
+    if (ForkJoinTask.inForkJoinPool()) {
+      return (int) ManagedBlocking.run(() -> readWithTimeout(dst));
+    }
+    return readWithTimeout(dst);
+  }
+
+  private int readWithTimeout(ByteBuffer dst) throws IOException {
+    while (true) {
+      int n = channel.read(dst);
+      if (n != 0 || !dst.hasRemaining()) {
+        return n;
+      }
+      if (!await(readSelector, readTimeoutMillis)) {
+        throw new SocketTimeoutException("Read timed out");
+      }
+    }
+  }
+
+  @Override
+  public int write(ByteBuffer src) throws IOException {
+    return (int) write(new ByteBuffer[]{src}, 0, 1);
+  }
+
+  @Override
+  public long write(ByteBuffer[] srcs, int offset, int length) throws IOException {
+    if (readTimeoutMillis == 0 || nonBlocking) {
+      return channel.write(srcs, offset, length);
+    }
+    if (ForkJoinTask.inForkJoinPool()) {
+      return ManagedBlocking.run(() -> writeFully(srcs, offset, length));
+    }
+    return writeFully(srcs, offset, length);
+  }
+
+  private long writeFully(ByteBuffer[] srcs, int offset, int length) throws IOException {
+    long total = 0;
+    for (int i = offset; i < offset + length; i++) {
+      total += srcs[i].remaining();
+    }
+    long written = 0;
+    while (written < total) {
+      long n = channel.write(srcs, offset, length);
+      if (n == 0) {
+        // like a blocking socket write, wait for as long as the peer takes to make room
+        await(writeSelector, 0);
+      }
+      written += n;
+    }
+    return total;
+  }
+
+  @Override
+  public long write(ByteBuffer[] srcs) throws IOException {
+    return write(srcs, 0, srcs.length);
+  }
+
+  /**
+   * Waits until the channel is ready for the operation {@code selector} watches. Threads waiting
+   * for the same direction take turns.
+   *
+   * @param timeoutMillis how long to wait, or {@code 0} for no limit
+   * @return {@code false} if the wait timed out
+   */
+  private static boolean await(Selector selector, long timeoutMillis) throws IOException {
+    synchronized (selector) {
+      int ready = selector.select(timeoutMillis);
+      selector.selectedKeys().clear();
+      return ready > 0;
+    }
+  }
+
+  @Override
+  public boolean isOpen() {
+    return channel.isOpen();
+  }
+
+  @Override
+  public void close() throws IOException {
+    try {
+      channel.close();
+      closeSelectors();
+    } finally {
+      if (closeListener != null && closed.compareAndSet(false, true)) {
+        closeListener.run();
+      }
+    }
+  }
+
+  private void closeSelectors() throws IOException {
+    try {
+      if (readSelector != null) {
+        readSelector.close();
+      }
+    } finally {
+      if (writeSelector != null) {
+        writeSelector.close();
+      }
+    }
+  }
+}
@@ -0,0 +1,142 @@
+package com.adavie.transport;
+
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.SocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.ClosedChannelException;
+import java.util.Arrays;
+import java.util.concurrent.CountDownLatch;
+
+/**
+ * In-memory {@link Transport} that reads a fixed sequence of request bytes and records everything
+ * written to it, so that the request pipeline can be driven without sockets or the kernel.
+ *
+ * <p>Reads return the request bytes and then end of stream, which closes a keep-alive connection
+ * once every pipelined request has been answered. A transport can be {@link #reset} with new
+ * request bytes and reused, keeping its output buffer, so that a benchmark measures the server
+ * rather than the transport.
+ */
+public class LoopbackTransport implements Transport {
+  private static final SocketAddress LOOPBACK_ADDRESS = new InetSocketAddress(InetAddress.getLoopbackAddress(), 0);
+  private static final int INITIAL_OUTPUT_SIZE = 4096;
+
+  private ByteBuffer input;
+  // read at most this many bytes per call, to exercise requests split across reads
+  private final int maxRead;
+  private byte[] output = new byte[INITIAL_OUTPUT_SIZE];
+  private int outputLength;
+  private volatile boolean open = true;
+  private volatile CountDownLatch closed = new CountDownLatch(1);
+
+  public LoopbackTransport(byte[] request) {
+    this(request, Integer.MAX_VALUE);
+  }
+
+  /**
+   * @param maxRead the most bytes a single read returns
+   */
+  public LoopbackTransport(byte[] request, int maxRead) {
+    if (maxRead < 1) {
+      throw new IllegalArgumentException("Max read must be at least 1 byte");
+    }
+    this.input = ByteBuffer.wrap(request);
+    this.maxRead = maxRead;
+  }
+
+  /**
+   * Reopens the transport with new request bytes, discarding the recorded output.
+   */
+  public void reset(byte[] request) {
+    input = ByteBuffer.wrap(request);
+    outputLength = 0;
+    closed = new CountDownLatch(1);
+    open = true;
+  }
+
+  /**
+   * Waits until the server closes the connection, which may happen on another thread, for
+   * example once an async handler's future completes.
+   */
+  public void awaitClosed() throws InterruptedException {
+    closed.await();
+  }
+
+  /**
+   * Returns a copy of the bytes written so far.
+   */
+  public byte[] getOutput() {
+    return Arrays.copyOf(output, outputLength);
+  }
+
+  public int getOutputLength() {
+    return outputLength;
+  }
+
+  @Override
+  public SocketAddress getRemoteAddress() {
+    return LOOPBACK_ADDRESS;
+  }
+
+  @Override
+  public int read(ByteBuffer dst) throws ClosedChannelException {
+    ensureOpen();
+    if (!input.hasRemaining()) {
+      return -1;
+    }
+    int n = Math.min(Math.min(input.remaining(), dst.remaining()), maxRead);
+    int limit = input.limit();
+    input.limit(input.position() + n);
+    dst.put(input);
+    input.limit(limit);
+    return n;
+  }
+
+  @Override
+  public int write(ByteBuffer src) throws ClosedChannelException {
+    ensureOpen();
+    int n = src.remaining();
+    ensureCapacity(n);
+    src.get(output, outputLength, n);
+    outputLength += n;
+    return n;
+  }
+
+  @Override
+  public long write(ByteBuffer[] srcs, int offset, int length) throws ClosedChannelException {
+    long total = 0;
+    for (int i = offset; i < offset + length; i++) {
+      total += write(srcs[i]);
+    }
+    return total;
+  }
+
+  @Override
+  public long write(ByteBuffer[] srcs) throws ClosedChannelException {
+    return write(srcs, 0, srcs.length);
+  }
+
+  @Override
+  public boolean isOpen() {
+    return open;
+  }
+
+  @Override
+  public void close() {
+    open = false;
+    closed.countDown();
+  }
+
+  private void ensureOpen() throws ClosedChannelException {
+    if (!open) {
+      throw new ClosedChannelException();
+    }
+  }
+
+  private void ensureCapacity(int additional) {
+    int required = outputLength + additional;
+    if (required > output.length) {
+      output = Arrays.copyOf(output, Math.max(required, output.length * 2));
+    }
+  }
+}
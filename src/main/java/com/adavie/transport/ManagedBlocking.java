@@ -0,0 +1,63 @@
+package com.adavie.transport;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.util.concurrent.ForkJoinPool;
+
+/**
+ * Runs blocking socket operations so that a {@link ForkJoinPool} worker blocked on them is
+ * replaced by a spare thread, keeping the pool's parallelism available to other connections.
+ * Callers check {@link java.util.concurrent.ForkJoinTask#inForkJoinPool()} first, so threads
+ * outside a pool do not pay for the extra allocation.
+ */
+final class ManagedBlocking {
+
+  @FunctionalInterface
+  interface IoOperation {
+    long run() throws IOException;
+  }
+
+  private ManagedBlocking() {
+  }
+
+  static long run(IoOperation operation) throws IOException {
+    Blocker blocker = new Blocker(operation);
+    try {
+      ForkJoinPool.managedBlock(blocker);
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new InterruptedIOException("Interrupted while blocked on socket I/O");
+    }
+    if (blocker.failure != null) {
+      throw blocker.failure;
+    }
+    return blocker.result;
+  }
+
+  private static final class Blocker implements ForkJoinPool.ManagedBlocker {
+    private final IoOperation operation;
+    private long result;
+    private IOException failure;
+    private boolean done;
+
+    Blocker(IoOperation operation) {
+      this.operation = operation;
+    }
+
+    @Override
+    public boolean block() {
+      try {
+        result = operation.run();
+      } catch (IOException e) {
+        failure = e;
+      }
+      done = true;
+      return true;
+    }
+
+    @Override
+    public boolean isReleasable() {
+      return done;
+    }
+  }
+}
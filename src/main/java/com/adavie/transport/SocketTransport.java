@@ -0,0 +1,200 @@
+package com.adavie.transport;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.Socket;
+import java.net.SocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.SelectableChannel;
+import java.nio.channels.SocketChannel;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * {@link Transport} over an accepted blocking {@link Socket}.
+ *
+ * <p>Reads go through the socket's input stream so that the configured {@code SO_TIMEOUT} still
+ * applies. Writes use the socket's channel when it has one, which allows gathering writes,
+ * and otherwise fall back to the output stream. Once switched to non-blocking mode both directions
+ * go straight to the channel and may transfer fewer bytes than requested.
+ *
+ * <p>Blocking reads and writes made from a {@link ForkJoinPool} worker let the pool start a spare
+ * thread while they wait.
+ */
+public class SocketTransport implements Transport {
+
+  private final Socket socket;
+  private final SocketChannel channel;
+  private InputStream in;
+  private OutputStream out;
+  private final Runnable closeListener;
+  private final AtomicBoolean closed = new AtomicBoolean();
+  private boolean nonBlocking;
+
+  public SocketTransport(Socket socket) {
+    this(socket, null);
+  }
+
+  /**
+   * @param closeListener run once when the transport is closed, or {@code null}
+   */
+  public SocketTransport(Socket socket, Runnable closeListener) {
+    this.socket = socket;
+    this.channel = socket.getChannel();
+    this.closeListener = closeListener;
+  }
+
+  public Socket getSocket() {
+    return socket;
+  }
+
+  @Override
+  public SelectableChannel getSelectableChannel() {
+    return channel;
+  }
+
+  @Override
+  public void configureBlocking(boolean blocking) throws IOException {
+    if (channel == null) {
+      throw new UnsupportedOperationException("Socket has no channel");
+    }
+    channel.configureBlocking(blocking);
+    nonBlocking = !blocking;
+  }
+
+  @Override
+  public SocketAddress getRemoteAddress() {
+    return socket.getRemoteSocketAddress();
+  }
+
+  @Override
+  public int read(ByteBuffer dst) throws IOException {
+    if (nonBlocking) {
+      return channel.read(dst);
+    }
+    if (ForkJoinTask.inForkJoinPool()) {
+      return (int) ManagedBlocking.run(() -> readBlocking(dst));
+    }
+    return readBlocking(dst);
+  }
+
+  private int readBlocking(ByteBuffer dst) throws IOException {
+    if (in == null) {
+      in = socket.getInputStream();
+    }
+
+    if (dst.hasArray()) {
+      int n = in.read(dst.array(), dst.arrayOffset() + dst.position(), dst.remaining());
+      if (n > 0) {
+        dst.position(dst.position() + n);
+      }
+      return n;
+    }
+
+    byte[] chunk = new byte[Math.min(dst.remaining(), 8192)];
+    int n = in.read(chunk);
+    if (n > 0) {
+      dst.put(chunk, 0, n);
+    }
+    return n;
+  }
+
+  @Override
+  public int write(ByteBuffer src) throws IOException {
+    if (nonBlocking) {
+      return channel.write(src);
+    }
+    if (ForkJoinTask.inForkJoinPool()) {
+      return (int) ManagedBlocking.run(() -> writeBlocking(src));
+    }
+    return writeBlocking(src);
+  }
+
+  private int writeBlocking(ByteBuffer src) throws IOException {
+    int written = src.remaining();
+    if (channel != null) {
+      while (src.hasRemaining()) {
+        channel.write(src);
+      }
+      return written;
+    }
+
+    if (out == null) {
+      out = socket.getOutputStream();
+    }
+    writeToStream(src);
+    out.flush();
+    return written;
+  }
+
+  private int writeToStream(ByteBuffer src) throws IOException {
+    int written = src.remaining();
+    if (src.hasArray()) {
+      out.write(src.array(), src.arrayOffset() + src.position(), written);
+      src.position(src.limit());
+    } else {
+      byte[] chunk = new byte[written];
+      src.get(chunk);
+      out.write(chunk);
+    }
+    return written;
+  }
+
+  @Override
+  public long write(ByteBuffer[] srcs, int offset, int length) throws IOException {
+    if (nonBlocking) {
+      return channel.write(srcs, offset, length);
+    }
+    if (ForkJoinTask.inForkJoinPool()) {
+      return ManagedBlocking.run(() -> writeBlocking(srcs, offset, length));
+    }
+    return writeBlocking(srcs, offset, length);
+  }
+
+  private long writeBlocking(ByteBuffer[] srcs, int offset, int length) throws IOException {
+    long total = 0;
+    if (channel != null) {
+      for (int i = offset; i < offset + length; i++) {
+        total += srcs[i].remaining();
+      }
+      long written = 0;
+      while (written < total) {
+        written += channel.write(srcs, offset, length);
+      }
+      return total;
+    }
+
+    // without a channel there is no writev, but the stream is flushed once for all buffers
+    if (out == null) {
+      out = socket.getOutputStream();
+    }
+    for (int i = offset; i < offset + length; i++) {
+      total += writeToStream(srcs[i]);
+    }
+    out.flush();
+    return total;
+  }
+
+  @Override
+  public long write(ByteBuffer[] srcs) throws IOException {
+    return write(srcs, 0, srcs.length);
+  }
+
+  @Override
+  public boolean isOpen() {
+    return !socket.isClosed();
+  }
+
+  @Override
+  public void close() throws IOException {
+    try {
+      socket.close();
+    } finally {
+      if (closeListener != null && closed.compareAndSet(false, true)) {
+        closeListener.run();
+      }
+    }
+  }
+}
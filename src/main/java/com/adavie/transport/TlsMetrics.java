@@ -0,0 +1,57 @@
+package com.adavie.transport;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Handshake counters shared by every {@link TlsTransport} of a listener.
+ */
+public class TlsMetrics {
+  private final LongAdder fullHandshakes = new LongAdder();
+  private final LongAdder resumedHandshakes = new LongAdder();
+  private final LongAdder failedHandshakes = new LongAdder();
+  private final LongAdder fullHandshakeNanos = new LongAdder();
+  private final LongAdder resumedHandshakeNanos = new LongAdder();
+
+  void recordHandshake(boolean resumed, long nanos) {
+    if (resumed) {
+      resumedHandshakes.increment();
+      resumedHandshakeNanos.add(nanos);
+    } else {
+      fullHandshakes.increment();
+      fullHandshakeNanos.add(nanos);
+    }
+  }
+
+  void recordFailure() {
+    failedHandshakes.increment();
+  }
+
+  public long getFullHandshakes() {
+    return fullHandshakes.sum();
+  }
+
+  public long getResumedHandshakes() {
+    return resumedHandshakes.sum();
+  }
+
+  public long getFailedHandshakes() {
+    return failedHandshakes.sum();
+  }
+
+  public long getFullHandshakeNanos() {
+    return fullHandshakeNanos.sum();
+  }
+
+  public long getResumedHandshakeNanos() {
+    return resumedHandshakeNanos.sum();
+  }
+
+  /**
+   * Fraction of completed handshakes that were abbreviated, between 0 and 1.
+   */
+  public double getResumptionRate() {
+    long resumed = getResumedHandshakes();
+    long total = resumed + getFullHandshakes();
+    return total == 0 ? 0.0 : (double) resumed / total;
+  }
+}
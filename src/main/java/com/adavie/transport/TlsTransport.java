@@ -0,0 +1,339 @@
+package com.adavie.transport;
+
+import javax.net.ssl.SSLEngine;
+import javax.net.ssl.SSLEngineResult;
+import javax.net.ssl.SSLEngineResult.HandshakeStatus;
+import javax.net.ssl.SSLException;
+import java.io.EOFException;
+import java.io.IOException;
+import java.net.SocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.SelectableChannel;
+
+/**
+ * {@link Transport} that encrypts another transport with an {@link SSLEngine}.
+ *
+ * <p>The handshake is driven lazily by the first {@link #read} or {@link #write}. When the
+ * underlying transport is non-blocking these methods return {@code 0} until enough network data
+ * has arrived, and {@link #flush()} must be called until it returns {@code true} to drain any
+ * encrypted bytes the delegate could not accept yet.
+ *
+ * <p>One thread may read while another writes; concurrent writers must be serialised by the caller.
+ */
+public class TlsTransport implements Transport {
+  private static final ByteBuffer EMPTY = ByteBuffer.allocate(0);
+
+  private final Transport delegate;
+  private final SSLEngine engine;
+  private final TlsMetrics metrics;
+
+  // netIn and appIn are kept in fill mode, netOut holds encrypted bytes not yet written
+  private ByteBuffer netIn;
+  private ByteBuffer netOut;
+  private ByteBuffer appIn;
+
+  private long handshakeStartNanos;
+  private long handshakeStartMillis;
+  private boolean handshakeDone;
+  private boolean handshakeFailed;
+  private boolean inboundClosed;
+  private boolean closed;
+
+  public TlsTransport(Transport delegate, SSLEngine engine, TlsMetrics metrics) {
+    this.delegate = delegate;
+    this.engine = engine;
+    this.metrics = metrics;
+
+    int packetSize = engine.getSession().getPacketBufferSize();
+    this.netIn = ByteBuffer.allocate(packetSize);
+    this.netOut = ByteBuffer.allocate(packetSize);
+    this.appIn = ByteBuffer.allocate(engine.getSession().getApplicationBufferSize());
+  }
+
+  public SSLEngine getEngine() {
+    return engine;
+  }
+
+  public boolean isHandshakeComplete() {
+    return handshakeDone;
+  }
+
+  @Override
+  public SocketAddress getRemoteAddress() {
+    return delegate.getRemoteAddress();
+  }
+
+  @Override
+  public SelectableChannel getSelectableChannel() {
+    return delegate.getSelectableChannel();
+  }
+
+  @Override
+  public void configureBlocking(boolean blocking) throws IOException {
+    delegate.configureBlocking(blocking);
+  }
+
+  @Override
+  public String getApplicationProtocol() {
+    String protocol = engine.getApplicationProtocol();
+    return protocol == null || protocol.isEmpty() ? null : protocol;
+  }
+
+  @Override
+  public int read(ByteBuffer dst) throws IOException {
+    while (appIn.position() == 0) {
+      if (!handshake()) {
+        return 0;
+      }
+      if (appIn.position() > 0) {
+        break;
+      }
+      if (inboundClosed) {
+        return -1;
+      }
+      if (!unwrap()) {
+        return 0;
+      }
+    }
+
+    appIn.flip();
+    int n = Math.min(appIn.remaining(), dst.remaining());
+    ByteBuffer slice = appIn.duplicate();
+    slice.limit(slice.position() + n);
+    dst.put(slice);
+    appIn.position(appIn.position() + n);
+    appIn.compact();
+    return n;
+  }
+
+  @Override
+  public int write(ByteBuffer src) throws IOException {
+    return (int) write(new ByteBuffer[]{src}, 0, 1);
+  }
+
+  @Override
+  public synchronized long write(ByteBuffer[] srcs, int offset, int length) throws IOException {
+    if (!handshake() || !flush()) {
+      return 0;
+    }
+
+    long consumed = 0;
+    while (hasRemaining(srcs, offset, length)) {
+      SSLEngineResult result = wrap(srcs, offset, length);
+      consumed += result.bytesConsumed();
+      if (result.getStatus() == SSLEngineResult.Status.CLOSED) {
+        throw new IOException("TLS connection is closed");
+      }
+      if (!flush()) {
+        break;
+      }
+    }
+    return consumed;
+  }
+
+  @Override
+  public long write(ByteBuffer[] srcs) throws IOException {
+    return write(srcs, 0, srcs.length);
+  }
+
+  /**
+   * Writes any pending encrypted bytes to the delegate.
+   *
+   * @return {@code true} if nothing is left pending
+   */
+  @Override
+  public synchronized boolean flush() throws IOException {
+    if (netOut.position() == 0) {
+      return true;
+    }
+    netOut.flip();
+    try {
+      delegate.write(netOut);
+    } finally {
+      netOut.compact();
+    }
+    return netOut.position() == 0;
+  }
+
+  @Override
+  public boolean isOpen() {
+    return !closed && delegate.isOpen();
+  }
+
+  @Override
+  public synchronized void close() throws IOException {
+    if (closed) {
+      return;
+    }
+    closed = true;
+
+    try {
+      engine.closeOutbound();
+      while (!engine.isOutboundDone()) {
+        wrap(new ByteBuffer[]{EMPTY}, 0, 1);
+        if (!flush()) {
+          break;
+        }
+      }
+    } catch (IOException e) {
+      // the peer may already be gone, close_notify is best effort
+    } finally {
+      delegate.close();
+    }
+  }
+
+  /**
+   * Advances the handshake, including post-handshake messages such as session tickets.
+   *
+   * @return {@code false} if the delegate has no data available yet
+   */
+  private boolean handshake() throws IOException {
+    if (handshakeDone && engine.getHandshakeStatus() == HandshakeStatus.NOT_HANDSHAKING) {
+      return true;
+    }
+    if (handshakeStartNanos == 0) {
+      handshakeStartNanos = System.nanoTime();
+      handshakeStartMillis = System.currentTimeMillis();
+      engine.beginHandshake();
+    }
+
+    try {
+      while (true) {
+        if (!flush()) {
+          return false;
+        }
+
+        HandshakeStatus status = engine.getHandshakeStatus();
+        switch (status) {
+          case NEED_TASK:
+            runDelegatedTasks();
+            break;
+          case NEED_WRAP:
+            synchronized (this) {
+              wrap(new ByteBuffer[]{EMPTY}, 0, 1);
+            }
+            break;
+          case NEED_UNWRAP:
+          case NEED_UNWRAP_AGAIN:
+            if (!unwrap()) {
+              return false;
+            }
+            if (inboundClosed) {
+              throw new EOFException("Connection closed during TLS handshake");
+            }
+            break;
+          default:
+            if (!handshakeDone) {
+              handshakeDone = true;
+              metrics.recordHandshake(isResumed(), System.nanoTime() - handshakeStartNanos);
+            }
+            return true;
+        }
+      }
+    } catch (IOException e) {
+      if (!handshakeDone && !handshakeFailed) {
+        handshakeFailed = true;
+        metrics.recordFailure();
+      }
+      throw e;
+    }
+  }
+
+  /**
+   * A resumed session keeps the creation time of the session it was resumed from.
+   */
+  private boolean isResumed() {
+    return engine.getSession().getCreationTime() < handshakeStartMillis;
+  }
+
+  private void runDelegatedTasks() {
+    Runnable task;
+    while ((task = engine.getDelegatedTask()) != null) {
+      task.run();
+    }
+  }
+
+  /**
+   * Unwraps one TLS record into {@code appIn}, reading from the delegate as needed.
+   *
+   * @return {@code false} if the delegate has no data available yet
+   */
+  private boolean unwrap() throws IOException {
+    while (true) {
+      netIn.flip();
+      SSLEngineResult result;
+      try {
+        result = engine.unwrap(netIn, appIn);
+      } finally {
+        netIn.compact();
+      }
+
+      switch (result.getStatus()) {
+        case OK:
+          return true;
+        case CLOSED:
+          inboundClosed = true;
+          return true;
+        case BUFFER_OVERFLOW:
+          appIn = grow(appIn, engine.getSession().getApplicationBufferSize());
+          break;
+        case BUFFER_UNDERFLOW:
+          if (!netIn.hasRemaining()) {
+            netIn = grow(netIn, engine.getSession().getPacketBufferSize());
+          }
+          int n = delegate.read(netIn);
+          if (n < 0) {
+            inboundClosed = true;
+            closeInbound();
+            return true;
+          }
+          if (n == 0) {
+            return false;
+          }
+          break;
+        default:
+          throw new IllegalStateException("Unexpected TLS unwrap status: " + result.getStatus());
+      }
+    }
+  }
+
+  private SSLEngineResult wrap(ByteBuffer[] srcs, int offset, int length) throws IOException {
+    while (true) {
+      SSLEngineResult result = engine.wrap(srcs, offset, length, netOut);
+      if (result.getStatus() != SSLEngineResult.Status.BUFFER_OVERFLOW) {
+        return result;
+      }
+      if (netOut.position() > 0) {
+        if (!flush()) {
+          return result;
+        }
+      } else {
+        netOut = grow(netOut, engine.getSession().getPacketBufferSize());
+      }
+    }
+  }
+
+  private void closeInbound() {
+    try {
+      engine.closeInbound();
+    } catch (SSLException e) {
+      // peer closed without close_notify, treat it as a normal end of stream
+    }
+  }
+
+  private static ByteBuffer grow(ByteBuffer buffer, int minCapacity) {
+    ByteBuffer grown = ByteBuffer.allocate(Math.max(buffer.capacity() * 2, minCapacity));
+    buffer.flip();
+    grown.put(buffer);
+    return grown;
+  }
+
+  private static boolean hasRemaining(ByteBuffer[] srcs, int offset, int length) {
+    for (int i = offset; i < offset + length; i++) {
+      if (srcs[i].hasRemaining()) {
+        return true;
+      }
+    }
+    return false;
+  }
+}
@@ -0,0 +1,54 @@
+package com.adavie.transport;
+
+import java.io.IOException;
+import java.net.SocketAddress;
+import java.nio.channels.ByteChannel;
+import java.nio.channels.GatheringByteChannel;
+import java.nio.channels.SelectableChannel;
+
+/**
+ * A bidirectional byte stream to a single client.
+ *
+ * <p>Request handling works against this interface rather than a {@link java.net.Socket} so that
+ * the same pipeline can run over plain TCP, TLS or any other channel. Implementations may be
+ * blocking or non-blocking; in non-blocking mode {@link #read} returns {@code 0} when no data is
+ * available yet.
+ */
+public interface Transport extends ByteChannel, GatheringByteChannel {
+
+  SocketAddress getRemoteAddress();
+
+  /**
+   * Returns the application protocol negotiated for this connection (for example via TLS ALPN),
+   * or {@code null} when none was negotiated.
+   */
+  default String getApplicationProtocol() {
+    return null;
+  }
+
+  /**
+   * Returns the channel this transport ultimately reads from, so that it can be registered with a
+   * {@link java.nio.channels.Selector}, or {@code null} if it has none.
+   */
+  default SelectableChannel getSelectableChannel() {
+    return null;
+  }
+
+  /**
+   * Switches the transport between blocking and non-blocking mode.
+   *
+   * @throws UnsupportedOperationException if the transport has no selectable channel
+   */
+  default void configureBlocking(boolean blocking) throws IOException {
+    throw new UnsupportedOperationException("Transport cannot change its blocking mode");
+  }
+
+  /**
+   * Writes any bytes the transport buffered internally during an earlier non-blocking write.
+   *
+   * @return {@code true} if nothing is left pending
+   */
+  default boolean flush() throws IOException {
+    return true;
+  }
+}
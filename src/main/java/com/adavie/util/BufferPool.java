@@ -0,0 +1,54 @@
+package com.adavie.util;
+
+import java.nio.ByteBuffer;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+
+/**
+ * Bounded pool of equally sized heap {@link ByteBuffer}s.
+ *
+ * <p>Large scratch buffers used for the lifetime of one request are borrowed from here rather
+ * than allocated per request, which keeps them out of the young generation under load. Buffers
+ * released beyond the pool capacity are dropped.
+ */
+public final class BufferPool {
+  private final int bufferSize;
+  private final int capacity;
+  private final BlockingQueue<ByteBuffer> buffers;
+
+  public BufferPool(int bufferSize, int capacity) {
+    if (bufferSize < 1) {
+      throw new IllegalArgumentException("Buffer size must be at least 1");
+    }
+    if (capacity < 0) {
+      throw new IllegalArgumentException("Pool capacity cannot be negative");
+    }
+    this.bufferSize = bufferSize;
+    this.capacity = capacity;
+    this.buffers = new ArrayBlockingQueue<>(Math.max(1, capacity));
+  }
+
+  public int getBufferSize() {
+    return bufferSize;
+  }
+
+  /**
+   * Returns a cleared buffer of {@link #getBufferSize()} bytes.
+   */
+  public ByteBuffer acquire() {
+    ByteBuffer buffer = buffers.poll();
+    return buffer != null ? buffer : ByteBuffer.allocate(bufferSize);
+  }
+
+  public void release(ByteBuffer buffer) {
+    if (buffer.capacity() != bufferSize || capacity == 0) {
+      return;
+    }
+    buffer.clear();
+    buffers.offer(buffer);
+  }
+
+  public int getIdleBuffers() {
+    return buffers.size();
+  }
+}
@@ -0,0 +1,62 @@
+package com.adavie.util;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+/**
+ * Bounded pools of raw (no zlib wrapper) {@link Inflater}s and {@link Deflater}s.
+ *
+ * <p>Both hold native zlib state that is expensive to create and is only released by
+ * {@code end()}, so borrowing one for the duration of a message beats allocating per message or
+ * keeping one per idle connection. Instances beyond the pool capacity are ended on release.
+ */
+public final class DeflatePool {
+  private final int capacity;
+  private final int compressionLevel;
+  private final BlockingQueue<Inflater> inflaters;
+  private final BlockingQueue<Deflater> deflaters;
+
+  public DeflatePool(int capacity, int compressionLevel) {
+    if (capacity < 0) {
+      throw new IllegalArgumentException("Pool capacity cannot be negative");
+    }
+    this.capacity = capacity;
+    this.compressionLevel = compressionLevel;
+    this.inflaters = new ArrayBlockingQueue<>(Math.max(1, capacity));
+    this.deflaters = new ArrayBlockingQueue<>(Math.max(1, capacity));
+  }
+
+  public Inflater acquireInflater() {
+    Inflater inflater = inflaters.poll();
+    return inflater != null ? inflater : new Inflater(true);
+  }
+
+  public void release(Inflater inflater) {
+    inflater.reset();
+    if (capacity == 0 || !inflaters.offer(inflater)) {
+      inflater.end();
+    }
+  }
+
+  public Deflater acquireDeflater() {
+    Deflater deflater = deflaters.poll();
+    return deflater != null ? deflater : new Deflater(compressionLevel, true);
+  }
+
+  public void release(Deflater deflater) {
+    deflater.reset();
+    if (capacity == 0 || !deflaters.offer(deflater)) {
+      deflater.end();
+    }
+  }
+
+  public int getIdleInflaters() {
+    return inflaters.size();
+  }
+
+  public int getIdleDeflaters() {
+    return deflaters.size();
+  }
+}
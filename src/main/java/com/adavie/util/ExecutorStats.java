@@ -0,0 +1,131 @@
+package com.adavie.util;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Snapshot of what an {@link InstrumentedExecutor} has done since it was created.
+ *
+ * <p>Queue wait is the time from a task being submitted to it starting to run; for a
+ * virtual-thread executor that is the scheduling delay of its thread.
+ */
+public final class ExecutorStats {
+  private final long submitted;
+  private final long completed;
+  private final long rejected;
+  private final int active;
+  private final int peakActive;
+  private final int queued;
+  private final int peakQueued;
+  private final long totalQueueWaitNanos;
+  private final long maxQueueWaitNanos;
+  private final long totalRunNanos;
+  private final long maxRunNanos;
+  private final long pinnedEvents;
+
+  ExecutorStats(long submitted, long completed, long rejected, int active, int peakActive, int queued,
+                int peakQueued, long totalQueueWaitNanos, long maxQueueWaitNanos, long totalRunNanos,
+                long maxRunNanos, long pinnedEvents) {
+    this.submitted = submitted;
+    this.completed = completed;
+    this.rejected = rejected;
+    this.active = active;
+    this.peakActive = peakActive;
+    this.queued = queued;
+    this.peakQueued = peakQueued;
+    this.totalQueueWaitNanos = totalQueueWaitNanos;
+    this.maxQueueWaitNanos = maxQueueWaitNanos;
+    this.totalRunNanos = totalRunNanos;
+    this.maxRunNanos = maxRunNanos;
+    this.pinnedEvents = pinnedEvents;
+  }
+
+  /**
+   * Tasks accepted for execution, not counting rejected ones.
+   */
+  public long getSubmitted() {
+    return submitted;
+  }
+
+  public long getCompleted() {
+    return completed;
+  }
+
+  public long getRejected() {
+    return rejected;
+  }
+
+  /**
+   * Tasks running right now.
+   */
+  public int getActive() {
+    return active;
+  }
+
+  public int getPeakActive() {
+    return peakActive;
+  }
+
+  /**
+   * Tasks submitted that have not started running yet.
+   */
+  public int getQueued() {
+    return queued;
+  }
+
+  public int getPeakQueued() {
+    return peakQueued;
+  }
+
+  public long getTotalQueueWaitNanos() {
+    return totalQueueWaitNanos;
+  }
+
+  public long getMaxQueueWaitNanos() {
+    return maxQueueWaitNanos;
+  }
+
+  /**
+   * Mean queue wait of the tasks that have started, in nanoseconds.
+   */
+  public long getAverageQueueWaitNanos() {
+    long started = submitted - queued;
+    return started <= 0 ? 0 : totalQueueWaitNanos / started;
+  }
+
+  public long getTotalRunNanos() {
+    return totalRunNanos;
+  }
+
+  public long getMaxRunNanos() {
+    return maxRunNanos;
+  }
+
+  /**
+   * Mean run time of the completed tasks, in nanoseconds.
+   */
+  public long getAverageRunNanos() {
+    return completed == 0 ? 0 : totalRunNanos / completed;
+  }
+
+  /**
+   * Times a virtual thread was pinned to its carrier while blocking, across the JVM. Always
+   * {@code 0} for platform thread pools and on JVMs without virtual threads.
+   */
+  public long getPinnedEvents() {
+    return pinnedEvents;
+  }
+
+  @Override
+  public String toString() {
+    return "ExecutorStats{submitted=" + submitted
+        + ", completed=" + completed
+        + ", rejected=" + rejected
+        + ", active=" + active + " (peak " + peakActive + ")"
+        + ", queued=" + queued + " (peak " + peakQueued + ")"
+        + ", avgQueueWait=" + TimeUnit.NANOSECONDS.toMicros(getAverageQueueWaitNanos()) + "us"
+        + ", maxQueueWait=" + TimeUnit.NANOSECONDS.toMicros(maxQueueWaitNanos) + "us"
+        + ", avgRun=" + TimeUnit.NANOSECONDS.toMicros(getAverageRunNanos()) + "us"
+        + ", maxRun=" + TimeUnit.NANOSECONDS.toMicros(maxRunNanos) + "us"
+        + ", pinned=" + pinnedEvents + "}";
+  }
+}
@@ -0,0 +1,10 @@
+package com.adavie.util;
+
+/**
+ * An executor that measures the tasks it runs. Every executor created by
+ * {@link ThreadPoolFactory} implements it.
+ */
+public interface InstrumentedExecutor {
+
+  ExecutorStats getStats();
+}
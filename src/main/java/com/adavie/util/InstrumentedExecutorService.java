@@ -0,0 +1,69 @@
+package com.adavie.util;
+
+import java.util.List;
+import java.util.concurrent.AbstractExecutorService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the tasks of an executor that cannot be subclassed, such as the virtual-thread-per-task
+ * executor, by wrapping it.
+ */
+final class InstrumentedExecutorService extends AbstractExecutorService implements InstrumentedExecutor {
+  private final ExecutorService delegate;
+  private final boolean virtualThreads;
+  private final TaskCounters counters = new TaskCounters();
+
+  InstrumentedExecutorService(ExecutorService delegate, boolean virtualThreads) {
+    this.delegate = delegate;
+    this.virtualThreads = virtualThreads;
+    if (virtualThreads) {
+      PinningMonitor.start();
+    }
+  }
+
+  @Override
+  public void execute(Runnable command) {
+    if (command == null) {
+      throw new NullPointerException();
+    }
+    counters.submitted();
+    try {
+      delegate.execute(counters.wrap(command));
+    } catch (RejectedExecutionException e) {
+      counters.rejected();
+      throw e;
+    }
+  }
+
+  @Override
+  public ExecutorStats getStats() {
+    return counters.snapshot(virtualThreads ? PinningMonitor.getPinnedEvents() : 0);
+  }
+
+  @Override
+  public void shutdown() {
+    delegate.shutdown();
+  }
+
+  @Override
+  public List<Runnable> shutdownNow() {
+    return delegate.shutdownNow();
+  }
+
+  @Override
+  public boolean isShutdown() {
+    return delegate.isShutdown();
+  }
+
+  @Override
+  public boolean isTerminated() {
+    return delegate.isTerminated();
+  }
+
+  @Override
+  public boolean awaitTermination(long timeout, TimeUnit unit) throws InterruptedException {
+    return delegate.awaitTermination(timeout, unit);
+  }
+}
@@ -0,0 +1,53 @@
+package com.adavie.util;
+
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Work-stealing {@link ForkJoinPool} in async mode that measures the tasks passed to
+ * {@link #execute(Runnable)} like {@link InstrumentedThreadPoolExecutor} does.
+ *
+ * <p>Connections are submitted from outside the pool, while sub-work forked by a handler goes to
+ * its worker's own deque, where idle workers steal it; forked tasks are not counted. A pool has
+ * no bounded queue of its own, so {@code execute} turns work away once {@code queueLimit} tasks
+ * are waiting to start.
+ */
+public class InstrumentedForkJoinPool extends ForkJoinPool implements InstrumentedExecutor {
+  private final TaskCounters counters = new TaskCounters();
+  private final int queueLimit;
+
+  /**
+   * @param maxPoolSize the most threads, including spares started for workers blocked on I/O
+   * @param queueLimit  the most tasks waiting to start, or {@code 0} or less for no limit
+   */
+  public InstrumentedForkJoinPool(int parallelism, int maxPoolSize, long keepAliveTime, TimeUnit unit,
+                                  int queueLimit) {
+    super(parallelism, ForkJoinPool.defaultForkJoinWorkerThreadFactory, null, true,
+        parallelism, Math.max(parallelism, maxPoolSize), 1, pool -> true, Math.max(1, keepAliveTime), unit);
+    this.queueLimit = queueLimit;
+  }
+
+  @Override
+  public void execute(Runnable command) {
+    if (command == null) {
+      throw new NullPointerException();
+    }
+    if (queueLimit > 0 && counters.getQueued() >= queueLimit) {
+      counters.refused();
+      throw new RejectedExecutionException("Task " + command + " rejected from " + this);
+    }
+    counters.submitted();
+    try {
+      super.execute(counters.wrap(command));
+    } catch (RejectedExecutionException e) {
+      counters.rejected();
+      throw e;
+    }
+  }
+
+  @Override
+  public ExecutorStats getStats() {
+    return counters.snapshot(0);
+  }
+}
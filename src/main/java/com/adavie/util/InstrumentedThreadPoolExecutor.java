@@ -0,0 +1,42 @@
+package com.adavie.util;
+
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.RejectedExecutionHandler;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * {@link ThreadPoolExecutor} that timestamps every task on submit and records its queue wait and
+ * run time, the high-water marks of active threads and queue depth, and rejections.
+ *
+ * <p>Counting happens in {@link #execute}, so it must be used with a rejection handler that
+ * throws, such as the default abort policy.
+ */
+public class InstrumentedThreadPoolExecutor extends ThreadPoolExecutor implements InstrumentedExecutor {
+  private final TaskCounters counters = new TaskCounters();
+
+  public InstrumentedThreadPoolExecutor(int corePoolSize, int maximumPoolSize, long keepAliveTime, TimeUnit unit,
+                                        BlockingQueue<Runnable> workQueue, RejectedExecutionHandler handler) {
+    super(corePoolSize, maximumPoolSize, keepAliveTime, unit, workQueue, handler);
+  }
+
+  @Override
+  public void execute(Runnable command) {
+    if (command == null) {
+      throw new NullPointerException();
+    }
+    counters.submitted();
+    try {
+      super.execute(counters.wrap(command));
+    } catch (RejectedExecutionException e) {
+      counters.rejected();
+      throw e;
+    }
+  }
+
+  @Override
+  public ExecutorStats getStats() {
+    return counters.snapshot(0);
+  }
+}
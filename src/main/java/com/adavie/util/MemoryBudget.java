@@ -0,0 +1,95 @@
+package com.adavie.util;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * A byte budget shared by all connections, reserved before memory is allocated and released once
+ * it is no longer referenced.
+ *
+ * <p>Reservations succeed with a single compare-and-set while the budget has room. Callers that
+ * may wait block on a monitor that {@link #release} only touches when someone is waiting.
+ */
+public final class MemoryBudget {
+  private final long capacity;
+  private final AtomicLong used = new AtomicLong();
+  private final AtomicInteger waiters = new AtomicInteger();
+  private final Object lock = new Object();
+
+  public MemoryBudget(long capacity) {
+    if (capacity < 1) {
+      throw new IllegalArgumentException("Budget capacity must be at least 1");
+    }
+    this.capacity = capacity;
+  }
+
+  public long getCapacity() {
+    return capacity;
+  }
+
+  public long getUsed() {
+    return used.get();
+  }
+
+  /**
+   * Reserves {@code bytes} if they fit in the remaining budget.
+   */
+  public boolean tryReserve(long bytes) {
+    if (bytes < 0) {
+      throw new IllegalArgumentException("Cannot reserve a negative number of bytes");
+    }
+    while (true) {
+      long current = used.get();
+      if (current + bytes > capacity) {
+        return false;
+      }
+      if (used.compareAndSet(current, current + bytes)) {
+        return true;
+      }
+    }
+  }
+
+  /**
+   * Reserves {@code bytes}, waiting up to {@code timeout} for other holders to release enough.
+   *
+   * @return {@code false} if the bytes could not be reserved in time
+   */
+  public boolean reserve(long bytes, long timeout, TimeUnit unit) throws InterruptedException {
+    if (tryReserve(bytes)) {
+      return true;
+    }
+    if (timeout <= 0 || bytes > capacity) {
+      return false;
+    }
+
+    long deadline = System.nanoTime() + unit.toNanos(timeout);
+    synchronized (lock) {
+      waiters.incrementAndGet();
+      try {
+        while (!tryReserve(bytes)) {
+          long remaining = deadline - System.nanoTime();
+          if (remaining <= 0) {
+            return false;
+          }
+          TimeUnit.NANOSECONDS.timedWait(lock, remaining);
+        }
+        return true;
+      } finally {
+        waiters.decrementAndGet();
+      }
+    }
+  }
+
+  public void release(long bytes) {
+    if (bytes == 0) {
+      return;
+    }
+    used.addAndGet(-bytes);
+    if (waiters.get() > 0) {
+      synchronized (lock) {
+        lock.notifyAll();
+      }
+    }
+  }
+}
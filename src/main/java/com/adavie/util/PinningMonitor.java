@@ -0,0 +1,46 @@
+package com.adavie.util;
+
+import jdk.jfr.consumer.RecordingStream;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Counts {@code jdk.VirtualThreadPinned} events, which the JVM emits when a virtual thread blocks
+ * while pinned to its carrier thread, typically inside {@code synchronized}. The count covers the
+ * whole JVM, since events do not say which executor started the thread.
+ */
+final class PinningMonitor {
+  private static final Logger LOGGER = Logger.getLogger(PinningMonitor.class.getName());
+  private static final String PINNED_EVENT = "jdk.VirtualThreadPinned";
+  // the JDK's default threshold for the event, shorter pins are not worth a record
+  private static final Duration THRESHOLD = Duration.ofMillis(20);
+
+  private static final LongAdder PINNED = new LongAdder();
+  private static boolean started;
+
+  private PinningMonitor() {
+  }
+
+  static synchronized void start() {
+    if (started) {
+      return;
+    }
+    started = true;
+    try {
+      RecordingStream stream = new RecordingStream();
+      stream.enable(PINNED_EVENT).withThreshold(THRESHOLD);
+      stream.onEvent(PINNED_EVENT, event -> PINNED.increment());
+      stream.startAsync();
+    } catch (RuntimeException | LinkageError e) {
+      // streaming needs JDK 14 and may be disabled, pinning then goes uncounted
+      LOGGER.log(Level.FINE, "Virtual thread pinning cannot be monitored", e);
+    }
+  }
+
+  static long getPinnedEvents() {
+    return PINNED.sum();
+  }
+}
@@ -0,0 +1,73 @@
+package com.adavie.util;
+
+import com.adavie.config.TlsConfig;
+
+import javax.net.ssl.KeyManagerFactory;
+import javax.net.ssl.SSLContext;
+import javax.net.ssl.SSLEngine;
+import javax.net.ssl.SSLParameters;
+import javax.net.ssl.SSLSessionContext;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.InetSocketAddress;
+import java.net.SocketAddress;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.security.GeneralSecurityException;
+import java.security.KeyStore;
+import java.util.logging.Logger;
+
+public class SslContextFactory {
+  private static final Logger LOGGER = Logger.getLogger(SslContextFactory.class.getName());
+  private static final String SESSION_TICKET_PROPERTY = "jdk.tls.server.enableSessionTicketExtension";
+
+  public static SSLContext newSslContext(TlsConfig config) {
+    if (System.getProperty(SESSION_TICKET_PROPERTY) == null) {
+      System.setProperty(SESSION_TICKET_PROPERTY, String.valueOf(config.isSessionTickets()));
+    } else if (!System.getProperty(SESSION_TICKET_PROPERTY).equals(String.valueOf(config.isSessionTickets()))) {
+      LOGGER.warning("Session ticket setting is overridden by the " + SESSION_TICKET_PROPERTY + " system property");
+    }
+
+    SSLContext sslContext = config.getSslContext() != null ? config.getSslContext() : loadSslContext(config);
+
+    SSLSessionContext sessionContext = sslContext.getServerSessionContext();
+    if (sessionContext != null) {
+      sessionContext.setSessionCacheSize(config.getSessionCacheSize());
+      sessionContext.setSessionTimeout(config.getSessionTimeoutSeconds());
+    }
+    return sslContext;
+  }
+
+  public static SSLEngine newServerEngine(SSLContext sslContext, TlsConfig config, SocketAddress peerAddress) {
+    SSLEngine engine;
+    if (peerAddress instanceof InetSocketAddress) {
+      InetSocketAddress inetAddress = (InetSocketAddress) peerAddress;
+      engine = sslContext.createSSLEngine(inetAddress.getHostString(), inetAddress.getPort());
+    } else {
+      engine = sslContext.createSSLEngine();
+    }
+    engine.setUseClientMode(false);
+
+    SSLParameters parameters = engine.getSSLParameters();
+    parameters.setProtocols(config.getProtocols().toArray(new String[0]));
+    parameters.setApplicationProtocols(config.getApplicationProtocols().toArray(new String[0]));
+    engine.setSSLParameters(parameters);
+    return engine;
+  }
+
+  private static SSLContext loadSslContext(TlsConfig config) {
+    try (InputStream in = Files.newInputStream(Paths.get(config.getKeyStorePath()))) {
+      KeyStore keyStore = KeyStore.getInstance(config.getKeyStoreType());
+      keyStore.load(in, config.getKeyStorePassword());
+
+      KeyManagerFactory keyManagerFactory = KeyManagerFactory.getInstance(KeyManagerFactory.getDefaultAlgorithm());
+      keyManagerFactory.init(keyStore, config.getKeyStorePassword());
+
+      SSLContext sslContext = SSLContext.getInstance("TLS");
+      sslContext.init(keyManagerFactory.getKeyManagers(), null, null);
+      return sslContext;
+    } catch (IOException | GeneralSecurityException e) {
+      throw new RuntimeException("Failed to load key store: " + config.getKeyStorePath(), e);
+    }
+  }
+}
@@ -0,0 +1,84 @@
+package com.adavie.util;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ForkJoinTask;
+
+/**
+ * Runs a handler's independent pieces of work in parallel, for example the backend calls of a
+ * fan-out endpoint.
+ *
+ * <p>On a work-stealing worker (see {@link com.adavie.config.ThreadPoolConfig#isWorkStealing()})
+ * the pieces are pushed onto the worker's own deque, idle workers steal them, and while joining
+ * the handler's worker runs pieces nobody has taken yet instead of waiting. Elsewhere they run in
+ * the common {@link java.util.concurrent.ForkJoinPool}.
+ */
+public final class Subtasks {
+
+  private Subtasks() {
+  }
+
+  /**
+   * Runs every task and returns their results in the same order. If any task throws, the first
+   * failure in list order is rethrown once all tasks have finished.
+   */
+  public static <T> List<T> invokeAll(List<? extends Callable<? extends T>> work) throws Exception {
+    List<Subtask<T>> tasks = new ArrayList<>(work.size());
+    for (Callable<? extends T> callable : work) {
+      Subtask<T> task = new Subtask<>(callable);
+      task.fork();
+      tasks.add(task);
+    }
+
+    List<T> results = new ArrayList<>(tasks.size());
+    Exception failure = null;
+    // join newest first, it is the one most likely to still be on top of our own deque
+    for (int i = tasks.size() - 1; i >= 0; i--) {
+      tasks.get(i).join();
+    }
+    for (Subtask<T> task : tasks) {
+      if (task.failure != null && failure == null) {
+        failure = task.failure;
+      }
+      results.add(task.result);
+    }
+    if (failure != null) {
+      throw failure;
+    }
+    return results;
+  }
+
+  /**
+   * Records a checked exception rather than completing exceptionally, so it is rethrown as is
+   * instead of wrapped.
+   */
+  private static final class Subtask<T> extends ForkJoinTask<Void> {
+    private final Callable<? extends T> callable;
+    private T result;
+    private Exception failure;
+
+    Subtask(Callable<? extends T> callable) {
+      this.callable = callable;
+    }
+
+    @Override
+    protected boolean exec() {
+      try {
+        result = callable.call();
+      } catch (Exception e) {
+        failure = e;
+      }
+      return true;
+    }
+
+    @Override
+    public Void getRawResult() {
+      return null;
+    }
+
+    @Override
+    protected void setRawResult(Void value) {
+    }
+  }
+}
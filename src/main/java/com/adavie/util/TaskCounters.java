@@ -0,0 +1,106 @@
+package com.adavie.util;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Counters shared by the instrumented executors. Tasks are wrapped on submit so that the
+ * timestamp travels with them through the queue.
+ */
+final class TaskCounters {
+  private final LongAdder submitted = new LongAdder();
+  private final LongAdder completed = new LongAdder();
+  private final LongAdder rejected = new LongAdder();
+  private final AtomicInteger active = new AtomicInteger();
+  private final AtomicInteger queued = new AtomicInteger();
+  private final LongAccumulator peakActive = new LongAccumulator(Math::max, 0);
+  private final LongAccumulator peakQueued = new LongAccumulator(Math::max, 0);
+  private final LongAdder totalQueueWait = new LongAdder();
+  private final LongAccumulator maxQueueWait = new LongAccumulator(Math::max, 0);
+  private final LongAdder totalRun = new LongAdder();
+  private final LongAccumulator maxRun = new LongAccumulator(Math::max, 0);
+
+  Runnable wrap(Runnable task) {
+    return new TimedTask(task, System.nanoTime());
+  }
+
+  void submitted() {
+    submitted.increment();
+    peakQueued.accumulate(queued.incrementAndGet());
+  }
+
+  /**
+   * Tasks submitted that have not started running yet.
+   */
+  int getQueued() {
+    return queued.get();
+  }
+
+  /**
+   * Counts a task turned away before {@link #submitted()}.
+   */
+  void refused() {
+    rejected.increment();
+  }
+
+  /**
+   * Undoes {@link #submitted()} for a task the executor turned away.
+   */
+  void rejected() {
+    submitted.decrement();
+    queued.decrementAndGet();
+    rejected.increment();
+  }
+
+  ExecutorStats snapshot(long pinnedEvents) {
+    return new ExecutorStats(
+        submitted.sum(),
+        completed.sum(),
+        rejected.sum(),
+        active.get(),
+        (int) peakActive.get(),
+        Math.max(0, queued.get()),
+        (int) peakQueued.get(),
+        totalQueueWait.sum(),
+        maxQueueWait.get(),
+        totalRun.sum(),
+        maxRun.get(),
+        pinnedEvents
+    );
+  }
+
+  private final class TimedTask implements Runnable {
+    private final Runnable task;
+    private final long submittedAt;
+
+    TimedTask(Runnable task, long submittedAt) {
+      this.task = task;
+      this.submittedAt = submittedAt;
+    }
+
+    @Override
+    public void run() {
+      long start = System.nanoTime();
+      long wait = start - submittedAt;
+      queued.decrementAndGet();
+      totalQueueWait.add(wait);
+      maxQueueWait.accumulate(wait);
+      peakActive.accumulate(active.incrementAndGet());
+      try {
+        task.run();
+      } finally {
+        long run = System.nanoTime() - start;
+        active.decrementAndGet();
+        totalRun.add(run);
+        maxRun.accumulate(run);
+        completed.increment();
+      }
+    }
+
+    @Override
+    public String toString() {
+      return task.toString();
+    }
+  }
+}
@@ -1,6 +1,7 @@
 package com.adavie.util;
 
 import com.adavie.config.ThreadPoolConfig;
+import com.adavie.jfr.ExecutorRejectedEvent;
 
 import java.lang.invoke.MethodHandle;
 import java.lang.invoke.MethodHandles;
@@ -8,6 +9,11 @@ import java.lang.invoke.MethodType;
 import java.util.concurrent.*;
 import java.util.logging.Logger;
 
+/**
+ * Creates the server's worker executors. Every executor returned implements
+ * {@link InstrumentedExecutor}, so queue wait, run time, high-water marks and rejections can be
+ * read through {@link InstrumentedExecutor#getStats()}.
+ */
 public class ThreadPoolFactory {
   private static final Logger logger = Logger.getLogger(ThreadPoolFactory.class.getName());
   private static final MethodHandle VIRTUAL_THREAD_EXECUTOR_FACTORY;
@@ -27,6 +33,16 @@ public class ThreadPoolFactory {
   }
 
   public static ExecutorService newExecutorService(ThreadPoolConfig config) {
+    if (config.isWorkStealing()) {
+      return new InstrumentedForkJoinPool(
+          config.getParallelism(),
+          config.getMaxPoolSize(),
+          config.getKeepAliveSeconds(),
+          TimeUnit.SECONDS,
+          config.getQueueSize()
+      );
+    }
+
     if (config.isVirtualThreads() && VIRTUAL_THREAD_EXECUTOR_FACTORY != null) {
       if (config.isDefault()) {
         logger.warning(
@@ -41,20 +57,32 @@ public class ThreadPoolFactory {
     }
 
     // Fall back to platform threads
-    return new ThreadPoolExecutor(
+    return new InstrumentedThreadPoolExecutor(
         config.getMinPoolSize(),
         config.getMaxPoolSize(),
         config.getKeepAliveSeconds(),
         TimeUnit.SECONDS,
-        new LinkedBlockingQueue<>(config.getQueueSize())
+        new LinkedBlockingQueue<>(config.getQueueSize()),
+        new RecordingAbortPolicy()
     );
   }
 
   private static ExecutorService newVirtualThreadExecutor() {
     try {
-      return (ExecutorService) VIRTUAL_THREAD_EXECUTOR_FACTORY.invoke();
+      return new InstrumentedExecutorService((ExecutorService) VIRTUAL_THREAD_EXECUTOR_FACTORY.invoke(), true);
     } catch (Throwable e) {
       throw new RuntimeException("Failed to create virtual thread executor", e);
     }
   }
+
+  /**
+   * Rejects like {@link ThreadPoolExecutor.AbortPolicy}, recording a JFR event first.
+   */
+  private static final class RecordingAbortPolicy implements RejectedExecutionHandler {
+    @Override
+    public void rejectedExecution(Runnable task, ThreadPoolExecutor executor) {
+      ExecutorRejectedEvent.record(executor);
+      throw new RejectedExecutionException("Task " + task + " rejected from " + executor);
+    }
+  }
 }
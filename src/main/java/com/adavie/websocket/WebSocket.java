@@ -0,0 +1,61 @@
+package com.adavie.websocket;
+
+import com.adavie.request.Request;
+
+import java.net.SocketAddress;
+import java.nio.ByteBuffer;
+
+/**
+ * An open WebSocket connection.
+ *
+ * <p>Send methods may be called from any thread. They copy the payload into an outbound queue that
+ * the connection's event loop drains, so they never block on the network; use
+ * {@link #getBufferedAmount()} to apply back-pressure to fast producers.
+ */
+public interface WebSocket {
+  int NORMAL_CLOSURE = 1000;
+  int GOING_AWAY = 1001;
+  int PROTOCOL_ERROR = 1002;
+  int UNSUPPORTED_DATA = 1003;
+  int NO_STATUS_RECEIVED = 1005;
+  int ABNORMAL_CLOSURE = 1006;
+  int INVALID_PAYLOAD = 1007;
+  int POLICY_VIOLATION = 1008;
+  int MESSAGE_TOO_BIG = 1009;
+  int INTERNAL_ERROR = 1011;
+
+  void sendText(String text);
+
+  void sendBinary(ByteBuffer data);
+
+  /**
+   * Sends a ping with at most 125 bytes of application data; the reply arrives through
+   * {@link WebSocketHandler#onPong}.
+   */
+  void sendPing(ByteBuffer data);
+
+  void close();
+
+  /**
+   * Starts the closing handshake. The connection is closed once the client answers, and
+   * {@link WebSocketHandler#onClose} is invoked with the client's status code.
+   */
+  void close(int statusCode, String reason);
+
+  /**
+   * Returns {@code true} until either side has started the closing handshake.
+   */
+  boolean isOpen();
+
+  /**
+   * The HTTP request that was upgraded to this connection.
+   */
+  Request getRequest();
+
+  SocketAddress getRemoteAddress();
+
+  /**
+   * Number of bytes queued for sending that have not been written to the network yet.
+   */
+  long getBufferedAmount();
+}
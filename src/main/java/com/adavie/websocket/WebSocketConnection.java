@@ -0,0 +1,690 @@
+package com.adavie.websocket;
+
+import com.adavie.config.WebSocketConfig;
+import com.adavie.request.Request;
+import com.adavie.server.EventLoop;
+import com.adavie.transport.Transport;
+import com.adavie.util.DeflatePool;
+
+import java.io.IOException;
+import java.net.SocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.SelectionKey;
+import java.nio.charset.CharacterCodingException;
+import java.nio.charset.CharsetDecoder;
+import java.nio.charset.CodingErrorAction;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+/**
+ * A WebSocket connection served by an {@link EventLoop}.
+ *
+ * <p>Reads happen on the loop thread into a buffer shared by every connection on that loop; only
+ * the tail of a partially received frame is copied into a buffer owned by the connection, so an
+ * idle connection holds no read buffer at all. Outgoing frames are queued from any thread and
+ * written by the loop with gathering writes.
+ *
+ * <p>When permessage-deflate is negotiated both directions use no context takeover, which lets
+ * each message borrow an inflater or deflater from the server-wide {@link DeflatePool} instead of
+ * pinning zlib state to the connection for its whole lifetime.
+ */
+final class WebSocketConnection implements WebSocket, EventLoop.ChannelHandler {
+  private static final Logger LOGGER = Logger.getLogger(WebSocketConnection.class.getName());
+
+  private static final int READ_BUFFER_SIZE = 16384;
+  private static final int MIN_PENDING_SIZE = 1024;
+  private static final int WRITE_BATCH_SIZE = 16;
+  private static final int MAX_CLOSE_REASON_LENGTH = 123;
+  private static final byte[] DEFLATE_TAIL = {0x00, 0x00, (byte) 0xFF, (byte) 0xFF};
+
+  private static final ThreadLocal<ByteBuffer> SHARED_READ_BUFFER =
+      ThreadLocal.withInitial(() -> ByteBuffer.allocate(READ_BUFFER_SIZE));
+
+  private final Transport transport;
+  private final Request request;
+  private final WebSocketHandler handler;
+  private final WebSocketConfig config;
+  private final DeflatePool deflatePool;
+  private final EventLoop eventLoop;
+  private final WebSocketFrameCodec codec;
+
+  private final Queue<ByteBuffer> outbound = new ConcurrentLinkedQueue<>();
+  private final AtomicLong bufferedAmount = new AtomicLong();
+  private final AtomicBoolean flushScheduled = new AtomicBoolean();
+  private final ByteBuffer[] writeBatch = new ByteBuffer[WRITE_BATCH_SIZE];
+  private final Runnable flushTask = this::runScheduledFlush;
+
+  // state below is only touched by the event loop thread
+  private SelectionKey key;
+  private ByteBuffer pending;
+  private ByteBuffer message;
+  private int messageOpcode;
+  private boolean messageCompressed;
+  private CharsetDecoder utf8Decoder;
+  private boolean closeReceived;
+  private boolean failing;
+  private boolean closed;
+  private int closeCode = ABNORMAL_CLOSURE;
+  private String closeReason = "";
+
+  // guarded by outbound
+  private volatile boolean closeSent;
+  private ByteBuffer closeFrame;
+
+  private volatile boolean open = true;
+
+  /**
+   * @param deflatePool pool to compress messages with, or {@code null} if permessage-deflate was
+   *     not negotiated
+   * @param buffered bytes read past the upgrade request, in read mode
+   */
+  WebSocketConnection(Transport transport, Request request, WebSocketHandler handler, WebSocketConfig config,
+                      DeflatePool deflatePool, EventLoop eventLoop, ByteBuffer buffered) {
+    this.transport = transport;
+    this.request = request;
+    this.handler = handler;
+    this.config = config;
+    this.deflatePool = deflatePool;
+    this.eventLoop = eventLoop;
+    this.codec = new WebSocketFrameCodec(config.getMaxFrameSize());
+
+    if (buffered != null && buffered.hasRemaining()) {
+      pending = ByteBuffer.allocate(Math.max(buffered.remaining(), MIN_PENDING_SIZE));
+      pending.put(buffered);
+      pending.flip();
+    }
+  }
+
+  /**
+   * Switches the transport to non-blocking mode and hands it to the event loop.
+   */
+  void start() throws IOException {
+    transport.configureBlocking(false);
+    eventLoop.register(transport.getSelectableChannel(), SelectionKey.OP_READ, this);
+  }
+
+  @Override
+  public void onRegistered(SelectionKey key) throws IOException {
+    this.key = key;
+    try {
+      handler.onOpen(this);
+    } catch (RuntimeException e) {
+      WebSocketException error = callbackFailed(e);
+      fail(error.getStatusCode(), error.getMessage());
+      return;
+    }
+    // TLS may already hold decrypted bytes that will never make the socket readable again
+    onReadable();
+    flushOutbound();
+  }
+
+  @Override
+  public void onReadable() throws IOException {
+    if (closed) {
+      return;
+    }
+
+    ByteBuffer shared = SHARED_READ_BUFFER.get();
+    ByteBuffer buffer;
+    if (pending != null) {
+      buffer = pending;
+      buffer.compact();
+    } else {
+      buffer = shared;
+      buffer.clear();
+    }
+
+    try {
+      while (true) {
+        if (!buffer.hasRemaining()) {
+          buffer = grow(buffer, buffer.capacity() * 2);
+        }
+        int n = transport.read(buffer);
+        buffer.flip();
+        processFrames(buffer);
+
+        if (n < 0) {
+          terminate();
+          return;
+        }
+        if (n == 0 || closed) {
+          break;
+        }
+        buffer.compact();
+      }
+    } catch (WebSocketException e) {
+      buffer.position(buffer.limit());
+      fail(e.getStatusCode(), e.getMessage());
+    }
+
+    if (closed || !buffer.hasRemaining()) {
+      pending = null;
+    } else if (buffer == shared) {
+      pending = ByteBuffer.allocate(Math.max(buffer.remaining() * 2, MIN_PENDING_SIZE));
+      pending.put(buffer);
+      pending.flip();
+    } else {
+      pending = buffer;
+    }
+  }
+
+  @Override
+  public void onWritable() throws IOException {
+    flushOutbound();
+  }
+
+  @Override
+  public void abort(Throwable cause) {
+    if (closed) {
+      return;
+    }
+    if (cause == null) {
+      // the event loop is shutting down, say goodbye if the socket still takes writes
+      closeCode = GOING_AWAY;
+      closeReason = "Server shutting down";
+      enqueueClose(GOING_AWAY, closeReason);
+      try {
+        flushOutbound();
+      } catch (IOException e) {
+        // best effort
+      }
+    } else {
+      LOGGER.log(Level.FINE, "WebSocket connection failed: " + getRemoteAddress(), cause);
+      closeCode = ABNORMAL_CLOSURE;
+      notifyError(cause);
+    }
+    terminate();
+  }
+
+  private void processFrames(ByteBuffer buffer) throws WebSocketException {
+    while (!closed && !closeReceived && !failing && codec.decode(buffer)) {
+      int opcode = codec.getOpcode();
+      int offset = codec.getPayloadOffset();
+      int length = codec.getPayloadLength();
+
+      if (codec.isRsv1() && (deflatePool == null || opcode == WebSocketFrameCodec.OPCODE_CONTINUATION
+          || WebSocketFrameCodec.isControl(opcode))) {
+        throw new WebSocketException(PROTOCOL_ERROR, "Unexpected compressed frame");
+      }
+
+      switch (opcode) {
+        case WebSocketFrameCodec.OPCODE_TEXT:
+        case WebSocketFrameCodec.OPCODE_BINARY:
+          if (messageOpcode != 0) {
+            throw new WebSocketException(PROTOCOL_ERROR, "Expected a continuation frame");
+          }
+          messageOpcode = opcode;
+          messageCompressed = codec.isRsv1();
+          onDataFrame(buffer, offset, length, codec.isFin());
+          break;
+        case WebSocketFrameCodec.OPCODE_CONTINUATION:
+          if (messageOpcode == 0) {
+            throw new WebSocketException(PROTOCOL_ERROR, "Unexpected continuation frame");
+          }
+          onDataFrame(buffer, offset, length, codec.isFin());
+          break;
+        case WebSocketFrameCodec.OPCODE_PING:
+          if (!closeSent) {
+            enqueue(WebSocketFrameCodec.encode(WebSocketFrameCodec.OPCODE_PONG, slice(buffer, offset, length)));
+          }
+          break;
+        case WebSocketFrameCodec.OPCODE_PONG:
+          try {
+            handler.onPong(this, slice(buffer, offset, length));
+          } catch (RuntimeException e) {
+            throw callbackFailed(e);
+          }
+          break;
+        case WebSocketFrameCodec.OPCODE_CLOSE:
+          onCloseFrame(buffer, offset, length);
+          break;
+        default:
+          throw new WebSocketException(PROTOCOL_ERROR, "Unknown opcode " + opcode);
+      }
+    }
+  }
+
+  private void onDataFrame(ByteBuffer buffer, int offset, int length, boolean fin) throws WebSocketException {
+    if (fin && message == null && !messageCompressed) {
+      // the common case: a whole message in one frame, delivered straight from the read buffer
+      int opcode = messageOpcode;
+      messageOpcode = 0;
+      deliver(opcode, slice(buffer, offset, length));
+      return;
+    }
+
+    int size = message == null ? 0 : message.position();
+    if ((long) size + length > config.getMaxMessageSize()) {
+      throw new WebSocketException(MESSAGE_TOO_BIG, "Message exceeds " + config.getMaxMessageSize() + " bytes");
+    }
+    ensureMessageCapacity(length);
+    message.put(slice(buffer, offset, length));
+    if (!fin) {
+      return;
+    }
+
+    ByteBuffer payload = message;
+    if (messageCompressed) {
+      ensureMessageCapacity(DEFLATE_TAIL.length);
+      payload = message;
+      payload.put(DEFLATE_TAIL);
+    }
+    payload.flip();
+    message = null;
+
+    int opcode = messageOpcode;
+    boolean compressed = messageCompressed;
+    messageOpcode = 0;
+    messageCompressed = false;
+    deliver(opcode, compressed ? inflate(payload) : payload);
+  }
+
+  private void ensureMessageCapacity(int additional) {
+    if (message == null) {
+      message = ByteBuffer.allocate(Math.max(additional, MIN_PENDING_SIZE));
+    } else if (message.remaining() < additional) {
+      message = grow(message, Math.max(message.position() + additional, message.capacity() * 2));
+    }
+  }
+
+  private ByteBuffer inflate(ByteBuffer compressed) throws WebSocketException {
+    int maxSize = config.getMaxMessageSize();
+    Inflater inflater = deflatePool.acquireInflater();
+    try {
+      inflater.setInput(compressed.array(), compressed.arrayOffset() + compressed.position(), compressed.remaining());
+      byte[] out = new byte[Math.min(Math.max(compressed.remaining() * 4, MIN_PENDING_SIZE), maxSize + 1)];
+      int size = 0;
+      while (true) {
+        if (size == out.length) {
+          if (size > maxSize) {
+            throw new WebSocketException(MESSAGE_TOO_BIG, "Message exceeds " + maxSize + " bytes");
+          }
+          out = Arrays.copyOf(out, (int) Math.min(out.length * 2L, maxSize + 1L));
+        }
+        int n = inflater.inflate(out, size, out.length - size);
+        size += n;
+        if (n == 0) {
+          if (inflater.finished() || inflater.needsInput()) {
+            break;
+          }
+          throw new WebSocketException(INVALID_PAYLOAD, "Invalid compressed payload");
+        }
+      }
+      if (size > maxSize) {
+        throw new WebSocketException(MESSAGE_TOO_BIG, "Message exceeds " + maxSize + " bytes");
+      }
+      return ByteBuffer.wrap(out, 0, size);
+    } catch (DataFormatException e) {
+      throw new WebSocketException(INVALID_PAYLOAD, "Invalid compressed payload");
+    } finally {
+      deflatePool.release(inflater);
+    }
+  }
+
+  private void deliver(int opcode, ByteBuffer payload) throws WebSocketException {
+    if (opcode == WebSocketFrameCodec.OPCODE_TEXT) {
+      String text = decodeUtf8(payload);
+      try {
+        handler.onText(this, text);
+      } catch (RuntimeException e) {
+        throw callbackFailed(e);
+      }
+    } else {
+      try {
+        handler.onBinary(this, payload);
+      } catch (RuntimeException e) {
+        throw callbackFailed(e);
+      }
+    }
+  }
+
+  private void onCloseFrame(ByteBuffer buffer, int offset, int length) throws WebSocketException {
+    int code = NO_STATUS_RECEIVED;
+    String reason = "";
+    if (length == 1) {
+      throw new WebSocketException(PROTOCOL_ERROR, "Invalid close frame");
+    }
+    if (length >= 2) {
+      code = buffer.getShort(offset) & 0xFFFF;
+      if (!isValidCloseCode(code)) {
+        throw new WebSocketException(PROTOCOL_ERROR, "Invalid close status code " + code);
+      }
+      reason = decodeUtf8(slice(buffer, offset + 2, length - 2));
+    }
+
+    closeReceived = true;
+    open = false;
+    closeCode = code;
+    closeReason = reason;
+    if (!enqueueClose(code, "")) {
+      // we started the closing handshake and this is the answer
+      terminate();
+    }
+  }
+
+  private String decodeUtf8(ByteBuffer payload) throws WebSocketException {
+    if (utf8Decoder == null) {
+      utf8Decoder = StandardCharsets.UTF_8.newDecoder()
+          .onMalformedInput(CodingErrorAction.REPORT)
+          .onUnmappableCharacter(CodingErrorAction.REPORT);
+    }
+    try {
+      return utf8Decoder.reset().decode(payload).toString();
+    } catch (CharacterCodingException e) {
+      throw new WebSocketException(INVALID_PAYLOAD, "Text is not valid UTF-8");
+    }
+  }
+
+  @Override
+  public void sendText(String text) {
+    if (text == null) {
+      throw new IllegalArgumentException("Text cannot be null");
+    }
+    byte[] payload = text.getBytes(StandardCharsets.UTF_8);
+    sendData(WebSocketFrameCodec.OPCODE_TEXT, payload, 0, payload.length);
+  }
+
+  @Override
+  public void sendBinary(ByteBuffer data) {
+    if (data == null) {
+      throw new IllegalArgumentException("Data cannot be null");
+    }
+    if (data.hasArray()) {
+      sendData(WebSocketFrameCodec.OPCODE_BINARY, data.array(), data.arrayOffset() + data.position(), data.remaining());
+    } else {
+      byte[] payload = new byte[data.remaining()];
+      data.duplicate().get(payload);
+      sendData(WebSocketFrameCodec.OPCODE_BINARY, payload, 0, payload.length);
+    }
+  }
+
+  @Override
+  public void sendPing(ByteBuffer data) {
+    if (data == null || data.remaining() > WebSocketFrameCodec.MAX_CONTROL_PAYLOAD) {
+      throw new IllegalArgumentException("Ping data must be at most 125 bytes");
+    }
+    enqueue(WebSocketFrameCodec.encode(WebSocketFrameCodec.OPCODE_PING, data));
+  }
+
+  private void sendData(int opcode, byte[] payload, int offset, int length) {
+    ByteBuffer frame = null;
+    if (deflatePool != null && length >= config.getCompressionThreshold()) {
+      frame = deflate(opcode, payload, offset, length);
+    }
+    enqueue(frame != null ? frame : WebSocketFrameCodec.encode(opcode, false, payload, offset, length));
+  }
+
+  /**
+   * Compresses a message into a single frame, or returns {@code null} if compression does not make
+   * it smaller.
+   */
+  private ByteBuffer deflate(int opcode, byte[] payload, int offset, int length) {
+    Deflater deflater = deflatePool.acquireDeflater();
+    try {
+      deflater.setInput(payload, offset, length);
+      byte[] out = new byte[length / 2 + 64];
+      int size = 0;
+      while (true) {
+        size += deflater.deflate(out, size, out.length - size, Deflater.SYNC_FLUSH);
+        if (size < out.length) {
+          break;
+        }
+        out = Arrays.copyOf(out, out.length * 2);
+      }
+      // the empty stored block that ends a sync flush is implied (RFC 7692 section 7.2.1)
+      if (size >= DEFLATE_TAIL.length && out[size - 4] == 0 && out[size - 3] == 0
+          && out[size - 2] == (byte) 0xFF && out[size - 1] == (byte) 0xFF) {
+        size -= DEFLATE_TAIL.length;
+      }
+      return size < length ? WebSocketFrameCodec.encode(opcode, true, out, 0, size) : null;
+    } finally {
+      deflatePool.release(deflater);
+    }
+  }
+
+  @Override
+  public void close() {
+    close(NORMAL_CLOSURE, "");
+  }
+
+  @Override
+  public void close(int statusCode, String reason) {
+    if (!isValidCloseCode(statusCode)) {
+      throw new IllegalArgumentException("Invalid close status code " + statusCode);
+    }
+    if (reason != null && reason.getBytes(StandardCharsets.UTF_8).length > MAX_CLOSE_REASON_LENGTH) {
+      throw new IllegalArgumentException("Close reason cannot exceed " + MAX_CLOSE_REASON_LENGTH + " bytes");
+    }
+    enqueueClose(statusCode, reason);
+  }
+
+  /**
+   * Queues the close frame unless one was already sent.
+   *
+   * @return {@code false} if a close frame had already been queued
+   */
+  private boolean enqueueClose(int statusCode, String reason) {
+    byte[] payload;
+    if (statusCode == NO_STATUS_RECEIVED) {
+      payload = new byte[0];
+    } else {
+      byte[] text = reason == null ? new byte[0] : reason.getBytes(StandardCharsets.UTF_8);
+      int textLength = Math.min(text.length, MAX_CLOSE_REASON_LENGTH);
+      payload = new byte[2 + textLength];
+      payload[0] = (byte) (statusCode >> 8);
+      payload[1] = (byte) statusCode;
+      System.arraycopy(text, 0, payload, 2, textLength);
+    }
+    ByteBuffer frame = WebSocketFrameCodec.encode(WebSocketFrameCodec.OPCODE_CLOSE, false, payload, 0, payload.length);
+
+    synchronized (outbound) {
+      if (closeSent) {
+        return false;
+      }
+      closeSent = true;
+      closeFrame = frame;
+      outbound.add(frame);
+    }
+    open = false;
+    bufferedAmount.addAndGet(frame.remaining());
+    requestFlush();
+    return true;
+  }
+
+  private void enqueue(ByteBuffer frame) {
+    synchronized (outbound) {
+      if (closeSent) {
+        throw new IllegalStateException("WebSocket is closing");
+      }
+      outbound.add(frame);
+    }
+    bufferedAmount.addAndGet(frame.remaining());
+    requestFlush();
+  }
+
+  private void requestFlush() {
+    if (eventLoop.inEventLoop()) {
+      try {
+        flushOutbound();
+      } catch (IOException e) {
+        if (key != null) {
+          key.cancel();
+        }
+        abort(e);
+      }
+    } else if (flushScheduled.compareAndSet(false, true)) {
+      eventLoop.execute(flushTask);
+    }
+  }
+
+  private void runScheduledFlush() {
+    flushScheduled.set(false);
+    requestFlush();
+  }
+
+  /**
+   * Writes queued frames until the queue is empty or the socket stops accepting bytes, in which
+   * case write interest is registered and the loop calls back through {@link #onWritable()}.
+   */
+  private void flushOutbound() throws IOException {
+    if (closed || key == null) {
+      return;
+    }
+
+    while (true) {
+      if (!transport.flush()) {
+        setWriteInterest(true);
+        return;
+      }
+
+      int count = 0;
+      for (ByteBuffer frame : outbound) {
+        writeBatch[count++] = frame;
+        if (count == WRITE_BATCH_SIZE) {
+          break;
+        }
+      }
+      if (count == 0) {
+        setWriteInterest(false);
+        return;
+      }
+
+      long written = transport.write(writeBatch, 0, count);
+      Arrays.fill(writeBatch, 0, count, null);
+      bufferedAmount.addAndGet(-written);
+
+      ByteBuffer head;
+      while ((head = outbound.peek()) != null && !head.hasRemaining()) {
+        outbound.poll();
+        if (head == closeFrame && (closeReceived || failing)) {
+          // the closing handshake is complete from our side, the server closes the TCP connection
+          if (transport.flush()) {
+            terminate();
+            return;
+          }
+        }
+      }
+      if (written == 0) {
+        setWriteInterest(true);
+        return;
+      }
+    }
+  }
+
+  private void setWriteInterest(boolean enabled) {
+    if (key.isValid()) {
+      int ops = enabled ? SelectionKey.OP_READ | SelectionKey.OP_WRITE : SelectionKey.OP_READ;
+      if (key.interestOps() != ops) {
+        key.interestOps(ops);
+      }
+    }
+    if (!enabled && closeFrame != null && outbound.isEmpty() && (closeReceived || failing)) {
+      terminate();
+    }
+  }
+
+  /**
+   * Fails the connection: sends a close frame with {@code statusCode} and stops reading.
+   */
+  private void fail(int statusCode, String reason) {
+    LOGGER.fine("Failing WebSocket connection " + getRemoteAddress() + ": " + reason);
+    failing = true;
+    closeCode = statusCode;
+    closeReason = reason;
+    if (!enqueueClose(statusCode, reason)) {
+      terminate();
+    }
+  }
+
+  /**
+   * Reports a handler exception and returns the error that fails the connection.
+   */
+  private WebSocketException callbackFailed(RuntimeException e) {
+    LOGGER.log(Level.WARNING, "WebSocket handler failed for " + getRemoteAddress(), e);
+    notifyError(e);
+    return new WebSocketException(INTERNAL_ERROR, "Internal error");
+  }
+
+  private void notifyError(Throwable error) {
+    try {
+      handler.onError(this, error);
+    } catch (RuntimeException e) {
+      LOGGER.log(Level.WARNING, "WebSocket error callback failed", e);
+    }
+  }
+
+  private void terminate() {
+    if (closed) {
+      return;
+    }
+    closed = true;
+    open = false;
+    if (key != null) {
+      key.cancel();
+    }
+    try {
+      transport.close();
+    } catch (IOException e) {
+      LOGGER.log(Level.FINE, "Failed to close WebSocket connection " + getRemoteAddress(), e);
+    }
+    pending = null;
+    message = null;
+    outbound.clear();
+    bufferedAmount.set(0);
+
+    try {
+      handler.onClose(this, closeCode, closeReason);
+    } catch (RuntimeException e) {
+      LOGGER.log(Level.WARNING, "WebSocket close callback failed", e);
+    }
+  }
+
+  @Override
+  public boolean isOpen() {
+    return open;
+  }
+
+  @Override
+  public Request getRequest() {
+    return request;
+  }
+
+  @Override
+  public SocketAddress getRemoteAddress() {
+    return transport.getRemoteAddress();
+  }
+
+  @Override
+  public long getBufferedAmount() {
+    return bufferedAmount.get();
+  }
+
+  static boolean isValidCloseCode(int code) {
+    return code >= 1000 && code <= 1003
+        || code >= 1007 && code <= 1011
+        || code >= 3000 && code <= 4999;
+  }
+
+  private static ByteBuffer slice(ByteBuffer buffer, int offset, int length) {
+    ByteBuffer slice = buffer.duplicate();
+    slice.limit(offset + length);
+    slice.position(offset);
+    return slice;
+  }
+
+  private static ByteBuffer grow(ByteBuffer buffer, int capacity) {
+    ByteBuffer grown = ByteBuffer.allocate(capacity);
+    buffer.flip();
+    grown.put(buffer);
+    return grown;
+  }
+}
@@ -0,0 +1,19 @@
+package com.adavie.websocket;
+
+import java.io.IOException;
+
+/**
+ * A protocol violation that fails the connection with the given close status code.
+ */
+public class WebSocketException extends IOException {
+  private final int statusCode;
+
+  public WebSocketException(int statusCode, String message) {
+    super(message);
+    this.statusCode = statusCode;
+  }
+
+  public int getStatusCode() {
+    return statusCode;
+  }
+}
@@ -0,0 +1,188 @@
+package com.adavie.websocket;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Decodes client frames from a read buffer and encodes server frames (RFC 6455 section 5).
+ *
+ * <p>Decoding never copies: {@link #decode} validates the header, unmasks the payload in place in
+ * the caller's buffer and exposes it by offset and length, so a frame is only copied if it has to
+ * be reassembled or inflated. The codec holds the header of the last decoded frame and is not
+ * thread-safe.
+ */
+final class WebSocketFrameCodec {
+  static final int OPCODE_CONTINUATION = 0x0;
+  static final int OPCODE_TEXT = 0x1;
+  static final int OPCODE_BINARY = 0x2;
+  static final int OPCODE_CLOSE = 0x8;
+  static final int OPCODE_PING = 0x9;
+  static final int OPCODE_PONG = 0xA;
+
+  static final int MAX_CONTROL_PAYLOAD = 125;
+  static final int MAX_HEADER_LENGTH = 14;
+
+  private final int maxFrameSize;
+
+  private boolean fin;
+  private boolean rsv1;
+  private int opcode;
+  private int payloadOffset;
+  private int payloadLength;
+
+  WebSocketFrameCodec(int maxFrameSize) {
+    this.maxFrameSize = maxFrameSize;
+  }
+
+  /**
+   * Decodes the frame at the buffer's position, which is in read mode.
+   *
+   * @return {@code false} if the buffer does not hold a whole frame yet, in which case the buffer
+   *     is untouched; otherwise the payload is unmasked and the position moved past the frame
+   */
+  boolean decode(ByteBuffer buffer) throws WebSocketException {
+    int start = buffer.position();
+    int available = buffer.remaining();
+    if (available < 2) {
+      return false;
+    }
+
+    int b0 = buffer.get(start) & 0xFF;
+    int b1 = buffer.get(start + 1) & 0xFF;
+    if ((b0 & 0x30) != 0) {
+      throw new WebSocketException(WebSocket.PROTOCOL_ERROR, "Reserved bits must not be set");
+    }
+    if ((b1 & 0x80) == 0) {
+      throw new WebSocketException(WebSocket.PROTOCOL_ERROR, "Client frames must be masked");
+    }
+    int code = b0 & 0x0F;
+    if (code > OPCODE_BINARY && code < OPCODE_CLOSE || code > OPCODE_PONG) {
+      throw new WebSocketException(WebSocket.PROTOCOL_ERROR, "Unknown opcode " + code);
+    }
+    boolean finalFrame = (b0 & 0x80) != 0;
+
+    long length = b1 & 0x7F;
+    int headerLength = 2;
+    if (length == 126) {
+      if (available < 4) {
+        return false;
+      }
+      length = buffer.getShort(start + 2) & 0xFFFF;
+      headerLength = 4;
+    } else if (length == 127) {
+      if (available < 10) {
+        return false;
+      }
+      length = buffer.getLong(start + 2);
+      headerLength = 10;
+      if (length < 0) {
+        throw new WebSocketException(WebSocket.PROTOCOL_ERROR, "Invalid payload length");
+      }
+    }
+    headerLength += 4;
+
+    if (isControl(code)) {
+      if (!finalFrame) {
+        throw new WebSocketException(WebSocket.PROTOCOL_ERROR, "Control frames must not be fragmented");
+      }
+      if (length > MAX_CONTROL_PAYLOAD) {
+        throw new WebSocketException(WebSocket.PROTOCOL_ERROR, "Control frame payload too large");
+      }
+    }
+    if (length > maxFrameSize) {
+      throw new WebSocketException(WebSocket.MESSAGE_TOO_BIG, "Frame exceeds " + maxFrameSize + " bytes");
+    }
+    if (available < headerLength + length) {
+      return false;
+    }
+
+    this.fin = finalFrame;
+    this.rsv1 = (b0 & 0x40) != 0;
+    this.opcode = code;
+    this.payloadOffset = start + headerLength;
+    this.payloadLength = (int) length;
+
+    unmask(buffer, payloadOffset, payloadLength, buffer.getInt(payloadOffset - 4));
+    buffer.position(payloadOffset + payloadLength);
+    return true;
+  }
+
+  boolean isFin() {
+    return fin;
+  }
+
+  boolean isRsv1() {
+    return rsv1;
+  }
+
+  int getOpcode() {
+    return opcode;
+  }
+
+  int getPayloadOffset() {
+    return payloadOffset;
+  }
+
+  int getPayloadLength() {
+    return payloadLength;
+  }
+
+  static boolean isControl(int opcode) {
+    return (opcode & 0x8) != 0;
+  }
+
+  /**
+   * XORs the payload with the masking key eight bytes at a time, then byte by byte for the tail.
+   */
+  static void unmask(ByteBuffer buffer, int offset, int length, int mask) {
+    long mask64 = ((long) mask << 32) | (mask & 0xFFFFFFFFL);
+    int end = offset + length;
+    int i = offset;
+    for (; i + 8 <= end; i += 8) {
+      buffer.putLong(i, buffer.getLong(i) ^ mask64);
+    }
+    for (int shift = 24; i < end; i++, shift -= 8) {
+      buffer.put(i, (byte) (buffer.get(i) ^ (mask >>> shift)));
+    }
+  }
+
+  /**
+   * Encodes a complete, unmasked server frame holding {@code length} bytes of {@code payload}.
+   */
+  static ByteBuffer encode(int opcode, boolean rsv1, byte[] payload, int offset, int length) {
+    ByteBuffer frame = ByteBuffer.allocate(headerLength(length) + length);
+    putHeader(frame, opcode, rsv1, length);
+    frame.put(payload, offset, length);
+    frame.flip();
+    return frame;
+  }
+
+  /**
+   * Encodes a complete, unmasked server frame holding the remaining bytes of {@code payload},
+   * leaving its position unchanged.
+   */
+  static ByteBuffer encode(int opcode, ByteBuffer payload) {
+    int length = payload.remaining();
+    ByteBuffer frame = ByteBuffer.allocate(headerLength(length) + length);
+    putHeader(frame, opcode, false, length);
+    frame.put(payload.duplicate());
+    frame.flip();
+    return frame;
+  }
+
+  private static void putHeader(ByteBuffer frame, int opcode, boolean rsv1, int length) {
+    frame.put((byte) (0x80 | (rsv1 ? 0x40 : 0) | opcode));
+    if (length < 126) {
+      frame.put((byte) length);
+    } else if (length <= 0xFFFF) {
+      frame.put((byte) 126);
+      frame.putShort((short) length);
+    } else {
+      frame.put((byte) 127);
+      frame.putLong(length);
+    }
+  }
+
+  private static int headerLength(int payloadLength) {
+    return payloadLength < 126 ? 2 : payloadLength <= 0xFFFF ? 4 : 10;
+  }
+}
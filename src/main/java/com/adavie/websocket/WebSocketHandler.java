@@ -0,0 +1,39 @@
+package com.adavie.websocket;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Callbacks for a WebSocket connection.
+ *
+ * <p>Callbacks are invoked on the event loop thread that owns the connection, one at a time and in
+ * the order frames arrive. They must not block: blocking work should be handed to another
+ * executor, which can reply through the {@link WebSocket} from any thread. Buffers passed to
+ * callbacks are only valid until the callback returns.
+ */
+public interface WebSocketHandler {
+
+  default void onOpen(WebSocket socket) {
+  }
+
+  default void onText(WebSocket socket, String text) {
+  }
+
+  default void onBinary(WebSocket socket, ByteBuffer data) {
+  }
+
+  default void onPong(WebSocket socket, ByteBuffer data) {
+  }
+
+  /**
+   * Invoked once when the connection is closed, with {@link WebSocket#ABNORMAL_CLOSURE} if it was
+   * dropped without a closing handshake.
+   */
+  default void onClose(WebSocket socket, int statusCode, String reason) {
+  }
+
+  /**
+   * Invoked when a callback throws or the connection fails; the connection is closed afterwards.
+   */
+  default void onError(WebSocket socket, Throwable error) {
+  }
+}
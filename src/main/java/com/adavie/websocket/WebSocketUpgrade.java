@@ -0,0 +1,198 @@
+package com.adavie.websocket;
+
+import com.adavie.config.WebSocketConfig;
+import com.adavie.request.HttpMethod;
+import com.adavie.request.KnownHeader;
+import com.adavie.request.Request;
+import com.adavie.response.ConnectionUpgrade;
+import com.adavie.response.HttpException;
+import com.adavie.response.HttpStatus;
+import com.adavie.response.Response;
+import com.adavie.response.ResponseWriter;
+import com.adavie.server.ServerContext;
+import com.adavie.transport.Transport;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Base64;
+import java.util.Locale;
+
+/**
+ * The WebSocket opening handshake (RFC 6455 section 4.2).
+ *
+ * <p>A route accepts a WebSocket by returning {@link #accept}, which lets it authenticate or
+ * inspect the request first:
+ *
+ * <pre>{@code
+ * server.get("/chat", request -> {
+ *   if (request.getHeader(KnownHeader.AUTHORIZATION) == null) {
+ *     throw new HttpException(HttpStatus.UNAUTHORIZED);
+ *   }
+ *   return WebSocketUpgrade.accept(request, new ChatHandler());
+ * });
+ * }</pre>
+ *
+ * <p>Once the {@code 101} response is written the connection is handed to one of the server's
+ * event loops and the request thread is released.
+ */
+public final class WebSocketUpgrade implements ConnectionUpgrade {
+  private static final String ACCEPT_GUID = "258EAFA5-E914-47DA-95CA-C5AB0DC85B11";
+  private static final String VERSION = "13";
+  private static final String DEFLATE_EXTENSION = "permessage-deflate";
+  private static final String DEFLATE_RESPONSE =
+      DEFLATE_EXTENSION + "; server_no_context_takeover; client_no_context_takeover";
+
+  private final Request request;
+  private final WebSocketHandler handler;
+  private final String acceptKey;
+  private final boolean deflateOffered;
+
+  private WebSocketUpgrade(Request request, WebSocketHandler handler, String acceptKey, boolean deflateOffered) {
+    this.request = request;
+    this.handler = handler;
+    this.acceptKey = acceptKey;
+    this.deflateOffered = deflateOffered;
+  }
+
+  /**
+   * Validates the opening handshake and returns the response that upgrades the connection, or a
+   * {@code 426 Upgrade Required} response if the request is not a WebSocket handshake.
+   *
+   * @throws HttpException with {@code 400 Bad Request} if the handshake is malformed
+   */
+  public static Response accept(Request request, WebSocketHandler handler) {
+    if (handler == null) {
+      throw new IllegalArgumentException("WebSocket handler cannot be null");
+    }
+    if (request.getMethod() != HttpMethod.GET || !"HTTP/1.1".equals(request.getVersion())) {
+      throw new HttpException(HttpStatus.BAD_REQUEST, "WebSocket upgrade requires an HTTP/1.1 GET request");
+    }
+
+    String upgrade = request.getHeader(KnownHeader.UPGRADE);
+    String connection = request.getHeader(KnownHeader.CONNECTION);
+    String version = request.getHeader(KnownHeader.SEC_WEBSOCKET_VERSION);
+    if (upgrade == null || !containsToken(upgrade, "websocket")
+        || connection == null || !containsToken(connection, "upgrade")
+        || version == null || !VERSION.equals(version.trim())) {
+      return new Response.Builder()
+          .status(HttpStatus.UPGRADE_REQUIRED)
+          .header("Upgrade", "websocket")
+          .header("Sec-WebSocket-Version", VERSION)
+          .body("WebSocket upgrade required")
+          .build();
+    }
+
+    String key = request.getHeader(KnownHeader.SEC_WEBSOCKET_KEY);
+    if (key == null || !isValidKey(key.trim())) {
+      throw new HttpException(HttpStatus.BAD_REQUEST, "Invalid Sec-WebSocket-Key");
+    }
+
+    WebSocketUpgrade webSocketUpgrade = new WebSocketUpgrade(
+        request,
+        handler,
+        acceptKey(key.trim()),
+        acceptsDeflateOffer(request.getHeader(KnownHeader.SEC_WEBSOCKET_EXTENSIONS))
+    );
+    return webSocketUpgrade.handshakeResponse(false).upgrade(webSocketUpgrade).build();
+  }
+
+  @Override
+  public void upgrade(Transport transport, ByteBuffer buffered, ServerContext context) throws IOException {
+    if (transport.getSelectableChannel() == null) {
+      throw new IOException("Transport cannot be served by an event loop");
+    }
+
+    WebSocketConfig config = context.getServerConfig().getWebSocketConfig();
+    boolean deflate = deflateOffered && config.isPerMessageDeflate();
+    ResponseWriter.write(transport, handshakeResponse(deflate).build(), true, false);
+
+    WebSocketConnection connection = new WebSocketConnection(
+        transport,
+        request,
+        handler,
+        config,
+        deflate ? context.getDeflatePool() : null,
+        context.getEventLoopGroup().next(),
+        buffered
+    );
+    connection.start();
+  }
+
+  private Response.Builder handshakeResponse(boolean deflate) {
+    Response.Builder response = new Response.Builder()
+        .status(HttpStatus.SWITCHING_PROTOCOLS)
+        .header("Upgrade", "websocket")
+        .header("Sec-WebSocket-Accept", acceptKey);
+    if (deflate) {
+      response.header("Sec-WebSocket-Extensions", DEFLATE_RESPONSE);
+    }
+    return response;
+  }
+
+  static String acceptKey(String key) {
+    try {
+      MessageDigest sha1 = MessageDigest.getInstance("SHA-1");
+      byte[] digest = sha1.digest((key + ACCEPT_GUID).getBytes(StandardCharsets.US_ASCII));
+      return Base64.getEncoder().encodeToString(digest);
+    } catch (NoSuchAlgorithmException e) {
+      throw new IllegalStateException("SHA-1 is not available", e);
+    }
+  }
+
+  private static boolean isValidKey(String key) {
+    try {
+      return Base64.getDecoder().decode(key).length == 16;
+    } catch (IllegalArgumentException e) {
+      return false;
+    }
+  }
+
+  /**
+   * Returns {@code true} if any permessage-deflate offer can be accepted with no context takeover
+   * in both directions. Offers that limit the server's window are declined because
+   * {@link java.util.zip.Deflater} always compresses with a 32K window.
+   */
+  static boolean acceptsDeflateOffer(String extensions) {
+    if (extensions == null) {
+      return false;
+    }
+
+    for (String offer : extensions.split(",")) {
+      String[] params = offer.split(";");
+      if (!params[0].trim().equalsIgnoreCase(DEFLATE_EXTENSION)) {
+        continue;
+      }
+
+      boolean acceptable = true;
+      for (int i = 1; i < params.length && acceptable; i++) {
+        String param = params[i].trim();
+        int equals = param.indexOf('=');
+        String name = (equals < 0 ? param : param.substring(0, equals)).trim().toLowerCase(Locale.ROOT);
+        switch (name) {
+          case "server_no_context_takeover":
+          case "client_no_context_takeover":
+          case "client_max_window_bits":
+            break;
+          default:
+            acceptable = false;
+        }
+      }
+      if (acceptable) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  private static boolean containsToken(String header, String token) {
+    for (String part : header.split(",")) {
+      if (part.trim().equalsIgnoreCase(token)) {
+        return true;
+      }
+    }
+    return false;
+  }
+}
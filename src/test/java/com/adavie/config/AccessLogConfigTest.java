@@ -0,0 +1,43 @@
+package com.adavie.config;
+
+import org.junit.jupiter.api.Test;
+
+import java.nio.file.Paths;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class AccessLogConfigTest {
+
+    @Test
+    void testDefaultConfiguration() {
+        AccessLogConfig config = new AccessLogConfig.Builder().build();
+
+        assertEquals(Paths.get("logs/access.log"), config.getFilePath());
+        assertEquals(100L * 1024 * 1024, config.getMaxFileSize());
+        assertEquals(24L * 60 * 60 * 1000, config.getRotationInterval());
+        assertEquals(10, config.getMaxFiles());
+        assertEquals(64 * 1024, config.getBufferSize());
+        assertEquals(200, config.getFlushInterval());
+    }
+
+    @Test
+    void testAccessLogIsDisabledByDefault() {
+        ServerConfig config = new ServerConfig.Builder().build();
+        assertFalse(config.isAccessLogEnabled());
+        assertNull(config.getAccessLogConfig());
+
+        config = new ServerConfig.Builder().accessLogConfig(new AccessLogConfig.Builder().build()).build();
+        assertTrue(config.isAccessLogEnabled());
+    }
+
+    @Test
+    void testValidation() {
+        assertThrows(IllegalArgumentException.class, () -> new AccessLogConfig.Builder().filePath(null));
+        assertThrows(IllegalArgumentException.class, () -> new AccessLogConfig.Builder().filePath(Paths.get("/")));
+        assertThrows(IllegalArgumentException.class, () -> new AccessLogConfig.Builder().maxFileSize(0));
+        assertThrows(IllegalArgumentException.class, () -> new AccessLogConfig.Builder().rotationInterval(-1));
+        assertThrows(IllegalArgumentException.class, () -> new AccessLogConfig.Builder().maxFiles(-1));
+        assertThrows(IllegalArgumentException.class, () -> new AccessLogConfig.Builder().bufferSize(1024));
+        assertThrows(IllegalArgumentException.class, () -> new AccessLogConfig.Builder().flushInterval(0));
+    }
+}
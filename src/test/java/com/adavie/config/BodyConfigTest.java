@@ -0,0 +1,46 @@
+package com.adavie.config;
+
+import org.junit.jupiter.api.Test;
+
+import java.nio.file.Paths;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class BodyConfigTest {
+
+    @Test
+    void testDefaultConfiguration() {
+        BodyConfig config = new BodyConfig.Builder().build();
+
+        assertEquals(64L * 1024 * 1024, config.getMemoryBudget());
+        assertEquals(1024 * 1024, config.getSpoolThreshold());
+        assertEquals(1024L * 1024 * 1024, config.getMaxBodySize());
+        assertEquals(1000, config.getBudgetWaitTimeout());
+        assertNull(config.getSpoolDirectory());
+    }
+
+    @Test
+    void testServerConfigDefaultsBodyConfig() {
+        assertNotNull(new ServerConfig.Builder().build().getBodyConfig());
+    }
+
+    @Test
+    void testValidation() {
+        assertThrows(IllegalArgumentException.class, () -> new BodyConfig.Builder().memoryBudget(0));
+        assertThrows(IllegalArgumentException.class, () -> new BodyConfig.Builder().spoolThreshold(-1));
+        assertThrows(IllegalArgumentException.class, () -> new BodyConfig.Builder().spoolThreshold(Integer.MAX_VALUE));
+        assertThrows(IllegalArgumentException.class, () -> new BodyConfig.Builder().maxBodySize(-1));
+        assertThrows(IllegalArgumentException.class, () -> new BodyConfig.Builder().budgetWaitTimeout(-1));
+        assertThrows(IllegalArgumentException.class,
+            () -> new BodyConfig.Builder().spoolDirectory(Paths.get("/does/not/exist")));
+    }
+
+    @Test
+    void testSpoolThresholdCannotExceedBudget() {
+        IllegalArgumentException exception = assertThrows(
+            IllegalArgumentException.class,
+            () -> new BodyConfig.Builder().memoryBudget(1024).spoolThreshold(2048).build()
+        );
+        assertEquals("Spool threshold cannot exceed the memory budget", exception.getMessage());
+    }
+}
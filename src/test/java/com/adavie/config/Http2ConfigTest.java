@@ -0,0 +1,57 @@
+package com.adavie.config;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class Http2ConfigTest {
+
+    @Test
+    void testDefaultConfiguration() {
+        Http2Config config = new Http2Config.Builder().build();
+
+        assertTrue(config.isEnabled());
+        assertEquals(100, config.getMaxConcurrentStreams());
+        assertEquals(65535, config.getInitialWindowSize());
+        assertEquals(1048576, config.getConnectionWindowSize());
+        assertEquals(16384, config.getMaxFrameSize());
+        assertEquals(4096, config.getHeaderTableSize());
+        assertEquals(16384, config.getMaxHeaderListSize());
+    }
+
+    @Test
+    void testServerConfigDefaultsHttp2Config() {
+        ServerConfig config = new ServerConfig.Builder().build();
+        assertNotNull(config.getHttp2Config());
+        assertTrue(config.getHttp2Config().isEnabled());
+    }
+
+    @Test
+    void testWindowSizes() {
+        assertDoesNotThrow(() -> new Http2Config.Builder().initialWindowSize(1).build());
+        assertDoesNotThrow(() -> new Http2Config.Builder().initialWindowSize(Integer.MAX_VALUE).build());
+        assertDoesNotThrow(() -> new Http2Config.Builder().connectionWindowSize(65535).build());
+        assertThrows(IllegalArgumentException.class, () -> new Http2Config.Builder().initialWindowSize(0));
+        assertThrows(IllegalArgumentException.class, () -> new Http2Config.Builder().connectionWindowSize(65534));
+    }
+
+    @Test
+    void testMaxFrameSize() {
+        assertDoesNotThrow(() -> new Http2Config.Builder().maxFrameSize(16384).build());
+        assertDoesNotThrow(() -> new Http2Config.Builder().maxFrameSize(16777215).build());
+
+        IllegalArgumentException exception = assertThrows(
+            IllegalArgumentException.class,
+            () -> new Http2Config.Builder().maxFrameSize(16383)
+        );
+        assertEquals("Max frame size must be between 16384 and 16777215", exception.getMessage());
+        assertThrows(IllegalArgumentException.class, () -> new Http2Config.Builder().maxFrameSize(16777216));
+    }
+
+    @Test
+    void testInvalidLimits() {
+        assertThrows(IllegalArgumentException.class, () -> new Http2Config.Builder().maxConcurrentStreams(0));
+        assertThrows(IllegalArgumentException.class, () -> new Http2Config.Builder().headerTableSize(-1));
+        assertThrows(IllegalArgumentException.class, () -> new Http2Config.Builder().maxHeaderListSize(0));
+    }
+}
@@ -0,0 +1,74 @@
+package com.adavie.config;
+
+import org.junit.jupiter.api.Test;
+
+import java.nio.file.Path;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ListenerConfigTest {
+
+    @Test
+    void testTcpListener() {
+        ListenerConfig config = new ListenerConfig.Builder("admin").port(9000).build();
+
+        assertEquals("admin", config.getName());
+        assertEquals(ListenerConfig.DEFAULT_HOSTNAME, config.getHostname());
+        assertEquals(9000, config.getPort());
+        assertFalse(config.isUnixSocket());
+        assertNull(config.getUnixSocketPath());
+        assertFalse(config.isTlsEnabled());
+        assertNull(config.getThreadPoolConfig());
+        assertEquals(SocketConfig.DEFAULT_BACKLOG, config.getSocketConfig().getBacklog());
+    }
+
+    @Test
+    void testUnixSocketListener() {
+        ListenerConfig config = new ListenerConfig.Builder("local")
+            .unixSocketPath(Path.of("/tmp/app.sock"))
+            .threadPoolConfig(new ThreadPoolConfig.Builder().virtualThreads(false).maxPoolSize(4).minPoolSize(2).build())
+            .build();
+
+        assertTrue(config.isUnixSocket());
+        assertEquals(Path.of("/tmp/app.sock"), config.getUnixSocketPath());
+        assertEquals(0, config.getPort());
+        assertEquals(4, config.getThreadPoolConfig().getMaxPoolSize());
+    }
+
+    @Test
+    void testName() {
+        assertEquals("admin", new ListenerConfig.Builder(" admin ").port(9000).build().getName());
+
+        IllegalArgumentException exception = assertThrows(
+            IllegalArgumentException.class,
+            () -> new ListenerConfig.Builder(" ")
+        );
+        assertEquals("Listener name cannot be null or empty", exception.getMessage());
+        assertThrows(IllegalArgumentException.class, () -> new ListenerConfig.Builder(null));
+    }
+
+    @Test
+    void testNeedsExactlyOneAddress() {
+        IllegalArgumentException exception = assertThrows(
+            IllegalArgumentException.class,
+            () -> new ListenerConfig.Builder("admin").build()
+        );
+        assertEquals("Listener needs either a port or a Unix socket path", exception.getMessage());
+
+        assertThrows(IllegalArgumentException.class,
+            () -> new ListenerConfig.Builder("admin").port(9000).unixSocketPath(Path.of("/tmp/app.sock")).build());
+        assertThrows(IllegalArgumentException.class, () -> new ListenerConfig.Builder("admin").port(0));
+        assertThrows(IllegalArgumentException.class, () -> new ListenerConfig.Builder("admin").port(65536));
+    }
+
+    @Test
+    void testUnixSocketRejectsTls() {
+        TlsConfig tls = new TlsConfig.Builder().keyStorePath("server.p12").keyStorePassword("secret".toCharArray()).build();
+
+        IllegalArgumentException exception = assertThrows(
+            IllegalArgumentException.class,
+            () -> new ListenerConfig.Builder("local").unixSocketPath(Path.of("/tmp/app.sock")).tlsConfig(tls).build()
+        );
+        assertEquals("Unix socket listeners do not support TLS", exception.getMessage());
+    }
+}
@@ -4,6 +4,7 @@ import com.adavie.config.ServerConfig;
 import com.adavie.config.ThreadPoolConfig;
 import org.junit.jupiter.api.Test;
 
+import java.nio.file.Path;
 import java.util.logging.Level;
 
 import static org.junit.jupiter.api.Assertions.*;
@@ -194,4 +195,98 @@ class ServerConfigTest {
         assertNotNull(config.getLoggerConfig());
         assertTrue(config.getLoggerConfig().isEnableFileLogging());
     }
+
+    @Test
+    void testConnectionLimits() {
+        ServerConfig defaults = new ServerConfig.Builder().build();
+        assertEquals(0, defaults.getMaxConnections());
+        assertEquals(0, defaults.getMaxConnectionsPerIp());
+
+        ServerConfig config = new ServerConfig.Builder().maxConnections(1000).maxConnectionsPerIp(20).build();
+        assertEquals(1000, config.getMaxConnections());
+        assertEquals(20, config.getMaxConnectionsPerIp());
+
+        assertThrows(IllegalArgumentException.class, () -> new ServerConfig.Builder().maxConnections(-1));
+        assertThrows(IllegalArgumentException.class, () -> new ServerConfig.Builder().maxConnectionsPerIp(-1));
+    }
+
+    @Test
+    void testMetricsEndpointSettings() {
+        ServerConfig defaults = new ServerConfig.Builder().build();
+        assertFalse(defaults.isMetricsEnabled());
+        assertEquals("/metrics", defaults.getMetricsPath());
+
+        ServerConfig config = new ServerConfig.Builder().metricsPort(9100).metricsPath("/prometheus").build();
+        assertTrue(config.isMetricsEnabled());
+        assertEquals(9100, config.getMetricsPort());
+        assertEquals("/prometheus", config.getMetricsPath());
+
+        assertThrows(IllegalArgumentException.class, () -> new ServerConfig.Builder().metricsPort(-1));
+        assertThrows(IllegalArgumentException.class, () -> new ServerConfig.Builder().metricsPath("metrics"));
+        assertThrows(IllegalArgumentException.class, () -> new ServerConfig.Builder().port(9100).metricsPort(9100).build());
+    }
+
+    @Test
+    void testIoThreads() {
+        assertEquals(0, new ServerConfig.Builder().build().getIoThreads());
+        assertEquals(8, new ServerConfig.Builder().ioThreads(8).build().getIoThreads());
+
+        IllegalArgumentException exception = assertThrows(
+            IllegalArgumentException.class,
+            () -> new ServerConfig.Builder().ioThreads(-1)
+        );
+        assertEquals("IO threads must be between 0 and 1024", exception.getMessage());
+    }
+
+    @Test
+    void testRequestLeakDetection() {
+        assertFalse(new ServerConfig.Builder().build().isRequestLeakDetection());
+        assertTrue(new ServerConfig.Builder().requestLeakDetection(true).build().isRequestLeakDetection());
+    }
+
+    @Test
+    void testListeners() {
+        assertTrue(new ServerConfig.Builder().build().getListeners().isEmpty());
+
+        ServerConfig config = new ServerConfig.Builder()
+            .listener(new ListenerConfig.Builder("admin").port(9000).build())
+            .listener(new ListenerConfig.Builder("local").unixSocketPath(Path.of("/tmp/app.sock")).build())
+            .build();
+        assertEquals(2, config.getListeners().size());
+        assertEquals("admin", config.getListeners().get(0).getName());
+        assertThrows(UnsupportedOperationException.class, () -> config.getListeners().clear());
+
+        assertThrows(IllegalArgumentException.class, () -> new ServerConfig.Builder().listener(null));
+    }
+
+    @Test
+    void testListenerValidation() {
+        IllegalArgumentException exception = assertThrows(
+            IllegalArgumentException.class,
+            () -> new ServerConfig.Builder()
+                .listener(new ListenerConfig.Builder("admin").port(9000).build())
+                .listener(new ListenerConfig.Builder("admin").port(9001).build())
+                .build()
+        );
+        assertEquals("Duplicate listener name: admin", exception.getMessage());
+
+        // the server's own listeners are named as well
+        assertThrows(IllegalArgumentException.class, () -> new ServerConfig.Builder()
+            .listener(new ListenerConfig.Builder(ServerConfig.MAIN_LISTENER).port(9000).build())
+            .build());
+        assertThrows(IllegalArgumentException.class, () -> new ServerConfig.Builder()
+            .unixSocketPath(Path.of("/tmp/server.sock"))
+            .listener(new ListenerConfig.Builder(ServerConfig.UNIX_LISTENER).port(9000).build())
+            .build());
+
+        exception = assertThrows(
+            IllegalArgumentException.class,
+            () -> new ServerConfig.Builder().port(9000).listener(new ListenerConfig.Builder("admin").port(9000).build()).build()
+        );
+        assertEquals("Listener port must differ from the server and metrics ports", exception.getMessage());
+        assertThrows(IllegalArgumentException.class, () -> new ServerConfig.Builder()
+            .metricsPort(9100)
+            .listener(new ListenerConfig.Builder("admin").port(9100).build())
+            .build());
+    }
 }
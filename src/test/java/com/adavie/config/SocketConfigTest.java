@@ -0,0 +1,66 @@
+package com.adavie.config;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SocketConfigTest {
+
+    @Test
+    void testDefaultConfiguration() {
+        SocketConfig config = new SocketConfig.Builder().build();
+
+        assertEquals(1024, config.getBacklog());
+        assertTrue(config.isTcpNoDelay());
+        assertEquals(0, config.getReceiveBufferSize());
+        assertEquals(0, config.getSendBufferSize());
+        assertFalse(config.isKeepAlive());
+        assertTrue(config.isReuseAddress());
+        assertFalse(config.isTcpQuickAck());
+        assertEquals(0, config.getTcpKeepIdleSeconds());
+    }
+
+    @Test
+    void testServerConfigDefaultsSocketConfig() {
+        ServerConfig config = new ServerConfig.Builder().build();
+        assertNotNull(config.getSocketConfig());
+        assertEquals(SocketConfig.DEFAULT_BACKLOG, config.getSocketConfig().getBacklog());
+    }
+
+    @Test
+    void testBacklog() {
+        assertDoesNotThrow(() -> new SocketConfig.Builder().backlog(1).build());
+        assertDoesNotThrow(() -> new SocketConfig.Builder().backlog(65535).build());
+
+        IllegalArgumentException exception = assertThrows(
+            IllegalArgumentException.class,
+            () -> new SocketConfig.Builder().backlog(0)
+        );
+        assertEquals("Backlog must be between 1 and 65535", exception.getMessage());
+        assertThrows(IllegalArgumentException.class, () -> new SocketConfig.Builder().backlog(65536));
+    }
+
+    @Test
+    void testBufferSizes() {
+        SocketConfig config = new SocketConfig.Builder().receiveBufferSize(262144).sendBufferSize(131072).build();
+        assertEquals(262144, config.getReceiveBufferSize());
+        assertEquals(131072, config.getSendBufferSize());
+
+        assertThrows(IllegalArgumentException.class, () -> new SocketConfig.Builder().receiveBufferSize(-1));
+        assertThrows(IllegalArgumentException.class, () -> new SocketConfig.Builder().sendBufferSize(-1));
+        assertThrows(IllegalArgumentException.class, () -> new SocketConfig.Builder().sendBufferSize(64 * 1024 * 1024 + 1));
+    }
+
+    @Test
+    void testKeepIdle() {
+        SocketConfig config = new SocketConfig.Builder().keepAlive(true).tcpKeepIdleSeconds(60).build();
+        assertTrue(config.isKeepAlive());
+        assertEquals(60, config.getTcpKeepIdleSeconds());
+
+        IllegalArgumentException exception = assertThrows(
+            IllegalArgumentException.class,
+            () -> new SocketConfig.Builder().tcpKeepIdleSeconds(-1)
+        );
+        assertEquals("TCP keep idle must be between 0 and 32767 seconds", exception.getMessage());
+    }
+}
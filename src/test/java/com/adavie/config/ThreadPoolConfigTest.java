@@ -296,4 +296,30 @@ class ThreadPoolConfigTest {
             .build();
         assertTrue(config.isDefault());
     }
+
+    @Test
+    void testWorkStealingSettings() {
+        ThreadPoolConfig defaults = new ThreadPoolConfig.Builder().build();
+        assertFalse(defaults.isWorkStealing());
+        assertEquals(Runtime.getRuntime().availableProcessors(), defaults.getParallelism());
+
+        ThreadPoolConfig config = new ThreadPoolConfig.Builder().workStealing(true).parallelism(64).build();
+        assertTrue(config.isWorkStealing());
+        assertEquals(64, config.getParallelism());
+    }
+
+    @Test
+    void testInvalidParallelism() {
+        IllegalArgumentException tooLow = assertThrows(
+            IllegalArgumentException.class,
+            () -> new ThreadPoolConfig.Builder().parallelism(0)
+        );
+        assertEquals("Parallelism must be at least 1", tooLow.getMessage());
+
+        IllegalArgumentException tooHigh = assertThrows(
+            IllegalArgumentException.class,
+            () -> new ThreadPoolConfig.Builder().parallelism(32768)
+        );
+        assertEquals("Parallelism cannot exceed 32767", tooHigh.getMessage());
+    }
 }
@@ -0,0 +1,86 @@
+package com.adavie.config;
+
+import org.junit.jupiter.api.Test;
+
+import javax.net.ssl.SSLContext;
+import java.util.Arrays;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class TlsConfigTest {
+
+    @Test
+    void testDefaultConfiguration() throws Exception {
+        TlsConfig config = new TlsConfig.Builder()
+            .sslContext(SSLContext.getDefault())
+            .build();
+
+        assertEquals("PKCS12", config.getKeyStoreType());
+        assertEquals(Arrays.asList("TLSv1.3", "TLSv1.2"), config.getProtocols());
+        assertEquals(Arrays.asList("http/1.1"), config.getApplicationProtocols());
+        assertEquals(20480, config.getSessionCacheSize());
+        assertEquals(86400, config.getSessionTimeoutSeconds());
+        assertTrue(config.isSessionTickets());
+    }
+
+    @Test
+    void testKeyStoreOrContextRequired() {
+        IllegalArgumentException exception = assertThrows(
+            IllegalArgumentException.class,
+            () -> new TlsConfig.Builder().build()
+        );
+        assertEquals("Either an SSLContext or a key store path must be specified", exception.getMessage());
+    }
+
+    @Test
+    void testKeyStorePath() {
+        TlsConfig config = new TlsConfig.Builder()
+            .keyStorePath("  /etc/ssl/server.p12  ")
+            .keyStorePassword("secret".toCharArray())
+            .build();
+
+        assertEquals("/etc/ssl/server.p12", config.getKeyStorePath());
+        assertEquals("secret", new String(config.getKeyStorePassword()));
+    }
+
+    @Test
+    void testInvalidKeyStorePath() {
+        assertThrows(IllegalArgumentException.class, () -> new TlsConfig.Builder().keyStorePath(null));
+        assertThrows(IllegalArgumentException.class, () -> new TlsConfig.Builder().keyStorePath("   "));
+    }
+
+    @Test
+    void testEmptyProtocols() {
+        assertThrows(IllegalArgumentException.class, () -> new TlsConfig.Builder().protocols());
+    }
+
+    @Test
+    void testApplicationProtocols() {
+        TlsConfig config = new TlsConfig.Builder()
+            .keyStorePath("server.p12")
+            .applicationProtocols("h2", "http/1.1")
+            .build();
+
+        assertEquals(Arrays.asList("h2", "http/1.1"), config.getApplicationProtocols());
+    }
+
+    @Test
+    void testSessionCacheSize() {
+        assertDoesNotThrow(() -> new TlsConfig.Builder().sessionCacheSize(0));
+        assertDoesNotThrow(() -> new TlsConfig.Builder().sessionCacheSize(100000));
+
+        IllegalArgumentException exception = assertThrows(
+            IllegalArgumentException.class,
+            () -> new TlsConfig.Builder().sessionCacheSize(-1)
+        );
+        assertEquals("Session cache size cannot be negative", exception.getMessage());
+    }
+
+    @Test
+    void testSessionTimeout() {
+        assertDoesNotThrow(() -> new TlsConfig.Builder().sessionTimeoutSeconds(1));
+        assertDoesNotThrow(() -> new TlsConfig.Builder().sessionTimeoutSeconds(604800));
+        assertThrows(IllegalArgumentException.class, () -> new TlsConfig.Builder().sessionTimeoutSeconds(0));
+        assertThrows(IllegalArgumentException.class, () -> new TlsConfig.Builder().sessionTimeoutSeconds(604801));
+    }
+}
@@ -0,0 +1,56 @@
+package com.adavie.config;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class WebSocketConfigTest {
+
+    @Test
+    void testDefaultConfiguration() {
+        WebSocketConfig config = new WebSocketConfig.Builder().build();
+
+        assertEquals(65536, config.getMaxFrameSize());
+        assertEquals(1048576, config.getMaxMessageSize());
+        assertTrue(config.isPerMessageDeflate());
+        assertEquals(256, config.getCompressionThreshold());
+        assertEquals(-1, config.getCompressionLevel());
+        assertEquals(32, config.getDeflatePoolSize());
+        assertEquals(2, config.getEventLoopThreads());
+    }
+
+    @Test
+    void testServerConfigDefaultsWebSocketConfig() {
+        assertNotNull(new ServerConfig.Builder().build().getWebSocketConfig());
+    }
+
+    @Test
+    void testSizeLimits() {
+        assertDoesNotThrow(() -> new WebSocketConfig.Builder().maxFrameSize(125).maxMessageSize(125).build());
+        assertThrows(IllegalArgumentException.class, () -> new WebSocketConfig.Builder().maxFrameSize(124));
+        assertThrows(IllegalArgumentException.class, () -> new WebSocketConfig.Builder().maxMessageSize(124));
+
+        IllegalArgumentException exception = assertThrows(
+            IllegalArgumentException.class,
+            () -> new WebSocketConfig.Builder().maxFrameSize(4096).maxMessageSize(1024).build()
+        );
+        assertEquals("Max message size cannot be smaller than max frame size", exception.getMessage());
+    }
+
+    @Test
+    void testCompressionSettings() {
+        assertDoesNotThrow(() -> new WebSocketConfig.Builder().compressionLevel(9).compressionThreshold(0).build());
+        assertThrows(IllegalArgumentException.class, () -> new WebSocketConfig.Builder().compressionLevel(10));
+        assertThrows(IllegalArgumentException.class, () -> new WebSocketConfig.Builder().compressionLevel(-2));
+        assertThrows(IllegalArgumentException.class, () -> new WebSocketConfig.Builder().compressionThreshold(-1));
+        assertThrows(IllegalArgumentException.class, () -> new WebSocketConfig.Builder().deflatePoolSize(-1));
+    }
+
+    @Test
+    void testEventLoopThreads() {
+        assertDoesNotThrow(() -> new WebSocketConfig.Builder().eventLoopThreads(1).build());
+        assertDoesNotThrow(() -> new WebSocketConfig.Builder().eventLoopThreads(256).build());
+        assertThrows(IllegalArgumentException.class, () -> new WebSocketConfig.Builder().eventLoopThreads(0));
+        assertThrows(IllegalArgumentException.class, () -> new WebSocketConfig.Builder().eventLoopThreads(257));
+    }
+}
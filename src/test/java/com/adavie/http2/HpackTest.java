@@ -0,0 +1,127 @@
+package com.adavie.http2;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class HpackTest {
+
+    @Test
+    void testDecodeRequestsWithoutHuffman() {
+        // RFC 7541 appendix C.3
+        HpackDecoder decoder = new HpackDecoder(4096);
+
+        assertEquals(Arrays.asList(":method: GET", ":scheme: http", ":path: /", ":authority: www.example.com"),
+            decode(decoder, "828684410f7777772e6578616d706c652e636f6d"));
+        assertEquals(Arrays.asList(":method: GET", ":scheme: http", ":path: /", ":authority: www.example.com",
+                "cache-control: no-cache"),
+            decode(decoder, "828684be58086e6f2d6361636865"));
+        assertEquals(Arrays.asList(":method: GET", ":scheme: https", ":path: /index.html",
+                ":authority: www.example.com", "custom-key: custom-value"),
+            decode(decoder, "828785bf400a637573746f6d2d6b65790c637573746f6d2d76616c7565"));
+    }
+
+    @Test
+    void testDecodeRequestsWithHuffman() {
+        // RFC 7541 appendix C.4
+        HpackDecoder decoder = new HpackDecoder(4096);
+
+        assertEquals(Arrays.asList(":method: GET", ":scheme: http", ":path: /", ":authority: www.example.com"),
+            decode(decoder, "828684418cf1e3c2e5f23a6ba0ab90f4ff"));
+        assertEquals(Arrays.asList(":method: GET", ":scheme: http", ":path: /", ":authority: www.example.com",
+                "cache-control: no-cache"),
+            decode(decoder, "828684be5886a8eb10649cbf"));
+        assertEquals(Arrays.asList(":method: GET", ":scheme: https", ":path: /index.html",
+                ":authority: www.example.com", "custom-key: custom-value"),
+            decode(decoder, "828785bf408825a849e95ba97d7f8925a849e95bb8e8b4bf"));
+    }
+
+    @Test
+    void testEncoderRoundTripSharesDynamicTable() {
+        HpackEncoder encoder = new HpackEncoder();
+        HpackDecoder decoder = new HpackDecoder(4096);
+
+        ByteArrayOutputStream first = new ByteArrayOutputStream();
+        encoder.beginBlock(first);
+        encoder.encode(first, ":status", "200", true);
+        encoder.encode(first, "content-type", "application/json", true);
+        encoder.encode(first, "x-request-id", "abc123", false);
+
+        ByteArrayOutputStream second = new ByteArrayOutputStream();
+        encoder.beginBlock(second);
+        encoder.encode(second, ":status", "200", true);
+        encoder.encode(second, "content-type", "application/json", true);
+
+        assertEquals(Arrays.asList(":status: 200", "content-type: application/json", "x-request-id: abc123"),
+            decode(decoder, first.toByteArray()));
+        assertEquals(Arrays.asList(":status: 200", "content-type: application/json"),
+            decode(decoder, second.toByteArray()));
+        // both fields are now indexed and take a single byte each
+        assertEquals(2, second.size());
+    }
+
+    @Test
+    void testTableSizeUpdateIsSignalled() {
+        HpackEncoder encoder = new HpackEncoder();
+        HpackDecoder decoder = new HpackDecoder(4096);
+        encoder.setMaxTableSize(0);
+
+        ByteArrayOutputStream block = new ByteArrayOutputStream();
+        encoder.beginBlock(block);
+        encoder.encode(block, "content-type", "text/plain", true);
+
+        assertEquals(0x20, block.toByteArray()[0] & 0xFF);
+        assertEquals(Arrays.asList("content-type: text/plain"), decode(decoder, block.toByteArray()));
+    }
+
+    @Test
+    void testDynamicTableEviction() {
+        HpackTable table = new HpackTable(100);
+        table.add("name-one", "value-one");
+        table.add("name-two", "value-two");
+        table.add("name-three", "value-three");
+
+        // only the newest entry fits in 100 bytes alongside its 32 byte overhead
+        assertEquals(62, table.indexOf("name-three", "value-three"));
+        assertEquals(0, table.indexOf("name-one", "value-one"));
+    }
+
+    @Test
+    void testHuffmanRoundTrip() {
+        String value = "Mon, 21 Oct 2013 20:13:21 GMT";
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        HpackHuffman.encode(value, out);
+
+        assertEquals(HpackHuffman.encodedLength(value), out.size());
+        assertEquals(value, HpackHuffman.decode(out.toByteArray(), 0, out.size()));
+    }
+
+    @Test
+    void testInvalidIndexRejected() {
+        HpackDecoder decoder = new HpackDecoder(4096);
+        assertThrows(RuntimeException.class, () -> decode(decoder, "be"));
+    }
+
+    private static List<String> decode(HpackDecoder decoder, String hex) {
+        return decode(decoder, hex(hex));
+    }
+
+    private static List<String> decode(HpackDecoder decoder, byte[] block) {
+        List<String> fields = new ArrayList<>();
+        decoder.decode(block, 0, block.length, (name, value) -> fields.add(name + ": " + value));
+        return fields;
+    }
+
+    private static byte[] hex(String hex) {
+        byte[] bytes = new byte[hex.length() / 2];
+        for (int i = 0; i < bytes.length; i++) {
+            bytes[i] = (byte) Integer.parseInt(hex.substring(2 * i, 2 * i + 2), 16);
+        }
+        return bytes;
+    }
+}
@@ -0,0 +1,360 @@
+package com.adavie.http2;
+
+import com.adavie.config.LoggerConfig;
+import com.adavie.config.ServerConfig;
+import com.adavie.response.Response;
+import com.adavie.server.Server;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.Socket;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Level;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class Http2ConnectionTest {
+
+    private static final int PORT = 8281;
+
+    private Server server;
+    private HttpClient client;
+
+    @BeforeEach
+    void startServer() {
+        ServerConfig config = new ServerConfig.Builder()
+            .port(PORT)
+            .clientConnectionTimeout(5000)
+            .loggerConfig(new LoggerConfig.Builder().enabledFileLogging(false).logLevel(Level.INFO).build())
+            .build();
+        server = new Server(config);
+        server.get("/hello", request -> Response.ok("hello " + request.getVersion()));
+        server.post("/echo", request -> new Response.Builder().body(request.getBody()).build());
+        server.start();
+
+        client = HttpClient.newBuilder()
+            .version(HttpClient.Version.HTTP_2)
+            .connectTimeout(Duration.ofSeconds(2))
+            .build();
+    }
+
+    @AfterEach
+    void stopServer() {
+        server.stop();
+    }
+
+    @Test
+    void testUpgradeFromHttp11() throws Exception {
+        HttpResponse<String> response = client.send(get("/hello"), HttpResponse.BodyHandlers.ofString());
+
+        assertEquals(200, response.statusCode());
+        assertEquals(HttpClient.Version.HTTP_2, response.version());
+        assertEquals("hello HTTP/1.1", response.body());
+
+        HttpResponse<String> second = client.send(get("/hello"), HttpResponse.BodyHandlers.ofString());
+        assertEquals(HttpClient.Version.HTTP_2, second.version());
+        assertEquals("hello HTTP/2.0", second.body());
+    }
+
+    @Test
+    void testStreamsAreHandledConcurrently() throws Exception {
+        int streams = 5;
+        CountDownLatch allStarted = new CountDownLatch(streams);
+        server.get("/barrier", request -> {
+            allStarted.countDown();
+            // only completes if every stream is being handled at the same time
+            return Response.ok(String.valueOf(allStarted.await(5, TimeUnit.SECONDS)));
+        });
+
+        client.send(get("/hello"), HttpResponse.BodyHandlers.ofString());
+
+        List<CompletableFuture<HttpResponse<String>>> responses = new ArrayList<>();
+        for (int i = 0; i < streams; i++) {
+            responses.add(client.sendAsync(get("/barrier"), HttpResponse.BodyHandlers.ofString()));
+        }
+        for (CompletableFuture<HttpResponse<String>> response : responses) {
+            HttpResponse<String> result = response.get(10, TimeUnit.SECONDS);
+            assertEquals(HttpClient.Version.HTTP_2, result.version());
+            assertEquals("true", result.body());
+        }
+    }
+
+    @Test
+    void testLargeBodiesRespectFlowControl() throws Exception {
+        client.send(get("/hello"), HttpResponse.BodyHandlers.ofString());
+
+        byte[] body = new byte[300000];
+        for (int i = 0; i < body.length; i++) {
+            body[i] = (byte) ('a' + i % 26);
+        }
+        HttpRequest request = HttpRequest.newBuilder(URI.create("http://localhost:" + PORT + "/echo"))
+            .POST(HttpRequest.BodyPublishers.ofByteArray(body))
+            .build();
+
+        HttpResponse<byte[]> response = client.send(request, HttpResponse.BodyHandlers.ofByteArray());
+
+        assertEquals(HttpClient.Version.HTTP_2, response.version());
+        assertArrayEquals(body, response.body());
+    }
+
+    @Test
+    void testPriorKnowledge() throws Exception {
+        try (Socket socket = new Socket("localhost", PORT)) {
+            socket.setSoTimeout(5000);
+            OutputStream out = socket.getOutputStream();
+            out.write(Http2Connection.PREFACE);
+            writeFrame(out, Http2Frame.SETTINGS, 0, 0, new byte[0]);
+
+            ByteArrayOutputStream block = new ByteArrayOutputStream();
+            HpackEncoder encoder = new HpackEncoder();
+            encoder.encode(block, ":method", "GET", true);
+            encoder.encode(block, ":scheme", "http", true);
+            encoder.encode(block, ":path", "/hello", true);
+            encoder.encode(block, ":authority", "localhost", true);
+            writeFrame(out, Http2Frame.HEADERS, Http2Frame.FLAG_END_HEADERS | Http2Frame.FLAG_END_STREAM, 1,
+                block.toByteArray());
+
+            DataInputStream in = new DataInputStream(socket.getInputStream());
+            HpackDecoder decoder = new HpackDecoder(4096);
+            Map<String, String> headers = new TreeMap<>();
+            ByteArrayOutputStream body = new ByteArrayOutputStream();
+            boolean ended = false;
+            while (!ended) {
+                int length = in.readUnsignedByte() << 16 | in.readUnsignedByte() << 8 | in.readUnsignedByte();
+                int type = in.readUnsignedByte();
+                int flags = in.readUnsignedByte();
+                int streamId = in.readInt();
+                byte[] payload = new byte[length];
+                in.readFully(payload);
+
+                if (type == Http2Frame.HEADERS && streamId == 1) {
+                    decoder.decode(payload, 0, payload.length, headers::put);
+                    ended = (flags & Http2Frame.FLAG_END_STREAM) != 0;
+                } else if (type == Http2Frame.DATA && streamId == 1) {
+                    body.write(payload);
+                    ended = (flags & Http2Frame.FLAG_END_STREAM) != 0;
+                }
+            }
+
+            assertEquals("200", headers.get(":status"));
+            assertEquals("hello HTTP/2.0", body.toString(StandardCharsets.UTF_8.name()));
+        }
+    }
+
+    @Test
+    void testInitialWindowSizeOverflowIsFlowControlError() throws Exception {
+        try (Socket socket = new Socket("localhost", PORT)) {
+            socket.setSoTimeout(5000);
+            OutputStream out = socket.getOutputStream();
+            out.write(Http2Connection.PREFACE);
+            writeFrame(out, Http2Frame.SETTINGS, 0, 0, new byte[0]);
+
+            // open stream 1 without ending it, then raise its send window to the maximum
+            ByteArrayOutputStream block = new ByteArrayOutputStream();
+            HpackEncoder encoder = new HpackEncoder();
+            encoder.encode(block, ":method", "POST", true);
+            encoder.encode(block, ":scheme", "http", true);
+            encoder.encode(block, ":path", "/echo", true);
+            encoder.encode(block, ":authority", "localhost", true);
+            writeFrame(out, Http2Frame.HEADERS, Http2Frame.FLAG_END_HEADERS, 1, block.toByteArray());
+            writeFrame(out, Http2Frame.WINDOW_UPDATE, 0, 1,
+                ByteBuffer.allocate(4).putInt(Integer.MAX_VALUE - 65535).array());
+
+            // one more byte of initial window pushes the stream's window past 2^31-1
+            writeFrame(out, Http2Frame.SETTINGS, 0, 0,
+                ByteBuffer.allocate(6).putShort((short) Http2Settings.INITIAL_WINDOW_SIZE).putInt(65536).array());
+
+            DataInputStream in = new DataInputStream(socket.getInputStream());
+            while (true) {
+                int length = in.readUnsignedByte() << 16 | in.readUnsignedByte() << 8 | in.readUnsignedByte();
+                int type = in.readUnsignedByte();
+                in.readUnsignedByte();
+                in.readInt();
+                byte[] payload = new byte[length];
+                in.readFully(payload);
+
+                if (type == Http2Frame.GOAWAY) {
+                    assertEquals(Http2Frame.FLOW_CONTROL_ERROR, ByteBuffer.wrap(payload).getInt(4));
+                    break;
+                }
+            }
+        }
+    }
+
+    @Test
+    void testRepeatedIndexedFieldPastHeaderListLimitIsRefused() throws Exception {
+        try (Socket socket = new Socket("localhost", PORT)) {
+            socket.setSoTimeout(5000);
+            OutputStream out = socket.getOutputStream();
+            out.write(Http2Connection.PREFACE);
+            writeFrame(out, Http2Frame.SETTINGS, 0, 0, new byte[0]);
+
+            ByteArrayOutputStream block = new ByteArrayOutputStream();
+            HpackEncoder encoder = new HpackEncoder();
+            encoder.encode(block, ":method", "GET", true);
+            encoder.encode(block, ":scheme", "http", true);
+            encoder.encode(block, ":path", "/hello", true);
+            encoder.encode(block, ":authority", "localhost", true);
+            encoder.encode(block, "cookie", new String(new char[4000]).replace('\0', 'c'), true);
+            // one byte each, an indexed reference to the cookie just added to the dynamic table
+            for (int i = 0; i < 8000; i++) {
+                block.write(0x80 | 62);
+            }
+            writeFrame(out, Http2Frame.HEADERS, Http2Frame.FLAG_END_HEADERS | Http2Frame.FLAG_END_STREAM, 1,
+                block.toByteArray());
+
+            DataInputStream in = new DataInputStream(socket.getInputStream());
+            HpackDecoder decoder = new HpackDecoder(4096);
+            assertEquals("431", readStatus(in, decoder, 1));
+
+            // the dynamic table stayed in sync, the next request on the connection decodes fine
+            block.reset();
+            encoder.encode(block, ":method", "GET", true);
+            encoder.encode(block, ":scheme", "http", true);
+            encoder.encode(block, ":path", "/hello", true);
+            encoder.encode(block, ":authority", "localhost", true);
+            writeFrame(out, Http2Frame.HEADERS, Http2Frame.FLAG_END_HEADERS | Http2Frame.FLAG_END_STREAM, 3,
+                block.toByteArray());
+            assertEquals("200", readStatus(in, decoder, 3));
+        }
+    }
+
+    @Test
+    void testResetReleasesResponseBlockedOnWindow() throws Exception {
+        try (Socket socket = new Socket("localhost", PORT)) {
+            socket.setSoTimeout(5000);
+            OutputStream out = socket.getOutputStream();
+            out.write(Http2Connection.PREFACE);
+            // no window for response bodies, the handler's response stays blocked
+            writeFrame(out, Http2Frame.SETTINGS, 0, 0,
+                ByteBuffer.allocate(6).putShort((short) Http2Settings.INITIAL_WINDOW_SIZE).putInt(0).array());
+
+            ByteArrayOutputStream block = new ByteArrayOutputStream();
+            HpackEncoder encoder = new HpackEncoder();
+            encoder.encode(block, ":method", "GET", true);
+            encoder.encode(block, ":scheme", "http", true);
+            encoder.encode(block, ":path", "/hello", true);
+            encoder.encode(block, ":authority", "localhost", true);
+            writeFrame(out, Http2Frame.HEADERS, Http2Frame.FLAG_END_HEADERS | Http2Frame.FLAG_END_STREAM, 1,
+                block.toByteArray());
+
+            DataInputStream in = new DataInputStream(socket.getInputStream());
+            assertEquals("200", readStatus(in, new HpackDecoder(4096), 1));
+
+            // a zero increment is a stream error, the server resets the stream
+            writeFrame(out, Http2Frame.WINDOW_UPDATE, 0, 1, new byte[4]);
+            int type;
+            do {
+                type = readFrameType(in, 1);
+                assertNotEquals(Http2Frame.DATA, type);
+            } while (type != Http2Frame.RST_STREAM);
+
+            // the worker gave up on the reset stream, so the connection closes without waiting for it
+            long start = System.nanoTime();
+            writeFrame(out, Http2Frame.GOAWAY, 0, 0, new byte[8]);
+            while (in.read() >= 0) {
+                continue;
+            }
+            assertTrue(System.nanoTime() - start < TimeUnit.SECONDS.toNanos(3));
+        }
+    }
+
+    @Test
+    void testPeerStalledMidFrameIsDisconnected() throws Exception {
+        server.stop();
+        ServerConfig config = new ServerConfig.Builder()
+            .port(PORT)
+            .clientConnectionTimeout(300)
+            .loggerConfig(new LoggerConfig.Builder().enabledFileLogging(false).logLevel(Level.INFO).build())
+            .build();
+        server = new Server(config);
+        server.get("/hello", request -> Response.ok("hello"));
+        server.start();
+
+        try (Socket socket = new Socket("localhost", PORT)) {
+            socket.setSoTimeout(5000);
+            OutputStream out = socket.getOutputStream();
+            out.write(Http2Connection.PREFACE);
+            writeFrame(out, Http2Frame.SETTINGS, 0, 0, new byte[0]);
+            // half a frame header, then nothing
+            out.write(new byte[]{0, 0, 8, Http2Frame.PING});
+            out.flush();
+
+            InputStream in = socket.getInputStream();
+            long start = System.nanoTime();
+            while (in.read() >= 0) {
+                continue;
+            }
+            assertTrue(System.nanoTime() - start < TimeUnit.SECONDS.toNanos(3));
+        }
+    }
+
+    /**
+     * Reads frames until the response headers of {@code streamId} and returns their status.
+     */
+    private static String readStatus(DataInputStream in, HpackDecoder decoder, int streamId) throws Exception {
+        while (true) {
+            int length = in.readUnsignedByte() << 16 | in.readUnsignedByte() << 8 | in.readUnsignedByte();
+            int type = in.readUnsignedByte();
+            in.readUnsignedByte();
+            int id = in.readInt();
+            byte[] payload = new byte[length];
+            in.readFully(payload);
+            if (type == Http2Frame.HEADERS) {
+                Map<String, String> headers = new TreeMap<>();
+                decoder.decode(payload, 0, payload.length, headers::put);
+                if (id == streamId) {
+                    return headers.get(":status");
+                }
+            }
+        }
+    }
+
+    /**
+     * Reads the next frame on {@code streamId}, skipping connection frames, and returns its type.
+     */
+    private static int readFrameType(DataInputStream in, int streamId) throws Exception {
+        while (true) {
+            int length = in.readUnsignedByte() << 16 | in.readUnsignedByte() << 8 | in.readUnsignedByte();
+            int type = in.readUnsignedByte();
+            in.readUnsignedByte();
+            int id = in.readInt();
+            in.readFully(new byte[length]);
+            if (id == streamId) {
+                return type;
+            }
+        }
+    }
+
+    private HttpRequest get(String path) {
+        return HttpRequest.newBuilder(URI.create("http://localhost:" + PORT + path)).GET().build();
+    }
+
+    private static void writeFrame(OutputStream out, int type, int flags, int streamId, byte[] payload)
+        throws Exception {
+        ByteBuffer header = ByteBuffer.allocate(Http2Frame.HEADER_LENGTH);
+        header.put((byte) (payload.length >>> 16)).put((byte) (payload.length >>> 8)).put((byte) payload.length);
+        header.put((byte) type).put((byte) flags).putInt(streamId);
+        out.write(header.array());
+        out.write(payload);
+        out.flush();
+    }
+}
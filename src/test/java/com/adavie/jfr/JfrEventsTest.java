@@ -0,0 +1,179 @@
+package com.adavie.jfr;
+
+import com.adavie.config.LoggerConfig;
+import com.adavie.config.ServerConfig;
+import com.adavie.config.ThreadPoolConfig;
+import com.adavie.response.Response;
+import com.adavie.server.Server;
+import com.adavie.util.ThreadPoolFactory;
+import jdk.jfr.Recording;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordingFile;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.logging.Level;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class JfrEventsTest {
+
+    private static final int PORT = 8287;
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void testConnectionAndRequestEvents() throws Exception {
+        ServerConfig config = new ServerConfig.Builder()
+            .port(PORT)
+            .loggerConfig(new LoggerConfig.Builder().enabledFileLogging(false).logLevel(Level.INFO).build())
+            .build();
+        Server server = new Server(config);
+        server.get("/hello", request -> Response.ok("hello"));
+
+        List<RecordedEvent> events;
+        try (Recording recording = new Recording()) {
+            recording.enable("com.adavie.Request").withThreshold(Duration.ZERO);
+            recording.enable("com.adavie.ConnectionAccepted");
+            recording.enable("com.adavie.ConnectionClosed");
+            recording.start();
+
+            server.start();
+            try (Socket socket = new Socket("localhost", PORT)) {
+                socket.getOutputStream().write(
+                    "GET /hello HTTP/1.1\r\nHost: localhost\r\nConnection: close\r\n\r\n".getBytes(StandardCharsets.US_ASCII));
+                drain(socket.getInputStream());
+            }
+            // the handler closes the connection after writing the response
+            Thread.sleep(200);
+            server.stop();
+
+            recording.stop();
+            events = dump(recording);
+        }
+
+        RecordedEvent request = find(events, "com.adavie.Request");
+        assertEquals("GET", request.getString("method"));
+        assertEquals("/hello", request.getString("path"));
+        assertEquals(200, request.getInt("status"));
+        assertTrue(request.getLong("responseBytes") > 5);
+        assertTrue(request.getDuration().toNanos() >= request.getLong("handleTime"));
+
+        assertEquals("127.0.0.1", find(events, "com.adavie.ConnectionAccepted").getString("remoteAddress"));
+        assertEquals(1, find(events, "com.adavie.ConnectionAccepted").getInt("openConnections"));
+        assertEquals("127.0.0.1", find(events, "com.adavie.ConnectionClosed").getString("remoteAddress"));
+    }
+
+    @Test
+    void testFastRequestsAreBelowDefaultThreshold() throws Exception {
+        ServerConfig config = new ServerConfig.Builder()
+            .port(PORT)
+            .loggerConfig(new LoggerConfig.Builder().enabledFileLogging(false).logLevel(Level.INFO).build())
+            .build();
+        Server server = new Server(config);
+        server.get("/hello", request -> Response.ok("hello"));
+        server.get("/slow", request -> {
+            Thread.sleep(50);
+            return Response.ok("slow");
+        });
+
+        List<RecordedEvent> events;
+        try (Recording recording = new Recording()) {
+            recording.enable("com.adavie.Request");
+            recording.start();
+
+            server.start();
+            try (Socket socket = new Socket("localhost", PORT)) {
+                socket.getOutputStream().write(("GET /hello HTTP/1.1\r\nHost: localhost\r\n\r\n"
+                    + "GET /slow HTTP/1.1\r\nHost: localhost\r\nConnection: close\r\n\r\n").getBytes(StandardCharsets.US_ASCII));
+                drain(socket.getInputStream());
+            }
+            server.stop();
+
+            recording.stop();
+            events = dump(recording);
+        }
+
+        List<String> paths = new ArrayList<>();
+        for (RecordedEvent event : events) {
+            if (event.getEventType().getName().equals("com.adavie.Request")) {
+                paths.add(event.getString("path"));
+            }
+        }
+        assertEquals(1, paths.size(), paths.toString());
+        assertEquals("/slow", paths.get(0));
+    }
+
+    @Test
+    void testExecutorRejectionEvent() throws Exception {
+        ExecutorService executor = ThreadPoolFactory.newExecutorService(new ThreadPoolConfig.Builder()
+            .virtualThreads(false)
+            .minPoolSize(1)
+            .maxPoolSize(1)
+            .queueSize(1)
+            .build());
+        CountDownLatch release = new CountDownLatch(1);
+
+        List<RecordedEvent> events;
+        try (Recording recording = new Recording()) {
+            recording.enable("com.adavie.ExecutorRejected");
+            recording.start();
+
+            executor.execute(() -> await(release));
+            executor.execute(() -> await(release));
+            assertThrows(RejectedExecutionException.class, () -> executor.execute(() -> await(release)));
+
+            recording.stop();
+            events = dump(recording);
+        } finally {
+            release.countDown();
+            executor.shutdown();
+        }
+
+        RecordedEvent rejected = find(events, "com.adavie.ExecutorRejected");
+        assertEquals(1, rejected.getInt("poolSize"));
+        assertEquals(1, rejected.getInt("queuedTasks"));
+    }
+
+    private List<RecordedEvent> dump(Recording recording) throws IOException {
+        Path file = directory.resolve("recording.jfr");
+        recording.dump(file);
+        return RecordingFile.readAllEvents(file);
+    }
+
+    private static RecordedEvent find(List<RecordedEvent> events, String name) {
+        for (RecordedEvent event : events) {
+            if (event.getEventType().getName().equals(name)) {
+                return event;
+            }
+        }
+        throw new AssertionError("No " + name + " event in " + events);
+    }
+
+    private static void drain(InputStream in) throws IOException {
+        byte[] buffer = new byte[1024];
+        while (in.read(buffer) > 0) {
+            // read until the server closes the connection
+        }
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,112 @@
+package com.adavie.log;
+
+import com.adavie.config.AccessLogConfig;
+import com.adavie.request.HttpMethod;
+import com.adavie.request.Request;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class AccessLogTest {
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void testRecordFormat() throws IOException {
+        Path file = directory.resolve("access.log");
+        AccessLog log = AccessLog.open(new AccessLogConfig.Builder().filePath(file).build());
+
+        Request request = new Request(HttpMethod.GET, "/users?page=2", "HTTP/1.1");
+        request.setRemoteAddress(new InetSocketAddress("10.0.0.7", 41000));
+        log.record(request, 200, 5120, TimeUnit.MICROSECONDS.toNanos(3), TimeUnit.MICROSECONDS.toNanos(412),
+            TimeUnit.MICROSECONDS.toNanos(35));
+        log.record(new Request(HttpMethod.POST, "/a b\n", "HTTP/1.1"), 404, 0, 0, 0, 0);
+        log.close();
+
+        List<String> lines = Files.readAllLines(file, StandardCharsets.US_ASCII);
+        assertEquals(2, lines.size());
+        assertTrue(lines.get(0).matches("\\d{4}-\\d\\d-\\d\\dT\\d\\d:\\d\\d:\\d\\d\\.\\d{3}Z "
+            + "10\\.0\\.0\\.7 GET /users\\?page=2 HTTP/1\\.1 200 5120 3 412 35"), lines.get(0));
+        assertTrue(lines.get(1).endsWith(" - POST /a?b? HTTP/1.1 404 0 0 0 0"), lines.get(1));
+        assertEquals(2, log.getRecords());
+        assertEquals(0, log.getDropped());
+    }
+
+    @Test
+    void testRecordsFromManyThreadsAreAllWritten() throws Exception {
+        Path file = directory.resolve("access.log");
+        AccessLog log = AccessLog.open(new AccessLogConfig.Builder().filePath(file).bufferSize(4096).build());
+
+        Thread[] threads = new Thread[8];
+        for (int t = 0; t < threads.length; t++) {
+            threads[t] = new Thread(() -> {
+                for (int i = 0; i < 2000; i++) {
+                    log.record(new Request(HttpMethod.GET, "/item/" + i, "HTTP/1.1"), 200, i, 0, 0, 0);
+                }
+            });
+            threads[t].start();
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        log.close();
+
+        assertEquals(16000, log.getRecords() + log.getDropped());
+        assertEquals(log.getRecords(), Files.readAllLines(file, StandardCharsets.US_ASCII).size());
+    }
+
+    @Test
+    void testRotationBySize() throws Exception {
+        Path file = directory.resolve("access.log");
+        AccessLog log = AccessLog.open(new AccessLogConfig.Builder()
+            .filePath(file)
+            .maxFileSize(100)
+            .maxFiles(2)
+            .flushInterval(1)
+            .build());
+
+        for (int i = 0; i < 5; i++) {
+            log.record(new Request(HttpMethod.GET, "/" + i, "HTTP/1.1"), 200, 0, 0, 0, 0);
+            waitForRecord(file, "/" + i + " ");
+            // rotated files are named by the second they were rotated in
+            Thread.sleep(1100);
+        }
+        log.close();
+
+        List<Path> rotated = new ArrayList<>();
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(directory, "access.log.*")) {
+            for (Path path : files) {
+                rotated.add(path);
+            }
+        }
+        assertEquals(2, rotated.size());
+        assertTrue(Files.size(file) <= 100);
+    }
+
+    private static void waitForRecord(Path file, String target) throws Exception {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (System.nanoTime() < deadline) {
+            try {
+                if (new String(Files.readAllBytes(file), StandardCharsets.US_ASCII).contains(target)) {
+                    return;
+                }
+            } catch (NoSuchFileException e) {
+                // the file briefly does not exist while it is being rotated
+            }
+            Thread.sleep(5);
+        }
+    }
+}
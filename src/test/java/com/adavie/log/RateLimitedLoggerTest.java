@@ -0,0 +1,104 @@
+package com.adavie.log;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.logging.Handler;
+import java.util.logging.Level;
+import java.util.logging.LogRecord;
+import java.util.logging.Logger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class RateLimitedLoggerTest {
+
+    private final List<LogRecord> records = new ArrayList<>();
+    private Logger logger;
+
+    @BeforeEach
+    void setUp() {
+        logger = Logger.getAnonymousLogger();
+        logger.setUseParentHandlers(false);
+        logger.setLevel(Level.INFO);
+        logger.addHandler(new Handler() {
+            @Override
+            public void publish(LogRecord record) {
+                records.add(record);
+            }
+
+            @Override
+            public void flush() {
+            }
+
+            @Override
+            public void close() {
+            }
+        });
+    }
+
+    @Test
+    void testBurstThenSuppression() {
+        RateLimitedLogger limited = new RateLimitedLogger(logger, "Test failures", 3, 1, TimeUnit.HOURS);
+        AtomicInteger built = new AtomicInteger();
+        IllegalStateException failure = new IllegalStateException("boom");
+
+        for (int i = 0; i < 100; i++) {
+            limited.log(Level.WARNING, failure, () -> "failure " + built.incrementAndGet());
+        }
+
+        assertEquals(3, records.size());
+        assertEquals("failure 3", records.get(2).getMessage());
+        assertSame(failure, records.get(0).getThrown());
+        assertEquals(3, built.get());
+        assertEquals(97, limited.getSuppressed());
+
+        limited.logSummary();
+        assertEquals(4, records.size());
+        assertEquals("Test failures: 97 similar messages suppressed", records.get(3).getMessage());
+        assertEquals(Level.WARNING, records.get(3).getLevel());
+        assertEquals(0, limited.getSuppressed());
+
+        limited.logSummary();
+        assertEquals(4, records.size());
+    }
+
+    @Test
+    void testTokensRefill() throws InterruptedException {
+        RateLimitedLogger limited = new RateLimitedLogger(logger, "Test failures", 1, 50, TimeUnit.MILLISECONDS);
+
+        limited.log(Level.WARNING, () -> "first");
+        limited.log(Level.WARNING, () -> "second");
+        assertEquals(1, records.size());
+
+        Thread.sleep(100);
+        limited.log(Level.WARNING, () -> "third");
+        assertEquals(2, records.size());
+        assertEquals("third", records.get(1).getMessage());
+    }
+
+    @Test
+    void testDisabledLevelNeitherBuildsNorCounts() {
+        RateLimitedLogger limited = new RateLimitedLogger(logger, "Test failures");
+
+        limited.log(Level.FINE, () -> {
+            throw new AssertionError("message built for a disabled level");
+        });
+
+        assertTrue(records.isEmpty());
+        assertEquals(0, limited.getSuppressed());
+    }
+
+    @Test
+    void testValidation() {
+        assertThrows(IllegalArgumentException.class, () -> new RateLimitedLogger(null, "site"));
+        assertThrows(IllegalArgumentException.class, () -> new RateLimitedLogger(logger, " "));
+        assertThrows(IllegalArgumentException.class,
+            () -> new RateLimitedLogger(logger, "site", 0, 1, TimeUnit.SECONDS));
+        assertThrows(IllegalArgumentException.class,
+            () -> new RateLimitedLogger(logger, "site", 1, 0, TimeUnit.SECONDS));
+    }
+}
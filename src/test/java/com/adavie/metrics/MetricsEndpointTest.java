@@ -0,0 +1,115 @@
+package com.adavie.metrics;
+
+import com.adavie.config.LoggerConfig;
+import com.adavie.config.ServerConfig;
+import com.adavie.config.ThreadPoolConfig;
+import com.adavie.response.Response;
+import com.adavie.server.Server;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.util.logging.Level;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class MetricsEndpointTest {
+
+    private static final int PORT = 8285;
+    private static final int METRICS_PORT = 8286;
+
+    private Server server;
+
+    @BeforeEach
+    void startServer() {
+        ServerConfig config = new ServerConfig.Builder()
+            .port(PORT)
+            .metricsPort(METRICS_PORT)
+            .clientConnectionTimeout(5000)
+            .threadPoolConfig(new ThreadPoolConfig.Builder()
+                .virtualThreads(false)
+                .minPoolSize(1)
+                .maxPoolSize(1)
+                .queueSize(1)
+                .build())
+            .loggerConfig(new LoggerConfig.Builder().enabledFileLogging(false).logLevel(Level.INFO).build())
+            .build();
+        server = new Server(config);
+        server.get("/hello", request -> Response.ok("hello"));
+        server.start();
+    }
+
+    @AfterEach
+    void stopServer() {
+        server.stop();
+    }
+
+    @Test
+    void testRequestMetricsAreExposed() throws IOException {
+        try (Socket socket = new Socket("localhost", PORT)) {
+            socket.getOutputStream().write(
+                "GET /hello HTTP/1.1\r\nHost: localhost\r\nConnection: close\r\n\r\n".getBytes(StandardCharsets.US_ASCII));
+            assertTrue(readAll(socket.getInputStream()).startsWith("HTTP/1.1 200 OK"));
+        }
+
+        String response = scrape("/metrics");
+        assertTrue(response.startsWith("HTTP/1.1 200 OK\r\n"), response);
+        assertTrue(response.contains("Content-Type: text/plain; version=0.0.4"), response);
+        assertTrue(response.contains("\n# TYPE restlite_requests_total counter\n"), response);
+        assertTrue(response.contains("\nrestlite_requests_total{code=\"2xx\"} 1\n"), response);
+        assertTrue(response.contains("\nrestlite_connections_accepted_total 1\n"), response);
+        assertTrue(response.contains("\nrestlite_request_duration_seconds_count 1\n"), response);
+        assertTrue(response.contains("restlite_request_duration_seconds{quantile=\"0.99\"} "), response);
+        assertTrue(response.contains("jvm_gc_collection_seconds_count{gc=\""), response);
+        assertTrue(response.contains("jvm_buffer_pool_used_bytes{pool=\"direct\"} "), response);
+
+        assertTrue(scrape("/other").startsWith("HTTP/1.1 404 Not Found\r\n"));
+    }
+
+    @Test
+    void testScrapeSucceedsWhileExecutorIsSaturated() throws Exception {
+        // the only worker blocks reading the first connection, the second fills the queue and the
+        // third is rejected
+        Socket busy = new Socket("localhost", PORT);
+        Socket queued = new Socket("localhost", PORT);
+        Socket rejected = new Socket("localhost", PORT);
+        try {
+            String response = "";
+            for (int attempt = 0; attempt < 100 && !response.contains("\nrestlite_executor_rejected_total 1\n"); attempt++) {
+                Thread.sleep(20);
+                response = scrape("/metrics");
+            }
+            assertTrue(response.contains("\nrestlite_executor_rejected_total 1\n"), response);
+            assertTrue(response.contains("\nrestlite_executor_active_threads 1\n"), response);
+            assertTrue(response.contains("\nrestlite_executor_queued_tasks 1\n"), response);
+        } finally {
+            busy.close();
+            queued.close();
+            rejected.close();
+        }
+    }
+
+    private static String scrape(String path) throws IOException {
+        try (Socket socket = new Socket("localhost", METRICS_PORT)) {
+            socket.setSoTimeout(5000);
+            socket.getOutputStream().write(
+                ("GET " + path + " HTTP/1.1\r\nHost: localhost\r\n\r\n").getBytes(StandardCharsets.US_ASCII));
+            return readAll(socket.getInputStream());
+        }
+    }
+
+    private static String readAll(InputStream in) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        byte[] buffer = new byte[8192];
+        int n;
+        while ((n = in.read(buffer)) > 0) {
+            out.write(buffer, 0, n);
+        }
+        return out.toString("UTF-8");
+    }
+}
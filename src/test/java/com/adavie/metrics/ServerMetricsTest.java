@@ -0,0 +1,64 @@
+package com.adavie.metrics;
+
+import com.adavie.request.HttpMethod;
+import com.adavie.request.Request;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ServerMetricsTest {
+
+    private static final Request REQUEST = new Request(HttpMethod.GET, "/", "HTTP/1.1");
+
+    @Test
+    void testRequestsByStatusClass() {
+        ServerMetrics metrics = new ServerMetrics();
+        metrics.record(REQUEST, 200, 100, 0, 0, 0);
+        metrics.record(REQUEST, 204, 0, 0, 0, 0);
+        metrics.record(REQUEST, 404, 20, 0, 0, 0);
+        metrics.record(REQUEST, 503, 30, 0, 0, 0);
+
+        assertEquals(2, metrics.getRequests(2));
+        assertEquals(1, metrics.getRequests(4));
+        assertEquals(1, metrics.getRequests(5));
+        assertEquals(0, metrics.getRequests(1));
+        assertEquals(4, metrics.getRequests());
+        assertEquals(150, metrics.getResponseBytes());
+        assertThrows(IllegalArgumentException.class, () -> metrics.getRequests(6));
+    }
+
+    @Test
+    void testDurationQuantiles() {
+        ServerMetrics metrics = new ServerMetrics();
+        assertEquals(0, metrics.getDurationQuantile(0.5));
+
+        // 90 fast requests of 100us and 10 slow ones of 50ms, split over the phases
+        for (int i = 0; i < 90; i++) {
+            metrics.record(REQUEST, 200, 0, 0, TimeUnit.MICROSECONDS.toNanos(100), 0);
+        }
+        for (int i = 0; i < 10; i++) {
+            metrics.record(REQUEST, 200, 0, TimeUnit.MILLISECONDS.toNanos(10), TimeUnit.MILLISECONDS.toNanos(30),
+                TimeUnit.MILLISECONDS.toNanos(10));
+        }
+
+        // estimates are bucket upper bounds, at most twice the real value
+        double median = metrics.getDurationQuantile(0.5);
+        assertTrue(median >= 100e-6 && median <= 200e-6, String.valueOf(median));
+        double p99 = metrics.getDurationQuantile(0.99);
+        assertTrue(p99 >= 50e-3 && p99 <= 100e-3, String.valueOf(p99));
+        assertEquals(TimeUnit.MICROSECONDS.toNanos(9000) + TimeUnit.MILLISECONDS.toNanos(500), metrics.getDurationNanos());
+    }
+
+    @Test
+    void testConnectionCounters() {
+        ServerMetrics metrics = new ServerMetrics();
+        metrics.recordConnectionAccepted();
+        metrics.recordConnectionAccepted();
+        metrics.recordExecutorRejection();
+
+        assertEquals(2, metrics.getConnectionsAccepted());
+        assertEquals(1, metrics.getExecutorRejections());
+    }
+}
@@ -0,0 +1,44 @@
+package com.adavie.multipart;
+
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class BoundarySearchTest {
+
+    private static final BoundarySearch SEARCH = new BoundarySearch(bytes("\r\n--abc"));
+
+    @Test
+    void testFindsFirstOccurrence() {
+        byte[] data = bytes("hello\r\n--ab\r\n--abc tail \r\n--abc");
+
+        assertEquals(11, SEARCH.indexOf(data, 0, data.length));
+        assertEquals(24, SEARCH.indexOf(data, 12, data.length));
+    }
+
+    @Test
+    void testRespectsRange() {
+        byte[] data = bytes("xx\r\n--abcxx");
+
+        assertEquals(2, SEARCH.indexOf(data, 2, 9));
+        assertEquals(-1, SEARCH.indexOf(data, 2, 8));
+        assertEquals(-1, SEARCH.indexOf(data, 3, data.length));
+    }
+
+    @Test
+    void testHandlesHighBytes() {
+        byte[] data = new byte[64];
+        for (int i = 0; i < data.length; i++) {
+            data[i] = (byte) (0x80 + i);
+        }
+        System.arraycopy(bytes("\r\n--abc"), 0, data, 50, 7);
+
+        assertEquals(50, SEARCH.indexOf(data, 0, data.length));
+    }
+
+    private static byte[] bytes(String text) {
+        return text.getBytes(StandardCharsets.ISO_8859_1);
+    }
+}
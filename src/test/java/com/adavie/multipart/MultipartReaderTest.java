@@ -0,0 +1,221 @@
+package com.adavie.multipart;
+
+import com.adavie.request.HttpMethod;
+import com.adavie.request.Request;
+import com.adavie.response.HttpException;
+import com.adavie.response.HttpStatus;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class MultipartReaderTest {
+
+    private static final String BOUNDARY = "----form-boundary-7MA4YWxk";
+
+    @Test
+    void testReadsFieldsAndFiles() throws IOException {
+        String body = "--" + BOUNDARY + "\r\n"
+            + "Content-Disposition: form-data; name=\"title\"\r\n\r\n"
+            + "Quarterly report\r\n"
+            + "--" + BOUNDARY + "\r\n"
+            + "Content-Disposition: form-data; name=\"file\"; filename=\"report.csv\"\r\n"
+            + "Content-Type: text/csv\r\n\r\n"
+            + "a,b\r\n1,2\r\n"
+            + "\r\n--" + BOUNDARY + "--\r\n";
+
+        try (MultipartReader reader = reader(bytes(body), 7)) {
+            Part title = reader.next();
+            assertEquals("title", title.getName());
+            assertFalse(title.isFile());
+            assertEquals("text/plain", title.getContentType());
+            assertEquals("Quarterly report", title.getValue());
+
+            Part file = reader.next();
+            assertEquals("file", file.getName());
+            assertEquals("report.csv", file.getFilename());
+            assertEquals("text/csv", file.getHeader("Content-Type"));
+            assertEquals("a,b\r\n1,2\r\n", new String(readAll(file.getInputStream()), StandardCharsets.UTF_8));
+
+            assertNull(reader.next());
+            assertNull(reader.next());
+        }
+    }
+
+    @Test
+    void testIgnoresPreambleEpilogueAndPadding() throws IOException {
+        String body = "preamble\r\n--" + BOUNDARY + " \t\r\n"
+            + "Content-Disposition: form-data; name=\"a\"\r\n\r\n"
+            + "1\r\n--" + BOUNDARY + "\r\n"
+            + "Content-Disposition: form-data; name=\"b\"\r\n\r\n"
+            + "\r\n--" + BOUNDARY + "--\r\nepilogue";
+
+        try (MultipartReader reader = reader(bytes(body), 1)) {
+            assertEquals("1", reader.next().getValue());
+            Part empty = reader.next();
+            assertEquals("b", empty.getName());
+            assertEquals("", empty.getValue());
+            assertNull(reader.next());
+        }
+    }
+
+    @Test
+    void testUnreadPartsAreSkipped() throws IOException {
+        String body = "--" + BOUNDARY + "\r\n"
+            + "Content-Disposition: form-data; name=\"skipped\"\r\n\r\n"
+            + "not read\r\n--" + BOUNDARY + "\r\n"
+            + "Content-Disposition: form-data; name=\"read\"\r\n\r\n"
+            + "value\r\n--" + BOUNDARY + "--";
+
+        try (MultipartReader reader = reader(bytes(body), 3)) {
+            Part skipped = reader.next();
+            Part read = reader.next();
+
+            assertEquals("value", read.getValue());
+            assertEquals(-1, skipped.getInputStream().read());
+        }
+    }
+
+    @Test
+    void testStreamsLargeBinaryPart() throws IOException {
+        byte[] content = new byte[1_000_000];
+        new Random(42).nextBytes(content);
+        // near misses of the delimiter inside the content
+        byte[] nearMiss = bytes("\r\n--" + BOUNDARY.substring(0, BOUNDARY.length() - 1));
+        for (int offset = 1000; offset < content.length - nearMiss.length; offset += 65531) {
+            System.arraycopy(nearMiss, 0, content, offset, nearMiss.length);
+        }
+
+        ByteArrayOutputStream body = new ByteArrayOutputStream();
+        body.write(bytes("--" + BOUNDARY + "\r\nContent-Disposition: form-data; name=\"blob\"; filename=\"b.bin\"\r\n\r\n"));
+        body.write(content);
+        body.write(bytes("\r\n--" + BOUNDARY + "--\r\n"));
+
+        try (MultipartReader reader = reader(body.toByteArray(), 8191)) {
+            Part part = reader.next();
+            ReadableByteChannel channel = part.getChannel();
+            ByteArrayOutputStream received = new ByteArrayOutputStream();
+            ByteBuffer chunk = ByteBuffer.allocate(4096);
+            while (channel.read(chunk) >= 0) {
+                received.write(chunk.array(), 0, chunk.position());
+                chunk.clear();
+            }
+
+            assertArrayEquals(content, received.toByteArray());
+            assertNull(reader.next());
+        }
+    }
+
+    @Test
+    void testMalformedBodies() {
+        HttpException truncated = assertThrows(HttpException.class, () -> {
+            try (MultipartReader reader = reader(bytes("--" + BOUNDARY + "\r\n\r\npartial"), 16)) {
+                reader.next().getValue();
+            }
+        });
+        assertEquals(HttpStatus.BAD_REQUEST, truncated.getStatus());
+
+        HttpException noParts = assertThrows(HttpException.class, () -> {
+            try (MultipartReader reader = reader(bytes("no delimiter here"), 16)) {
+                reader.next();
+            }
+        });
+        assertEquals("Multipart body has no parts", noParts.getMessage());
+    }
+
+    @Test
+    void testFieldSizeLimit() throws IOException {
+        String body = "--" + BOUNDARY + "\r\nContent-Disposition: form-data; name=\"big\"\r\n\r\n"
+            + "0123456789\r\n--" + BOUNDARY + "--";
+
+        try (MultipartReader reader = new MultipartReader(new ChunkedChannel(bytes(body), 64), BOUNDARY, 5)) {
+            HttpException exception = assertThrows(HttpException.class, () -> reader.next().getValue());
+            assertEquals(HttpStatus.PAYLOAD_TOO_LARGE, exception.getStatus());
+        }
+    }
+
+    @Test
+    void testOpenFromRequest() throws IOException {
+        Request request = new Request(HttpMethod.POST, "/upload", "HTTP/1.1");
+        request.addHeader("Content-Type", "multipart/form-data; charset=utf-8; boundary=\"" + BOUNDARY + "\"");
+        request.setBody(bytes("--" + BOUNDARY + "\r\nContent-Disposition: form-data; name=x\r\n\r\ny\r\n--" + BOUNDARY + "--"));
+
+        try (MultipartReader reader = MultipartReader.open(request)) {
+            Part part = reader.next();
+            assertEquals("x", part.getName());
+            assertEquals("y", part.getValue());
+        }
+
+        Request json = new Request(HttpMethod.POST, "/upload", "HTTP/1.1");
+        json.addHeader("Content-Type", "application/json");
+        HttpException exception = assertThrows(HttpException.class, () -> MultipartReader.open(json));
+        assertEquals(HttpStatus.UNSUPPORTED_MEDIA_TYPE, exception.getStatus());
+    }
+
+    @Test
+    void testParseParameters() {
+        assertEquals("a \"quoted\"; name",
+            MultipartReader.parseParameters("form-data; filename=\"a \\\"quoted\\\"; name\"").get("filename"));
+        assertEquals("plain", MultipartReader.parseParameters("form-data; NAME=plain ; other").get("name"));
+    }
+
+    private static MultipartReader reader(byte[] body, int chunkSize) {
+        return new MultipartReader(new ChunkedChannel(body, chunkSize), BOUNDARY, MultipartReader.DEFAULT_MAX_FIELD_SIZE);
+    }
+
+    private static byte[] bytes(String text) {
+        return text.getBytes(StandardCharsets.ISO_8859_1);
+    }
+
+    private static byte[] readAll(InputStream in) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        byte[] chunk = new byte[3];
+        int n;
+        while ((n = in.read(chunk)) >= 0) {
+            out.write(chunk, 0, n);
+        }
+        return out.toByteArray();
+    }
+
+    /**
+     * Hands out the body at most {@code chunkSize} bytes per read, like a slow network.
+     */
+    private static class ChunkedChannel implements ReadableByteChannel {
+        private final ByteBuffer data;
+        private final int chunkSize;
+
+        ChunkedChannel(byte[] data, int chunkSize) {
+            this.data = ByteBuffer.wrap(data);
+            this.chunkSize = chunkSize;
+        }
+
+        @Override
+        public int read(ByteBuffer dst) {
+            if (!data.hasRemaining()) {
+                return -1;
+            }
+            int n = Math.min(chunkSize, Math.min(data.remaining(), dst.remaining()));
+            ByteBuffer slice = data.duplicate();
+            slice.limit(slice.position() + n);
+            dst.put(slice);
+            data.position(data.position() + n);
+            return n;
+        }
+
+        @Override
+        public boolean isOpen() {
+            return true;
+        }
+
+        @Override
+        public void close() {
+        }
+    }
+}
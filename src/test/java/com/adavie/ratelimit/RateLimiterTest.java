@@ -0,0 +1,119 @@
+package com.adavie.ratelimit;
+
+import com.adavie.request.HttpMethod;
+import com.adavie.request.Request;
+import org.junit.jupiter.api.Test;
+
+import java.net.InetSocketAddress;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class RateLimiterTest {
+
+    @Test
+    void testBurstThenReject() {
+        RateLimiter limiter = new RateLimiter.Builder().rate(5, 1, TimeUnit.HOURS).build();
+
+        for (int i = 0; i < 5; i++) {
+            assertTrue(limiter.tryAcquire("client"));
+        }
+        assertFalse(limiter.tryAcquire("client"));
+        assertTrue(limiter.tryAcquire("other"));
+        assertEquals(6, limiter.getAllowed());
+        assertEquals(1, limiter.getRejected());
+    }
+
+    @Test
+    void testTokensRefillOverTime() throws InterruptedException {
+        RateLimiter limiter = new RateLimiter.Builder().rate(100, 1, TimeUnit.SECONDS).burst(1).build();
+
+        assertTrue(limiter.tryAcquire("client"));
+        assertFalse(limiter.tryAcquire("client"));
+        Thread.sleep(30);
+        assertTrue(limiter.tryAcquire("client"));
+    }
+
+    @Test
+    void testConcurrentAcquiresNeverExceedBurst() throws InterruptedException {
+        RateLimiter limiter = new RateLimiter.Builder().rate(1000, 1, TimeUnit.HOURS).build();
+        AtomicInteger granted = new AtomicInteger();
+        List<Thread> threads = new ArrayList<>();
+        for (int t = 0; t < 8; t++) {
+            Thread thread = new Thread(() -> {
+                for (int i = 0; i < 500; i++) {
+                    if (limiter.tryAcquire("shared")) {
+                        granted.incrementAndGet();
+                    }
+                }
+            });
+            threads.add(thread);
+            thread.start();
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+
+        assertEquals(1000, granted.get());
+    }
+
+    @Test
+    void testKeysAreBounded() {
+        RateLimiter limiter = new RateLimiter.Builder().rate(1, 1, TimeUnit.HOURS).burst(2).maxKeys(100).build();
+
+        for (int i = 0; i < 100; i++) {
+            assertTrue(limiter.tryAcquire("key-" + i));
+        }
+        // new keys are turned away rather than evicting live buckets
+        for (int i = 100; i < 1000; i++) {
+            assertFalse(limiter.tryAcquire("key-" + i));
+        }
+        assertEquals(100, limiter.getTrackedKeys());
+        assertTrue(limiter.tryAcquire("key-0"));
+        assertFalse(limiter.tryAcquire("key-0"));
+    }
+
+    @Test
+    void testSweepDropsRefilledBuckets() {
+        RateLimiter limiter = new RateLimiter.Builder().rate(1, 1, TimeUnit.SECONDS).burst(2).maxKeys(2).build();
+
+        assertTrue(limiter.tryAcquire("idle"));
+        assertTrue(limiter.tryAcquire("busy"));
+        assertTrue(limiter.tryAcquire("busy"));
+        assertFalse(limiter.tryAcquire("new"));
+
+        // after a second "idle" has earned back its token, "busy" is still one short
+        limiter.sweep(limiter.nowMicros() + TimeUnit.MILLISECONDS.toMicros(1500));
+        assertEquals(1, limiter.getTrackedKeys());
+        assertTrue(limiter.tryAcquire("new"));
+    }
+
+    @Test
+    void testKeyExtractors() {
+        Request request = new Request(HttpMethod.GET, "/", "HTTP/1.1");
+        request.setRemoteAddress(new InetSocketAddress("127.0.0.1", 40000));
+
+        assertEquals("127.0.0.1", KeyExtractor.clientIp().extract(request));
+        assertEquals("127.0.0.1", KeyExtractor.header("X-Api-Key").extract(request));
+
+        request.addHeader("X-Api-Key", "secret");
+        assertEquals("X-Api-Key:secret", KeyExtractor.header("X-Api-Key").extract(request));
+
+        RateLimiter unlimited = new RateLimiter.Builder().rate(1, 1, TimeUnit.HOURS).keyExtractor(r -> null).build();
+        assertTrue(unlimited.tryAcquire(request));
+        assertTrue(unlimited.tryAcquire(request));
+    }
+
+    @Test
+    void testValidation() {
+        assertThrows(IllegalArgumentException.class, () -> new RateLimiter.Builder().rate(0, 1, TimeUnit.SECONDS));
+        assertThrows(IllegalArgumentException.class, () -> new RateLimiter.Builder().rate(1, 0, TimeUnit.SECONDS));
+        assertThrows(IllegalArgumentException.class, () -> new RateLimiter.Builder().rate(1, 2, TimeUnit.DAYS));
+        assertThrows(IllegalArgumentException.class, () -> new RateLimiter.Builder().burst(RateLimiter.MAX_BURST + 1));
+        assertThrows(IllegalArgumentException.class, () -> new RateLimiter.Builder().maxKeys(0));
+        assertThrows(IllegalArgumentException.class, () -> new RateLimiter.Builder().keyExtractor(null));
+    }
+}
@@ -0,0 +1,322 @@
+package com.adavie.request;
+
+import com.adavie.config.BodyConfig;
+import com.adavie.config.LoggerConfig;
+import com.adavie.config.ServerConfig;
+import com.adavie.ratelimit.RateLimiter;
+import com.adavie.response.Response;
+import com.adavie.server.Server;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.Socket;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Level;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ClientHandlerTest {
+
+    private static final int PORT = 8282;
+
+    private Server server;
+
+    @BeforeEach
+    void startServer() {
+        ServerConfig config = new ServerConfig.Builder()
+            .port(PORT)
+            .clientConnectionTimeout(5000)
+            .loggerConfig(new LoggerConfig.Builder().enabledFileLogging(false).logLevel(Level.INFO).build())
+            .bodyConfig(new BodyConfig.Builder().memoryBudget(64).spoolThreshold(16).maxBodySize(1024).build())
+            .build();
+        server = new Server(config);
+        server.get("/hello", request -> Response.ok("hello"));
+        server.post("/echo", request -> Response.ok(request.getBodyAsString()));
+        server.post("/inspect", request -> Response.ok(request.getRequestBody().isSpooled() + ":" + request.getBodyAsString()));
+        server.post("/large", request -> Response.ok(request.getBodyAsString())).spoolThreshold(1000);
+        server.get("/limited", request -> Response.ok("ok"))
+            .rateLimit(new RateLimiter.Builder().rate(2, 1, TimeUnit.HOURS).build());
+        server.start();
+    }
+
+    @AfterEach
+    void stopServer() {
+        server.stop();
+    }
+
+    @Test
+    void testKeepAliveServesSequentialRequests() throws IOException {
+        try (Socket socket = connect()) {
+            send(socket, "GET /hello HTTP/1.1\r\nHost: localhost\r\n\r\n");
+            String first = readResponse(socket.getInputStream());
+            send(socket, "GET /hello HTTP/1.1\r\nHost: localhost\r\n\r\n");
+            String second = readResponse(socket.getInputStream());
+
+            assertTrue(first.startsWith("HTTP/1.1 200 OK\r\n"), first);
+            assertTrue(first.contains("Content-Length: 5\r\n"), first);
+            assertTrue(first.contains("Date: "), first);
+            assertTrue(first.endsWith("\r\n\r\nhello"), first);
+            assertTrue(second.endsWith("\r\n\r\nhello"), second);
+        }
+    }
+
+    @Test
+    void testContentLengthBody() throws IOException {
+        try (Socket socket = connect()) {
+            send(socket, "POST /echo HTTP/1.1\r\nHost: localhost\r\nContent-Length: 11\r\n\r\nhello world");
+            assertTrue(readResponse(socket.getInputStream()).endsWith("\r\n\r\nhello world"));
+        }
+    }
+
+    @Test
+    void testChunkedBody() throws IOException {
+        try (Socket socket = connect()) {
+            send(socket, "POST /echo HTTP/1.1\r\nHost: localhost\r\nTransfer-Encoding: chunked\r\n\r\n"
+                + "5\r\nhello\r\n6;ext=1\r\n world\r\n0\r\nTrailer: x\r\n\r\n");
+            assertTrue(readResponse(socket.getInputStream()).endsWith("\r\n\r\nhello world"));
+        }
+    }
+
+    @Test
+    void testBodiesAboveThresholdAreSpooled() throws IOException {
+        String body = "0123456789abcdefghij";
+        try (Socket socket = connect()) {
+            send(socket, "POST /inspect HTTP/1.1\r\nHost: localhost\r\nContent-Length: 20\r\n\r\n" + body);
+            assertTrue(readResponse(socket.getInputStream()).endsWith("\r\n\r\ntrue:" + body));
+
+            send(socket, "POST /inspect HTTP/1.1\r\nHost: localhost\r\nContent-Length: 10\r\n\r\n0123456789");
+            assertTrue(readResponse(socket.getInputStream()).endsWith("\r\n\r\nfalse:0123456789"));
+        }
+    }
+
+    @Test
+    void testChunkedBodyMovesToSpoolPastThreshold() throws IOException {
+        try (Socket socket = connect()) {
+            send(socket, "POST /inspect HTTP/1.1\r\nHost: localhost\r\nTransfer-Encoding: chunked\r\n\r\n"
+                + "a\r\n0123456789\r\na\r\nabcdefghij\r\n3\r\nxyz\r\n0\r\n\r\n");
+            assertTrue(readResponse(socket.getInputStream()).endsWith("\r\n\r\ntrue:0123456789abcdefghijxyz"));
+        }
+    }
+
+    @Test
+    void testBodyLimits() throws IOException {
+        try (Socket socket = connect()) {
+            send(socket, "POST /echo HTTP/1.1\r\nHost: localhost\r\nContent-Length: 1025\r\n\r\n");
+            assertTrue(readResponse(socket.getInputStream()).startsWith("HTTP/1.1 413 Payload Too Large\r\n"));
+        }
+        try (Socket socket = connect()) {
+            // the route keeps bodies up to 1000 bytes in memory, more than the whole budget
+            send(socket, "POST /large HTTP/1.1\r\nHost: localhost\r\nContent-Length: 100\r\n\r\n");
+            assertTrue(readResponse(socket.getInputStream()).startsWith("HTTP/1.1 503 Service Unavailable\r\n"));
+        }
+    }
+
+    @Test
+    void testHttp2BodiesAreSpooledAndLimited() throws Exception {
+        HttpClient client = HttpClient.newBuilder()
+            .version(HttpClient.Version.HTTP_2)
+            .connectTimeout(Duration.ofSeconds(2))
+            .build();
+        // upgrade to h2c first, so the bodies below arrive as DATA frames
+        HttpResponse<String> upgrade = client.send(
+            HttpRequest.newBuilder(URI.create("http://localhost:" + PORT + "/hello")).GET().build(),
+            HttpResponse.BodyHandlers.ofString());
+        assertEquals(HttpClient.Version.HTTP_2, upgrade.version());
+
+        // more in-memory bodies than the budget holds at once, so each must return its memory
+        for (int i = 0; i < 10; i++) {
+            assertEquals("false:0123456789", postHttp2(client, "/inspect", "0123456789").body());
+        }
+        assertEquals("true:0123456789abcdefghij", postHttp2(client, "/inspect", "0123456789abcdefghij").body());
+
+        HttpResponse<String> tooLarge = postHttp2(client, "/echo", new String(new byte[1025], StandardCharsets.ISO_8859_1));
+        assertEquals(413, tooLarge.statusCode());
+        // the route keeps bodies up to 1000 bytes in memory, more than the whole budget
+        HttpResponse<String> overBudget = postHttp2(client, "/large", new String(new byte[100], StandardCharsets.ISO_8859_1));
+        assertEquals(503, overBudget.statusCode());
+
+        assertEquals("false:0123456789", postHttp2(client, "/inspect", "0123456789").body());
+    }
+
+    @Test
+    void testMalformedChunkSizes() throws IOException {
+        for (String size : new String[] {"-5", "+5", "0x5", "5 5", ""}) {
+            try (Socket socket = connect()) {
+                send(socket, "POST /echo HTTP/1.1\r\nHost: localhost\r\nTransfer-Encoding: chunked\r\n\r\n"
+                    + size + "\r\nhello\r\n0\r\n\r\n");
+                String response = readResponse(socket.getInputStream());
+                assertTrue(response.startsWith("HTTP/1.1 400 Bad Request\r\n"), size + ": " + response);
+            }
+        }
+        try (Socket socket = connect()) {
+            send(socket, "POST /echo HTTP/1.1\r\nHost: localhost\r\nTransfer-Encoding: chunked\r\n\r\n"
+                + "ffffffffff\r\n");
+            assertTrue(readResponse(socket.getInputStream()).startsWith("HTTP/1.1 413 Payload Too Large\r\n"));
+        }
+    }
+
+    @Test
+    void testChunkedBodiesReturnTheirMemory() throws IOException {
+        StringBuilder chunks = new StringBuilder();
+        for (char c = 'a'; c < 'a' + 15; c++) {
+            chunks.append("1\r\n").append(c).append("\r\n");
+        }
+        // more in-memory bodies than the budget holds at once, each grown and trimmed on the way
+        try (Socket socket = connect()) {
+            for (int i = 0; i < 10; i++) {
+                send(socket, "POST /inspect HTTP/1.1\r\nHost: localhost\r\nTransfer-Encoding: chunked\r\n\r\n"
+                    + chunks + "0\r\n\r\n");
+                String response = readResponse(socket.getInputStream());
+                assertTrue(response.endsWith("\r\n\r\nfalse:abcdefghijklmno"), response);
+            }
+        }
+    }
+
+    @Test
+    void testUnsupportedTransferCodings() throws IOException {
+        for (String coding : new String[] {"gzip, chunked", "xchunked", "chunked, chunked", "gzip"}) {
+            try (Socket socket = connect()) {
+                send(socket, "POST /echo HTTP/1.1\r\nHost: localhost\r\nTransfer-Encoding: " + coding + "\r\n\r\n"
+                    + "5\r\nhello\r\n0\r\n\r\n");
+                String response = readResponse(socket.getInputStream());
+                assertTrue(response.startsWith("HTTP/1.1 501 Not Implemented\r\n"), coding + ": " + response);
+            }
+        }
+        try (Socket socket = connect()) {
+            send(socket, "POST /echo HTTP/1.1\r\nHost: localhost\r\nTransfer-Encoding:  Chunked \r\n\r\n"
+                + "5\r\nhello\r\n0\r\n\r\n");
+            assertTrue(readResponse(socket.getInputStream()).endsWith("\r\n\r\nhello"));
+        }
+    }
+
+    @Test
+    void testRateLimitedRoute() throws IOException {
+        try (Socket socket = connect()) {
+            send(socket, "GET /limited HTTP/1.1\r\nHost: localhost\r\n\r\n");
+            assertTrue(readResponse(socket.getInputStream()).startsWith("HTTP/1.1 200 OK\r\n"));
+            send(socket, "GET /limited HTTP/1.1\r\nHost: localhost\r\n\r\n");
+            assertTrue(readResponse(socket.getInputStream()).startsWith("HTTP/1.1 200 OK\r\n"));
+
+            send(socket, "GET /limited HTTP/1.1\r\nHost: localhost\r\n\r\n");
+            String response = readResponse(socket.getInputStream());
+            assertTrue(response.startsWith("HTTP/1.1 429 Too Many Requests\r\n"), response);
+            assertTrue(response.contains("Retry-After: 1\r\n"), response);
+            assertTrue(response.contains("Date: "), response);
+            assertTrue(response.contains("Connection: close\r\n"), response);
+            assertEquals(-1, socket.getInputStream().read());
+        }
+    }
+
+    @Test
+    void testConnectionCloseIsHonoured() throws IOException {
+        try (Socket socket = connect()) {
+            send(socket, "GET /hello HTTP/1.1\r\nHost: localhost\r\nConnection: close\r\n\r\n");
+            String response = readResponse(socket.getInputStream());
+
+            assertTrue(response.contains("Connection: close\r\n"), response);
+            assertEquals(-1, socket.getInputStream().read());
+        }
+    }
+
+    @Test
+    void testErrorResponses() throws IOException {
+        try (Socket socket = connect()) {
+            send(socket, "GET /missing HTTP/1.1\r\nHost: localhost\r\n\r\n");
+            assertTrue(readResponse(socket.getInputStream()).startsWith("HTTP/1.1 404 Not Found\r\n"));
+        }
+        try (Socket socket = connect()) {
+            send(socket, "DELETE /hello HTTP/1.1\r\nHost: localhost\r\n\r\n");
+            String response = readResponse(socket.getInputStream());
+            assertTrue(response.startsWith("HTTP/1.1 405 Method Not Allowed\r\n"), response);
+            assertTrue(response.contains("Allow: GET\r\n"), response);
+        }
+        try (Socket socket = connect()) {
+            send(socket, "NONSENSE\r\n\r\n");
+            assertTrue(readResponse(socket.getInputStream()).startsWith("HTTP/1.1 400 Bad Request\r\n"));
+        }
+    }
+
+    @Test
+    void testHeadOmitsBody() throws IOException {
+        try (Socket socket = connect()) {
+            send(socket, "HEAD /hello HTTP/1.1\r\nHost: localhost\r\nConnection: close\r\n\r\n");
+            String response = new String(readAll(socket.getInputStream()), StandardCharsets.ISO_8859_1);
+
+            assertTrue(response.contains("Content-Length: 5\r\n"), response);
+            assertTrue(response.endsWith("\r\n\r\n"), response);
+        }
+    }
+
+    private static Socket connect() throws IOException {
+        Socket socket = new Socket("localhost", PORT);
+        socket.setSoTimeout(5000);
+        return socket;
+    }
+
+    private static HttpResponse<String> postHttp2(HttpClient client, String path, String body) throws Exception {
+        HttpRequest request = HttpRequest.newBuilder(URI.create("http://localhost:" + PORT + path))
+            .POST(HttpRequest.BodyPublishers.ofString(body, StandardCharsets.ISO_8859_1))
+            .build();
+        HttpResponse<String> response = client.send(request, HttpResponse.BodyHandlers.ofString());
+        assertEquals(HttpClient.Version.HTTP_2, response.version());
+        return response;
+    }
+
+    private static void send(Socket socket, String request) throws IOException {
+        OutputStream out = socket.getOutputStream();
+        out.write(request.getBytes(StandardCharsets.ISO_8859_1));
+        out.flush();
+    }
+
+    /**
+     * Reads one response, using its Content-Length to find the end of the body.
+     */
+    static String readResponse(InputStream in) throws IOException {
+        ByteArrayOutputStream head = new ByteArrayOutputStream();
+        while (!head.toString(StandardCharsets.ISO_8859_1.name()).endsWith("\r\n\r\n")) {
+            int b = in.read();
+            if (b < 0) {
+                break;
+            }
+            head.write(b);
+        }
+        String headText = head.toString(StandardCharsets.ISO_8859_1.name());
+        int length = 0;
+        for (String line : headText.split("\r\n")) {
+            if (line.toLowerCase().startsWith("content-length:")) {
+                length = Integer.parseInt(line.substring(15).trim());
+            }
+        }
+        byte[] body = new byte[length];
+        int read = 0;
+        while (read < length) {
+            int n = in.read(body, read, length - read);
+            if (n < 0) {
+                break;
+            }
+            read += n;
+        }
+        return headText + new String(body, 0, read, StandardCharsets.ISO_8859_1);
+    }
+
+    private static byte[] readAll(InputStream in) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        byte[] chunk = new byte[1024];
+        int n;
+        while ((n = in.read(chunk)) > 0) {
+            out.write(chunk, 0, n);
+        }
+        return out.toByteArray();
+    }
+}
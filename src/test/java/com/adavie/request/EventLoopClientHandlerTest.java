@@ -0,0 +1,143 @@
+package com.adavie.request;
+
+import com.adavie.config.LoggerConfig;
+import com.adavie.config.ServerConfig;
+import com.adavie.response.Response;
+import com.adavie.server.Server;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.logging.Level;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class EventLoopClientHandlerTest {
+
+    private static final int PORT = 8288;
+
+    private Server server;
+
+    @BeforeEach
+    void startServer() {
+        ServerConfig config = new ServerConfig.Builder()
+            .port(PORT)
+            .clientConnectionTimeout(5000)
+            .ioThreads(2)
+            .loggerConfig(new LoggerConfig.Builder().enabledFileLogging(false).logLevel(Level.INFO).build())
+            .build();
+        server = new Server(config);
+        server.get("/inline", request -> Response.ok(Thread.currentThread().getName())).nonBlocking();
+        server.post("/echo", request -> Response.ok(request.getBodyAsString())).nonBlocking();
+        server.get("/blocking", request -> Response.ok(Thread.currentThread().getName()));
+        char[] large = new char[4 * 1024 * 1024];
+        Arrays.fill(large, 'x');
+        String largeBody = new String(large);
+        server.get("/large", request -> Response.ok(largeBody)).nonBlocking();
+        server.start();
+    }
+
+    @AfterEach
+    void stopServer() {
+        server.stop();
+    }
+
+    @Test
+    void testNonBlockingRouteRunsOnIoThread() throws IOException {
+        try (Socket socket = connect()) {
+            send(socket, "GET /inline HTTP/1.1\r\nHost: localhost\r\n\r\n");
+            String response = ClientHandlerTest.readResponse(socket.getInputStream());
+            assertTrue(response.startsWith("HTTP/1.1 200 OK"), response);
+            assertTrue(response.endsWith("\r\n\r\nio-loop-0") || response.endsWith("\r\n\r\nio-loop-1"), response);
+        }
+    }
+
+    @Test
+    void testBlockingRouteHandsConnectionToWorker() throws IOException {
+        try (Socket socket = connect()) {
+            send(socket, "GET /inline HTTP/1.1\r\nHost: localhost\r\n\r\n");
+            assertTrue(body(ClientHandlerTest.readResponse(socket.getInputStream())).startsWith("io-loop-"));
+
+            send(socket, "GET /blocking HTTP/1.1\r\nHost: localhost\r\n\r\n");
+            String blocking = ClientHandlerTest.readResponse(socket.getInputStream());
+            assertTrue(blocking.startsWith("HTTP/1.1 200 OK"), blocking);
+            assertFalse(body(blocking).startsWith("io-loop-"), blocking);
+
+            // the worker keeps the connection, non-blocking routes included
+            send(socket, "GET /inline HTTP/1.1\r\nHost: localhost\r\n\r\n");
+            String after = ClientHandlerTest.readResponse(socket.getInputStream());
+            assertTrue(after.startsWith("HTTP/1.1 200 OK"), after);
+            assertFalse(body(after).startsWith("io-loop-"), after);
+        }
+    }
+
+    @Test
+    void testPipelinedRequestsAndBodies() throws IOException {
+        try (Socket socket = connect()) {
+            send(socket, "POST /echo HTTP/1.1\r\nHost: localhost\r\nContent-Length: 5\r\n\r\nfirst"
+                + "POST /echo HTTP/1.1\r\nHost: localhost\r\nContent-Length: 6\r\n\r\nsecond"
+                + "GET /missing HTTP/1.1\r\nHost: localhost\r\n\r\n");
+            InputStream in = socket.getInputStream();
+            assertEquals("first", body(ClientHandlerTest.readResponse(in)));
+            assertEquals("second", body(ClientHandlerTest.readResponse(in)));
+            assertTrue(ClientHandlerTest.readResponse(in).startsWith("HTTP/1.1 404 Not Found"));
+        }
+    }
+
+    @Test
+    void testBodySplitAcrossReads() throws Exception {
+        try (Socket socket = connect()) {
+            send(socket, "POST /echo HTTP/1.1\r\nHost: localhost\r\nContent-Length: 11\r\n\r\nhello");
+            Thread.sleep(50);
+            send(socket, " world");
+            assertEquals("hello world", body(ClientHandlerTest.readResponse(socket.getInputStream())));
+        }
+    }
+
+    @Test
+    void testLargeResponseIsWrittenAcrossWritableEvents() throws Exception {
+        try (Socket socket = connect()) {
+            send(socket, "GET /large HTTP/1.1\r\nHost: localhost\r\n\r\n");
+            // let the socket buffers fill up so the I/O thread has to wait for room
+            Thread.sleep(200);
+            String response = ClientHandlerTest.readResponse(socket.getInputStream());
+            assertEquals(4 * 1024 * 1024, body(response).length());
+
+            send(socket, "GET /inline HTTP/1.1\r\nHost: localhost\r\n\r\n");
+            assertTrue(body(ClientHandlerTest.readResponse(socket.getInputStream())).startsWith("io-loop-"));
+        }
+    }
+
+    @Test
+    void testConnectionCloseIsHonoured() throws IOException {
+        try (Socket socket = connect()) {
+            send(socket, "GET /inline HTTP/1.1\r\nHost: localhost\r\nConnection: close\r\n\r\n");
+            InputStream in = socket.getInputStream();
+            String response = ClientHandlerTest.readResponse(in);
+            assertTrue(response.contains("Connection: close"), response);
+            assertEquals(-1, in.read());
+        }
+    }
+
+    private static String body(String response) {
+        return response.substring(response.indexOf("\r\n\r\n") + 4);
+    }
+
+    private static Socket connect() throws IOException {
+        Socket socket = new Socket("localhost", PORT);
+        socket.setSoTimeout(5000);
+        return socket;
+    }
+
+    private static void send(Socket socket, String request) throws IOException {
+        OutputStream out = socket.getOutputStream();
+        out.write(request.getBytes(StandardCharsets.ISO_8859_1));
+        out.flush();
+    }
+}
@@ -0,0 +1,156 @@
+package com.adavie.request;
+
+import com.adavie.response.HttpException;
+import com.adavie.response.HttpStatus;
+import org.junit.jupiter.api.Test;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class HttpRequestParserTest {
+
+    private final HttpRequestParser parser = new HttpRequestParser();
+
+    @Test
+    void testParseRequestHead() {
+        ByteBuffer buffer = buffer("GET /users?page=2 HTTP/1.1\r\nHost: example.com\r\nX-Trace:  abc \r\n\r\nbody");
+
+        Request request = parser.parse(buffer);
+
+        assertNotNull(request);
+        assertEquals(HttpMethod.GET, request.getMethod());
+        assertEquals("/users", request.getPath());
+        assertEquals("page=2", request.getQueryString());
+        assertEquals("HTTP/1.1", request.getVersion());
+        assertEquals("example.com", request.getHeader("host"));
+        assertEquals("abc", request.getHeader("X-TRACE"));
+        assertEquals("body", StandardCharsets.US_ASCII.decode(buffer).toString());
+    }
+
+    @Test
+    void testIncompleteHeadReturnsNull() {
+        ByteBuffer buffer = buffer("GET / HTTP/1.1\r\nHost: exa");
+
+        assertNull(parser.parse(buffer));
+        assertEquals(0, buffer.position());
+    }
+
+    @Test
+    void testRepeatedHeadersAreJoined() {
+        Request request = parser.parse(buffer("GET / HTTP/1.1\r\nAccept: a\r\nAccept: b\r\n\r\n"));
+        assertEquals("a, b", request.getHeader("Accept"));
+    }
+
+    @Test
+    void testAbsoluteFormTarget() {
+        Request request = parser.parse(buffer("GET http://example.com/a/b?c=d HTTP/1.1\r\n\r\n"));
+        assertEquals("/a/b", request.getPath());
+    }
+
+    @Test
+    void testMalformedRequests() {
+        assertStatus(HttpStatus.BAD_REQUEST, "GARBAGE\r\n\r\n");
+        assertStatus(HttpStatus.BAD_REQUEST, "GET / HTTP/1.1\r\nHost : example.com\r\n\r\n");
+        assertStatus(HttpStatus.BAD_REQUEST, "GET / HTTP/1.1\r\nHost: a\r\n folded\r\n\r\n");
+        assertStatus(HttpStatus.BAD_REQUEST, "GET users HTTP/1.1\r\n\r\n");
+        assertStatus(HttpStatus.NOT_IMPLEMENTED, "BREW / HTTP/1.1\r\n\r\n");
+        assertStatus(HttpStatus.HTTP_VERSION_NOT_SUPPORTED, "GET / HTTP/3.0\r\n\r\n");
+    }
+
+    @Test
+    void testHeadTooLarge() {
+        HttpRequestParser small = new HttpRequestParser(64);
+        StringBuilder head = new StringBuilder("GET / HTTP/1.1\r\n");
+        for (int i = 0; i < 10; i++) {
+            head.append("X-Header-").append(i).append(": value\r\n");
+        }
+
+        HttpException exception = assertThrows(HttpException.class, () -> small.parse(buffer(head.toString())));
+        assertEquals(HttpStatus.REQUEST_HEADER_FIELDS_TOO_LARGE, exception.getStatus());
+    }
+
+    @Test
+    void testKeepAlive() {
+        assertTrue(parser.parse(buffer("GET / HTTP/1.1\r\n\r\n")).isKeepAlive());
+        assertFalse(parser.parse(buffer("GET / HTTP/1.1\r\nConnection: close\r\n\r\n")).isKeepAlive());
+        assertFalse(parser.parse(buffer("GET / HTTP/1.0\r\n\r\n")).isKeepAlive());
+        assertTrue(parser.parse(buffer("GET / HTTP/1.0\r\nConnection: keep-alive\r\n\r\n")).isKeepAlive());
+    }
+
+    @Test
+    void testArenaReusesRequest() {
+        RequestArena arena = new RequestArena(false);
+
+        Request first = parser.parse(buffer("GET /users?page=2 HTTP/1.1\r\nHost: example.com\r\nAccept: a\r\nAccept: b\r\n\r\n"), arena);
+        assertEquals("/users", first.getPath());
+        assertEquals("page=2", first.getQueryString());
+        assertEquals("example.com", first.getHeader(KnownHeader.HOST));
+        assertEquals("a, b", first.getHeader("accept"));
+        String path = first.getPath();
+
+        Request second = parser.parse(buffer("GET /users?page=2 HTTP/1.0\r\nX-Trace: abc\r\n\r\n"), arena);
+        assertSame(first, second);
+        assertSame(path, second.getPath());
+        assertEquals("HTTP/1.0", second.getVersion());
+        assertNull(second.getHeader(KnownHeader.HOST));
+        assertNull(second.getHeader(KnownHeader.ACCEPT));
+        assertEquals("abc", second.getHeader("x-trace"));
+
+        Request third = parser.parse(buffer("POST /orders HTTP/1.1\r\nContent-Length: 0\r\n\r\n"), arena);
+        assertEquals(HttpMethod.POST, third.getMethod());
+        assertEquals("/orders", third.getPath());
+        assertNull(third.getQueryString());
+        assertEquals("0", third.getHeader(KnownHeader.CONTENT_LENGTH));
+        assertNull(third.getHeader("x-trace"));
+    }
+
+    @Test
+    void testArenaMatchesPublicParser() {
+        RequestArena arena = new RequestArena(false);
+        Request request = parser.parse(buffer("\r\nGET http://example.com/a/b?c=d HTTP/1.1\r\nHost:  example.com \r\n\r\nbody"), arena);
+        assertEquals("/a/b", request.getPath());
+        assertEquals("c=d", request.getQueryString());
+        assertEquals("example.com", request.getHeader("Host"));
+
+        String[] heads = {
+            "GARBAGE\r\n\r\n",
+            "GET / HTTP/1.1\r\nHost : example.com\r\n\r\n",
+            "GET users HTTP/1.1\r\n\r\n",
+            "GET /a b HTTP/1.1\r\n\r\n",
+            "BREW / HTTP/1.1\r\n\r\n",
+            "GET / HTTP/3.0\r\n\r\n",
+            "GET / HTTP/1.11\r\n\r\n"
+        };
+        for (String head : heads) {
+            HttpException expected = assertThrows(HttpException.class, () -> parser.parse(buffer(head)));
+            HttpException actual = assertThrows(HttpException.class, () -> parser.parse(buffer(head), arena));
+            assertEquals(expected.getStatus(), actual.getStatus(), head);
+            assertEquals(expected.getMessage(), actual.getMessage(), head);
+        }
+        assertEquals("*", parser.parse(buffer("OPTIONS * HTTP/1.1\r\n\r\n"), arena).getTarget());
+    }
+
+    @Test
+    void testLeakDetection() {
+        RequestArena arena = new RequestArena(true);
+        Request first = parser.parse(buffer("GET /a HTTP/1.1\r\nHost: one\r\n\r\n"), arena);
+        Request second = parser.parse(buffer("GET /b HTTP/1.1\r\nHost: two\r\n\r\n"), arena);
+
+        assertNotSame(first, second);
+        assertEquals("two", second.getHeader(KnownHeader.HOST));
+        IllegalStateException exception = assertThrows(IllegalStateException.class, first::getPath);
+        assertTrue(exception.getMessage().contains("must not keep references"));
+        assertThrows(IllegalStateException.class, () -> first.getHeader("Host"));
+    }
+
+    private void assertStatus(HttpStatus status, String head) {
+        HttpException exception = assertThrows(HttpException.class, () -> parser.parse(buffer(head)));
+        assertEquals(status, exception.getStatus());
+    }
+
+    private static ByteBuffer buffer(String text) {
+        return ByteBuffer.wrap(text.getBytes(StandardCharsets.US_ASCII));
+    }
+}
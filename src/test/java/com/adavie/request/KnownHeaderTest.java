@@ -0,0 +1,41 @@
+package com.adavie.request;
+
+import org.junit.jupiter.api.Test;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Locale;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class KnownHeaderTest {
+
+    @Test
+    void testLookupEveryHeaderInAnyCase() {
+        for (KnownHeader header : KnownHeader.values()) {
+            String name = header.getName();
+            assertSame(header, KnownHeader.lookup(name));
+            assertSame(header, KnownHeader.lookup(name.toLowerCase(Locale.ROOT)));
+            assertSame(header, KnownHeader.lookup(name.toUpperCase(Locale.ROOT)));
+        }
+    }
+
+    @Test
+    void testLookupFromBuffer() {
+        ByteBuffer buffer = ByteBuffer.wrap("xxcontent-TYPE: text/plain".getBytes(StandardCharsets.US_ASCII));
+
+        assertSame(KnownHeader.CONTENT_TYPE, KnownHeader.lookup(buffer, 2, 14));
+        assertNull(KnownHeader.lookup(buffer, 2, 13));
+        assertEquals(0, buffer.position());
+    }
+
+    @Test
+    void testUnknownNames() {
+        assertNull(KnownHeader.lookup(""));
+        assertNull(KnownHeader.lookup("X-Custom"));
+        assertNull(KnownHeader.lookup("Content-Typo"));
+        assertNull(KnownHeader.lookup("Content_Type"));
+        assertNull(KnownHeader.lookup("Hosts"));
+        assertNull(KnownHeader.lookup("Access-Control-Allow-Credentials-And-More"));
+    }
+}
@@ -0,0 +1,36 @@
+package com.adavie.request;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class PercentDecoderTest {
+
+    @Test
+    void testPlainTextIsReturnedAsIs() {
+        assertEquals("hello", PercentDecoder.decode("hello", true));
+        assertEquals("ell", PercentDecoder.decode("hello", 1, 4, true));
+    }
+
+    @Test
+    void testAsciiEscapes() {
+        assertEquals("a b&c", PercentDecoder.decode("a%20b%26c", false));
+        assertEquals("a b+c", PercentDecoder.decode("a+b%2Bc", true));
+        assertEquals("a+b", PercentDecoder.decode("a+b", false));
+        assertEquals("/path", PercentDecoder.decode("%2fpath", false));
+    }
+
+    @Test
+    void testUtf8Escapes() {
+        assertEquals("caf\u00e9 \u2603", PercentDecoder.decode("caf%C3%A9+%E2%98%83", true));
+        // raw octets as read by the parser decode as UTF-8 too
+        assertEquals("caf\u00e9", PercentDecoder.decode("caf\u00c3\u00a9", true));
+    }
+
+    @Test
+    void testMalformedEscapesAreKept() {
+        assertEquals("100%", PercentDecoder.decode("100%", true));
+        assertEquals("%zz ok", PercentDecoder.decode("%zz+ok", true));
+        assertEquals("a%2", PercentDecoder.decode("a%2", true));
+    }
+}
@@ -0,0 +1,118 @@
+package com.adavie.request;
+
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class RequestTest {
+
+    @Test
+    void testTargetIsSplitIntoPathAndQuery() {
+        Request request = new Request(HttpMethod.GET, "/users?page=2&size=10", "HTTP/1.1");
+
+        assertEquals("/users", request.getPath());
+        assertEquals("page=2&size=10", request.getQueryString());
+        assertEquals("/users?page=2&size=10", request.getTarget());
+    }
+
+    @Test
+    void testKnownHeadersAreCaseInsensitive() {
+        Request request = new Request(HttpMethod.GET, "/", "HTTP/1.1");
+        request.addHeader("content-type", "application/json");
+
+        assertEquals("application/json", request.getHeader(KnownHeader.CONTENT_TYPE));
+        assertEquals("application/json", request.getHeader("Content-Type"));
+        assertEquals("application/json", request.getHeader("CONTENT-TYPE"));
+    }
+
+    @Test
+    void testOtherHeadersAreCaseInsensitive() {
+        Request request = new Request(HttpMethod.GET, "/", "HTTP/1.1");
+        for (int i = 0; i < 20; i++) {
+            request.addHeader("X-Custom-" + i, "value " + i);
+        }
+
+        for (int i = 0; i < 20; i++) {
+            assertEquals("value " + i, request.getHeader("x-custom-" + i));
+        }
+        assertNull(request.getHeader("X-Custom-20"));
+    }
+
+    @Test
+    void testRepeatedHeadersAreJoined() {
+        Request request = new Request(HttpMethod.GET, "/", "HTTP/1.1");
+        request.addHeader("Accept", "text/html");
+        request.addHeader(KnownHeader.ACCEPT, "application/json");
+        request.addHeader("X-Tag", "a");
+        request.addHeader("x-tag", "b");
+        request.addHeader("Cookie", "a=1");
+        request.addHeader("cookie", "b=2");
+
+        assertEquals("text/html, application/json", request.getHeader(KnownHeader.ACCEPT));
+        assertEquals("a, b", request.getHeader("X-Tag"));
+        assertEquals("a=1; b=2", request.getHeader(KnownHeader.COOKIE));
+    }
+
+    @Test
+    void testGetHeadersUsesLowerCaseNames() {
+        Request request = new Request(HttpMethod.GET, "/", "HTTP/1.1");
+        request.addHeader("Host", "example.com");
+        request.addHeader("X-Trace", "abc");
+
+        Map<String, String> headers = request.getHeaders();
+
+        assertEquals(2, headers.size());
+        assertEquals("example.com", headers.get("host"));
+        assertEquals("abc", headers.get("x-trace"));
+        assertThrows(UnsupportedOperationException.class, () -> headers.put("a", "b"));
+    }
+
+    @Test
+    void testQueryParameters() {
+        Request request = new Request(HttpMethod.GET, "/search?q=rest+lite&tag=a&tag=b%26c&empty=&flag", "HTTP/1.1");
+
+        assertEquals("rest lite", request.getQueryParameter("q"));
+        assertEquals(Arrays.asList("a", "b&c"), request.getQueryParameterValues("tag"));
+        assertEquals("", request.getQueryParameter("empty"));
+        assertEquals("", request.getQueryParameter("flag"));
+        assertNull(request.getQueryParameter("missing"));
+        assertEquals(Arrays.asList("q", "tag", "empty", "flag"), new ArrayList<>(request.getQueryParameters().keySet()));
+
+        assertTrue(new Request(HttpMethod.GET, "/", "HTTP/1.1").getQueryParameters().isEmpty());
+    }
+
+    @Test
+    void testCookies() {
+        Request request = new Request(HttpMethod.GET, "/", "HTTP/1.1");
+        request.addHeader("Cookie", "session=abc123; theme=\"dark\"");
+        request.addHeader("Cookie", "session=other;lang=en%20GB");
+
+        assertEquals("abc123", request.getCookie("session"));
+        assertEquals("dark", request.getCookie("theme"));
+        assertEquals("en%20GB", request.getCookie("lang"));
+        Map<String, String> cookies = request.getCookies();
+        assertEquals(3, cookies.size());
+        assertEquals("abc123", cookies.get("session"));
+        assertEquals("en%20GB", cookies.get("lang"));
+    }
+
+    @Test
+    void testFormParameters() {
+        Request request = new Request(HttpMethod.POST, "/login", "HTTP/1.1");
+        request.setBody("user=ada&password=p%40ss+word".getBytes(StandardCharsets.US_ASCII));
+
+        assertNull(request.getFormParameter("user"));
+
+        request.addHeader("Content-Type", "application/x-www-form-urlencoded; charset=utf-8");
+        assertEquals("ada", request.getFormParameter("user"));
+        assertEquals("p@ss word", request.getFormParameter("password"));
+
+        request.setBody("user=grace".getBytes(StandardCharsets.US_ASCII));
+        assertEquals("grace", request.getFormParameter("user"));
+    }
+}
@@ -0,0 +1,34 @@
+package com.adavie.response;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.ZonedDateTime;
+import java.time.format.DateTimeFormatter;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class HttpDateTest {
+
+    @Test
+    void testFormatUsesImfFixdate() {
+        assertEquals("Thu, 01 Jan 1970 00:00:00 GMT", HttpDate.format(0));
+        assertEquals("Sun, 06 Nov 1994 08:49:37 GMT", HttpDate.format(784111777000L));
+    }
+
+    @Test
+    void testNowIsCurrentToTheSecond() {
+        long rendered = ZonedDateTime.parse(HttpDate.now(), DateTimeFormatter.RFC_1123_DATE_TIME)
+            .toInstant().toEpochMilli();
+
+        assertTrue(Math.abs(System.currentTimeMillis() - rendered) < 2500);
+    }
+
+    @Test
+    void testHeaderLineMatchesValue() {
+        String line = new String(HttpDate.headerLine(), java.nio.charset.StandardCharsets.ISO_8859_1);
+
+        assertTrue(line.startsWith("Date: "));
+        assertTrue(line.endsWith(" GMT\r\n"));
+        assertEquals(37, line.length());
+    }
+}
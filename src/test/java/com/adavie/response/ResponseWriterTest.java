@@ -0,0 +1,205 @@
+package com.adavie.response;
+
+import com.adavie.transport.Transport;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.net.SocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ResponseWriterTest {
+
+    @Test
+    void testWritesStatusHeadersAndBody() throws Exception {
+        CapturingTransport transport = new CapturingTransport();
+        Response response = new Response.Builder()
+            .status(HttpStatus.CREATED)
+            .header("Content-Type", "text/plain")
+            .body("hello".getBytes(StandardCharsets.UTF_8))
+            .build();
+
+        ResponseWriter.write(transport, response, true, false);
+
+        String written = transport.text();
+        assertTrue(written.startsWith("HTTP/1.1 201 Created\r\nContent-Type: text/plain\r\nDate: "));
+        assertTrue(written.endsWith(" GMT\r\nContent-Length: 5\r\n\r\nhello"));
+        assertFalse(written.contains("Connection:"));
+    }
+
+    @Test
+    void testFramingHeadersAreSetByWriter() throws Exception {
+        CapturingTransport transport = new CapturingTransport();
+        Response response = new Response.Builder()
+            .status(HttpStatus.OK)
+            .header("Content-Length", "999")
+            .header("Connection", "keep-alive")
+            .header("Date", "Thu, 01 Jan 1970 00:00:00 GMT")
+            .body(new byte[1234])
+            .build();
+
+        ResponseWriter.write(transport, response, false, true);
+
+        assertEquals("HTTP/1.1 200 OK\r\nDate: Thu, 01 Jan 1970 00:00:00 GMT\r\n"
+            + "Content-Length: 1234\r\nConnection: close\r\n\r\n", transport.text());
+    }
+
+    @Test
+    void testBodylessStatusHasNoContentLength() throws Exception {
+        CapturingTransport transport = new CapturingTransport();
+        Response response = new Response.Builder()
+            .status(HttpStatus.NO_CONTENT)
+            .header("Date", "Thu, 01 Jan 1970 00:00:00 GMT")
+            .build();
+
+        ResponseWriter.write(transport, response, true, false);
+
+        assertEquals("HTTP/1.1 204 No Content\r\nDate: Thu, 01 Jan 1970 00:00:00 GMT\r\n\r\n", transport.text());
+    }
+
+    @Test
+    void testNonLatinHeaderCharactersAreReplaced() throws Exception {
+        CapturingTransport transport = new CapturingTransport();
+        Response response = new Response.Builder()
+            .status(HttpStatus.OK)
+            .header("X-Name", "caf\u00e9 \u2603")
+            .build();
+
+        ResponseWriter.write(transport, response, true, false);
+
+        assertTrue(transport.text().contains("X-Name: caf\u00e9 ?\r\n"));
+    }
+
+    @Test
+    void testScratchBuffersAreReused() throws Exception {
+        ResponseBuffers scratch = new ResponseBuffers();
+        Response response = new Response.Builder()
+            .status(HttpStatus.OK)
+            .body("hello".getBytes(StandardCharsets.UTF_8))
+            .build();
+
+        ByteBuffer[] first = ResponseWriter.encode(response, true, false, scratch);
+        first[0].position(first[0].limit());
+        first[1].position(first[1].limit());
+        ByteBuffer[] second = ResponseWriter.encode(response, true, false, scratch);
+
+        assertSame(first, second);
+        assertTrue(StandardCharsets.ISO_8859_1.decode(second[0].duplicate()).toString().startsWith("HTTP/1.1 200 OK\r\n"));
+        assertEquals("hello", StandardCharsets.UTF_8.decode(second[1].duplicate()).toString());
+
+        CapturingTransport transport = new CapturingTransport();
+        ResponseWriter.write(transport, Response.of(HttpStatus.NO_CONTENT), true, false, scratch);
+        assertTrue(transport.text().startsWith("HTTP/1.1 204 No Content\r\n"));
+        assertTrue(transport.text().endsWith("\r\n\r\n"));
+    }
+
+    @Test
+    void testPartialWritesAreResumed() throws Exception {
+        CapturingTransport transport = new CapturingTransport(3);
+        byte[] body = new byte[100];
+        Arrays.fill(body, (byte) 'x');
+        Response response = new Response.Builder().status(HttpStatus.OK).body(body).build();
+
+        long size = ResponseWriter.write(transport, response, true, false);
+
+        String written = transport.text();
+        assertEquals(written.length(), size);
+        assertTrue(written.startsWith("HTTP/1.1 200 OK\r\n"));
+        assertTrue(written.endsWith("Content-Length: 100\r\n\r\n" + new String(body, StandardCharsets.ISO_8859_1)));
+        assertEquals(2, transport.maxGathered);
+    }
+
+    @Test
+    void testPreEncodedResponseKeepsBodySeparate() throws Exception {
+        Response response = new Response.Builder()
+            .status(HttpStatus.SERVICE_UNAVAILABLE)
+            .header("Retry-After", "5")
+            .body("busy")
+            .build();
+        PreEncodedResponse preEncoded = new PreEncodedResponse(response, true);
+
+        ByteBuffer[] buffers = preEncoded.encode();
+        assertEquals(4, buffers.length);
+        assertEquals("busy", StandardCharsets.ISO_8859_1.decode(buffers[3].duplicate()).toString());
+
+        CapturingTransport transport = new CapturingTransport(7);
+        preEncoded.write(transport);
+        String written = transport.text();
+        assertTrue(written.startsWith("HTTP/1.1 503 Service Unavailable\r\nRetry-After: 5\r\nDate: "));
+        assertTrue(written.endsWith(" GMT\r\nContent-Length: 4\r\nConnection: close\r\n\r\nbusy"));
+    }
+
+    @Test
+    void testWriteContinue() throws Exception {
+        CapturingTransport transport = new CapturingTransport();
+
+        ResponseWriter.writeContinue(transport);
+        ResponseWriter.writeContinue(transport);
+
+        assertEquals("HTTP/1.1 100 Continue\r\n\r\nHTTP/1.1 100 Continue\r\n\r\n", transport.text());
+    }
+
+    private static class CapturingTransport implements Transport {
+        private final ByteArrayOutputStream written = new ByteArrayOutputStream();
+        // bytes taken per write call, to simulate a socket accepting only part of a write
+        private final int maxWrite;
+        private int maxGathered;
+
+        CapturingTransport() {
+            this(Integer.MAX_VALUE);
+        }
+
+        CapturingTransport(int maxWrite) {
+            this.maxWrite = maxWrite;
+        }
+
+        String text() {
+            return new String(written.toByteArray(), StandardCharsets.ISO_8859_1);
+        }
+
+        @Override
+        public SocketAddress getRemoteAddress() {
+            return null;
+        }
+
+        @Override
+        public int read(ByteBuffer dst) {
+            return -1;
+        }
+
+        @Override
+        public int write(ByteBuffer src) {
+            return (int) write(new ByteBuffer[]{src}, 0, 1);
+        }
+
+        @Override
+        public long write(ByteBuffer[] srcs, int offset, int length) {
+            maxGathered = Math.max(maxGathered, length);
+            long n = 0;
+            for (int i = offset; i < offset + length && n < maxWrite; i++) {
+                while (srcs[i].hasRemaining() && n < maxWrite) {
+                    written.write(srcs[i].get());
+                    n++;
+                }
+            }
+            return n;
+        }
+
+        @Override
+        public long write(ByteBuffer[] srcs) {
+            return write(srcs, 0, srcs.length);
+        }
+
+        @Override
+        public boolean isOpen() {
+            return true;
+        }
+
+        @Override
+        public void close() {
+        }
+    }
+}
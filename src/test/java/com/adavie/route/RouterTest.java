@@ -0,0 +1,238 @@
+package com.adavie.route;
+
+import com.adavie.request.HttpMethod;
+import com.adavie.request.Request;
+import com.adavie.response.HttpException;
+import com.adavie.response.HttpStatus;
+import com.adavie.response.Response;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class RouterTest {
+
+    @Test
+    void testDispatchToMatchingRoute() {
+        Router router = new Router();
+        router.addRoute(HttpMethod.GET, "/users", request -> Response.ok("users"));
+
+        Response response = router.dispatch(new Request(HttpMethod.GET, "/users?page=2", "HTTP/1.1"));
+
+        assertEquals(HttpStatus.OK, response.getStatus());
+        assertEquals("users", new String(response.getBody()));
+    }
+
+    @Test
+    void testUnknownPathIsNotFound() {
+        Router router = new Router();
+        assertEquals(HttpStatus.NOT_FOUND, router.dispatch(new Request(HttpMethod.GET, "/missing", "HTTP/1.1")).getStatus());
+    }
+
+    @Test
+    void testWrongMethodIsNotAllowed() {
+        Router router = new Router();
+        router.addRoute(HttpMethod.GET, "/users", request -> Response.ok("users"));
+        router.addRoute(HttpMethod.POST, "/users", request -> Response.of(HttpStatus.CREATED));
+
+        Response response = router.dispatch(new Request(HttpMethod.DELETE, "/users", "HTTP/1.1"));
+
+        assertEquals(HttpStatus.METHOD_NOT_ALLOWED, response.getStatus());
+        assertEquals("GET, POST", response.getHeader("Allow"));
+    }
+
+    @Test
+    void testHeadFallsBackToGet() {
+        Router router = new Router();
+        router.addRoute(HttpMethod.GET, "/users", request -> Response.ok("users"));
+
+        assertEquals(HttpStatus.OK, router.dispatch(new Request(HttpMethod.HEAD, "/users", "HTTP/1.1")).getStatus());
+    }
+
+    @Test
+    void testRouteIsResolvedOncePerRequest() {
+        Router router = new Router();
+        Route users = router.addRoute(HttpMethod.GET, "/users", request -> Response.ok("users"));
+        Request request = new Request(HttpMethod.GET, "/users", "HTTP/1.1");
+        Request missing = new Request(HttpMethod.GET, "/missing", "HTTP/1.1");
+
+        assertSame(users, router.resolve(request));
+        assertNull(router.resolve(missing));
+        assertTrue(missing.isRouteResolved());
+
+        // later lookups use the route kept on the request
+        request.setRoute(null);
+        assertEquals(HttpStatus.METHOD_NOT_ALLOWED, router.dispatch(request).getStatus());
+    }
+
+    @Test
+    void testHandlerExceptions() {
+        Router router = new Router();
+        router.addRoute(HttpMethod.GET, "/teapot", request -> {
+            throw new HttpException(HttpStatus.CONFLICT, "already exists");
+        });
+        router.addRoute(HttpMethod.GET, "/broken", request -> {
+            throw new IllegalStateException("boom");
+        });
+        router.addRoute(HttpMethod.GET, "/empty", request -> null);
+
+        Response conflict = router.dispatch(new Request(HttpMethod.GET, "/teapot", "HTTP/1.1"));
+        assertEquals(HttpStatus.CONFLICT, conflict.getStatus());
+        assertEquals("already exists", new String(conflict.getBody()));
+        assertEquals(HttpStatus.INTERNAL_SERVER_ERROR,
+            router.dispatch(new Request(HttpMethod.GET, "/broken", "HTTP/1.1")).getStatus());
+        assertEquals(HttpStatus.NO_CONTENT,
+            router.dispatch(new Request(HttpMethod.GET, "/empty", "HTTP/1.1")).getStatus());
+    }
+
+    @Test
+    void testHandlerPastDeadlineIsInterrupted() {
+        Router router = new Router();
+        router.addRoute(HttpMethod.GET, "/slow", request -> {
+            Thread.sleep(10_000);
+            return Response.ok("late");
+        }).timeout(50, TimeUnit.MILLISECONDS);
+        router.addRoute(HttpMethod.GET, "/fast", request -> Response.ok("fast")).timeout(10, TimeUnit.SECONDS);
+
+        Request slow = new Request(HttpMethod.GET, "/slow", "HTTP/1.1");
+        router.startDeadline(slow);
+        long start = System.nanoTime();
+        assertEquals(HttpStatus.GATEWAY_TIMEOUT, router.dispatch(slow).getStatus());
+        assertTrue(System.nanoTime() - start < TimeUnit.SECONDS.toNanos(5));
+        assertFalse(Thread.currentThread().isInterrupted());
+
+        Request fast = new Request(HttpMethod.GET, "/fast", "HTTP/1.1");
+        router.startDeadline(fast);
+        assertTrue(fast.getRemainingNanos() > 0);
+        assertEquals(HttpStatus.OK, router.dispatch(fast).getStatus());
+        assertFalse(Thread.currentThread().isInterrupted());
+    }
+
+    @Test
+    void testExpiredDeadline() {
+        Router router = new Router();
+        router.addRoute(HttpMethod.GET, "/users", request -> Response.ok("users"));
+
+        Request request = new Request(HttpMethod.GET, "/users", "HTTP/1.1");
+        assertFalse(request.hasDeadline());
+        assertEquals(Long.MAX_VALUE, request.getRemainingNanos());
+        request.checkDeadline();
+
+        request.setDeadline(0, TimeUnit.NANOSECONDS);
+        HttpException e = assertThrows(HttpException.class, request::checkDeadline);
+        assertEquals(HttpStatus.GATEWAY_TIMEOUT, e.getStatus());
+        assertEquals(HttpStatus.GATEWAY_TIMEOUT, router.dispatch(request).getStatus());
+        assertThrows(IllegalArgumentException.class, () -> router.addRoute(HttpMethod.GET, "/other", r -> null).timeout(0, TimeUnit.SECONDS));
+    }
+
+    @Test
+    void testInvalidRegistrations() {
+        Router router = new Router();
+        router.addRoute(HttpMethod.GET, "/users", request -> null);
+
+        assertThrows(IllegalArgumentException.class, () -> router.addRoute(HttpMethod.GET, "/users", request -> null));
+        assertThrows(IllegalArgumentException.class, () -> router.addRoute(HttpMethod.GET, "users", request -> null));
+        assertThrows(IllegalArgumentException.class, () -> router.addRoute(null, "/users", request -> null));
+        assertThrows(IllegalArgumentException.class, () -> router.addRoute(HttpMethod.GET, "/other", null));
+    }
+
+    @Test
+    void testDispatchAsyncCompletesWithHandlerResponse() {
+        Router router = new Router();
+        CompletableFuture<Response> downstream = new CompletableFuture<>();
+        router.addAsyncRoute(HttpMethod.GET, "/users", request -> downstream);
+        router.addRoute(HttpMethod.GET, "/sync", request -> Response.ok("sync"));
+
+        Request request = new Request(HttpMethod.GET, "/users", "HTTP/1.1");
+        assertTrue(router.isAsync(request));
+        CompletableFuture<Response> response = router.dispatchAsync(request);
+        assertFalse(response.isDone());
+
+        downstream.complete(Response.ok("users"));
+        assertEquals("users", new String(response.join().getBody()));
+
+        // synchronous routes complete right away
+        Request sync = new Request(HttpMethod.GET, "/sync", "HTTP/1.1");
+        assertFalse(router.isAsync(sync));
+        assertEquals("sync", new String(router.dispatchAsync(sync).join().getBody()));
+        assertEquals(HttpStatus.NOT_FOUND, router.dispatchAsync(new Request(HttpMethod.GET, "/missing", "HTTP/1.1")).join().getStatus());
+    }
+
+    @Test
+    void testAsyncHandlerFailures() {
+        Router router = new Router();
+        router.addAsyncRoute(HttpMethod.GET, "/conflict", request -> {
+            CompletableFuture<Response> future = new CompletableFuture<>();
+            future.completeExceptionally(new HttpException(HttpStatus.CONFLICT, "taken"));
+            return future;
+        });
+        router.addAsyncRoute(HttpMethod.GET, "/broken", request -> CompletableFuture.supplyAsync(() -> {
+            throw new IllegalStateException("boom");
+        }));
+        router.addAsyncRoute(HttpMethod.GET, "/throws", request -> {
+            throw new IllegalStateException("before the future");
+        });
+        router.addAsyncRoute(HttpMethod.GET, "/empty", request -> CompletableFuture.completedFuture(null));
+        router.addAsyncRoute(HttpMethod.GET, "/none", request -> null);
+
+        assertEquals(HttpStatus.CONFLICT, dispatchAsync(router, "/conflict").getStatus());
+        assertEquals(HttpStatus.INTERNAL_SERVER_ERROR, dispatchAsync(router, "/broken").getStatus());
+        assertEquals(HttpStatus.INTERNAL_SERVER_ERROR, dispatchAsync(router, "/throws").getStatus());
+        assertEquals(HttpStatus.NO_CONTENT, dispatchAsync(router, "/empty").getStatus());
+        assertEquals(HttpStatus.NO_CONTENT, dispatchAsync(router, "/none").getStatus());
+    }
+
+    @Test
+    void testAsyncHandlerPastDeadlineIsCancelled() {
+        Router router = new Router();
+        CompletableFuture<Response> downstream = new CompletableFuture<>();
+        Route route = router.addAsyncRoute(HttpMethod.GET, "/slow", request -> downstream).timeout(50, TimeUnit.MILLISECONDS);
+        assertTrue(route.isAsync());
+
+        Request request = new Request(HttpMethod.GET, "/slow", "HTTP/1.1");
+        router.startDeadline(request);
+        long start = System.nanoTime();
+        assertEquals(HttpStatus.GATEWAY_TIMEOUT, router.dispatchAsync(request).join().getStatus());
+        assertTrue(System.nanoTime() - start < TimeUnit.SECONDS.toNanos(5));
+        // the timer cancels the future right after answering
+        assertThrows(CancellationException.class, () -> downstream.get(5, TimeUnit.SECONDS));
+    }
+
+    @Test
+    void testAsyncRoutesHaveDefaultTimeout() {
+        Router router = new Router();
+        Route route = router.addAsyncRoute(HttpMethod.GET, "/users", request -> null);
+        assertEquals(TimeUnit.SECONDS.toNanos(Route.DEFAULT_ASYNC_TIMEOUT_SECONDS), route.getTimeoutNanos());
+        assertNull(router.addRoute(HttpMethod.GET, "/sync", request -> null).getAsyncHandler());
+
+        assertThrows(IllegalArgumentException.class, () -> router.addAsyncRoute(HttpMethod.GET, "/users", request -> null));
+        assertThrows(IllegalArgumentException.class, () -> router.addAsyncRoute(HttpMethod.GET, "/other", null));
+    }
+
+    @Test
+    void testDispatchWaitsForAsyncHandler() {
+        Router router = new Router();
+        router.addAsyncRoute(HttpMethod.GET, "/users", request -> CompletableFuture.supplyAsync(() -> Response.ok("users")));
+        router.addAsyncRoute(HttpMethod.GET, "/missing", request -> CompletableFuture.supplyAsync(() -> {
+            throw new HttpException(HttpStatus.NOT_FOUND, "no such user");
+        }));
+        CompletableFuture<Response> downstream = new CompletableFuture<>();
+        router.addAsyncRoute(HttpMethod.GET, "/slow", request -> downstream).timeout(50, TimeUnit.MILLISECONDS);
+
+        assertEquals("users", new String(router.dispatch(new Request(HttpMethod.GET, "/users", "HTTP/1.1")).getBody()));
+        assertEquals(HttpStatus.NOT_FOUND, router.dispatch(new Request(HttpMethod.GET, "/missing", "HTTP/1.1")).getStatus());
+
+        Request slow = new Request(HttpMethod.GET, "/slow", "HTTP/1.1");
+        router.startDeadline(slow);
+        assertEquals(HttpStatus.GATEWAY_TIMEOUT, router.dispatch(slow).getStatus());
+        assertTrue(downstream.isCancelled());
+        assertFalse(Thread.currentThread().isInterrupted());
+    }
+
+    private static Response dispatchAsync(Router router, String path) {
+        return router.dispatchAsync(new Request(HttpMethod.GET, path, "HTTP/1.1")).join();
+    }
+}
@@ -0,0 +1,142 @@
+package com.adavie.server;
+
+import com.adavie.config.LoggerConfig;
+import com.adavie.config.ServerConfig;
+import com.adavie.config.ThreadPoolConfig;
+import com.adavie.response.Response;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Level;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class AsyncRouteTest {
+
+    private static final int PORT = 8293;
+
+    private Server server;
+    private final CompletableFuture<Response> downstream = new CompletableFuture<>();
+    private final CountDownLatch invoked = new CountDownLatch(1);
+
+    @BeforeEach
+    void startServer() {
+        ServerConfig config = new ServerConfig.Builder()
+            .port(PORT)
+            .clientConnectionTimeout(5000)
+            // a single worker, which a pending async request must not hold
+            .threadPoolConfig(new ThreadPoolConfig.Builder()
+                .virtualThreads(false)
+                .minPoolSize(1)
+                .maxPoolSize(1)
+                .queueSize(4)
+                .build())
+            .loggerConfig(new LoggerConfig.Builder().enabledFileLogging(false).logLevel(Level.INFO).build())
+            .build();
+        server = new Server(config);
+        server.get("/hello", request -> Response.ok("hello"));
+        server.getAsync("/downstream", request -> {
+            invoked.countDown();
+            return downstream;
+        });
+        server.postAsync("/echo", request -> CompletableFuture.supplyAsync(() -> Response.ok(request.getBodyAsString())));
+        server.getAsync("/slow", request -> new CompletableFuture<>()).timeout(100, TimeUnit.MILLISECONDS);
+        server.start();
+    }
+
+    @AfterEach
+    void stopServer() {
+        downstream.complete(Response.ok("done"));
+        server.stop();
+    }
+
+    @Test
+    void testPendingRequestReleasesWorker() throws Exception {
+        try (Socket waiting = connect(); Socket other = connect()) {
+            send(waiting, "GET /downstream HTTP/1.1\r\nHost: localhost\r\n\r\n");
+            assertTrue(invoked.await(5, TimeUnit.SECONDS));
+
+            // the only worker is free to serve another connection meanwhile
+            send(other, "GET /hello HTTP/1.1\r\nHost: localhost\r\nConnection: close\r\n\r\n");
+            assertTrue(readResponse(other.getInputStream()).endsWith("\r\n\r\nhello"));
+
+            downstream.complete(Response.ok("downstream"));
+            assertTrue(readResponse(waiting.getInputStream()).endsWith("\r\n\r\ndownstream"));
+
+            // the connection carries on with the next request
+            send(waiting, "GET /hello HTTP/1.1\r\nHost: localhost\r\n\r\n");
+            assertTrue(readResponse(waiting.getInputStream()).endsWith("\r\n\r\nhello"));
+        }
+    }
+
+    @Test
+    void testBodyStaysReadableUntilCompletion() throws IOException {
+        try (Socket socket = connect()) {
+            send(socket, "POST /echo HTTP/1.1\r\nHost: localhost\r\nContent-Length: 4\r\n\r\nping"
+                + "POST /echo HTTP/1.1\r\nHost: localhost\r\nContent-Length: 4\r\n\r\npong");
+            assertTrue(readResponse(socket.getInputStream()).endsWith("\r\n\r\nping"));
+            assertTrue(readResponse(socket.getInputStream()).endsWith("\r\n\r\npong"));
+        }
+    }
+
+    @Test
+    void testTimeoutAnswersGatewayTimeout() throws IOException {
+        try (Socket socket = connect()) {
+            send(socket, "GET /slow HTTP/1.1\r\nHost: localhost\r\n\r\n");
+            assertTrue(readResponse(socket.getInputStream()).startsWith("HTTP/1.1 504 "));
+        }
+    }
+
+    @Test
+    void testLoopbackConnectorWaitsForAsyncHandler() {
+        try (LoopbackConnector connector = server.loopback()) {
+            byte[] response = connector.exchange(
+                "POST /echo HTTP/1.1\r\nHost: localhost\r\nContent-Length: 4\r\nConnection: close\r\n\r\nloop"
+                    .getBytes(StandardCharsets.US_ASCII));
+            assertTrue(new String(response, StandardCharsets.ISO_8859_1).endsWith("\r\n\r\nloop"));
+        }
+    }
+
+    private static Socket connect() throws IOException {
+        Socket socket = new Socket("localhost", PORT);
+        socket.setSoTimeout(5000);
+        return socket;
+    }
+
+    private static void send(Socket socket, String request) throws IOException {
+        socket.getOutputStream().write(request.getBytes(StandardCharsets.US_ASCII));
+    }
+
+    /**
+     * Reads one response framed by its {@code Content-Length}.
+     */
+    private static String readResponse(InputStream in) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        String head = "";
+        while (!head.endsWith("\r\n\r\n")) {
+            int b = in.read();
+            if (b < 0) {
+                throw new IOException("Connection closed after: " + head);
+            }
+            bytes.write(b);
+            head = bytes.toString(StandardCharsets.ISO_8859_1);
+        }
+        int length = 0;
+        for (String line : head.split("\r\n")) {
+            if (line.toLowerCase().startsWith("content-length:")) {
+                length = Integer.parseInt(line.substring(15).trim());
+            }
+        }
+        byte[] body = in.readNBytes(length);
+        return head + new String(body, StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,106 @@
+package com.adavie.server;
+
+import com.adavie.config.LoggerConfig;
+import com.adavie.config.ServerConfig;
+import com.adavie.response.Response;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.InetAddress;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.util.logging.Level;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ConnectionLimiterTest {
+
+    private static final int PORT = 8284;
+
+    @Test
+    void testTotalLimit() throws IOException {
+        ConnectionLimiter limiter = new ConnectionLimiter(2, 0);
+        InetAddress a = InetAddress.getByName("10.0.0.1");
+        InetAddress b = InetAddress.getByName("10.0.0.2");
+
+        assertTrue(limiter.tryAcquire(a));
+        assertTrue(limiter.tryAcquire(b));
+        assertFalse(limiter.tryAcquire(b));
+        assertEquals(2, limiter.getOpenConnections());
+        assertEquals(1, limiter.getRejectedConnections());
+
+        limiter.release(a);
+        assertTrue(limiter.tryAcquire(b));
+    }
+
+    @Test
+    void testPerAddressLimit() throws IOException {
+        ConnectionLimiter limiter = new ConnectionLimiter(0, 2);
+        InetAddress a = InetAddress.getByName("10.0.0.1");
+        InetAddress b = InetAddress.getByName("10.0.0.2");
+
+        assertTrue(limiter.tryAcquire(a));
+        assertTrue(limiter.tryAcquire(a));
+        assertFalse(limiter.tryAcquire(a));
+        assertTrue(limiter.tryAcquire(b));
+        assertEquals(3, limiter.getOpenConnections());
+
+        limiter.release(a);
+        assertTrue(limiter.tryAcquire(a));
+    }
+
+    @Test
+    void testUnlimitedByDefault() throws IOException {
+        ConnectionLimiter limiter = new ConnectionLimiter(0, 0);
+        InetAddress a = InetAddress.getByName("10.0.0.1");
+        for (int i = 0; i < 10000; i++) {
+            assertTrue(limiter.tryAcquire(a));
+        }
+        assertThrows(IllegalArgumentException.class, () -> new ConnectionLimiter(-1, 0));
+    }
+
+    @Test
+    void testAcceptLoopClosesConnectionsOverLimit() throws Exception {
+        ServerConfig config = new ServerConfig.Builder()
+            .port(PORT)
+            .clientConnectionTimeout(5000)
+            .maxConnectionsPerIp(2)
+            .loggerConfig(new LoggerConfig.Builder().enabledFileLogging(false).logLevel(Level.INFO).build())
+            .build();
+        Server server = new Server(config);
+        server.get("/hello", request -> Response.ok("hello"));
+        server.start();
+
+        try (Socket first = new Socket("localhost", PORT); Socket second = new Socket("localhost", PORT)) {
+            assertTrue(get(first).startsWith("HTTP/1.1 200 OK"));
+            assertTrue(get(second).startsWith("HTTP/1.1 200 OK"));
+
+            try (Socket third = new Socket("localhost", PORT)) {
+                third.setSoTimeout(5000);
+                assertEquals(-1, third.getInputStream().read());
+            }
+
+            first.close();
+            long deadline = System.currentTimeMillis() + 5000;
+            while (server.getConnectionLimiter().getOpenConnections() > 1 && System.currentTimeMillis() < deadline) {
+                Thread.sleep(10);
+            }
+            try (Socket fourth = new Socket("localhost", PORT)) {
+                assertTrue(get(fourth).startsWith("HTTP/1.1 200 OK"));
+            }
+            assertEquals(1, server.getConnectionLimiter().getRejectedConnections());
+        } finally {
+            server.stop();
+        }
+    }
+
+    private static String get(Socket socket) throws IOException {
+        socket.setSoTimeout(5000);
+        socket.getOutputStream().write("GET /hello HTTP/1.1\r\nHost: localhost\r\n\r\n".getBytes(StandardCharsets.US_ASCII));
+        InputStream in = socket.getInputStream();
+        byte[] buffer = new byte[512];
+        int n = in.read(buffer);
+        return new String(buffer, 0, n, StandardCharsets.ISO_8859_1);
+    }
+}
@@ -0,0 +1,103 @@
+package com.adavie.server;
+
+import com.adavie.config.LoggerConfig;
+import com.adavie.config.ServerConfig;
+import com.adavie.response.Response;
+import com.adavie.transport.LoopbackTransport;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.logging.Level;
+
+/**
+ * Throughput benchmark of parsing, routing, handler dispatch and response writing, run over a
+ * {@link LoopbackConnector} so that kernel networking does not add noise to the figures.
+ *
+ * <p>Each scenario is repeated for several rounds after a warm-up; the spread between rounds shows
+ * how small a regression the figures can reveal on the machine at hand.
+ *
+ * <p>Not a unit test; run it with
+ * {@code java -cp <test classes>:<classes> com.adavie.server.LoopbackBenchmark [requests per round] [rounds]}.
+ */
+public class LoopbackBenchmark {
+  private static final String BODY = repeat('x', 1024);
+
+  public static void main(String[] args) {
+    int requests = args.length > 0 ? Integer.parseInt(args[0]) : 200_000;
+    int rounds = args.length > 1 ? Integer.parseInt(args[1]) : 10;
+
+    ServerConfig config = new ServerConfig.Builder()
+        .loggerConfig(new LoggerConfig.Builder().enabledFileLogging(false).logLevel(Level.WARNING).build())
+        .build();
+    Server server = new Server(config);
+    server.get("/ping", request -> Response.ok("pong"));
+    server.get("/users", request -> Response.ok(request.getQueryParameter("id")));
+    server.post("/echo", request -> Response.ok(request.getBodyAsString()));
+
+    try (LoopbackConnector connector = server.loopback()) {
+      run(connector, "GET /ping, one request per connection",
+          "GET /ping HTTP/1.1\r\nHost: localhost\r\nConnection: close\r\n\r\n", 1, requests, rounds);
+      run(connector, "GET /users?id= with browser headers",
+          "GET /users?id=42&expand=true HTTP/1.1\r\nHost: localhost\r\nUser-Agent: Mozilla/5.0\r\n"
+              + "Accept: text/html,application/json;q=0.9\r\nAccept-Encoding: gzip, deflate\r\n"
+              + "Accept-Language: en-GB,en;q=0.8\r\nCookie: session=abcdef0123456789\r\nConnection: close\r\n\r\n",
+          1, requests, rounds);
+      run(connector, "POST /echo with a 1 KiB body",
+          "POST /echo HTTP/1.1\r\nHost: localhost\r\nContent-Length: 1024\r\nConnection: close\r\n\r\n" + BODY,
+          1, requests, rounds);
+      run(connector, "GET /ping, 16 pipelined requests per connection",
+          repeat("GET /ping HTTP/1.1\r\nHost: localhost\r\n\r\n", 16), 16, requests, rounds);
+    }
+  }
+
+  private static void run(LoopbackConnector connector, String name, String request, int perConnection,
+                          int requests, int rounds) {
+    byte[] bytes = request.getBytes(StandardCharsets.ISO_8859_1);
+    LoopbackTransport transport = new LoopbackTransport(bytes);
+    int connections = Math.max(1, requests / perConnection);
+
+    // warm up until the JIT has compiled the pipeline
+    measure(connector, transport, bytes, connections);
+    measure(connector, transport, bytes, connections);
+
+    double[] nanosPerRequest = new double[rounds];
+    for (int r = 0; r < rounds; r++) {
+      nanosPerRequest[r] = measure(connector, transport, bytes, connections) / (double) (connections * perConnection);
+    }
+    Arrays.sort(nanosPerRequest);
+    double median = nanosPerRequest[rounds / 2];
+    System.out.printf("%s: %.0f ns/request (%.0f requests/s), rounds %.0f-%.0f ns, spread %.1f%%%n",
+        name, median, 1e9 / median, nanosPerRequest[0], nanosPerRequest[rounds - 1],
+        100 * (nanosPerRequest[rounds - 1] - nanosPerRequest[0]) / median);
+  }
+
+  private static long measure(LoopbackConnector connector, LoopbackTransport transport, byte[] request,
+                              int connections) {
+    long responseBytes = 0;
+    long start = System.nanoTime();
+    for (int i = 0; i < connections; i++) {
+      transport.reset(request);
+      connector.serve(transport);
+      responseBytes += transport.getOutputLength();
+    }
+    long elapsed = System.nanoTime() - start;
+    if (responseBytes == 0) {
+      throw new IllegalStateException("No responses written");
+    }
+    return elapsed;
+  }
+
+  private static String repeat(char c, int count) {
+    char[] chars = new char[count];
+    Arrays.fill(chars, c);
+    return new String(chars);
+  }
+
+  private static String repeat(String text, int count) {
+    StringBuilder builder = new StringBuilder(text.length() * count);
+    for (int i = 0; i < count; i++) {
+      builder.append(text);
+    }
+    return builder.toString();
+  }
+}
@@ -0,0 +1,90 @@
+package com.adavie.server;
+
+import com.adavie.config.LoggerConfig;
+import com.adavie.config.ServerConfig;
+import com.adavie.response.Response;
+import com.adavie.transport.LoopbackTransport;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.util.logging.Level;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class LoopbackConnectorTest {
+
+    private Server server;
+    private LoopbackConnector connector;
+
+    @BeforeEach
+    void createServer() {
+        ServerConfig config = new ServerConfig.Builder()
+            .loggerConfig(new LoggerConfig.Builder().enabledFileLogging(false).logLevel(Level.INFO).build())
+            .build();
+        server = new Server(config);
+        server.get("/hello", request -> Response.ok("hello"));
+        server.get("/thread", request -> Response.ok(Thread.currentThread().getName()));
+        server.post("/echo", request -> Response.ok(request.getBodyAsString()));
+        // the server is never started, so no port is bound
+        connector = server.loopback();
+    }
+
+    @AfterEach
+    void closeConnector() {
+        connector.close();
+    }
+
+    @Test
+    void testServesRequestWithoutSockets() {
+        String response = exchange("GET /hello HTTP/1.1\r\nHost: localhost\r\nConnection: close\r\n\r\n");
+
+        assertTrue(response.startsWith("HTTP/1.1 200 OK\r\n"), response);
+        assertTrue(response.endsWith("\r\n\r\nhello"), response);
+        assertEquals(1, connector.getMetrics().getRequests());
+    }
+
+    @Test
+    void testRunsHandlerOnCallingThread() {
+        String response = exchange("GET /thread HTTP/1.1\r\nHost: localhost\r\nConnection: close\r\n\r\n");
+        assertTrue(response.endsWith("\r\n\r\n" + Thread.currentThread().getName()), response);
+    }
+
+    @Test
+    void testServesPipelinedRequestsOnOneConnection() {
+        String response = exchange("GET /hello HTTP/1.1\r\nHost: localhost\r\n\r\n"
+            + "POST /echo HTTP/1.1\r\nHost: localhost\r\nContent-Length: 4\r\n\r\nping"
+            + "GET /missing HTTP/1.1\r\nHost: localhost\r\n\r\n");
+
+        int first = response.indexOf("HTTP/1.1 200 OK");
+        int second = response.indexOf("HTTP/1.1 200 OK", first + 1);
+        assertTrue(first == 0 && second > 0, response);
+        assertTrue(response.contains("\r\n\r\nping"), response);
+        assertTrue(response.contains("HTTP/1.1 404 "), response);
+    }
+
+    @Test
+    void testRequestsSplitAcrossReads() {
+        LoopbackTransport transport = new LoopbackTransport(
+            bytes("POST /echo HTTP/1.1\r\nHost: localhost\r\nContent-Length: 11\r\n\r\nhello world"), 3);
+        connector.serve(transport);
+
+        String response = new String(transport.getOutput(), StandardCharsets.ISO_8859_1);
+        assertTrue(response.endsWith("\r\n\r\nhello world"), response);
+        assertFalse(transport.isOpen());
+    }
+
+    @Test
+    void testMalformedRequestIsAnswered() {
+        assertTrue(exchange("GET\r\n\r\n").startsWith("HTTP/1.1 400 "));
+    }
+
+    private String exchange(String request) {
+        return new String(connector.exchange(bytes(request)), StandardCharsets.ISO_8859_1);
+    }
+
+    private static byte[] bytes(String text) {
+        return text.getBytes(StandardCharsets.US_ASCII);
+    }
+}
@@ -0,0 +1,180 @@
+package com.adavie.server;
+
+import com.adavie.config.ListenerConfig;
+import com.adavie.config.LoggerConfig;
+import com.adavie.config.ServerConfig;
+import com.adavie.config.ThreadPoolConfig;
+import com.adavie.response.Response;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.ConnectException;
+import java.net.Socket;
+import java.net.UnixDomainSocketAddress;
+import java.nio.channels.Channels;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Level;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class MultipleListenersTest {
+
+    private static final int PORT = 8291;
+    private static final int ADMIN_PORT = 8292;
+
+    @TempDir
+    Path directory;
+
+    private Path socketPath;
+    private Server server;
+    private final CountDownLatch release = new CountDownLatch(1);
+    private final CountDownLatch blocked = new CountDownLatch(2);
+
+    @BeforeEach
+    void startServer() {
+        socketPath = directory.resolve("local.sock");
+        ServerConfig config = new ServerConfig.Builder()
+            .port(PORT)
+            .clientConnectionTimeout(5000)
+            // two workers, so that two slow requests occupy every worker of the public port
+            .threadPoolConfig(pool())
+            .listener(new ListenerConfig.Builder("admin").port(ADMIN_PORT).threadPoolConfig(pool()).build())
+            .listener(new ListenerConfig.Builder("local").unixSocketPath(socketPath).build())
+            .loggerConfig(new LoggerConfig.Builder().enabledFileLogging(false).logLevel(Level.INFO).build())
+            .build();
+        server = new Server(config);
+        server.get("/hello", request -> Response.ok("hello"));
+        server.get("/slow", request -> {
+            blocked.countDown();
+            try {
+                release.await(10, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            return Response.ok("slow");
+        });
+        server.start();
+    }
+
+    @AfterEach
+    void stopServer() {
+        release.countDown();
+        if (server != null) {
+            server.stop();
+        }
+    }
+
+    @Test
+    void testEveryListenerServesTheRoutes() throws IOException {
+        assertTrue(get(PORT, "/hello").endsWith("\r\n\r\nhello"));
+        assertTrue(get(ADMIN_PORT, "/hello").endsWith("\r\n\r\nhello"));
+
+        try (SocketChannel channel = SocketChannel.open(UnixDomainSocketAddress.of(socketPath))) {
+            Channels.newOutputStream(channel).write(request("/hello"));
+            assertTrue(readResponse(Channels.newInputStream(channel)).endsWith("\r\n\r\nhello"));
+        }
+    }
+
+    @Test
+    void testListenerWithItsOwnExecutorIsIsolated() throws Exception {
+        Socket first = new Socket("localhost", PORT);
+        Socket second = new Socket("localhost", PORT);
+        try {
+            first.getOutputStream().write(request("/slow"));
+            second.getOutputStream().write(request("/slow"));
+            assertTrue(blocked.await(5, TimeUnit.SECONDS));
+
+            // both server workers are busy, but the admin port runs on workers of its own
+            assertTrue(get(ADMIN_PORT, "/hello").endsWith("\r\n\r\nhello"));
+            assertEquals(1, server.getExecutorStats("admin").getSubmitted());
+            assertEquals(2, server.getExecutorStats(ServerConfig.MAIN_LISTENER).getSubmitted());
+            // the Unix socket shares the server's executor
+            assertSame(server.getExecutorStats(ServerConfig.MAIN_LISTENER).getClass(),
+                server.getExecutorStats("local").getClass());
+            assertEquals(2, server.getExecutorStats("local").getSubmitted());
+        } finally {
+            release.countDown();
+            first.close();
+            second.close();
+        }
+    }
+
+    @Test
+    void testUnknownListener() {
+        IllegalArgumentException exception = assertThrows(
+            IllegalArgumentException.class,
+            () -> server.getExecutorStats("missing")
+        );
+        assertEquals("Unknown listener: missing", exception.getMessage());
+    }
+
+    @Test
+    void testStopClosesEveryListener() throws IOException {
+        assertTrue(Files.exists(socketPath));
+        assertTrue(get(ADMIN_PORT, "/hello").endsWith("\r\n\r\nhello"));
+
+        server.stop();
+        server = null;
+
+        assertThrows(ConnectException.class, () -> new Socket("localhost", ADMIN_PORT).close());
+        assertFalse(Files.exists(socketPath));
+    }
+
+    private static ThreadPoolConfig pool() {
+        return new ThreadPoolConfig.Builder()
+            .virtualThreads(false)
+            .minPoolSize(2)
+            .maxPoolSize(2)
+            .queueSize(1)
+            .build();
+    }
+
+    private static byte[] request(String path) {
+        return ("GET " + path + " HTTP/1.1\r\nHost: localhost\r\nConnection: close\r\n\r\n")
+            .getBytes(StandardCharsets.US_ASCII);
+    }
+
+    private static String get(int port, String path) throws IOException {
+        try (Socket socket = new Socket("localhost", port)) {
+            socket.setSoTimeout(5000);
+            OutputStream out = socket.getOutputStream();
+            out.write(request(path));
+            return readResponse(socket.getInputStream());
+        }
+    }
+
+    /**
+     * Reads one response framed by its {@code Content-Length}.
+     */
+    private static String readResponse(InputStream in) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        String head = "";
+        while (!head.endsWith("\r\n\r\n")) {
+            int b = in.read();
+            if (b < 0) {
+                throw new IOException("Connection closed after: " + head);
+            }
+            bytes.write(b);
+            head = bytes.toString(StandardCharsets.ISO_8859_1);
+        }
+        int length = 0;
+        for (String line : head.split("\r\n")) {
+            if (line.toLowerCase().startsWith("content-length:")) {
+                length = Integer.parseInt(line.substring(15).trim());
+            }
+        }
+        byte[] body = in.readNBytes(length);
+        return head + new String(body, StandardCharsets.UTF_8);
+    }
+}
@@ -1,6 +1,8 @@
 package com.adavie.server;
 
 import com.adavie.config.ServerConfig;
+import com.adavie.config.SocketConfig;
+import jdk.net.ExtendedSocketOptions;
 import org.junit.jupiter.api.Test;
 
 import java.io.IOException;
@@ -96,4 +98,34 @@ class ServerSocketHandlerTest {
             serverThread.join(2000);
         }
     }
+
+    @Test
+    void testSocketOptionsAreApplied() throws Exception {
+        SocketConfig config = new SocketConfig.Builder()
+            .tcpNoDelay(true)
+            .keepAlive(true)
+            .tcpKeepIdleSeconds(30)
+            .tcpQuickAck(true)
+            .sendBufferSize(65536)
+            .build();
+
+        try (ServerSocket listener = new ServerSocket()) {
+            SocketOptions.configureListener(listener, config);
+            listener.bind(new InetSocketAddress("localhost", 0), config.getBacklog());
+            assertTrue(listener.getReuseAddress());
+
+            try (Socket client = new Socket("localhost", listener.getLocalPort());
+                 Socket accepted = listener.accept()) {
+                SocketOptions.configureConnection(accepted, config);
+
+                assertTrue(accepted.getTcpNoDelay());
+                assertTrue(accepted.getKeepAlive());
+                // Linux reports double the requested size to account for bookkeeping
+                assertTrue(accepted.getSendBufferSize() >= 65536);
+                if (accepted.supportedOptions().contains(ExtendedSocketOptions.TCP_KEEPIDLE)) {
+                    assertEquals(30, (int) accepted.getOption(ExtendedSocketOptions.TCP_KEEPIDLE));
+                }
+            }
+        }
+    }
 }
@@ -0,0 +1,186 @@
+package com.adavie.server;
+
+import com.adavie.config.LoggerConfig;
+import com.adavie.config.ServerConfig;
+import com.adavie.config.SocketConfig;
+import com.adavie.response.Response;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.logging.Level;
+
+/**
+ * Load benchmark comparing the default {@link SocketConfig} with the settings the server used
+ * before it was configurable: a backlog of 50 and Nagle's algorithm enabled.
+ *
+ * <p>Two scenarios run against each configuration:
+ * <ul>
+ *   <li>a burst of short connections opened at once, where a short accept queue drops SYNs and
+ *       the affected clients wait for the kernel's one second retransmit, and</li>
+ *   <li>keep-alive clients pipelining two small requests, where Nagle's algorithm holds back the
+ *       second response until the client's delayed ACK of the first arrives.</li>
+ * </ul>
+ *
+ * <p>Not a unit test; run it with
+ * {@code java -cp <test classes>:<classes> com.adavie.server.SocketOptionsBenchmark [burst] [clients] [rounds]}.
+ * The burst is capped by {@code net.core.somaxconn}, so raise that as well to see the full effect.
+ */
+public class SocketOptionsBenchmark {
+  private static final byte[] PIPELINED = ("GET /ping HTTP/1.1\r\nHost: localhost\r\n\r\n"
+      + "GET /ping HTTP/1.1\r\nHost: localhost\r\n\r\n").getBytes(StandardCharsets.US_ASCII);
+  private static final byte[] SINGLE_CLOSE = "GET /ping HTTP/1.1\r\nHost: localhost\r\nConnection: close\r\n\r\n"
+      .getBytes(StandardCharsets.US_ASCII);
+
+  public static void main(String[] args) throws Exception {
+    int burst = args.length > 0 ? Integer.parseInt(args[0]) : 2000;
+    int clients = args.length > 1 ? Integer.parseInt(args[1]) : 16;
+    int rounds = args.length > 2 ? Integer.parseInt(args[2]) : 200;
+
+    SocketConfig untuned = new SocketConfig.Builder().backlog(50).tcpNoDelay(false).build();
+    SocketConfig tuned = new SocketConfig.Builder().build();
+
+    run("backlog 50, Nagle on", untuned, 8289, burst, clients, rounds);
+    run("defaults (backlog " + tuned.getBacklog() + ", TCP_NODELAY)", tuned, 8290, burst, clients, rounds);
+  }
+
+  private static void run(String name, SocketConfig socketConfig, int port, int burst, int clients, int rounds)
+      throws Exception {
+    ServerConfig config = new ServerConfig.Builder()
+        .port(port)
+        // long enough that a stalled response does not look like an idle connection
+        .clientConnectionTimeout(10000)
+        .socketConfig(socketConfig)
+        .loggerConfig(new LoggerConfig.Builder().enabledFileLogging(false).logLevel(Level.WARNING).build())
+        .build();
+    Server server = new Server(config);
+    server.get("/ping", request -> Response.ok("pong"));
+    server.start();
+    try {
+      System.out.println(name);
+      connectionBurst(port, burst);
+      pipelinedRequests(port, clients, rounds);
+    } finally {
+      server.stop();
+    }
+  }
+
+  /**
+   * Opens {@code burst} connections at once, each sending one request.
+   */
+  private static void connectionBurst(int port, int burst) throws InterruptedException {
+    long[] latencies = new long[burst];
+    AtomicInteger failures = new AtomicInteger();
+    CountDownLatch start = new CountDownLatch(1);
+    Thread[] threads = new Thread[burst];
+    for (int i = 0; i < burst; i++) {
+      int index = i;
+      threads[i] = new Thread(() -> {
+        try {
+          start.await();
+          long begin = System.nanoTime();
+          try (Socket socket = new Socket()) {
+            socket.connect(new InetSocketAddress("localhost", port), 10000);
+            socket.setSoTimeout(10000);
+            socket.getOutputStream().write(SINGLE_CLOSE);
+            readResponse(socket.getInputStream());
+          }
+          latencies[index] = System.nanoTime() - begin;
+        } catch (IOException | InterruptedException e) {
+          failures.incrementAndGet();
+          latencies[index] = Long.MAX_VALUE;
+        }
+      });
+      threads[i].start();
+    }
+    long begin = System.nanoTime();
+    start.countDown();
+    for (Thread thread : threads) {
+      thread.join();
+    }
+    long elapsed = System.nanoTime() - begin;
+    System.out.printf("  burst of %d connections: %d ms total, %s, %d failed%n",
+        burst, elapsed / 1_000_000, percentiles(latencies), failures.get());
+  }
+
+  /**
+   * Runs {@code clients} keep-alive connections that each send {@code rounds} pairs of pipelined
+   * requests and wait for both responses before sending the next pair.
+   */
+  private static void pipelinedRequests(int port, int clients, int rounds) throws InterruptedException {
+    long[] latencies = new long[clients * rounds];
+    AtomicInteger failures = new AtomicInteger();
+    Thread[] threads = new Thread[clients];
+    long begin = System.nanoTime();
+    for (int c = 0; c < clients; c++) {
+      int client = c;
+      threads[c] = new Thread(() -> {
+        try (Socket socket = new Socket("localhost", port)) {
+          socket.setTcpNoDelay(true);
+          socket.setSoTimeout(10000);
+          OutputStream out = socket.getOutputStream();
+          InputStream in = socket.getInputStream();
+          for (int r = 0; r < rounds; r++) {
+            long start = System.nanoTime();
+            out.write(PIPELINED);
+            readResponse(in);
+            readResponse(in);
+            latencies[client * rounds + r] = System.nanoTime() - start;
+          }
+        } catch (IOException e) {
+          failures.incrementAndGet();
+          Arrays.fill(latencies, client * rounds, (client + 1) * rounds, Long.MAX_VALUE);
+        }
+      });
+      threads[c].start();
+    }
+    for (Thread thread : threads) {
+      thread.join();
+    }
+    long elapsed = System.nanoTime() - begin;
+    System.out.printf("  %d clients x %d pipelined pairs: %.0f pairs/s, %s, %d failed%n",
+        clients, rounds, clients * rounds / (elapsed / 1e9), percentiles(latencies), failures.get());
+  }
+
+  /**
+   * Reads one response framed by its {@code Content-Length}.
+   */
+  private static void readResponse(InputStream in) throws IOException {
+    StringBuilder head = new StringBuilder();
+    while (head.length() < 4 || head.lastIndexOf("\r\n\r\n") != head.length() - 4) {
+      int b = in.read();
+      if (b < 0) {
+        throw new IOException("Connection closed mid-response");
+      }
+      head.append((char) b);
+    }
+    int length = 0;
+    for (String line : head.toString().split("\r\n")) {
+      if (line.regionMatches(true, 0, "Content-Length:", 0, 15)) {
+        length = Integer.parseInt(line.substring(15).trim());
+      }
+    }
+    for (int i = 0; i < length; i++) {
+      if (in.read() < 0) {
+        throw new IOException("Connection closed mid-body");
+      }
+    }
+  }
+
+  private static String percentiles(long[] nanos) {
+    long[] sorted = nanos.clone();
+    Arrays.sort(sorted);
+    return "p50 " + millis(sorted[sorted.length / 2]) + ", p99 " + millis(sorted[(int) (sorted.length * 0.99)])
+        + ", max " + millis(sorted[sorted.length - 1]);
+  }
+
+  private static String millis(long nanos) {
+    return nanos == Long.MAX_VALUE ? "failed" : String.format("%.2f ms", nanos / 1e6);
+  }
+}
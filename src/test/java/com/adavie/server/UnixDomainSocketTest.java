@@ -0,0 +1,172 @@
+package com.adavie.server;
+
+import com.adavie.config.LoggerConfig;
+import com.adavie.config.ServerConfig;
+import com.adavie.response.Response;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.StandardProtocolFamily;
+import java.net.UnixDomainSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.logging.Level;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class UnixDomainSocketTest {
+
+    private static final int PORT = 8289;
+
+    @TempDir
+    Path directory;
+
+    private Server server;
+
+    @AfterEach
+    void stopServer() {
+        if (server != null) {
+            server.stop();
+        }
+    }
+
+    @Test
+    void testServesKeepAliveRequests() throws IOException {
+        Path path = start(0, 5000);
+
+        try (SocketChannel channel = connect(path)) {
+            send(channel, "GET /hello HTTP/1.1\r\nHost: localhost\r\n\r\n");
+            String first = readResponse(Channels.newInputStream(channel));
+            assertTrue(first.startsWith("HTTP/1.1 200 OK"), first);
+            assertTrue(first.endsWith("\r\n\r\nhello"), first);
+
+            send(channel, "POST /echo HTTP/1.1\r\nHost: localhost\r\nContent-Length: 4\r\n\r\nping");
+            assertTrue(readResponse(Channels.newInputStream(channel)).endsWith("\r\n\r\nping"));
+        }
+    }
+
+    @Test
+    void testIdleConnectionTimesOut() throws IOException {
+        Path path = start(0, 200);
+
+        try (SocketChannel channel = connect(path)) {
+            long start = System.nanoTime();
+            assertEquals(-1, Channels.newInputStream(channel).read());
+            assertTrue(System.nanoTime() - start < 5_000_000_000L);
+        }
+    }
+
+    @Test
+    void testNonBlockingRoutesRunOnIoThreads() throws IOException {
+        Path path = start(1, 5000);
+
+        try (SocketChannel channel = connect(path)) {
+            send(channel, "GET /thread HTTP/1.1\r\nHost: localhost\r\n\r\n");
+            assertTrue(readResponse(Channels.newInputStream(channel)).endsWith("\r\n\r\nio-loop-0"));
+
+            // the hand-off switches the channel back to blocking reads with a timeout
+            send(channel, "POST /echo HTTP/1.1\r\nHost: localhost\r\nContent-Length: 4\r\n\r\npong");
+            assertTrue(readResponse(Channels.newInputStream(channel)).endsWith("\r\n\r\npong"));
+        }
+    }
+
+    @Test
+    void testSocketFileIsReplacedAndRemoved() throws Exception {
+        Path path = directory.resolve("stale.sock");
+        // closing a bound channel leaves its socket file behind, as a crashed process would
+        ServerSocketChannel.open(StandardProtocolFamily.UNIX).bind(UnixDomainSocketAddress.of(path)).close();
+        assertTrue(Files.exists(path));
+        start(path, 0, 5000);
+
+        try (SocketChannel channel = connect(path)) {
+            send(channel, "GET /hello HTTP/1.1\r\nHost: localhost\r\nConnection: close\r\n\r\n");
+            assertTrue(readResponse(Channels.newInputStream(channel)).endsWith("\r\n\r\nhello"));
+        }
+
+        server.stop();
+        server = null;
+        assertFalse(Files.exists(path));
+    }
+
+    @Test
+    void testOtherFilesAtThePathAreLeftAlone() throws Exception {
+        Path file = directory.resolve("data.txt");
+        Files.write(file, "keep me".getBytes(StandardCharsets.US_ASCII));
+        assertThrows(RuntimeException.class, () -> start(file, 0, 5000));
+        server = null;
+        assertEquals("keep me", new String(Files.readAllBytes(file), StandardCharsets.US_ASCII));
+
+        Path live = directory.resolve("live.sock");
+        try (ServerSocketChannel other = ServerSocketChannel.open(StandardProtocolFamily.UNIX)) {
+            other.bind(UnixDomainSocketAddress.of(live));
+            assertThrows(RuntimeException.class, () -> start(live, 0, 5000));
+            server = null;
+            assertTrue(Files.exists(live));
+        }
+    }
+
+    private Path start(int ioThreads, int timeoutMillis) {
+        Path path = directory.resolve("server.sock");
+        start(path, ioThreads, timeoutMillis);
+        return path;
+    }
+
+    private void start(Path path, int ioThreads, int timeoutMillis) {
+        ServerConfig config = new ServerConfig.Builder()
+            .port(PORT)
+            .unixSocketPath(path)
+            .ioThreads(ioThreads)
+            .clientConnectionTimeout(timeoutMillis)
+            .loggerConfig(new LoggerConfig.Builder().enabledFileLogging(false).logLevel(Level.INFO).build())
+            .build();
+        server = new Server(config);
+        server.get("/hello", request -> Response.ok("hello"));
+        server.get("/thread", request -> Response.ok(Thread.currentThread().getName())).nonBlocking();
+        server.post("/echo", request -> Response.ok(request.getBodyAsString()));
+        server.start();
+    }
+
+    private static SocketChannel connect(Path path) throws IOException {
+        return SocketChannel.open(UnixDomainSocketAddress.of(path));
+    }
+
+    private static void send(SocketChannel channel, String request) throws IOException {
+        ByteBuffer buffer = ByteBuffer.wrap(request.getBytes(StandardCharsets.US_ASCII));
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+    }
+
+    /**
+     * Reads one response framed by its {@code Content-Length}.
+     */
+    private static String readResponse(InputStream in) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        String head = "";
+        while (!head.endsWith("\r\n\r\n")) {
+            int b = in.read();
+            if (b < 0) {
+                throw new IOException("Connection closed after: " + head);
+            }
+            bytes.write(b);
+            head = bytes.toString(StandardCharsets.ISO_8859_1);
+        }
+        int length = 0;
+        for (String line : head.split("\r\n")) {
+            if (line.toLowerCase().startsWith("content-length:")) {
+                length = Integer.parseInt(line.substring(15).trim());
+            }
+        }
+        byte[] body = in.readNBytes(length);
+        return head + new String(body, StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,70 @@
+package com.adavie.transport;
+
+import org.junit.jupiter.api.Test;
+
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.SocketTimeoutException;
+import java.nio.ByteBuffer;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ChannelTransportTest {
+
+    @Test
+    void testReaderAndWriterWaitAtTheSameTime() throws Exception {
+        try (ServerSocketChannel listener = ServerSocketChannel.open()) {
+            listener.bind(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0));
+            try (SocketChannel client = SocketChannel.open(listener.getLocalAddress());
+                 SocketChannel accepted = listener.accept()) {
+                ChannelTransport transport = new ChannelTransport(accepted, 5000, null);
+
+                // a reader waiting for the peer, as an HTTP/2 connection's reading thread does
+                CompletableFuture<Integer> read = CompletableFuture.supplyAsync(() -> {
+                    try {
+                        return transport.read(ByteBuffer.allocate(16));
+                    } catch (Exception e) {
+                        throw new RuntimeException(e);
+                    }
+                });
+                // a writer stuck until the peer drains its socket buffer
+                byte[] large = new byte[16 * 1024 * 1024];
+                CompletableFuture<Integer> written = CompletableFuture.supplyAsync(() -> {
+                    try {
+                        return transport.write(ByteBuffer.wrap(large));
+                    } catch (Exception e) {
+                        throw new RuntimeException(e);
+                    }
+                });
+
+                Thread.sleep(200);
+                client.write(ByteBuffer.wrap(new byte[] {1, 2, 3}));
+                assertEquals(3, (int) read.get(2, TimeUnit.SECONDS));
+
+                ByteBuffer sink = ByteBuffer.allocate(64 * 1024);
+                long drained = 0;
+                while (drained < large.length) {
+                    sink.clear();
+                    drained += client.read(sink);
+                }
+                assertEquals(large.length, (int) written.get(2, TimeUnit.SECONDS));
+                transport.close();
+            }
+        }
+    }
+
+    @Test
+    void testIdleReadTimesOut() throws Exception {
+        try (ServerSocketChannel listener = ServerSocketChannel.open()) {
+            listener.bind(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0));
+            try (SocketChannel client = SocketChannel.open(listener.getLocalAddress());
+                 ChannelTransport transport = new ChannelTransport(listener.accept(), 100, null)) {
+                assertThrows(SocketTimeoutException.class, () -> transport.read(ByteBuffer.allocate(16)));
+            }
+        }
+    }
+}
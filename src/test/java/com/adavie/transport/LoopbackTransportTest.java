@@ -0,0 +1,62 @@
+package com.adavie.transport;
+
+import org.junit.jupiter.api.Test;
+
+import java.nio.ByteBuffer;
+import java.nio.channels.ClosedChannelException;
+import java.nio.charset.StandardCharsets;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class LoopbackTransportTest {
+
+    @Test
+    void testReadsRequestThenEndOfStream() throws Exception {
+        LoopbackTransport transport = new LoopbackTransport(bytes("hello"), 2);
+        ByteBuffer buffer = ByteBuffer.allocate(16);
+
+        assertEquals(2, transport.read(buffer));
+        assertEquals(2, transport.read(buffer));
+        assertEquals(1, transport.read(buffer));
+        assertEquals(-1, transport.read(buffer));
+        assertEquals("hello", new String(buffer.array(), 0, buffer.position(), StandardCharsets.US_ASCII));
+    }
+
+    @Test
+    void testRecordsGatheredWrites() throws Exception {
+        LoopbackTransport transport = new LoopbackTransport(new byte[0]);
+        byte[] large = new byte[10000];
+
+        assertEquals(10005, transport.write(new ByteBuffer[]{ByteBuffer.wrap(bytes("head ")), ByteBuffer.wrap(large)}));
+        assertEquals(10005, transport.getOutputLength());
+        assertEquals("head ", new String(transport.getOutput(), 0, 5, StandardCharsets.US_ASCII));
+    }
+
+    @Test
+    void testResetReopensWithNewRequest() throws Exception {
+        LoopbackTransport transport = new LoopbackTransport(bytes("a"));
+        transport.write(ByteBuffer.wrap(bytes("response")));
+        transport.close();
+        assertThrows(ClosedChannelException.class, () -> transport.read(ByteBuffer.allocate(1)));
+
+        transport.reset(bytes("b"));
+        assertTrue(transport.isOpen());
+        assertEquals(0, transport.getOutputLength());
+        ByteBuffer buffer = ByteBuffer.allocate(1);
+        assertEquals(1, transport.read(buffer));
+        assertEquals('b', buffer.get(0));
+    }
+
+    @Test
+    void testRejectsEmptyReads() {
+        IllegalArgumentException exception = assertThrows(
+            IllegalArgumentException.class,
+            () -> new LoopbackTransport(new byte[0], 0)
+        );
+        assertEquals("Max read must be at least 1 byte", exception.getMessage());
+    }
+
+    private static byte[] bytes(String text) {
+        return text.getBytes(StandardCharsets.US_ASCII);
+    }
+}
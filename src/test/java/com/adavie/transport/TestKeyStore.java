@@ -0,0 +1,68 @@
+package com.adavie.transport;
+
+import javax.net.ssl.KeyManagerFactory;
+import javax.net.ssl.SSLContext;
+import javax.net.ssl.TrustManagerFactory;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.security.KeyStore;
+
+/**
+ * Generates a throwaway self-signed key store with the JDK's keytool for TLS tests.
+ */
+public final class TestKeyStore {
+    public static final char[] PASSWORD = "changeit".toCharArray();
+
+    private TestKeyStore() {
+    }
+
+    public static Path create(Path directory) throws Exception {
+        Path keyStore = directory.resolve("test-keystore.p12");
+        String keytool = Paths.get(System.getProperty("java.home"), "bin", "keytool").toString();
+        Process process = new ProcessBuilder(
+                keytool, "-genkeypair",
+                "-alias", "test",
+                "-keyalg", "EC",
+                "-groupname", "secp256r1",
+                "-dname", "CN=localhost",
+                "-ext", "SAN=dns:localhost,ip:127.0.0.1",
+                "-validity", "1",
+                "-storetype", "PKCS12",
+                "-keystore", keyStore.toString(),
+                "-storepass", new String(PASSWORD),
+                "-keypass", new String(PASSWORD))
+                .redirectErrorStream(true)
+                .start();
+        process.getInputStream().readAllBytes();
+        if (process.waitFor() != 0) {
+            throw new IllegalStateException("keytool failed to create test key store");
+        }
+        return keyStore;
+    }
+
+    public static SSLContext serverContext(Path keyStorePath) throws Exception {
+        KeyManagerFactory kmf = KeyManagerFactory.getInstance(KeyManagerFactory.getDefaultAlgorithm());
+        kmf.init(load(keyStorePath), PASSWORD);
+        SSLContext context = SSLContext.getInstance("TLS");
+        context.init(kmf.getKeyManagers(), null, null);
+        return context;
+    }
+
+    public static SSLContext clientContext(Path keyStorePath) throws Exception {
+        TrustManagerFactory tmf = TrustManagerFactory.getInstance(TrustManagerFactory.getDefaultAlgorithm());
+        tmf.init(load(keyStorePath));
+        SSLContext context = SSLContext.getInstance("TLS");
+        context.init(null, tmf.getTrustManagers(), null);
+        return context;
+    }
+
+    private static KeyStore load(Path keyStorePath) throws Exception {
+        KeyStore keyStore = KeyStore.getInstance("PKCS12");
+        try (InputStream in = Files.newInputStream(keyStorePath)) {
+            keyStore.load(in, PASSWORD);
+        }
+        return keyStore;
+    }
+}
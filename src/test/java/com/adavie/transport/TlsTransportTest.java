@@ -0,0 +1,225 @@
+package com.adavie.transport;
+
+import com.adavie.config.TlsConfig;
+import com.adavie.util.SslContextFactory;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import javax.net.ssl.SSLContext;
+import javax.net.ssl.SSLParameters;
+import javax.net.ssl.SSLSocket;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.nio.ByteBuffer;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class TlsTransportTest {
+
+    @TempDir
+    Path tempDir;
+
+    @Test
+    void testBlockingEchoCompletesFullHandshake() throws Exception {
+        Path keyStore = TestKeyStore.create(tempDir);
+        TlsMetrics metrics = new TlsMetrics();
+
+        try (EchoServer server = new EchoServer(serverConfig(keyStore), metrics, false)) {
+            assertEquals("ping", exchange(TestKeyStore.clientContext(keyStore), server.port(), "ping", null));
+            server.awaitConnections(1);
+        }
+
+        assertEquals(1, metrics.getFullHandshakes());
+        assertEquals(0, metrics.getResumedHandshakes());
+        assertEquals(0, metrics.getFailedHandshakes());
+        assertTrue(metrics.getFullHandshakeNanos() > 0);
+    }
+
+    @Test
+    void testSecondConnectionResumesSession() throws Exception {
+        Path keyStore = TestKeyStore.create(tempDir);
+        TlsMetrics metrics = new TlsMetrics();
+        SSLContext clientContext = TestKeyStore.clientContext(keyStore);
+
+        try (EchoServer server = new EchoServer(serverConfig(keyStore), metrics, false)) {
+            assertEquals("first", exchange(clientContext, server.port(), "first", null));
+            assertEquals("second", exchange(clientContext, server.port(), "second", null));
+            server.awaitConnections(2);
+        }
+
+        assertEquals(1, metrics.getFullHandshakes());
+        assertEquals(1, metrics.getResumedHandshakes());
+        assertEquals(0.5, metrics.getResumptionRate());
+    }
+
+    @Test
+    void testApplicationProtocolNegotiation() throws Exception {
+        Path keyStore = TestKeyStore.create(tempDir);
+        TlsConfig config = new TlsConfig.Builder()
+            .sslContext(TestKeyStore.serverContext(keyStore))
+            .applicationProtocols("h2", "http/1.1")
+            .build();
+
+        try (EchoServer server = new EchoServer(config, new TlsMetrics(), false)) {
+            AtomicReference<String> clientProtocol = new AtomicReference<>();
+            exchange(TestKeyStore.clientContext(keyStore), server.port(), "alpn", clientProtocol);
+            server.awaitConnections(1);
+
+            assertEquals("h2", clientProtocol.get());
+            assertEquals("h2", server.lastProtocol.get());
+        }
+    }
+
+    @Test
+    void testNonBlockingHandshake() throws Exception {
+        Path keyStore = TestKeyStore.create(tempDir);
+        TlsMetrics metrics = new TlsMetrics();
+
+        try (EchoServer server = new EchoServer(serverConfig(keyStore), metrics, true)) {
+            assertEquals("non-blocking", exchange(TestKeyStore.clientContext(keyStore), server.port(), "non-blocking", null));
+            server.awaitConnections(1);
+        }
+
+        assertEquals(1, metrics.getFullHandshakes());
+    }
+
+    @Test
+    void testFailedHandshakeIsCounted() throws Exception {
+        Path keyStore = TestKeyStore.create(tempDir);
+        TlsMetrics metrics = new TlsMetrics();
+
+        try (EchoServer server = new EchoServer(serverConfig(keyStore), metrics, false)) {
+            try (Socket plain = new Socket("localhost", server.port())) {
+                plain.getOutputStream().write("GET / HTTP/1.1\r\n\r\n".getBytes(StandardCharsets.US_ASCII));
+                plain.getInputStream().read();
+            } catch (IOException e) {
+                // the server aborts the connection
+            }
+            server.awaitConnections(1);
+        }
+
+        assertEquals(1, metrics.getFailedHandshakes());
+        assertEquals(0, metrics.getFullHandshakes());
+    }
+
+    private TlsConfig serverConfig(Path keyStore) {
+        return new TlsConfig.Builder()
+            .keyStorePath(keyStore.toString())
+            .keyStorePassword(TestKeyStore.PASSWORD)
+            .build();
+    }
+
+    private static String exchange(SSLContext context, int port, String message, AtomicReference<String> protocol)
+        throws Exception {
+        try (SSLSocket socket = (SSLSocket) context.getSocketFactory().createSocket("localhost", port)) {
+            SSLParameters parameters = socket.getSSLParameters();
+            parameters.setApplicationProtocols(new String[]{"h2", "http/1.1"});
+            socket.setSSLParameters(parameters);
+            socket.setSoTimeout(5000);
+
+            byte[] payload = message.getBytes(StandardCharsets.UTF_8);
+            socket.getOutputStream().write(payload);
+            socket.getOutputStream().flush();
+
+            InputStream in = socket.getInputStream();
+            byte[] reply = new byte[payload.length];
+            int read = 0;
+            while (read < reply.length) {
+                int n = in.read(reply, read, reply.length - read);
+                if (n < 0) {
+                    break;
+                }
+                read += n;
+            }
+            if (protocol != null) {
+                protocol.set(socket.getApplicationProtocol());
+            }
+            return new String(reply, 0, read, StandardCharsets.UTF_8);
+        }
+    }
+
+    private static class EchoServer implements AutoCloseable {
+        private final ServerSocketChannel serverChannel;
+        private final Thread thread;
+        private final Semaphore handled = new Semaphore(0);
+        final AtomicReference<String> lastProtocol = new AtomicReference<>();
+
+        EchoServer(TlsConfig config, TlsMetrics metrics, boolean nonBlocking) throws Exception {
+            SSLContext sslContext = SslContextFactory.newSslContext(config);
+            serverChannel = ServerSocketChannel.open();
+            serverChannel.bind(new InetSocketAddress("localhost", 0));
+
+            thread = new Thread(() -> {
+                while (serverChannel.isOpen()) {
+                    try (SocketChannel channel = serverChannel.accept()) {
+                        Transport plain;
+                        if (nonBlocking) {
+                            channel.configureBlocking(false);
+                            plain = new ChannelTransport(channel);
+                        } else {
+                            channel.socket().setSoTimeout(5000);
+                            plain = new SocketTransport(channel.socket());
+                        }
+                        TlsTransport tls = new TlsTransport(plain,
+                            SslContextFactory.newServerEngine(sslContext, config, channel.getRemoteAddress()), metrics);
+                        try {
+                            echo(tls, nonBlocking);
+                            lastProtocol.set(tls.getApplicationProtocol());
+                            tls.close();
+                        } catch (Exception e) {
+                            // handshake failures are recorded in the metrics
+                        } finally {
+                            handled.release();
+                        }
+                    } catch (Exception e) {
+                        return;
+                    }
+                }
+            });
+            thread.start();
+        }
+
+        private static void echo(TlsTransport tls, boolean nonBlocking) throws Exception {
+            ByteBuffer buffer = ByteBuffer.allocate(1024);
+            long deadline = System.currentTimeMillis() + 5000;
+            int n;
+            while ((n = tls.read(buffer)) == 0) {
+                if (!nonBlocking || System.currentTimeMillis() > deadline) {
+                    throw new IllegalStateException("no data");
+                }
+                Thread.sleep(1);
+            }
+            if (n < 0) {
+                throw new IllegalStateException("end of stream");
+            }
+            buffer.flip();
+            tls.write(buffer);
+            while (!tls.flush()) {
+                Thread.sleep(1);
+            }
+        }
+
+        int port() {
+            return serverChannel.socket().getLocalPort();
+        }
+
+        void awaitConnections(int count) throws InterruptedException {
+            assertTrue(handled.tryAcquire(count, 5, TimeUnit.SECONDS));
+        }
+
+        @Override
+        public void close() throws Exception {
+            serverChannel.close();
+            thread.join(2000);
+        }
+    }
+}
@@ -0,0 +1,102 @@
+package com.adavie.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class InstrumentedThreadPoolExecutorTest {
+
+    @Test
+    void testRecordsQueueWaitRunTimeAndPeaks() throws Exception {
+        InstrumentedThreadPoolExecutor executor = new InstrumentedThreadPoolExecutor(
+            1, 1, 60, TimeUnit.SECONDS, new ArrayBlockingQueue<Runnable>(4), new ThreadPoolExecutor.AbortPolicy());
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        try {
+            executor.execute(() -> {
+                started.countDown();
+                await(release);
+            });
+            assertTrue(started.await(5, TimeUnit.SECONDS));
+            executor.execute(() -> { });
+            executor.execute(() -> { });
+
+            ExecutorStats busy = executor.getStats();
+            assertEquals(3, busy.getSubmitted());
+            assertEquals(1, busy.getActive());
+            assertEquals(2, busy.getQueued());
+            assertEquals(2, busy.getPeakQueued());
+
+            Thread.sleep(20);
+            release.countDown();
+            waitForCompleted(executor, 3);
+
+            ExecutorStats idle = executor.getStats();
+            assertEquals(0, idle.getActive());
+            assertEquals(0, idle.getQueued());
+            assertEquals(1, idle.getPeakActive());
+            assertTrue(idle.getMaxQueueWaitNanos() >= TimeUnit.MILLISECONDS.toNanos(20));
+            assertTrue(idle.getMaxRunNanos() >= TimeUnit.MILLISECONDS.toNanos(20));
+            assertTrue(idle.getTotalQueueWaitNanos() >= idle.getMaxQueueWaitNanos());
+            assertEquals(0, idle.getRejected());
+        } finally {
+            release.countDown();
+            executor.shutdown();
+        }
+    }
+
+    @Test
+    void testCountsRejections() throws Exception {
+        InstrumentedThreadPoolExecutor executor = new InstrumentedThreadPoolExecutor(
+            1, 1, 60, TimeUnit.SECONDS, new ArrayBlockingQueue<Runnable>(1), new ThreadPoolExecutor.AbortPolicy());
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        try {
+            executor.execute(() -> {
+                started.countDown();
+                await(release);
+            });
+            assertTrue(started.await(5, TimeUnit.SECONDS));
+            executor.execute(() -> { });
+            assertThrows(RejectedExecutionException.class, () -> executor.execute(() -> { }));
+
+            ExecutorStats stats = executor.getStats();
+            assertEquals(1, stats.getRejected());
+            assertEquals(2, stats.getSubmitted());
+            assertEquals(1, stats.getQueued());
+        } finally {
+            release.countDown();
+            executor.shutdown();
+        }
+    }
+
+    @Test
+    void testFactoryExecutorsAreInstrumented() {
+        ThreadPoolExecutor platform = (ThreadPoolExecutor) ThreadPoolFactory.newExecutorService(
+            new com.adavie.config.ThreadPoolConfig.Builder().virtualThreads(false).build());
+        assertTrue(platform instanceof InstrumentedExecutor);
+        platform.shutdown();
+    }
+
+    private static void waitForCompleted(InstrumentedExecutor executor, long count) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (executor.getStats().getCompleted() < count) {
+            assertTrue(System.nanoTime() < deadline, "Tasks did not complete");
+            Thread.sleep(5);
+        }
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
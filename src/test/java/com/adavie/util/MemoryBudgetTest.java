@@ -0,0 +1,67 @@
+package com.adavie.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class MemoryBudgetTest {
+
+    @Test
+    void testReserveAndRelease() {
+        MemoryBudget budget = new MemoryBudget(100);
+
+        assertTrue(budget.tryReserve(60));
+        assertTrue(budget.tryReserve(40));
+        assertFalse(budget.tryReserve(1));
+        assertEquals(100, budget.getUsed());
+
+        budget.release(60);
+        assertEquals(40, budget.getUsed());
+        assertTrue(budget.tryReserve(60));
+    }
+
+    @Test
+    void testReserveTimesOut() throws InterruptedException {
+        MemoryBudget budget = new MemoryBudget(100);
+        budget.tryReserve(100);
+
+        assertFalse(budget.reserve(1, 0, TimeUnit.MILLISECONDS));
+        assertFalse(budget.reserve(1, 20, TimeUnit.MILLISECONDS));
+        assertFalse(budget.reserve(101, 1, TimeUnit.SECONDS));
+    }
+
+    @Test
+    void testWaiterIsWokenByRelease() throws InterruptedException {
+        MemoryBudget budget = new MemoryBudget(100);
+        budget.tryReserve(100);
+        CountDownLatch started = new CountDownLatch(1);
+        AtomicBoolean reserved = new AtomicBoolean();
+
+        Thread waiter = new Thread(() -> {
+            started.countDown();
+            try {
+                reserved.set(budget.reserve(50, 5, TimeUnit.SECONDS));
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        });
+        waiter.start();
+        started.await();
+        Thread.sleep(50);
+        budget.release(50);
+        waiter.join(5000);
+
+        assertTrue(reserved.get());
+        assertEquals(100, budget.getUsed());
+    }
+
+    @Test
+    void testInvalidArguments() {
+        assertThrows(IllegalArgumentException.class, () -> new MemoryBudget(0));
+        assertThrows(IllegalArgumentException.class, () -> new MemoryBudget(10).tryReserve(-1));
+    }
+}
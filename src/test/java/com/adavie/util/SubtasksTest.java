@@ -0,0 +1,70 @@
+package com.adavie.util;
+
+import com.adavie.config.ThreadPoolConfig;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinWorkerThread;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SubtasksTest {
+
+    @Test
+    void testResultsKeepTaskOrder() throws Exception {
+        List<Callable<Integer>> work = new ArrayList<>();
+        for (int i = 0; i < 20; i++) {
+            int value = i;
+            work.add(() -> value * value);
+        }
+
+        List<Integer> results = Subtasks.invokeAll(work);
+
+        assertEquals(20, results.size());
+        for (int i = 0; i < 20; i++) {
+            assertEquals(i * i, (int) results.get(i));
+        }
+    }
+
+    @Test
+    void testFirstFailureIsRethrownUnwrapped() {
+        List<Callable<String>> work = new ArrayList<>();
+        work.add(() -> "ok");
+        work.add(() -> {
+            throw new IOException("backend down");
+        });
+        work.add(() -> {
+            throw new IllegalStateException("later failure");
+        });
+
+        IOException e = assertThrows(IOException.class, () -> Subtasks.invokeAll(work));
+        assertEquals("backend down", e.getMessage());
+    }
+
+    @Test
+    void testSubWorkRunsOnTheHandlersPool() throws Exception {
+        ExecutorService executor = ThreadPoolFactory.newExecutorService(
+            new ThreadPoolConfig.Builder().workStealing(true).parallelism(2).build());
+        try {
+            List<ForkJoinPool> pools = executor.submit(() -> {
+                List<Callable<ForkJoinPool>> work = new ArrayList<>();
+                for (int i = 0; i < 8; i++) {
+                    work.add(() -> ((ForkJoinWorkerThread) Thread.currentThread()).getPool());
+                }
+                return Subtasks.invokeAll(work);
+            }).get(5, TimeUnit.SECONDS);
+
+            for (ForkJoinPool pool : pools) {
+                assertSame(executor, pool);
+            }
+        } finally {
+            executor.shutdown();
+        }
+    }
+}
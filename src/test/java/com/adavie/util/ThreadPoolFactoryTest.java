@@ -1,10 +1,19 @@
 package com.adavie.util;
 
 import com.adavie.config.ThreadPoolConfig;
+import com.adavie.transport.SocketTransport;
 import org.junit.jupiter.api.Test;
 
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.ByteBuffer;
+import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
 import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
 import java.util.logging.Handler;
 import java.util.logging.LogRecord;
 import java.util.logging.Logger;
@@ -157,6 +166,87 @@ class ThreadPoolFactoryTest {
         executor.shutdown();
     }
 
+    @Test
+    void testWorkStealingPool() throws Exception {
+        ThreadPoolConfig config = new ThreadPoolConfig.Builder()
+            .workStealing(true)
+            .parallelism(3)
+            .build();
+
+        ExecutorService executor = ThreadPoolFactory.newExecutorService(config);
+
+        assertTrue(executor instanceof ForkJoinPool);
+        ForkJoinPool pool = (ForkJoinPool) executor;
+        assertEquals(3, pool.getParallelism());
+        assertTrue(pool.getAsyncMode());
+        assertEquals("Task completed", executor.submit(() -> "Task completed").get(5, TimeUnit.SECONDS));
+
+        executor.shutdown();
+    }
+
+    @Test
+    void testWorkStealingPoolLimitsWaitingTasks() throws Exception {
+        ThreadPoolConfig config = new ThreadPoolConfig.Builder()
+            .workStealing(true)
+            .parallelism(1)
+            .maxPoolSize(1)
+            .minPoolSize(1)
+            .queueSize(1)
+            .build();
+        ExecutorService executor = ThreadPoolFactory.newExecutorService(config);
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        try {
+            executor.execute(() -> {
+                started.countDown();
+                awaitQuietly(release);
+            });
+            assertTrue(started.await(5, TimeUnit.SECONDS));
+            executor.execute(() -> { });
+            assertThrows(RejectedExecutionException.class, () -> executor.execute(() -> { }));
+            assertEquals(1, ((InstrumentedExecutor) executor).getStats().getRejected());
+        } finally {
+            release.countDown();
+            executor.shutdown();
+        }
+    }
+
+    @Test
+    void testWorkStealingPoolReplacesWorkersBlockedOnSockets() throws Exception {
+        ThreadPoolConfig config = new ThreadPoolConfig.Builder()
+            .workStealing(true)
+            .parallelism(1)
+            .build();
+        ExecutorService executor = ThreadPoolFactory.newExecutorService(config);
+
+        try (ServerSocket listener = new ServerSocket(0);
+             Socket client = new Socket("localhost", listener.getLocalPort());
+             Socket accepted = listener.accept()) {
+            CountDownLatch reading = new CountDownLatch(1);
+            Future<Integer> read = executor.submit(() -> {
+                reading.countDown();
+                return new SocketTransport(accepted).read(ByteBuffer.allocate(16));
+            });
+            assertTrue(reading.await(5, TimeUnit.SECONDS));
+
+            // the only worker is blocked on the socket, a spare must pick this up
+            assertEquals("Task completed", executor.submit(() -> "Task completed").get(5, TimeUnit.SECONDS));
+
+            client.getOutputStream().write(new byte[]{1, 2, 3});
+            assertEquals(3, (int) read.get(5, TimeUnit.SECONDS));
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    private static void awaitQuietly(CountDownLatch latch) {
+        try {
+            latch.await(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
     private boolean isJava21OrHigher() {
         return Runtime.version().feature() >= 21;
     }
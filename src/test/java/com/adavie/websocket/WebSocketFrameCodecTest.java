@@ -0,0 +1,135 @@
+package com.adavie.websocket;
+
+import org.junit.jupiter.api.Test;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class WebSocketFrameCodecTest {
+
+    private static final int MASK = 0x37FA213D;
+
+    @Test
+    void testDecodeUnmasksInPlace() throws WebSocketException {
+        // RFC 6455 section 5.7, a single-frame masked text message
+        ByteBuffer buffer = ByteBuffer.wrap(new byte[]{
+            (byte) 0x81, (byte) 0x85, 0x37, (byte) 0xfa, 0x21, 0x3d, 0x7f, (byte) 0x9f, 0x4d, 0x51, 0x58
+        });
+        WebSocketFrameCodec codec = new WebSocketFrameCodec(1024);
+
+        assertTrue(codec.decode(buffer));
+        assertTrue(codec.isFin());
+        assertEquals(WebSocketFrameCodec.OPCODE_TEXT, codec.getOpcode());
+        assertEquals(6, codec.getPayloadOffset());
+        assertEquals(5, codec.getPayloadLength());
+        assertEquals("Hello", new String(buffer.array(), 6, 5, StandardCharsets.US_ASCII));
+        assertFalse(buffer.hasRemaining());
+    }
+
+    @Test
+    void testUnmaskAllLengths() throws WebSocketException {
+        for (int length = 0; length < 40; length++) {
+            byte[] payload = payload(length);
+            ByteBuffer buffer = maskedFrame(0x82, payload);
+            WebSocketFrameCodec codec = new WebSocketFrameCodec(1024);
+
+            assertTrue(codec.decode(buffer));
+            byte[] decoded = new byte[length];
+            System.arraycopy(buffer.array(), codec.getPayloadOffset(), decoded, 0, length);
+            assertArrayEquals(payload, decoded, "length " + length);
+        }
+    }
+
+    @Test
+    void testExtendedLengths() throws WebSocketException {
+        WebSocketFrameCodec codec = new WebSocketFrameCodec(100000);
+
+        ByteBuffer medium = maskedFrame(0x82, payload(300));
+        assertEquals(126, medium.get(1) & 0x7F);
+        assertTrue(codec.decode(medium));
+        assertEquals(300, codec.getPayloadLength());
+
+        ByteBuffer large = maskedFrame(0x82, payload(70000));
+        assertEquals(127, large.get(1) & 0x7F);
+        assertTrue(codec.decode(large));
+        assertEquals(70000, codec.getPayloadLength());
+    }
+
+    @Test
+    void testIncompleteFrameLeavesBufferUntouched() throws WebSocketException {
+        ByteBuffer frame = maskedFrame(0x81, payload(10));
+        WebSocketFrameCodec codec = new WebSocketFrameCodec(1024);
+
+        for (int available = 0; available < frame.limit(); available++) {
+            ByteBuffer partial = ByteBuffer.wrap(frame.array(), 0, available);
+            assertFalse(codec.decode(partial));
+            assertEquals(0, partial.position());
+        }
+    }
+
+    @Test
+    void testProtocolViolations() {
+        assertStatus(WebSocket.PROTOCOL_ERROR, ByteBuffer.wrap(new byte[]{(byte) 0x81, 0x00}));
+        assertStatus(WebSocket.PROTOCOL_ERROR, maskedFrame(0x09, payload(1)));
+        assertStatus(WebSocket.PROTOCOL_ERROR, maskedFrame(0x89, payload(126)));
+        assertStatus(WebSocket.PROTOCOL_ERROR, maskedFrame(0xA3, payload(1)));
+        assertStatus(WebSocket.PROTOCOL_ERROR, maskedFrame(0x83, payload(1)));
+        assertStatus(WebSocket.MESSAGE_TOO_BIG, maskedFrame(0x82, payload(2000)));
+    }
+
+    @Test
+    void testEncode() {
+        ByteBuffer small = WebSocketFrameCodec.encode(WebSocketFrameCodec.OPCODE_TEXT, false, payload(5), 0, 5);
+        assertEquals(7, small.remaining());
+        assertEquals((byte) 0x81, small.get(0));
+        assertEquals(5, small.get(1));
+
+        ByteBuffer compressed = WebSocketFrameCodec.encode(WebSocketFrameCodec.OPCODE_BINARY, true, payload(200), 0, 200);
+        assertEquals((byte) 0xC2, compressed.get(0));
+        assertEquals(126, compressed.get(1));
+        assertEquals(200, compressed.getShort(2));
+
+        ByteBuffer large = WebSocketFrameCodec.encode(WebSocketFrameCodec.OPCODE_BINARY, ByteBuffer.wrap(payload(70000)));
+        assertEquals(127, large.get(1));
+        assertEquals(70000L, large.getLong(2));
+        assertEquals(70010, large.remaining());
+    }
+
+    private static void assertStatus(int statusCode, ByteBuffer frame) {
+        WebSocketException exception = assertThrows(
+            WebSocketException.class,
+            () -> new WebSocketFrameCodec(1024).decode(frame)
+        );
+        assertEquals(statusCode, exception.getStatusCode());
+    }
+
+    private static byte[] payload(int length) {
+        byte[] payload = new byte[length];
+        for (int i = 0; i < length; i++) {
+            payload[i] = (byte) (i * 31 + 7);
+        }
+        return payload;
+    }
+
+    private static ByteBuffer maskedFrame(int firstByte, byte[] payload) {
+        ByteBuffer frame = ByteBuffer.allocate(payload.length + 14);
+        frame.put((byte) firstByte);
+        if (payload.length < 126) {
+            frame.put((byte) (0x80 | payload.length));
+        } else if (payload.length <= 0xFFFF) {
+            frame.put((byte) (0x80 | 126));
+            frame.putShort((short) payload.length);
+        } else {
+            frame.put((byte) (0x80 | 127));
+            frame.putLong(payload.length);
+        }
+        frame.putInt(MASK);
+        for (int i = 0; i < payload.length; i++) {
+            frame.put((byte) (payload[i] ^ (MASK >>> (24 - 8 * (i & 3)))));
+        }
+        frame.flip();
+        return frame;
+    }
+}
@@ -0,0 +1,299 @@
+package com.adavie.websocket;
+
+import com.adavie.config.LoggerConfig;
+import com.adavie.config.ServerConfig;
+import com.adavie.config.ThreadPoolConfig;
+import com.adavie.response.Response;
+import com.adavie.server.Server;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.Socket;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Level;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class WebSocketTest {
+
+    private static final int PORT = 8283;
+
+    private final BlockingQueue<String> serverEvents = new LinkedBlockingQueue<>();
+    private Server server;
+
+    @BeforeEach
+    void startServer() {
+        ServerConfig config = new ServerConfig.Builder()
+            .port(PORT)
+            .clientConnectionTimeout(5000)
+            // two request threads: connections must not hold on to them once upgraded
+            .threadPoolConfig(new ThreadPoolConfig.Builder()
+                .virtualThreads(false)
+                .minPoolSize(2)
+                .maxPoolSize(2)
+                .queueSize(200)
+                .build())
+            .loggerConfig(new LoggerConfig.Builder().enabledFileLogging(false).logLevel(Level.INFO).build())
+            .build();
+        server = new Server(config);
+        server.websocket("/echo", new WebSocketHandler() {
+            @Override
+            public void onText(WebSocket socket, String text) {
+                if (text.equals("bye")) {
+                    socket.close(WebSocket.NORMAL_CLOSURE, "done");
+                } else {
+                    socket.sendText(text);
+                }
+            }
+
+            @Override
+            public void onBinary(WebSocket socket, ByteBuffer data) {
+                socket.sendBinary(data);
+            }
+
+            @Override
+            public void onClose(WebSocket socket, int statusCode, String reason) {
+                serverEvents.add("close " + statusCode);
+            }
+        });
+        server.get("/plain", request -> Response.ok("plain"));
+        server.start();
+    }
+
+    @AfterEach
+    void stopServer() {
+        server.stop();
+    }
+
+    @Test
+    void testEchoTextAndBinary() throws Exception {
+        Client client = new Client();
+        java.net.http.WebSocket socket = client.connect();
+
+        socket.sendText("hello", true).get(5, TimeUnit.SECONDS);
+        assertEquals("hello", client.next());
+
+        socket.sendBinary(ByteBuffer.wrap(new byte[]{1, 2, 3}), true).get(5, TimeUnit.SECONDS);
+        assertEquals("binary 3", client.next());
+
+        StringBuilder large = new StringBuilder();
+        for (int i = 0; i < 20000; i++) {
+            large.append((char) ('a' + i % 26));
+        }
+        socket.sendText(large.toString(), true).get(5, TimeUnit.SECONDS);
+        assertEquals(large.toString(), client.next());
+
+        socket.sendClose(java.net.http.WebSocket.NORMAL_CLOSURE, "").get(5, TimeUnit.SECONDS);
+        assertEquals("close 1000", client.next());
+        assertEquals("close 1000", serverEvents.poll(5, TimeUnit.SECONDS));
+    }
+
+    @Test
+    void testFragmentedMessage() throws Exception {
+        Client client = new Client();
+        java.net.http.WebSocket socket = client.connect();
+
+        socket.sendText("frag", false).get(5, TimeUnit.SECONDS);
+        socket.sendPing(ByteBuffer.wrap(new byte[]{9})).get(5, TimeUnit.SECONDS);
+        socket.sendText("mented", true).get(5, TimeUnit.SECONDS);
+
+        assertEquals("pong 1", client.next());
+        assertEquals("fragmented", client.next());
+        socket.abort();
+    }
+
+    @Test
+    void testServerInitiatedClose() throws Exception {
+        Client client = new Client();
+        java.net.http.WebSocket socket = client.connect();
+
+        socket.sendText("bye", true).get(5, TimeUnit.SECONDS);
+
+        // the JDK client answers the close frame itself once onClose returns
+        assertEquals("close 1000", client.next());
+        assertEquals("close 1000", serverEvents.poll(5, TimeUnit.SECONDS));
+    }
+
+    @Test
+    void testConnectionsDoNotHoldRequestThreads() throws Exception {
+        List<Client> clients = new ArrayList<>();
+        List<java.net.http.WebSocket> sockets = new ArrayList<>();
+        for (int i = 0; i < 20; i++) {
+            Client client = new Client();
+            clients.add(client);
+            sockets.add(client.connect());
+        }
+
+        for (int i = 0; i < sockets.size(); i++) {
+            sockets.get(i).sendText("client " + i, true).get(5, TimeUnit.SECONDS);
+        }
+        for (int i = 0; i < clients.size(); i++) {
+            assertEquals("client " + i, clients.get(i).next());
+        }
+
+        // plain requests are still served by the two request threads
+        HttpClient http = HttpClient.newHttpClient();
+        java.net.http.HttpResponse<String> response = http.send(
+            java.net.http.HttpRequest.newBuilder(URI.create("http://localhost:" + PORT + "/plain")).build(),
+            java.net.http.HttpResponse.BodyHandlers.ofString()
+        );
+        assertEquals("plain", response.body());
+
+        for (java.net.http.WebSocket socket : sockets) {
+            socket.abort();
+        }
+    }
+
+    @Test
+    void testPerMessageDeflate() throws Exception {
+        try (Socket socket = new Socket("localhost", PORT)) {
+            socket.setSoTimeout(5000);
+            OutputStream out = socket.getOutputStream();
+            out.write(("GET /echo HTTP/1.1\r\nHost: localhost\r\nUpgrade: websocket\r\nConnection: Upgrade\r\n"
+                + "Sec-WebSocket-Key: dGhlIHNhbXBsZSBub25jZQ==\r\nSec-WebSocket-Version: 13\r\n"
+                + "Sec-WebSocket-Extensions: permessage-deflate; client_max_window_bits\r\n\r\n")
+                .getBytes(StandardCharsets.US_ASCII));
+            out.flush();
+
+            DataInputStream in = new DataInputStream(socket.getInputStream());
+            String head = readHead(in);
+            assertTrue(head.startsWith("HTTP/1.1 101 Switching Protocols\r\n"), head);
+            assertTrue(head.contains("Sec-WebSocket-Extensions: permessage-deflate; server_no_context_takeover;"
+                + " client_no_context_takeover\r\n"), head);
+
+            StringBuilder text = new StringBuilder();
+            for (int i = 0; i < 100; i++) {
+                text.append("compress me please ");
+            }
+            byte[] compressed = deflate(text.toString().getBytes(StandardCharsets.UTF_8));
+            writeMaskedFrame(out, 0xC1, compressed);
+
+            int b0 = in.readUnsignedByte();
+            int b1 = in.readUnsignedByte();
+            assertEquals(0xC1, b0, "FIN, RSV1 and text opcode");
+            int length = b1 == 126 ? in.readUnsignedShort() : b1;
+            byte[] payload = new byte[length];
+            in.readFully(payload);
+            assertTrue(length < text.length());
+            assertEquals(text.toString(), inflate(payload));
+        }
+    }
+
+    private static String readHead(DataInputStream in) throws IOException {
+        ByteArrayOutputStream head = new ByteArrayOutputStream();
+        while (!head.toString(StandardCharsets.US_ASCII.name()).endsWith("\r\n\r\n")) {
+            head.write(in.readUnsignedByte());
+        }
+        return head.toString(StandardCharsets.US_ASCII.name());
+    }
+
+    private static void writeMaskedFrame(OutputStream out, int firstByte, byte[] payload) throws IOException {
+        int mask = 0x12345678;
+        ByteBuffer frame = ByteBuffer.allocate(payload.length + 8);
+        frame.put((byte) firstByte);
+        if (payload.length < 126) {
+            frame.put((byte) (0x80 | payload.length));
+        } else {
+            frame.put((byte) (0x80 | 126));
+            frame.putShort((short) payload.length);
+        }
+        frame.putInt(mask);
+        for (int i = 0; i < payload.length; i++) {
+            frame.put((byte) (payload[i] ^ (mask >>> (24 - 8 * (i & 3)))));
+        }
+        out.write(frame.array(), 0, frame.position());
+        out.flush();
+    }
+
+    private static byte[] deflate(byte[] data) {
+        Deflater deflater = new Deflater(Deflater.DEFAULT_COMPRESSION, true);
+        deflater.setInput(data);
+        byte[] out = new byte[data.length + 64];
+        int size = deflater.deflate(out, 0, out.length, Deflater.SYNC_FLUSH);
+        deflater.end();
+        byte[] trimmed = new byte[size - 4];
+        System.arraycopy(out, 0, trimmed, 0, trimmed.length);
+        return trimmed;
+    }
+
+    private static String inflate(byte[] data) throws Exception {
+        Inflater inflater = new Inflater(true);
+        byte[] input = new byte[data.length + 4];
+        System.arraycopy(data, 0, input, 0, data.length);
+        input[data.length + 2] = (byte) 0xFF;
+        input[data.length + 3] = (byte) 0xFF;
+        inflater.setInput(input);
+        byte[] out = new byte[65536];
+        int size = inflater.inflate(out);
+        inflater.end();
+        return new String(out, 0, size, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * JDK WebSocket client that records every event as a string.
+     */
+    private static class Client implements java.net.http.WebSocket.Listener {
+        private final BlockingQueue<String> events = new LinkedBlockingQueue<>();
+        private final StringBuilder text = new StringBuilder();
+
+        java.net.http.WebSocket connect() throws Exception {
+            return HttpClient.newHttpClient().newWebSocketBuilder()
+                .buildAsync(URI.create("ws://localhost:" + PORT + "/echo"), this)
+                .get(5, TimeUnit.SECONDS);
+        }
+
+        String next() throws InterruptedException {
+            String event = events.poll(5, TimeUnit.SECONDS);
+            assertNotNull(event, "Timed out waiting for a WebSocket event");
+            return event;
+        }
+
+        @Override
+        public CompletionStage<?> onText(java.net.http.WebSocket webSocket, CharSequence data, boolean last) {
+            text.append(data);
+            if (last) {
+                events.add(text.toString());
+                text.setLength(0);
+            }
+            webSocket.request(1);
+            return null;
+        }
+
+        @Override
+        public CompletionStage<?> onBinary(java.net.http.WebSocket webSocket, ByteBuffer data, boolean last) {
+            events.add("binary " + data.remaining());
+            webSocket.request(1);
+            return null;
+        }
+
+        @Override
+        public CompletionStage<?> onPong(java.net.http.WebSocket webSocket, ByteBuffer message) {
+            events.add("pong " + message.remaining());
+            webSocket.request(1);
+            return null;
+        }
+
+        @Override
+        public CompletionStage<?> onClose(java.net.http.WebSocket webSocket, int statusCode, String reason) {
+            events.add("close " + statusCode);
+            return CompletableFuture.completedFuture(null);
+        }
+    }
+}
@@ -0,0 +1,80 @@
+package com.adavie.websocket;
+
+import com.adavie.request.HttpMethod;
+import com.adavie.request.Request;
+import com.adavie.response.HttpException;
+import com.adavie.response.HttpStatus;
+import com.adavie.response.Response;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class WebSocketUpgradeTest {
+
+    private static final WebSocketHandler HANDLER = new WebSocketHandler() {
+    };
+
+    @Test
+    void testAcceptKey() {
+        // RFC 6455 section 1.3
+        assertEquals("s3pPLMBiTxaQ9kYGzzhZRbK+xOo=", WebSocketUpgrade.acceptKey("dGhlIHNhbXBsZSBub25jZQ=="));
+    }
+
+    @Test
+    void testAcceptValidHandshake() {
+        Response response = WebSocketUpgrade.accept(handshake("dGhlIHNhbXBsZSBub25jZQ==", "13"), HANDLER);
+
+        assertEquals(HttpStatus.SWITCHING_PROTOCOLS, response.getStatus());
+        assertEquals("websocket", response.getHeader("Upgrade"));
+        assertEquals("s3pPLMBiTxaQ9kYGzzhZRbK+xOo=", response.getHeader("Sec-WebSocket-Accept"));
+        assertNotNull(response.getUpgrade());
+    }
+
+    @Test
+    void testNonWebSocketRequestNeedsUpgrade() {
+        Request request = new Request(HttpMethod.GET, "/chat", "HTTP/1.1");
+
+        Response response = WebSocketUpgrade.accept(request, HANDLER);
+
+        assertEquals(HttpStatus.UPGRADE_REQUIRED, response.getStatus());
+        assertEquals("13", response.getHeader("Sec-WebSocket-Version"));
+        assertNull(response.getUpgrade());
+    }
+
+    @Test
+    void testUnsupportedVersionNeedsUpgrade() {
+        Request request = handshake("dGhlIHNhbXBsZSBub25jZQ==", "8");
+
+        assertEquals(HttpStatus.UPGRADE_REQUIRED, WebSocketUpgrade.accept(request, HANDLER).getStatus());
+    }
+
+    @Test
+    void testInvalidKey() {
+        HttpException exception = assertThrows(
+            HttpException.class,
+            () -> WebSocketUpgrade.accept(handshake("c2hvcnQ=", "13"), HANDLER)
+        );
+        assertEquals(HttpStatus.BAD_REQUEST, exception.getStatus());
+    }
+
+    @Test
+    void testDeflateOffers() {
+        assertFalse(WebSocketUpgrade.acceptsDeflateOffer(null));
+        assertFalse(WebSocketUpgrade.acceptsDeflateOffer("x-webkit-deflate-frame"));
+        assertTrue(WebSocketUpgrade.acceptsDeflateOffer("permessage-deflate"));
+        assertTrue(WebSocketUpgrade.acceptsDeflateOffer("permessage-deflate; client_max_window_bits"));
+        assertFalse(WebSocketUpgrade.acceptsDeflateOffer("permessage-deflate; server_max_window_bits=10"));
+        assertTrue(WebSocketUpgrade.acceptsDeflateOffer(
+            "permessage-deflate; server_max_window_bits=10, permessage-deflate; client_no_context_takeover"));
+    }
+
+    private static Request handshake(String key, String version) {
+        Request request = new Request(HttpMethod.GET, "/chat", "HTTP/1.1");
+        request.addHeader("Host", "localhost");
+        request.addHeader("Upgrade", "websocket");
+        request.addHeader("Connection", "keep-alive, Upgrade");
+        request.addHeader("Sec-WebSocket-Key", key);
+        request.addHeader("Sec-WebSocket-Version", version);
+        return request;
+    }
+}